@@ -261,6 +261,15 @@ public final class GlideOptions extends RequestOptions implements Cloneable {
     return new GlideOptions().timeout(value);
   }
 
+  /**
+   * @see RequestOptions#timeToLiveOf(long)
+   */
+  @CheckResult
+  @NonNull
+  public static GlideOptions timeToLiveOf(@IntRange(from = 0) long value) {
+    return new GlideOptions().timeToLive(value);
+  }
+
   /**
    * @see RequestOptions#encodeQualityOf(int)
    */
@@ -473,6 +482,13 @@ public final class GlideOptions extends RequestOptions implements Cloneable {
     return (GlideOptions) super.timeout(value);
   }
 
+  @Override
+  @NonNull
+  @CheckResult
+  public final GlideOptions timeToLive(@IntRange(from = 0) long value) {
+    return (GlideOptions) super.timeToLive(value);
+  }
+
   @Override
   @NonNull
   @CheckResult
@@ -433,6 +433,20 @@ public class GlideRequest<TranscodeType> extends RequestBuilder<TranscodeType> i
     return this;
   }
 
+  /**
+   * @see GlideOptions#timeToLive(long)
+   */
+  @NonNull
+  @CheckResult
+  public GlideRequest<TranscodeType> timeToLive(@IntRange(from = 0) long value) {
+    if (getMutableOptions() instanceof GlideOptions) {
+      this.requestOptions = ((GlideOptions) getMutableOptions()).timeToLive(value);
+    } else {
+      this.requestOptions = new GlideOptions().apply(this.requestOptions).timeToLive(value);
+    }
+    return this;
+  }
+
   /**
    * @see GlideOptions#optionalCenterCrop()
    */
@@ -27,7 +27,11 @@ import com.bumptech.glide.load.data.InputStreamRewinder;
 import com.bumptech.glide.load.engine.Engine;
 import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
 import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.DirectByteBufferPool;
+import com.bumptech.glide.load.engine.cache.IncrementalTrimmer;
+import com.bumptech.glide.load.engine.cache.MemoryBudgetController;
 import com.bumptech.glide.load.engine.cache.MemoryCache;
+import com.bumptech.glide.load.engine.prefill.BitmapDemandTracker;
 import com.bumptech.glide.load.engine.prefill.BitmapPreFiller;
 import com.bumptech.glide.load.engine.prefill.PreFillType;
 import com.bumptech.glide.load.model.AssetUriLoader;
@@ -35,6 +39,8 @@ import com.bumptech.glide.load.model.ByteArrayLoader;
 import com.bumptech.glide.load.model.ByteBufferEncoder;
 import com.bumptech.glide.load.model.ByteBufferFileLoader;
 import com.bumptech.glide.load.model.DataUrlLoader;
+import com.bumptech.glide.load.model.DeflatedFile;
+import com.bumptech.glide.load.model.DeflatedFileLoader;
 import com.bumptech.glide.load.model.FileLoader;
 import com.bumptech.glide.load.model.GlideUrl;
 import com.bumptech.glide.load.model.MediaStoreFileLoader;
@@ -116,6 +122,7 @@ public class Glide implements ComponentCallbacks2 {
   //内存缓存
   private final MemoryCache memoryCache;
   private final BitmapPreFiller bitmapPreFiller;
+  @Nullable private final BitmapDemandTracker bitmapDemandTracker;
   //glide的上下文
   private final GlideContext glideContext;
   private final Registry registry;
@@ -124,6 +131,9 @@ public class Glide implements ComponentCallbacks2 {
   private final RequestManagerRetriever requestManagerRetriever;
   private final ConnectivityMonitorFactory connectivityMonitorFactory;
   private final List<RequestManager> managers = new ArrayList<>();
+  @Nullable private final MemoryBudgetController memoryBudgetController;
+  @Nullable private final IncrementalTrimmer incrementalTrimmer;
+  @Nullable private final DirectByteBufferPool directByteBufferPool;
   private MemoryCategory memoryCategory = MemoryCategory.NORMAL;
 
   /**
@@ -227,6 +237,9 @@ public class Glide implements ComponentCallbacks2 {
           .getApplicationContext()
           .unregisterComponentCallbacks(glide);
       glide.engine.shutdown();
+      if (glide.memoryBudgetController != null) {
+        glide.memoryBudgetController.stop();
+      }
     }
     glide = null;
   }
@@ -360,17 +373,32 @@ public class Glide implements ComponentCallbacks2 {
       @NonNull ConnectivityMonitorFactory connectivityMonitorFactory,
       int logLevel,
       @NonNull RequestOptions defaultRequestOptions,
-      @NonNull Map<Class<?>, TransitionOptions<?, ?>> defaultTransitionOptions) {
+      @NonNull Map<Class<?>, TransitionOptions<?, ?>> defaultTransitionOptions,
+      @Nullable MemoryBudgetController memoryBudgetController,
+      @Nullable BitmapDemandTracker bitmapDemandTracker,
+      @Nullable IncrementalTrimmer incrementalTrimmer,
+      @Nullable DirectByteBufferPool directByteBufferPool) {
     this.engine = engine;
+    //获取DecodeFormat 默认是 PREFER_ARGB_8888
+    DecodeFormat decodeFormat = defaultRequestOptions.getOptions().get(Downsampler.DECODE_FORMAT);
+    // Pre-fills the given pool directly so that pre-filled Bitmaps aren't recorded as demand.
+    bitmapPreFiller = new BitmapPreFiller(memoryCache, bitmapPool, decodeFormat);
+    this.bitmapDemandTracker = bitmapDemandTracker;
+    if (bitmapDemandTracker != null) {
+      bitmapPool = bitmapDemandTracker.wrap(bitmapPool);
+      bitmapDemandTracker.preFillWhenIdle(bitmapPreFiller);
+    }
     this.bitmapPool = bitmapPool;
     this.arrayPool = arrayPool;
     this.memoryCache = memoryCache;
     this.requestManagerRetriever = requestManagerRetriever;
     this.connectivityMonitorFactory = connectivityMonitorFactory;
-
-    //获取DecodeFormat 默认是 PREFER_ARGB_8888
-    DecodeFormat decodeFormat = defaultRequestOptions.getOptions().get(Downsampler.DECODE_FORMAT);
-    bitmapPreFiller = new BitmapPreFiller(memoryCache, bitmapPool, decodeFormat);
+    this.memoryBudgetController = memoryBudgetController;
+    if (memoryBudgetController != null) {
+      memoryBudgetController.start();
+    }
+    this.incrementalTrimmer = incrementalTrimmer;
+    this.directByteBufferPool = directByteBufferPool;
 
     final Resources resources = context.getResources();
 
@@ -519,6 +547,8 @@ public class Glide implements ComponentCallbacks2 {
         .append(File.class, ParcelFileDescriptor.class, new FileLoader.FileDescriptorFactory())
         // Compilation with Gradle requires the type to be specified for UnitModelLoader here.
         .append(File.class, File.class, UnitModelLoader.Factory.<File>getInstance())
+        .append(DeflatedFile.class, ByteBuffer.class, new DeflatedFileLoader.ByteBufferFactory())
+        .append(DeflatedFile.class, InputStream.class, new DeflatedFileLoader.StreamFactory())
         /* Models */
         .register(new InputStreamRewinder.Factory(arrayPool))
         .append(int.class, InputStream.class, resourceLoaderStreamFactory)
@@ -631,6 +661,15 @@ public class Glide implements ComponentCallbacks2 {
     return arrayPool;
   }
 
+  /**
+   * Returns the pool set with {@link GlideBuilder#setDirectByteBufferPool(DirectByteBufferPool)},
+   * or {@code null} if none was set.
+   */
+  @Nullable
+  public DirectByteBufferPool getDirectByteBufferPool() {
+    return directByteBufferPool;
+  }
+
   /**
    * @return The context associated with this instance.
    */
@@ -681,12 +720,23 @@ public class Glide implements ComponentCallbacks2 {
   /**
    * Clears as much memory as possible.
    *
+   * <p>If an {@link IncrementalTrimmer} was set with
+   * {@link GlideBuilder#setIncrementalTrimmer(IncrementalTrimmer.Builder)}, memory is cleared over
+   * several main thread messages after this method returns.
+   *
    * @see android.content.ComponentCallbacks#onLowMemory()
    * @see android.content.ComponentCallbacks2#onLowMemory()
    */
   public void clearMemory() {
     // Engine asserts this anyway when removing resources, fail faster and consistently
     Util.assertMainThread();
+    if (directByteBufferPool != null) {
+      directByteBufferPool.clearMemory();
+    }
+    if (incrementalTrimmer != null) {
+      incrementalTrimmer.clearMemory();
+      return;
+    }
     // memory cache needs to be cleared before bitmap pool to clear re-pooled Bitmaps too. See #687.
     memoryCache.clearMemory();
     bitmapPool.clearMemory();
@@ -701,10 +751,20 @@ public class Glide implements ComponentCallbacks2 {
   public void trimMemory(int level) {
     // Engine asserts this anyway when removing resources, fail faster and consistently
     Util.assertMainThread();
-    // memory cache needs to be trimmed before bitmap pool to trim re-pooled Bitmaps too. See #687.
-    memoryCache.trimMemory(level);
-    bitmapPool.trimMemory(level);
-    arrayPool.trimMemory(level);
+    if (directByteBufferPool != null) {
+      directByteBufferPool.trimMemory(level);
+    }
+    if (incrementalTrimmer != null) {
+      incrementalTrimmer.trimMemory(level);
+    } else {
+      // memory cache needs to be trimmed before bitmap pool to trim re-pooled Bitmaps too. See #687.
+      memoryCache.trimMemory(level);
+      bitmapPool.trimMemory(level);
+      arrayPool.trimMemory(level);
+    }
+    if (bitmapDemandTracker != null && level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+      bitmapDemandTracker.save();
+    }
   }
 
   /**
@@ -729,6 +789,19 @@ public class Glide implements ComponentCallbacks2 {
     return requestManagerRetriever;
   }
 
+  /**
+   * Returns a snapshot of hits, misses, evictions and sizes for each of Glide's caches and pools,
+   * and of how long loads have taken, since Glide was initialized.
+   *
+   * <p>Safe to call from any thread.
+   */
+  // Public API.
+  @SuppressWarnings("unused")
+  @NonNull
+  public GlideStats getStats() {
+    return GlideStats.snapshot(engine, memoryCache, bitmapPool, arrayPool);
+  }
+
   /**
    * Adjusts Glide's current and maximum memory usage based on the given {@link MemoryCategory}.
    *
@@ -746,9 +819,14 @@ public class Glide implements ComponentCallbacks2 {
   public MemoryCategory setMemoryCategory(@NonNull MemoryCategory memoryCategory) {
     // Engine asserts this anyway when removing resources, fail faster and consistently
     Util.assertMainThread();
-    // memory cache needs to be trimmed before bitmap pool to trim re-pooled Bitmaps too. See #687.
-    memoryCache.setSizeMultiplier(memoryCategory.getMultiplier());
-    bitmapPool.setSizeMultiplier(memoryCategory.getMultiplier());
+    if (memoryBudgetController != null) {
+      memoryBudgetController.setMemoryCategory(memoryCategory);
+    } else {
+      // memory cache needs to be trimmed before bitmap pool to trim re-pooled Bitmaps too.
+      // See #687.
+      memoryCache.setSizeMultiplier(memoryCategory.getMultiplier());
+      bitmapPool.setSizeMultiplier(memoryCategory.getMultiplier());
+    }
     MemoryCategory oldCategory = this.memoryCategory;
     this.memoryCategory = memoryCategory;
     return oldCategory;
@@ -7,23 +7,31 @@ import android.support.annotation.Nullable;
 import android.support.v4.util.ArrayMap;
 import android.util.Log;
 import com.bumptech.glide.load.engine.Engine;
+import com.bumptech.glide.load.engine.SegmentedDiskCache;
 import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
 import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
 import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPoolAdapter;
+import com.bumptech.glide.load.engine.bitmap_recycle.DirectByteBufferPool;
 import com.bumptech.glide.load.engine.bitmap_recycle.LruArrayPool;
 import com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.MagazineArrayPool;
 import com.bumptech.glide.load.engine.cache.DiskCache;
+import com.bumptech.glide.load.engine.cache.IncrementalTrimmer;
 import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory;
 import com.bumptech.glide.load.engine.cache.LruResourceCache;
+import com.bumptech.glide.load.engine.cache.MemoryBudgetController;
 import com.bumptech.glide.load.engine.cache.MemoryCache;
 import com.bumptech.glide.load.engine.cache.MemorySizeCalculator;
 import com.bumptech.glide.load.engine.executor.GlideExecutor;
+import com.bumptech.glide.load.engine.prefill.BitmapDemandTracker;
+import com.bumptech.glide.load.engine.prefill.PreFillType;
 import com.bumptech.glide.manager.ConnectivityMonitorFactory;
 import com.bumptech.glide.manager.DefaultConnectivityMonitorFactory;
 import com.bumptech.glide.manager.RequestManagerRetriever;
 import com.bumptech.glide.manager.RequestManagerRetriever.RequestManagerFactory;
 import com.bumptech.glide.request.RequestOptions;
 import com.bumptech.glide.request.target.Target;
+import java.io.File;
 import java.util.Map;
 
 /**
@@ -36,9 +44,15 @@ public final class GlideBuilder {
   private ArrayPool arrayPool;
   private MemoryCache memoryCache;
   private GlideExecutor sourceExecutor;
+  @Nullable private GlideExecutor decodeExecutor;
   private GlideExecutor diskCacheExecutor;
   private DiskCache.Factory diskCacheFactory;
+  @Nullable
+  private DiskCache.Factory resourceDiskCacheFactory;
   private MemorySizeCalculator memorySizeCalculator;
+  @Nullable private MemoryBudgetController.Builder memoryBudgetControllerBuilder;
+  @Nullable private IncrementalTrimmer.Builder incrementalTrimmerBuilder;
+  @Nullable private DirectByteBufferPool directByteBufferPool;
   private ConnectivityMonitorFactory connectivityMonitorFactory;
   private int logLevel = Log.INFO;
   private RequestOptions defaultRequestOptions = new RequestOptions();
@@ -46,11 +60,19 @@ public final class GlideBuilder {
   private RequestManagerFactory requestManagerFactory;
   private GlideExecutor animationExecutor;
   private boolean isActiveResourceRetentionAllowed;
+  private boolean isBitmapPoolPreFillFromHistoryEnabled;
+  private boolean isResultDeliveryBatched;
+  private boolean isArrayPoolMagazineEnabled;
+  private boolean isBitmapPoolBestFitEnabled;
 
   /**
    * Sets the {@link com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool} implementation to use
    * to store and retrieve reused {@link android.graphics.Bitmap}s.
    *
+   * <p>Defaults to a {@link LruBitmapPool}. Apps that decode and transform many images at once on
+   * KitKat and above may see less contention with a
+   * {@link com.bumptech.glide.load.engine.bitmap_recycle.SizeClassBitmapPool}.
+   *
    * @param bitmapPool The pool to use.
    * @return This builder.
    */
@@ -64,6 +86,9 @@ public final class GlideBuilder {
    * Sets the {@link ArrayPool} implementation to allow variable sized arrays to be stored
    * and retrieved as needed.
    *
+   * <p>Defaults to a {@link LruArrayPool}, see also
+   * {@link #setIsArrayPoolMagazineEnabled(boolean)}.
+   *
    * @param arrayPool The pool to use.
    * @return This builder.
    */
@@ -77,6 +102,10 @@ public final class GlideBuilder {
    * Sets the {@link com.bumptech.glide.load.engine.cache.MemoryCache} implementation to store
    * {@link com.bumptech.glide.load.engine.Resource}s that are not currently in use.
    *
+   * <p>Defaults to a {@link LruResourceCache}. Apps that show the same small set of resources
+   * over and over again while flinging through many others may get more hits from a
+   * {@link com.bumptech.glide.load.engine.cache.TinyLfuResourceCache}.
+   *
    * @param memoryCache The cache to use.
    * @return This builder.
    */
@@ -104,6 +133,30 @@ public final class GlideBuilder {
     return this;
   }
 
+  /**
+   * Sets a separate {@link com.bumptech.glide.load.engine.cache.DiskCache.Factory} used to store
+   * transformed {@link com.bumptech.glide.load.engine.Resource}s, leaving the factory set in
+   * {@link #setDiskCache(DiskCache.Factory)} to store only unmodified source data.
+   *
+   * <p>Giving transformed resources their own budget prevents large source images from evicting
+   * small thumbnails that would otherwise need to be decoded and transformed again. The factory
+   * must use a different directory than the data cache, for example
+   * {@code new InternalCacheDiskCacheFactory(context, "image_manager_resource_cache", size)}.
+   *
+   * <p>Defaults to null, which stores both in the same cache.
+   *
+   * @param resourceDiskCacheFactory The disk cache factory to use for transformed resources.
+   * @return This builder.
+   * @see com.bumptech.glide.load.engine.SegmentedDiskCache
+   */
+  // Public API.
+  @SuppressWarnings("WeakerAccess")
+  @NonNull
+  public GlideBuilder setResourceDiskCache(@Nullable DiskCache.Factory resourceDiskCacheFactory) {
+    this.resourceDiskCacheFactory = resourceDiskCacheFactory;
+    return this;
+  }
+
   /**
    * Sets the {@link GlideExecutor} to use when retrieving
    * {@link com.bumptech.glide.load.engine.Resource}s that are not already in the cache.
@@ -134,7 +187,8 @@ public final class GlideBuilder {
    * 4.
    *
    * <p>Use the {@link GlideExecutor#newSourceExecutor()} methods if you'd like to specify options
-   * for the source executor.
+   * for the source executor, or {@link GlideExecutor#newAdaptiveSourceExecutor()} for one that
+   * adds threads while loads are blocked on the network and removes them when they're not.
    *
    * @param service The ExecutorService to use.
    * @return This builder.
@@ -172,6 +226,32 @@ public final class GlideBuilder {
     return this;
   }
 
+  /**
+   * Sets a {@link GlideExecutor} to decode, transform and encode data once it's been fetched, so
+   * that the source and disk cache executors only fetch data and loads waiting on the network
+   * don't delay decoding data that's already available.
+   *
+   * <p>Loads that use the unlimited source executor or the animation executor aren't split.
+   *
+   * <p>If no source executor is set, an executor from {@link GlideExecutor#newFetchExecutor()} is
+   * used instead of the default source executor. Queue depths and latencies for both stages are
+   * available from {@link Engine#getFetchStageStats()} and {@link Engine#getDecodeStageStats()}.
+   *
+   * <p>Disabled by default.
+   *
+   * @param service The {@link GlideExecutor} to use, typically from
+   *                {@link GlideExecutor#newDecodeExecutor()}, or null to fetch and decode on the
+   *                same executor.
+   * @return This builder.
+   */
+  // Public API.
+  @SuppressWarnings("unused")
+  @NonNull
+  public GlideBuilder setDecodeExecutor(@Nullable GlideExecutor service) {
+    this.decodeExecutor = service;
+    return this;
+  }
+
   /**
    * Sets the {@link GlideExecutor} to use when loading frames of animated images and particularly
    * of {@link com.bumptech.glide.load.resource.gif.GifDrawable}s.
@@ -267,6 +347,67 @@ public final class GlideBuilder {
     return this;
   }
 
+  /**
+   * Enables a {@link MemoryBudgetController} that periodically moves memory between the
+   * {@link MemoryCache}, {@link BitmapPool} and {@link ArrayPool} based on how often each misses,
+   * rather than keeping the split calculated by {@link MemorySizeCalculator} for the lifetime of
+   * the app.
+   *
+   * <p>Disabled by default.
+   *
+   * @param builder The builder to use, or null to disable rebalancing.
+   * @return This builder.
+   */
+  // Public API.
+  @SuppressWarnings("unused")
+  @NonNull
+  public GlideBuilder setMemoryBudgetController(
+      @Nullable MemoryBudgetController.Builder builder) {
+    this.memoryBudgetControllerBuilder = builder;
+    return this;
+  }
+
+  /**
+   * Enables an {@link IncrementalTrimmer} that spreads the work done by
+   * {@link Glide#trimMemory(int)} and {@link Glide#clearMemory()} across several main thread
+   * messages, freeing the pools before the {@link MemoryCache}, so that trimming doesn't cause
+   * dropped frames.
+   *
+   * <p>When enabled, {@link Glide#clearMemory()} returns before all memory has been freed.
+   *
+   * <p>Disabled by default.
+   *
+   * @param builder The builder to use, or null to trim synchronously.
+   * @return This builder.
+   */
+  // Public API.
+  @SuppressWarnings("unused")
+  @NonNull
+  public GlideBuilder setIncrementalTrimmer(@Nullable IncrementalTrimmer.Builder builder) {
+    this.incrementalTrimmerBuilder = builder;
+    return this;
+  }
+
+  /**
+   * Sets a {@link DirectByteBufferPool} that {@link Glide#trimMemory(int)} and
+   * {@link Glide#clearMemory()} trim along with Glide's other pools, and that's available to
+   * {@link com.bumptech.glide.module.AppGlideModule}s from
+   * {@link Glide#getDirectByteBufferPool()}.
+   *
+   * <p>Glide doesn't stage any data in the pool on its own. Register a
+   * {@link com.bumptech.glide.load.model.PooledByteBufferLoader} to do so.
+   *
+   * @param pool The pool to use, or null for no pool.
+   * @return This builder.
+   */
+  // Public API.
+  @SuppressWarnings("unused")
+  @NonNull
+  public GlideBuilder setDirectByteBufferPool(@Nullable DirectByteBufferPool pool) {
+    this.directByteBufferPool = pool;
+    return this;
+  }
+
   /**
    * Sets the {@link com.bumptech.glide.manager.ConnectivityMonitorFactory}
    * to use to notify {@link com.bumptech.glide.RequestManager} of connectivity events.
@@ -372,6 +513,90 @@ public final class GlideBuilder {
     return this;
   }
 
+  /**
+   * If set to {@code true}, Glide records the sizes of {@link Bitmap}s requested from the
+   * {@link BitmapPool}, persists the most common ones when the app's UI is hidden and pre-fills the
+   * {@link BitmapPool} with them when the main thread is first idle the next time the app starts.
+   *
+   * <p>Pre-filling lets the first images loaded after a cold start re-use {@link Bitmap}s rather
+   * than allocating new ones, at the cost of allocating those {@link Bitmap}s up front. It works
+   * best for apps that load images of a few fixed sizes.
+   *
+   * <p>Disabled by default.
+   *
+   * @see BitmapDemandTracker
+   * @see Glide#preFillBitmapPool(PreFillType.Builder...)
+   * @return This builder.
+   */
+  // Public API.
+  @SuppressWarnings("unused")
+  @NonNull
+  public GlideBuilder setIsBitmapPoolPreFillFromHistoryEnabled(boolean isEnabled) {
+    this.isBitmapPoolPreFillFromHistoryEnabled = isEnabled;
+    return this;
+  }
+
+  /**
+   * If set to {@code true}, loads that finish before the next frame is drawn are delivered to
+   * their {@link com.bumptech.glide.request.target.Target}s together, just before that frame,
+   * rather than each posting its own message to the main thread.
+   *
+   * <p>Batching keeps bursts of finished loads, for example while a list is flung, from
+   * interleaving with input and layout and from spreading over several frames, at the cost of
+   * delaying each result by up to a frame. How many results were delivered per batch is available
+   * from {@link Engine#getDeliveryStats()}.
+   *
+   * <p>Disabled by default.
+   *
+   * @return This builder.
+   */
+  // Public API.
+  @SuppressWarnings("unused")
+  @NonNull
+  public GlideBuilder setIsResultDeliveryBatched(boolean isBatched) {
+    this.isResultDeliveryBatched = isBatched;
+    return this;
+  }
+
+  /**
+   * If set to {@code true}, the default {@link LruBitmapPool} is created with
+   * {@link LruBitmapPool#newBestFitPool(long)}, which re-uses the smallest large enough
+   * {@link Bitmap} and evicts oversized {@link Bitmap}s when memory runs low.
+   *
+   * <p>Has no effect if a {@link BitmapPool} is set with {@link #setBitmapPool(BitmapPool)}.
+   *
+   * <p>Disabled by default.
+   *
+   * @return This builder.
+   */
+  // Public API.
+  @SuppressWarnings("unused")
+  @NonNull
+  public GlideBuilder setIsBitmapPoolBestFitEnabled(boolean isEnabled) {
+    this.isBitmapPoolBestFitEnabled = isEnabled;
+    return this;
+  }
+
+  /**
+   * If set to {@code true}, the default {@link LruArrayPool} is wrapped in a
+   * {@link MagazineArrayPool} that keeps a few buffers of common sizes per thread, so that decodes
+   * on different executor threads don't contend on the shared pool's lock.
+   *
+   * <p>Each thread that decodes may hold a few buffers in addition to the shared pool's maximum
+   * size. Has no effect if an {@link ArrayPool} is set with {@link #setArrayPool(ArrayPool)}.
+   *
+   * <p>Disabled by default.
+   *
+   * @return This builder.
+   */
+  // Public API.
+  @SuppressWarnings("unused")
+  @NonNull
+  public GlideBuilder setIsArrayPoolMagazineEnabled(boolean isEnabled) {
+    this.isArrayPoolMagazineEnabled = isEnabled;
+    return this;
+  }
+
   void setRequestManagerFactory(@Nullable RequestManagerFactory factory) {
     this.requestManagerFactory = factory;
   }
@@ -386,7 +611,8 @@ public final class GlideBuilder {
   Glide build(@NonNull Context context) {
     //创建进行网络请求 拉取图片的线程池 ,
     if (sourceExecutor == null) {
-      sourceExecutor = GlideExecutor.newSourceExecutor();
+      sourceExecutor = decodeExecutor != null
+          ? GlideExecutor.newFetchExecutor() : GlideExecutor.newSourceExecutor();
     }
 
     //创建磁盘缓存线程池
@@ -414,7 +640,8 @@ public final class GlideBuilder {
       //size 一般都是 ＞0的，所以默认为 LruBitmapPool
       int size = memorySizeCalculator.getBitmapPoolSize();
       if (size > 0) {
-        bitmapPool = new LruBitmapPool(size);
+        bitmapPool = isBitmapPoolBestFitEnabled
+            ? LruBitmapPool.newBestFitPool(size) : new LruBitmapPool(size);
       } else {
         bitmapPool = new BitmapPoolAdapter();
       }
@@ -422,6 +649,9 @@ public final class GlideBuilder {
 
     if (arrayPool == null) {
       arrayPool = new LruArrayPool(memorySizeCalculator.getArrayPoolSizeInBytes());
+      if (isArrayPoolMagazineEnabled) {
+        arrayPool = new MagazineArrayPool(arrayPool);
+      }
     }
 
     //用于配置Glide的内存缓存策略，默认配置是LruResourceCache。
@@ -433,18 +663,33 @@ public final class GlideBuilder {
     if (diskCacheFactory == null) {
       diskCacheFactory = new InternalCacheDiskCacheFactory(context);
     }
+    DiskCache.Factory engineDiskCacheFactory = diskCacheFactory;
+    if (resourceDiskCacheFactory != null) {
+      engineDiskCacheFactory =
+          new SegmentedDiskCache.Factory(diskCacheFactory, resourceDiskCacheFactory);
+    }
 
     //创建 Engine
     if (engine == null) {
       engine =
           new Engine(
               memoryCache,
-              diskCacheFactory,
+              engineDiskCacheFactory,
               diskCacheExecutor,
               sourceExecutor,
               GlideExecutor.newUnlimitedSourceExecutor(),
               GlideExecutor.newAnimationExecutor(),
-              isActiveResourceRetentionAllowed);
+              decodeExecutor,
+              isActiveResourceRetentionAllowed,
+              isResultDeliveryBatched);
+    }
+
+    BitmapDemandTracker bitmapDemandTracker = null;
+    if (isBitmapPoolPreFillFromHistoryEnabled) {
+      bitmapDemandTracker =
+          new BitmapDemandTracker(
+              new File(context.getCacheDir(), BitmapDemandTracker.DEFAULT_FILE_NAME),
+              diskCacheExecutor);
     }
 
     //创建RequestManager生成者
@@ -462,6 +707,12 @@ public final class GlideBuilder {
         connectivityMonitorFactory,
         logLevel,
         defaultRequestOptions.lock(),
-        defaultTransitionOptions);
+        defaultTransitionOptions,
+        memoryBudgetControllerBuilder != null
+            ? memoryBudgetControllerBuilder.build(memoryCache, bitmapPool, arrayPool) : null,
+        bitmapDemandTracker,
+        incrementalTrimmerBuilder != null
+            ? incrementalTrimmerBuilder.build(memoryCache, bitmapPool, arrayPool) : null,
+        directByteBufferPool);
   }
 }
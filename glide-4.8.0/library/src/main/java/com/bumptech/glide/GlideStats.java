@@ -0,0 +1,246 @@
+package com.bumptech.glide;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.engine.DeliveryStats;
+import com.bumptech.glide.load.engine.Engine;
+import com.bumptech.glide.load.engine.LatencyStats;
+import com.bumptech.glide.load.engine.StageStats;
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruArrayPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.MagazineArrayPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.SizeClassBitmapPool;
+import com.bumptech.glide.load.engine.cache.CacheStats;
+import com.bumptech.glide.load.engine.cache.MemoryCache;
+import com.bumptech.glide.load.engine.prefill.DemandRecordingBitmapPool;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * An immutable snapshot of how Glide's caches and pools have been used and how long loads have
+ * taken since Glide was initialized.
+ *
+ * <p>Counters are kept whether or not anyone reads them and are cheap to update from many threads,
+ * so taking a snapshot doesn't need any configuration. Each value is read separately, so values in
+ * a snapshot taken while loads are running may not be exactly consistent with each other.
+ *
+ * @see Glide#getStats()
+ */
+public final class GlideStats {
+  private final CacheStats memoryCache;
+  private final CacheStats activeResources;
+  private final CacheStats bitmapPool;
+  private final CacheStats arrayPool;
+  @Nullable private final CacheStats diskCache;
+  private final Map<DataSource, LatencyStats> loadLatencies;
+  private final Map<Priority, LatencyStats> queueLatencies;
+  private final long failedLoadCount;
+  private final long expiredLoadCount;
+  @Nullable private final StageStats fetchStage;
+  @Nullable private final StageStats decodeStage;
+  @Nullable private final DeliveryStats delivery;
+
+  private GlideStats(
+      CacheStats memoryCache,
+      CacheStats activeResources,
+      CacheStats bitmapPool,
+      CacheStats arrayPool,
+      @Nullable CacheStats diskCache,
+      Map<DataSource, LatencyStats> loadLatencies,
+      Map<Priority, LatencyStats> queueLatencies,
+      long failedLoadCount,
+      long expiredLoadCount,
+      @Nullable StageStats fetchStage,
+      @Nullable StageStats decodeStage,
+      @Nullable DeliveryStats delivery) {
+    this.memoryCache = memoryCache;
+    this.activeResources = activeResources;
+    this.bitmapPool = bitmapPool;
+    this.arrayPool = arrayPool;
+    this.diskCache = diskCache;
+    this.loadLatencies = loadLatencies;
+    this.queueLatencies = queueLatencies;
+    this.failedLoadCount = failedLoadCount;
+    this.expiredLoadCount = expiredLoadCount;
+    this.fetchStage = fetchStage;
+    this.decodeStage = decodeStage;
+    this.delivery = delivery;
+  }
+
+  @NonNull
+  static GlideStats snapshot(
+      Engine engine, MemoryCache memoryCache, BitmapPool bitmapPool, ArrayPool arrayPool) {
+    Map<DataSource, LatencyStats> loadLatencies = new EnumMap<>(DataSource.class);
+    for (DataSource dataSource : DataSource.values()) {
+      loadLatencies.put(dataSource, engine.getLoadLatency(dataSource));
+    }
+    Map<Priority, LatencyStats> queueLatencies = new EnumMap<>(Priority.class);
+    for (Priority priority : Priority.values()) {
+      queueLatencies.put(priority, engine.getQueueLatency(priority));
+    }
+    BitmapPool wrappedBitmapPool = bitmapPool;
+    if (bitmapPool instanceof DemandRecordingBitmapPool) {
+      wrappedBitmapPool = ((DemandRecordingBitmapPool) bitmapPool).getWrapped();
+    }
+    long bitmapPoolSize = 0;
+    if (wrappedBitmapPool instanceof LruBitmapPool) {
+      bitmapPoolSize = ((LruBitmapPool) wrappedBitmapPool).getCurrentSize();
+    } else if (wrappedBitmapPool instanceof SizeClassBitmapPool) {
+      bitmapPoolSize = ((SizeClassBitmapPool) wrappedBitmapPool).getCurrentSize();
+    }
+    ArrayPool sharedArrayPool = arrayPool;
+    if (arrayPool instanceof MagazineArrayPool) {
+      sharedArrayPool = ((MagazineArrayPool) arrayPool).getShared();
+    }
+    long arrayPoolSize = 0;
+    long arrayPoolMaxSize = 0;
+    if (sharedArrayPool instanceof LruArrayPool) {
+      arrayPoolSize = ((LruArrayPool) sharedArrayPool).getCurrentSize();
+      arrayPoolMaxSize = ((LruArrayPool) sharedArrayPool).getMaxSize();
+    }
+    return new GlideStats(
+        CacheStats.of(memoryCache, memoryCache.getCurrentSize(), memoryCache.getMaxSize()),
+        engine.getActiveResourcesStats(),
+        CacheStats.of(bitmapPool, bitmapPoolSize, bitmapPool.getMaxSize()),
+        CacheStats.of(arrayPool, arrayPoolSize, arrayPoolMaxSize),
+        engine.getDiskCacheStats(),
+        loadLatencies,
+        queueLatencies,
+        engine.getFailedLoadCount(),
+        engine.getExpiredLoadCount(),
+        engine.getFetchStageStats(),
+        engine.getDecodeStageStats(),
+        engine.getDeliveryStats());
+  }
+
+  /**
+   * Returns the stats for the memory cache, which holds resources that were loaded but aren't
+   * currently displayed.
+   */
+  @NonNull
+  public CacheStats getMemoryCache() {
+    return memoryCache;
+  }
+
+  /**
+   * Returns the stats for resources that are currently displayed, which aren't limited in size.
+   *
+   * <p>Requests that miss here go on to the memory cache. Evictions are resources that were
+   * garbage collected without being cleared.
+   */
+  @NonNull
+  public CacheStats getActiveResources() {
+    return activeResources;
+  }
+
+  /**
+   * Returns the stats for the {@link BitmapPool}. Sizes are only available for
+   * {@link LruBitmapPool}s and {@link SizeClassBitmapPool}s.
+   */
+  @NonNull
+  public CacheStats getBitmapPool() {
+    return bitmapPool;
+  }
+
+  /**
+   * Returns the stats for the {@link ArrayPool}. Sizes are only available for
+   * {@link LruArrayPool}s, including those behind a {@link MagazineArrayPool}, and don't include
+   * arrays held in per thread magazines.
+   */
+  @NonNull
+  public CacheStats getArrayPool() {
+    return arrayPool;
+  }
+
+  /**
+   * Returns the stats for the disk cache, or null if it hasn't been opened yet or isn't one of
+   * Glide's disk cache implementations.
+   */
+  @Nullable
+  public CacheStats getDiskCache() {
+    return diskCache;
+  }
+
+  /**
+   * Returns how long loads whose resources came from the given source took.
+   *
+   * @see Engine#getLoadLatency(DataSource)
+   */
+  @NonNull
+  public LatencyStats getLoadLatency(@NonNull DataSource dataSource) {
+    return loadLatencies.get(dataSource);
+  }
+
+  /**
+   * Returns how long loads with the given priority waited for an executor.
+   *
+   * @see Engine#getQueueLatency(Priority)
+   */
+  @NonNull
+  public LatencyStats getQueueLatency(@NonNull Priority priority) {
+    return queueLatencies.get(priority);
+  }
+
+  /**
+   * Returns the number of loads that finished without a resource.
+   */
+  public long getFailedLoadCount() {
+    return failedLoadCount;
+  }
+
+  /**
+   * Returns the number of failed loads that were dropped because their time to live ran out before
+   * they started fetching data.
+   *
+   * @see Engine#getExpiredLoadCount()
+   */
+  public long getExpiredLoadCount() {
+    return expiredLoadCount;
+  }
+
+  /**
+   * Returns the stats for fetching data, or null if decoding doesn't have its own executor.
+   *
+   * @see GlideBuilder#setDecodeExecutor(com.bumptech.glide.load.engine.executor.GlideExecutor)
+   */
+  @Nullable
+  public StageStats getFetchStage() {
+    return fetchStage;
+  }
+
+  /**
+   * Returns the stats for decoding fetched data, or null if decoding doesn't have its own
+   * executor.
+   *
+   * @see GlideBuilder#setDecodeExecutor(com.bumptech.glide.load.engine.executor.GlideExecutor)
+   */
+  @Nullable
+  public StageStats getDecodeStage() {
+    return decodeStage;
+  }
+
+  /**
+   * Returns how many finished loads were delivered to the main thread per batch, or null if
+   * result delivery isn't batched.
+   *
+   * @see GlideBuilder#setIsResultDeliveryBatched(boolean)
+   */
+  @Nullable
+  public DeliveryStats getDelivery() {
+    return delivery;
+  }
+
+  @Override
+  public String toString() {
+    return "GlideStats{memoryCache=" + memoryCache + ", activeResources=" + activeResources
+        + ", bitmapPool=" + bitmapPool + ", arrayPool=" + arrayPool + ", diskCache=" + diskCache
+        + ", loadLatencies=" + loadLatencies + ", queueLatencies=" + queueLatencies
+        + ", failedLoads=" + failedLoadCount
+        + ", expiredLoads=" + expiredLoadCount
+        + ", fetchStage=" + fetchStage + ", decodeStage=" + decodeStage
+        + ", delivery=" + delivery + "}";
+  }
+}
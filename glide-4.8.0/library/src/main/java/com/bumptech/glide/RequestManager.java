@@ -25,6 +25,7 @@ import com.bumptech.glide.manager.LifecycleListener;
 import com.bumptech.glide.manager.RequestManagerTreeNode;
 import com.bumptech.glide.manager.RequestTracker;
 import com.bumptech.glide.manager.TargetTracker;
+import com.bumptech.glide.request.Reprioritizable;
 import com.bumptech.glide.request.Request;
 import com.bumptech.glide.request.RequestOptions;
 import com.bumptech.glide.request.target.Target;
@@ -574,6 +575,28 @@ public class RequestManager implements LifecycleListener,
     }
   }
 
+  /**
+   * Changes the priority of the request for the given target, for example to promote loads for
+   * views that have scrolled into view ahead of prefetches, or to demote loads for views that have
+   * scrolled out of view.
+   *
+   * <p>Loads that are waiting for an executor are moved within its queue. Loads that have already
+   * started aren't affected, but the new priority is used if the request is restarted. Loads shared
+   * with other requests are only ever promoted.
+   *
+   * <p>Must be called on the main thread.
+   *
+   * @param target The Target whose request should change priority.
+   * @param priority The new priority.
+   */
+  public void setPriority(@NonNull Target<?> target, @NonNull Priority priority) {
+    Util.assertMainThread();
+    Request request = target.getRequest();
+    if (request instanceof Reprioritizable) {
+      ((Reprioritizable) request).setPriority(priority);
+    }
+  }
+
   private void untrackOrDelegate(@NonNull Target<?> target) {
     boolean isOwnedByUs = untrack(target);
     // We'll end up here if the Target was cleared after the RequestManager that started the request
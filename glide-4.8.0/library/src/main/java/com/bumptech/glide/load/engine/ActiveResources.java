@@ -10,14 +10,19 @@ import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
 import com.bumptech.glide.load.Key;
 import com.bumptech.glide.load.engine.EngineResource.ResourceListener;
+import com.bumptech.glide.load.engine.cache.CacheCounters;
 import com.bumptech.glide.util.Preconditions;
+import com.bumptech.glide.util.StripedCounter;
 import com.bumptech.glide.util.Synthetic;
 import com.bumptech.glide.util.Util;
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 添加到该缓存会有两种情况
@@ -32,16 +37,29 @@ import java.util.concurrent.TimeUnit;
  * 这个缓存可以说是 第一级内存缓存，这个缓存中存储的是当前正在显示（使用）的资源 ， 这一级缓存存在的意义是
  * 为了缓解 LruResourceCache 的内存压力，而且提高效率，因为 LruResourceCache在存的时候要计算内存大小，
  * 删的时候也需要重新计算大小 ，所以效率还是没有 直接使用Map这种key - value这种形式来的高。
+ *
+ * <p>{@link #activate(Key, EngineResource)}, {@link #deactivate(Key, EngineResource)} and
+ * {@link #get(Key)} may be called from any thread. References cleared by the garbage collector
+ * are queued and cleaned up in batches, so a collection that clears many references posts a
+ * single message to the main thread.
+ *
+ * <p>This doesn't make {@link Engine#load} safe to call off the main thread, which still asserts
+ * that it's on the main thread. Engine's in-progress jobs, {@link EngineJob} callbacks and
+ * {@link EngineResource} reference counts are only safe to use on the main thread, so cleared
+ * references are always cleaned up, and listeners notified of released resources, on the main
+ * thread.
+ *
+ * <p>Evictions count resources that were garbage collected without being released.
  */
-final class ActiveResources {
-  private static final int MSG_CLEAN_REF = 1;
+final class ActiveResources implements CacheCounters {
+  private static final int MSG_CLEAN_REFS = 1;
 
   private final boolean isActiveResourceRetentionAllowed;
   private final Handler mainHandler = new Handler(Looper.getMainLooper(), new Callback() {
     @Override
     public boolean handleMessage(Message msg) {
-      if (msg.what == MSG_CLEAN_REF) {
-        cleanupActiveReference((ResourceWeakReference) msg.obj);
+      if (msg.what == MSG_CLEAN_REFS) {
+        cleanupPendingReferences();
         return true;
       }
       return false;
@@ -51,9 +69,17 @@ final class ActiveResources {
   //最近使用资源远程，一个 key（EngineKey） 和 弱引用的资源 映射表
   //这里之所以使用弱引用主要是因为 如果这个资源正在被显示那就是 被系统强引用着，不会被回收，当不被引用是才会被回收，
   // 反而使用软引用 会导致内存浪费的问题
-  @VisibleForTesting final Map<Key, ResourceWeakReference> activeEngineResources = new HashMap<>();
+  @VisibleForTesting
+  final Map<Key, ResourceWeakReference> activeEngineResources = new ConcurrentHashMap<>();
+  // References waiting to be cleaned up on the main thread.
+  private final Queue<ResourceWeakReference> pendingCleanup = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean isCleanupPosted = new AtomicBoolean();
+  private final StripedCounter hitCount = new StripedCounter();
+  private final StripedCounter missCount = new StripedCounter();
+  private final StripedCounter evictionCount = new StripedCounter();
+  private final StripedCounter currentSize = new StripedCounter();
 
-  private ResourceListener listener;
+  private volatile ResourceListener listener;
 
   /**
    * Lazily instantiate to avoid exceptions if Glide is initialized on a background thread.
@@ -61,9 +87,9 @@ final class ActiveResources {
    * @see <a href="https://github.com/bumptech/glide/issues/295">#295</a>
    */
   @Nullable
-  private ReferenceQueue<EngineResource<?>> resourceReferenceQueue;
+  private volatile ReferenceQueue<EngineResource<?>> resourceReferenceQueue;
   @Nullable
-  private Thread cleanReferenceQueueThread;
+  private volatile Thread cleanReferenceQueueThread;
   private volatile boolean isShutdown;
   @Nullable
   private volatile DequeuedResourceCallback cb;
@@ -88,38 +114,112 @@ final class ActiveResources {
 
     //加入到 最近使用资源的缓存中
     ResourceWeakReference removed = activeEngineResources.put(key, toPut);
+    currentSize.add(toPut.size);
     if (removed != null) {
+      currentSize.add(-removed.size);
       removed.reset();
     }
   }
 
-  void deactivate(Key key) {
-    ResourceWeakReference removed = activeEngineResources.remove(key);
-    if (removed != null) {
-      //清空资源
-      removed.reset();
+  /**
+   * Removes the given resource if it's still the active resource for the given key.
+   *
+   * <p>A newer resource activated for the same key, for example by another load that finished in
+   * the meantime, is left active.
+   */
+  void deactivate(Key key, EngineResource<?> resource) {
+    ResourceWeakReference ref = activeEngineResources.get(key);
+    if (ref == null) {
+      return;
+    }
+    // A cleared reference is waiting to be cleaned up and is removed as before.
+    EngineResource<?> active = ref.get();
+    if ((active != null && active != resource) || !activeEngineResources.remove(key, ref)) {
+      return;
     }
+    currentSize.add(-ref.size);
+    //清空资源
+    ref.reset();
   }
 
   @Nullable
   EngineResource<?> get(Key key) {
     ResourceWeakReference activeRef = activeEngineResources.get(key);
     if (activeRef == null) {
+      missCount.increment();
       return null;
     }
 
     EngineResource<?> active = activeRef.get();
     if (active == null) {
-      cleanupActiveReference(activeRef);
+      missCount.increment();
+      if (Util.isOnMainThread()) {
+        cleanupActiveReference(activeRef);
+      } else {
+        enqueueCleanup(activeRef);
+      }
+    } else {
+      hitCount.increment();
     }
     return active;
   }
 
+  @Override
+  public long getHitCount() {
+    return hitCount.sum();
+  }
+
+  @Override
+  public long getMissCount() {
+    return missCount.sum();
+  }
+
+  @Override
+  public long getEvictionCount() {
+    return evictionCount.sum();
+  }
+
+  /**
+   * Returns the sum of the sizes of the resources that are currently active, including any that
+   * have been garbage collected but not yet cleaned up.
+   */
+  long getCurrentSize() {
+    return currentSize.sum();
+  }
+
+  /**
+   * Queues the given reference to be cleaned up on the main thread, posting a message only if
+   * one isn't already pending.
+   */
+  private void enqueueCleanup(@NonNull ResourceWeakReference ref) {
+    pendingCleanup.offer(ref);
+    if (isCleanupPosted.compareAndSet(false, true)) {
+      mainHandler.obtainMessage(MSG_CLEAN_REFS).sendToTarget();
+    }
+  }
+
+  @Synthetic
+  void cleanupPendingReferences() {
+    // Cleared before draining so that references queued while draining post a new message.
+    isCleanupPosted.set(false);
+    ResourceWeakReference ref;
+    while ((ref = pendingCleanup.poll()) != null) {
+      cleanupActiveReference(ref);
+    }
+  }
+
   @SuppressWarnings("WeakerAccess")
   @Synthetic
   void cleanupActiveReference(@NonNull ResourceWeakReference ref) {
     Util.assertMainThread();
-    activeEngineResources.remove(ref.key);
+    // The same reference can be cleaned up more than once, for example by get() and the reference
+    // queue. Only the call that removes it from the map releases its resource. References that
+    // were replaced or deactivated are no longer in the map and have already been reset.
+    if (!activeEngineResources.remove(ref.key, ref)) {
+      return;
+    }
+    currentSize.add(-ref.size);
+    evictionCount.increment();
 
     if (!ref.isCacheable || ref.resource == null) {
       return;
@@ -131,19 +231,26 @@ final class ActiveResources {
   }
 
   private ReferenceQueue<EngineResource<?>> getReferenceQueue() {
-    if (resourceReferenceQueue == null) {
-      resourceReferenceQueue = new ReferenceQueue<>();
-      cleanReferenceQueueThread = new Thread(new Runnable() {
-        @SuppressWarnings("InfiniteLoopStatement")
-        @Override
-        public void run() {
-          Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
-          cleanReferenceQueue();
+    ReferenceQueue<EngineResource<?>> result = resourceReferenceQueue;
+    if (result == null) {
+      synchronized (this) {
+        result = resourceReferenceQueue;
+        if (result == null) {
+          result = new ReferenceQueue<>();
+          resourceReferenceQueue = result;
+          cleanReferenceQueueThread = new Thread(new Runnable() {
+            @SuppressWarnings("InfiniteLoopStatement")
+            @Override
+            public void run() {
+              Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+              cleanReferenceQueue();
+            }
+          }, "glide-active-resources");
+          cleanReferenceQueueThread.start();
         }
-      }, "glide-active-resources");
-      cleanReferenceQueueThread.start();
+      }
     }
-    return resourceReferenceQueue;
+    return result;
   }
 
   @SuppressWarnings("WeakerAccess")
@@ -152,14 +259,18 @@ final class ActiveResources {
     while (!isShutdown) {
       try {
         ResourceWeakReference ref = (ResourceWeakReference) resourceReferenceQueue.remove();
-        mainHandler.obtainMessage(MSG_CLEAN_REF, ref).sendToTarget();
+        // A single collection often clears many references, drain all of them so that they're
+        // cleaned up together.
+        do {
+          enqueueCleanup(ref);
 
-        // This section for testing only.
-        DequeuedResourceCallback current = cb;
-        if (current != null) {
-          current.onResourceDequeued();
-        }
-        // End for testing only.
+          // This section for testing only.
+          DequeuedResourceCallback current = cb;
+          if (current != null) {
+            current.onResourceDequeued();
+          }
+          // End for testing only.
+        } while ((ref = (ResourceWeakReference) resourceReferenceQueue.poll()) != null);
       } catch (InterruptedException e) {
         Thread.currentThread().interrupt();
       }
@@ -206,6 +317,9 @@ final class ActiveResources {
     @SuppressWarnings("WeakerAccess")
     @Synthetic
     final boolean isCacheable;
+    @SuppressWarnings("WeakerAccess")
+    @Synthetic
+    final int size;
 
     @Nullable
     @SuppressWarnings("WeakerAccess")
@@ -225,6 +339,7 @@ final class ActiveResources {
           referent.isCacheable() && isActiveResourceRetentionAllowed
               ? Preconditions.checkNotNull(referent.getResource()) : null;
       isCacheable = referent.isCacheable();
+      size = referent.getSize();
     }
 
     void reset() {
@@ -5,6 +5,7 @@ import android.util.Log;
 import com.bumptech.glide.load.DataSource;
 import com.bumptech.glide.load.Key;
 import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.model.DeflatedFile;
 import com.bumptech.glide.load.model.ModelLoader;
 import com.bumptech.glide.load.model.ModelLoader.LoadData;
 import java.io.File;
@@ -24,13 +25,16 @@ class DataCacheGenerator implements DataFetcherGenerator,
 
   private int sourceIdIndex = -1;
   private Key sourceKey;
-  private List<ModelLoader<File, ?>> modelLoaders;
+  private List<ModelLoader<Object, ?>> modelLoaders;
   private int modelLoaderIndex;
   private volatile LoadData<?> loadData;
   // PMD is wrong here, this File must be an instance variable because it may be used across
   // multiple calls to startNext.
   @SuppressWarnings("PMD.SingularField")
   private File cacheFile;
+  // Either cacheFile or, if the data was compressed when it was written, a DeflatedFile.
+  @SuppressWarnings("PMD.SingularField")
+  private Object cacheModel;
 
   /**
    *
@@ -65,7 +69,8 @@ class DataCacheGenerator implements DataFetcherGenerator,
       //获取到原始 key 这里就只包含 GlideUrl 和 Signature ，所以这里获取的是原始图片，是没有经过变化的
       //而 ResourceCacheGenerator 中获取的是 经过变化的图片
       @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
-      Key originalKey = new DataCacheKey(sourceId, helper.getSignature());
+      Key originalKey =
+          new DataCacheKey(sourceId, helper.getSignature(), helper.isDataCompressed());
       //从磁盘缓存中获取 cacheFile
       cacheFile = helper.getDiskCache().get(originalKey);
       //当原始图片缓存到磁盘后会 不为null
@@ -77,7 +82,12 @@ class DataCacheGenerator implements DataFetcherGenerator,
         // com.bumptech.glide.load.model.FileLoader@b64d8bc,
         // com.bumptech.glide.load.model.FileLoader@161c045,
         // com.bumptech.glide.load.model.UnitModelLoader@992139a]
-        modelLoaders = helper.getModelLoaders(cacheFile);
+        // Compressed data is only cached under keys for requests that enable compression, so other
+        // requests don't need to check. Requests that do still check, because the data is only
+        // compressed if a DeflateEncoder is registered.
+        cacheModel = helper.isDataCompressed() && DeflatedFile.isDeflated(cacheFile)
+            ? new DeflatedFile(cacheFile) : cacheFile;
+        modelLoaders = helper.getModelLoaders(cacheModel);
         Log.e("DataCacheGenerator","可以处理 file 类型的 modelLoaders="+modelLoaders);
         modelLoaderIndex = 0;
       }
@@ -87,9 +97,9 @@ class DataCacheGenerator implements DataFetcherGenerator,
     boolean started = false;
     while (!started && hasNextModelLoader()) {
       //这里还是调用可以处理File类型的 ModelLoader 的 buildLoadData
-      ModelLoader<File, ?> modelLoader = modelLoaders.get(modelLoaderIndex++);
+      ModelLoader<Object, ?> modelLoader = modelLoaders.get(modelLoaderIndex++);
       loadData =
-          modelLoader.buildLoadData(cacheFile, helper.getWidth(), helper.getHeight(),
+          modelLoader.buildLoadData(cacheModel, helper.getWidth(), helper.getHeight(),
               helper.getOptions());
       if (loadData != null && helper.hasLoadPath(loadData.fetcher.getDataClass())) {
         started = true;
@@ -6,15 +6,26 @@ import java.security.MessageDigest;
 
 /**
  * A cache key for original source data + any requested signature.
+ *
+ * <p>Data compressed with {@link com.bumptech.glide.load.model.DeflateEncoder} is cached under a
+ * different key than uncompressed data for the same source, so that requests that don't compress
+ * data never read compressed entries. Keys for uncompressed data are unchanged.
  */
 final class DataCacheKey implements Key {
+  private static final byte[] COMPRESSED_BYTES = "Deflated".getBytes(CHARSET);
 
   private final Key sourceKey;
   private final Key signature;
+  private final boolean isCompressed;
 
   DataCacheKey(Key sourceKey, Key signature) {
+    this(sourceKey, signature, /*isCompressed=*/ false);
+  }
+
+  DataCacheKey(Key sourceKey, Key signature, boolean isCompressed) {
     this.sourceKey = sourceKey;
     this.signature = signature;
+    this.isCompressed = isCompressed;
   }
 
   Key getSourceKey() {
@@ -25,7 +36,8 @@ final class DataCacheKey implements Key {
   public boolean equals(Object o) {
     if (o instanceof DataCacheKey) {
       DataCacheKey other = (DataCacheKey) o;
-      return sourceKey.equals(other.sourceKey) && signature.equals(other.signature);
+      return sourceKey.equals(other.sourceKey) && signature.equals(other.signature)
+          && isCompressed == other.isCompressed;
     }
     return false;
   }
@@ -34,6 +46,7 @@ final class DataCacheKey implements Key {
   public int hashCode() {
     int result = sourceKey.hashCode();
     result = 31 * result + signature.hashCode();
+    result = 31 * result + (isCompressed ? 1 : 0);
     return result;
   }
 
@@ -42,6 +55,7 @@ final class DataCacheKey implements Key {
     return "DataCacheKey{"
         + "sourceKey=" + sourceKey
         + ", signature=" + signature
+        + ", isCompressed=" + isCompressed
         + '}';
   }
 
@@ -49,5 +63,8 @@ final class DataCacheKey implements Key {
   public void updateDiskCacheKey(@NonNull MessageDigest messageDigest) {
     sourceKey.updateDiskCacheKey(messageDigest);
     signature.updateDiskCacheKey(messageDigest);
+    if (isCompressed) {
+      messageDigest.update(COMPRESSED_BYTES);
+    }
   }
 }
@@ -30,4 +30,16 @@ class DataCacheWriter<DataType> implements DiskCache.Writer {
   public boolean write(@NonNull File file) {
     return encoder.encode(data, file, options);
   }
+
+  /**
+   * Writes source data that {@link SourceGenerator} decodes from the cache once it's written,
+   * after the fetcher that provided it has been cleaned up.
+   */
+  static final class ReadBack<DataType> extends DataCacheWriter<DataType>
+      implements DiskCache.ReadBackWriter {
+
+    ReadBack(Encoder<DataType> encoder, DataType data, Options options) {
+      super(encoder, data, options);
+    }
+  }
 }
@@ -12,10 +12,10 @@ import com.bumptech.glide.load.Transformation;
 import com.bumptech.glide.load.engine.DecodeJob.DiskCacheProvider;
 import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
 import com.bumptech.glide.load.engine.cache.DiskCache;
+import com.bumptech.glide.load.model.DeflateEncoder;
 import com.bumptech.glide.load.model.ModelLoader;
 import com.bumptech.glide.load.model.ModelLoader.LoadData;
 import com.bumptech.glide.load.resource.UnitTransformation;
-import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -39,7 +39,7 @@ final class DecodeHelper<Transcode> {
   private boolean isLoadDataSet;
   private boolean isCacheKeysSet;
   private Key signature;
-  private Priority priority;
+  private volatile Priority priority;
   private DiskCacheStrategy diskCacheStrategy;
   private boolean isTransformationRequired;
   private boolean isScaleOnlyOrNoTransform;
@@ -107,6 +107,10 @@ final class DecodeHelper<Transcode> {
     return priority;
   }
 
+  void setPriority(Priority priority) {
+    this.priority = priority;
+  }
+
   Options getOptions() {
     return options;
   }
@@ -115,6 +119,14 @@ final class DecodeHelper<Transcode> {
     return signature;
   }
 
+  /**
+   * Returns true if source data for this load is written to the disk cache compressed, under its
+   * own {@link DataCacheKey}s.
+   */
+  boolean isDataCompressed() {
+    return options.get(DeflateEncoder.COMPRESS);
+  }
+
   int getWidth() {
     return width;
   }
@@ -192,9 +204,9 @@ final class DecodeHelper<Transcode> {
     return glideContext.getRegistry().getResultEncoder(resource);
   }
 
-  List<ModelLoader<File, ?>> getModelLoaders(File file)
+  <Model> List<ModelLoader<Model, ?>> getModelLoaders(Model model)
       throws Registry.NoModelLoaderAvailableException {
-    return glideContext.getRegistry().getModelLoaders(file);
+    return glideContext.getRegistry().getModelLoaders(model);
   }
 
   boolean isSourceKey(Key key) {
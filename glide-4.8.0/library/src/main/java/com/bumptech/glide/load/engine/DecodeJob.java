@@ -1,7 +1,9 @@
 package com.bumptech.glide.load.engine;
 
 import android.os.Build;
+import android.os.SystemClock;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.v4.util.Pools;
 import android.util.Log;
 import com.bumptech.glide.GlideContext;
@@ -17,7 +19,9 @@ import com.bumptech.glide.load.data.DataFetcher;
 import com.bumptech.glide.load.data.DataRewinder;
 import com.bumptech.glide.load.engine.cache.DiskCache;
 import com.bumptech.glide.load.resource.bitmap.Downsampler;
+import com.bumptech.glide.util.ByteCopyCounter;
 import com.bumptech.glide.util.LogTime;
+import com.bumptech.glide.util.StripedCounter;
 import com.bumptech.glide.util.Synthetic;
 import com.bumptech.glide.util.pool.FactoryPools.Poolable;
 import com.bumptech.glide.util.pool.GlideTrace;
@@ -40,6 +44,8 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     Comparable<DecodeJob<?>>,
     Poolable {
   private static final String TAG = "DecodeJob";
+  private static final long NOT_SUBMITTED = -1;
+  static final long NO_DEADLINE = Long.MAX_VALUE;
 
   private final DecodeHelper<R> decodeHelper = new DecodeHelper<>();
   private final List<Throwable> throwables = new ArrayList<>();
@@ -49,10 +55,13 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
   private final Pools.Pool<DecodeJob<?>> pool;
   private final DeferredEncodeManager<?> deferredEncodeManager = new DeferredEncodeManager<>();
   private final ReleaseManager releaseManager = new ReleaseManager();
+  private final StripedCounter expiredLoadCount;
+  private final Map<Priority, LatencyRecorder> queueLatencies;
 
   private GlideContext glideContext;
   private Key signature;
-  private Priority priority;
+  // May be changed on the main thread while this job is queued, see setPriority.
+  private volatile Priority priority;
   private EngineKey loadKey;
   private int width;
   private int height;
@@ -60,6 +69,12 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
   private Options options;
   private Callback<R> callback;//解码的回调，是 EngineJob 对象，当图片解码完毕后会 调用 onResourceReady ， onLoadFailed 等方法
   private int order;
+  // The earliest deadline of the requests for this job, used to order it, or NO_DEADLINE. May be
+  // changed on the main thread while this job is queued, see mergeDeadline.
+  private volatile long deadline = NO_DEADLINE;
+  // The uptime after which this job is dropped rather than fetching data, the latest deadline of
+  // the requests for this job or NO_DEADLINE if any request doesn't have one.
+  private volatile long expiry = NO_DEADLINE;
   private Stage stage;
   //默认状态为 RunReason.INITIALIZE
   private RunReason runReason;
@@ -77,10 +92,17 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
   private volatile DataFetcherGenerator currentGenerator;
   private volatile boolean isCallbackNotified;
   private volatile boolean isCancelled;
+  // Set before this job is submitted to an executor and read when it starts running.
+  @Nullable private volatile StageRecorder queuedStage;
+  private volatile long queuedTime;
+  private volatile long submittedTime = NOT_SUBMITTED;
 
-  DecodeJob(DiskCacheProvider diskCacheProvider, Pools.Pool<DecodeJob<?>> pool) {
+  DecodeJob(DiskCacheProvider diskCacheProvider, Pools.Pool<DecodeJob<?>> pool,
+      StripedCounter expiredLoadCount, Map<Priority, LatencyRecorder> queueLatencies) {
     this.diskCacheProvider = diskCacheProvider;
     this.pool = pool;
+    this.expiredLoadCount = expiredLoadCount;
+    this.queueLatencies = queueLatencies;
   }
 
   DecodeJob<R> init(
@@ -93,6 +115,7 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
       Class<?> resourceClass,//目前不知道干什么用的，默认为 Object.class
       Class<R> transcodeClass,//asDrawable() 流程时  transcodeClass 为 Class<Drawable>
       Priority priority,//优先级
+      long deadline,
       DiskCacheStrategy diskCacheStrategy,//硬盘缓存策略 默认为 DiskCacheStrategy.AUTOMATIC
       Map<Class<?>, Transformation<?>> transformations,// 用于转换 ，一般是有值得
       boolean isTransformationRequired,//是否要进行转换，一般是 false
@@ -127,6 +150,8 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     this.options = options;
     this.callback = callback;
     this.order = order;
+    this.deadline = deadline;
+    this.expiry = deadline;
     //默认状态为 RunReason.INITIALIZE
     this.runReason = RunReason.INITIALIZE;
     this.model = model;
@@ -192,7 +217,11 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     currentDataSource = null;
     currentFetcher = null;
     startFetchTime = 0L;
+    submittedTime = NOT_SUBMITTED;
+    deadline = NO_DEADLINE;
+    expiry = NO_DEADLINE;
     isCancelled = false;
+    queuedStage = null;
     model = null;
     throwables.clear();
     pool.release(this);
@@ -201,6 +230,10 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
   @Override
   public int compareTo(@NonNull DecodeJob<?> other) {
     int result = getPriority() - other.getPriority();
+    if (result == 0 && deadline != other.deadline) {
+      // Earliest deadline first, jobs without a deadline last.
+      result = deadline < other.deadline ? -1 : 1;
+    }
     if (result == 0) {
       result = order - other.order;
     }
@@ -211,6 +244,74 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     return priority.ordinal();
   }
 
+  /**
+   * Changes the priority of this job, which also changes the order in which it's taken from
+   * prioritized executor queues.
+   *
+   * <p>Must only be called while holding the lock of the queue this job may be in, see
+   * {@link com.bumptech.glide.load.engine.executor.GlideExecutor#reorder(Runnable, Runnable)}.
+   */
+  void setPriority(@NonNull Priority priority) {
+    this.priority = priority;
+    decodeHelper.setPriority(priority);
+  }
+
+  /** Returns {@code true} if this job would run before other jobs if given {@code priority}. */
+  boolean isPromotedBy(@NonNull Priority priority) {
+    return priority.ordinal() < getPriority();
+  }
+
+  /**
+   * Adds the deadline of another request that's waiting for this job, as an uptime in milliseconds
+   * or {@link #NO_DEADLINE}.
+   *
+   * <p>The job is ordered by the earliest deadline of its requests, and is only dropped once the
+   * deadlines of all of them have passed, so a request without a deadline is never failed because
+   * of another request's deadline.
+   *
+   * <p>Must only be called while holding the lock of the queue this job may be in if the deadline
+   * changes this job's order, see {@link #isHastenedBy(long)}.
+   */
+  void mergeDeadline(long deadline) {
+    this.deadline = Math.min(this.deadline, deadline);
+    expiry = Math.max(expiry, deadline);
+  }
+
+  /** Returns {@code true} if the deadlines of all of the requests for this job have passed. */
+  boolean isExpired() {
+    return SystemClock.uptimeMillis() > expiry;
+  }
+
+  /** Returns {@code true} if merging {@code deadline} would move this job ahead in the queue. */
+  boolean isHastenedBy(long deadline) {
+    return deadline < this.deadline;
+  }
+
+  /**
+   * Records this job being submitted to an executor so that the time it waits in the executor's
+   * queue is recorded for its priority when it starts running.
+   */
+  void onSubmitted() {
+    submittedTime = LogTime.getLogTime();
+  }
+
+  /**
+   * Records this job being submitted to the executor for the given pipeline stage so that its wait
+   * and run times are recorded when it runs.
+   */
+  void onQueued(@NonNull StageRecorder stage) {
+    queuedTime = stage.onQueued();
+    queuedStage = stage;
+  }
+
+  /**
+   * Returns {@code true} if the next run of this job will decode data that has already been
+   * fetched, rather than fetching data.
+   */
+  boolean isDecodingRetrievedData() {
+    return runReason == RunReason.DECODE_DATA;
+  }
+
   public void cancel() {
     isCancelled = true;
     DataFetcherGenerator local = currentGenerator;
@@ -230,12 +331,26 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     //对于加载网络图片来说 数据加载成功后会在当前类得 onDataFetcherReady 方法中对
     // currentFetcher进行赋值 为 ByteBufferFileLoader$ByteBufferFetcher
     DataFetcher<?> localFetcher = currentFetcher;
+    // This job may be queued again and start running on another thread before this run returns.
+    StageRecorder localStage = queuedStage;
+    queuedStage = null;
+    long stageStartTime = localStage != null ? localStage.onStarted(queuedTime) : 0;
+    long localSubmittedTime = submittedTime;
+    Priority localPriority = priority;
+    if (localSubmittedTime != NOT_SUBMITTED && localPriority != null) {
+      submittedTime = NOT_SUBMITTED;
+      queueLatencies.get(localPriority).record(localSubmittedTime);
+    }
     try {
       //如果已经被取消了，那就回调 onLoadFailed
       if (isCancelled) {
         notifyFailed();
         return;
       }
+      if (runReason != RunReason.DECODE_DATA && isExpired()) {
+        notifyExpired();
+        return;
+      }
       //进入这个核心方法
       runWrapped();
     } catch (Throwable t) {
@@ -264,6 +379,9 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
       if (localFetcher != null) {
         localFetcher.cleanup();
       }
+      if (localStage != null) {
+        localStage.onFinished(stageStartTime);
+      }
       GlideTrace.endSection();
     }
   }
@@ -334,6 +452,17 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     // onDataFetcherReady.
   }
 
+  private void notifyExpired() {
+    long overdueMillis = SystemClock.uptimeMillis() - expiry;
+    if (Log.isLoggable(TAG, Log.DEBUG)) {
+      Log.d(TAG, "Dropping load that expired " + overdueMillis + "ms ago, model: " + model);
+    }
+    expiredLoadCount.increment();
+    throwables.add(new GlideException(
+        "Load expired before it could fetch data, " + overdueMillis + "ms past its deadline"));
+    notifyFailed();
+  }
+
   private void notifyFailed() {
     setNotifiedOrThrow();
     GlideException e = new GlideException("Failed to load resource", new ArrayList<>(throwables));
@@ -409,7 +538,8 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
 
     Log.e(TAG, "线程是否相同=" + (Thread.currentThread() != currentThread));
     //一般为 false
-    if (Thread.currentThread() != currentThread) {
+    // When decoding has its own executor, hand off so this thread can go back to fetching.
+    if (Thread.currentThread() != currentThread || callback.usesDecodeExecutor()) {
       //设置 runReason 为 RunReason.DECODE_DATA;
       runReason = RunReason.DECODE_DATA;
       //callback 为 EngineJob，所以会回调到 EngineJob 的 reschedule
@@ -458,6 +588,9 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     if (resource != null) {
       //开始编码和释放资源
       notifyEncodeAndRelease(resource, currentDataSource);
+    } else if (callback.usesDecodeExecutor()) {
+      // Any remaining generators fetch data, so run them on the fetch executor.
+      reschedule();
     } else {
       runGenerators();
     }
@@ -514,10 +647,16 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
         return null;
       }
       long startTime = LogTime.getLogTime();
+      boolean isCountingBytesCopied =
+          ByteCopyCounter.isEnabled() && Log.isLoggable(TAG, Log.VERBOSE);
+      long startBytesCopied = isCountingBytesCopied ? ByteCopyCounter.getThreadBytesCopied() : 0;
       //解码 会返回一个 LazyBitmapDrawableResource 里面包含了 经过转换后的 BitmapResource
       Resource<R> result = decodeFromFetcher(data, dataSource);
       if (Log.isLoggable(TAG, Log.VERBOSE)) {
-        logWithTimeAndKey("Decoded result " + result, startTime);
+        logWithTimeAndKey("Decoded result " + result, startTime,
+            isCountingBytesCopied
+                ? "bytes copied: " + (ByteCopyCounter.getThreadBytesCopied() - startBytesCopied)
+                : null);
       }
       return result;
     } finally {
@@ -657,7 +796,8 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
       final Key key;
       switch (encodeStrategy) {
         case SOURCE:
-          key = new DataCacheKey(currentSourceKey, signature);
+          key = new DataCacheKey(
+              currentSourceKey, signature, decodeHelper.isDataCompressed());
           break;
         case TRANSFORMED://应该是这个分支
           //通过参数 构建一个 ResourceCacheKey
@@ -793,6 +933,12 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     void onLoadFailed(GlideException e);
 
     void reschedule(DecodeJob<?> job);
+
+    /**
+     * Returns {@code true} if fetched data should always be decoded on a separate executor from
+     * the one that fetched it.
+     */
+    boolean usesDecodeExecutor();
   }
 
   interface DiskCacheProvider {
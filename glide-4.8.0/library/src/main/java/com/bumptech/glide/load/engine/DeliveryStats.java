@@ -0,0 +1,57 @@
+package com.bumptech.glide.load.engine;
+
+/**
+ * An immutable snapshot of how {@link Engine} has delivered finished loads to the main thread when
+ * results are batched once per frame.
+ *
+ * <p>Without batching every finished load posts its own message to the main thread, so comparing
+ * {@link #getResultCount()} to {@link #getMessageCount()} shows how many messages batching saved.
+ */
+public final class DeliveryStats {
+  private final long batchCount;
+  private final long resultCount;
+  private final long messageCount;
+  private final int maxBatchSize;
+
+  DeliveryStats(long batchCount, long resultCount, long messageCount, int maxBatchSize) {
+    this.batchCount = batchCount;
+    this.resultCount = resultCount;
+    this.messageCount = messageCount;
+    this.maxBatchSize = maxBatchSize;
+  }
+
+  /** Returns the number of batches, at most one per frame, that delivered at least one result. */
+  public long getBatchCount() {
+    return batchCount;
+  }
+
+  /** Returns the number of finished loads, successful or not, delivered to the main thread. */
+  public long getResultCount() {
+    return resultCount;
+  }
+
+  /**
+   * Returns the number of messages posted to the main thread's queue to schedule batches, which
+   * is at most two per batch regardless of how many results each batch delivers.
+   */
+  public long getMessageCount() {
+    return messageCount;
+  }
+
+  /** Returns the largest number of results delivered in a single batch. */
+  public int getMaxBatchSize() {
+    return maxBatchSize;
+  }
+
+  /** Returns the average number of results delivered per batch, or 0 if none have been. */
+  public double getMeanBatchSize() {
+    return batchCount == 0 ? 0 : (double) resultCount / batchCount;
+  }
+
+  @Override
+  public String toString() {
+    return "DeliveryStats{batches=" + batchCount + ", results=" + resultCount
+        + ", messages=" + messageCount + ", maxBatchSize=" + maxBatchSize
+        + ", meanBatchSize=" + getMeanBatchSize() + "}";
+  }
+}
@@ -1,5 +1,6 @@
 package com.bumptech.glide.load.engine;
 
+import android.os.SystemClock;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
@@ -11,16 +12,20 @@ import com.bumptech.glide.load.DataSource;
 import com.bumptech.glide.load.Key;
 import com.bumptech.glide.load.Options;
 import com.bumptech.glide.load.Transformation;
+import com.bumptech.glide.load.engine.cache.CacheStats;
 import com.bumptech.glide.load.engine.cache.DiskCache;
 import com.bumptech.glide.load.engine.cache.DiskCacheAdapter;
+import com.bumptech.glide.load.engine.cache.DiskLruCacheWrapper;
 import com.bumptech.glide.load.engine.cache.MemoryCache;
 import com.bumptech.glide.load.engine.executor.GlideExecutor;
 import com.bumptech.glide.request.ResourceCallback;
 import com.bumptech.glide.util.LogTime;
 import com.bumptech.glide.util.Preconditions;
+import com.bumptech.glide.util.StripedCounter;
 import com.bumptech.glide.util.Synthetic;
 import com.bumptech.glide.util.Util;
 import com.bumptech.glide.util.pool.FactoryPools;
+import java.util.EnumMap;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -47,6 +52,15 @@ public class Engine implements EngineJobListener,
   private final DecodeJobFactory decodeJobFactory;
   //最近使用的缓存
   private final ActiveResources activeResources;
+  // Populated in the constructor and never modified afterwards.
+  private final Map<DataSource, LatencyRecorder> loadLatencies = new EnumMap<>(DataSource.class);
+  private final Map<Priority, LatencyRecorder> queueLatencies = new EnumMap<>(Priority.class);
+  private final StripedCounter failedLoadCount = new StripedCounter();
+  private final StripedCounter expiredLoadCount = new StripedCounter();
+  private final StageRecorder fetchStage = new StageRecorder();
+  private final StageRecorder decodeStage = new StageRecorder();
+  private final boolean hasDecodeExecutor;
+  @Nullable private final MainThreadBatcher resultBatcher;
 
   public Engine(
       MemoryCache memoryCache,
@@ -63,6 +77,63 @@ public class Engine implements EngineJobListener,
         sourceExecutor,
         sourceUnlimitedExecutor,
         animationExecutor,
+        /*decodeExecutor=*/ null,
+        isActiveResourceRetentionAllowed);
+  }
+
+  /**
+   * Constructor for an Engine that, if {@code decodeExecutor} is non-null, fetches data on the
+   * disk cache or source executor and then decodes, transforms and encodes it on
+   * {@code decodeExecutor}, so that loads blocked on I/O don't delay decoding data that's already
+   * been fetched.
+   */
+  public Engine(
+      MemoryCache memoryCache,
+      DiskCache.Factory diskCacheFactory,
+      GlideExecutor diskCacheExecutor,
+      GlideExecutor sourceExecutor,
+      GlideExecutor sourceUnlimitedExecutor,
+      GlideExecutor animationExecutor,
+      @Nullable GlideExecutor decodeExecutor,
+      boolean isActiveResourceRetentionAllowed) {
+    this(
+        memoryCache,
+        diskCacheFactory,
+        diskCacheExecutor,
+        sourceExecutor,
+        sourceUnlimitedExecutor,
+        animationExecutor,
+        decodeExecutor,
+        isActiveResourceRetentionAllowed,
+        /*isResultDeliveryBatched=*/ false);
+  }
+
+  /**
+   * Constructor for an Engine that, if {@code isResultDeliveryBatched} is true, delivers loads that
+   * finish before the next frame to the main thread together, once per frame, rather than posting
+   * a message to the main thread for each of them.
+   *
+   * @see com.bumptech.glide.GlideBuilder#setIsResultDeliveryBatched(boolean)
+   */
+  public Engine(
+      MemoryCache memoryCache,
+      DiskCache.Factory diskCacheFactory,
+      GlideExecutor diskCacheExecutor,
+      GlideExecutor sourceExecutor,
+      GlideExecutor sourceUnlimitedExecutor,
+      GlideExecutor animationExecutor,
+      @Nullable GlideExecutor decodeExecutor,
+      boolean isActiveResourceRetentionAllowed,
+      boolean isResultDeliveryBatched) {
+    this(
+        memoryCache,
+        diskCacheFactory,
+        diskCacheExecutor,
+        sourceExecutor,
+        sourceUnlimitedExecutor,
+        animationExecutor,
+        decodeExecutor,
+        isResultDeliveryBatched ? new MainThreadBatcher() : null,
         /*jobs=*/ null,
         /*keyFactory=*/ null,
         /*activeResources=*/ null,
@@ -79,6 +150,8 @@ public class Engine implements EngineJobListener,
       GlideExecutor sourceExecutor,
       GlideExecutor sourceUnlimitedExecutor,
       GlideExecutor animationExecutor,
+      @Nullable GlideExecutor decodeExecutor,
+      @Nullable MainThreadBatcher resultBatcher,
       Jobs jobs,
       EngineKeyFactory keyFactory,
       ActiveResources activeResources,
@@ -114,13 +187,24 @@ public class Engine implements EngineJobListener,
     if (engineJobFactory == null) {
       engineJobFactory =
           new EngineJobFactory(
-              diskCacheExecutor, sourceExecutor, sourceUnlimitedExecutor, animationExecutor, this);
+              diskCacheExecutor,
+              sourceExecutor,
+              sourceUnlimitedExecutor,
+              animationExecutor,
+              decodeExecutor,
+              fetchStage,
+              decodeStage,
+              resultBatcher,
+              this);
     }
+    hasDecodeExecutor = decodeExecutor != null;
+    this.resultBatcher = resultBatcher;
     this.engineJobFactory = engineJobFactory;
 
     //创建解码的 DecodeJobFactory
     if (decodeJobFactory == null) {
-      decodeJobFactory = new DecodeJobFactory(diskCacheProvider);
+      decodeJobFactory =
+          new DecodeJobFactory(diskCacheProvider, expiredLoadCount, queueLatencies);
     }
     this.decodeJobFactory = decodeJobFactory;
 
@@ -130,6 +214,13 @@ public class Engine implements EngineJobListener,
     }
     this.resourceRecycler = resourceRecycler;
 
+    for (DataSource dataSource : DataSource.values()) {
+      loadLatencies.put(dataSource, new LatencyRecorder());
+    }
+    for (Priority priority : Priority.values()) {
+      queueLatencies.put(priority, new LatencyRecorder());
+    }
+
     //设置资源回收监听 为 自己，当有资源回收是会调用 onResourceRemoved 方法
     cache.setResourceRemovedListener(this);
   }
@@ -158,6 +249,9 @@ public class Engine implements EngineJobListener,
    *
    * @param width  The target width in pixels of the desired resource.
    * @param height The target height in pixels of the desired resource.
+   * @param timeToLiveMs How long the load may wait before it starts fetching data, or a negative
+   *                     value if it may wait indefinitely, see
+   *                     {@link com.bumptech.glide.request.RequestOptions#timeToLive(long)}.
    * @param cb     The callback that will be called when the load completes.
    */
   public <R> LoadStatus load(
@@ -169,6 +263,7 @@ public class Engine implements EngineJobListener,
       Class<?> resourceClass,//目前不知道干什么用的，默认为 Object.class
       Class<R> transcodeClass,//asDrawable() 流程时  transcodeClass 为 Class<Drawable>
       Priority priority,//优先级
+      long timeToLiveMs,
       DiskCacheStrategy diskCacheStrategy,//硬盘缓存策略 默认为 DiskCacheStrategy.AUTOMATIC
       Map<Class<?>, Transformation<?>> transformations,// 用于转换 ，一般是有值得
       boolean isTransformationRequired,//是否要进行转换，一般是 false
@@ -184,7 +279,7 @@ public class Engine implements EngineJobListener,
     Log.e(TAG,"transformations size = "+transformations.size()+ "transformations= "+transformations);
 
     Util.assertMainThread();
-    long startTime = VERBOSE_IS_LOGGABLE ? LogTime.getLogTime() : 0;
+    long startTime = LogTime.getLogTime();
 
     //根据 model ,signature ,width ,height 等来构建一个 key ,用于标识 这个图片的 唯一key
     EngineKey key = keyFactory.buildKey(model, signature, width, height, transformations,
@@ -194,6 +289,7 @@ public class Engine implements EngineJobListener,
     EngineResource<?> active = loadFromActiveResources(key, isMemoryCacheable);
     if (active != null) {//找到了 直接调用 onResourceReady
       cb.onResourceReady(active, DataSource.MEMORY_CACHE);
+      loadLatencies.get(DataSource.MEMORY_CACHE).record(startTime);
       if (VERBOSE_IS_LOGGABLE) {
         logWithTimeAndKey("Loaded resource from active resources", startTime, key);
       }
@@ -205,6 +301,7 @@ public class Engine implements EngineJobListener,
     if (cached != null) {//找到了 直接调用 onResourceReady
       //cb 对象为 SingleRequest
       cb.onResourceReady(cached, DataSource.MEMORY_CACHE);
+      loadLatencies.get(DataSource.MEMORY_CACHE).record(startTime);
       if (VERBOSE_IS_LOGGABLE) {
         logWithTimeAndKey("Loaded resource from cache", startTime, key);
       }
@@ -212,9 +309,12 @@ public class Engine implements EngineJobListener,
     }
 
     //从 jobs 中查找这次请求，第一次肯定是没有的
+    long deadline = timeToLiveMs >= 0
+        ? SystemClock.uptimeMillis() + timeToLiveMs : DecodeJob.NO_DEADLINE;
     EngineJob<?> current = jobs.get(key, onlyRetrieveFromCache);
     if (current != null) {//找到了直接设置回调
       current.addCallback(cb);
+      current.mergeDeadline(deadline);
       if (VERBOSE_IS_LOGGABLE) {
         logWithTimeAndKey("Added to existing load", startTime, key);
       }
@@ -242,6 +342,7 @@ public class Engine implements EngineJobListener,
             resourceClass,
             transcodeClass,
             priority,
+            deadline,
             diskCacheStrategy,
             transformations,
             isTransformationRequired,
@@ -331,7 +432,13 @@ public class Engine implements EngineJobListener,
   ) {
     Util.assertMainThread();
     // A null resource indicates that the load failed, usually due to an exception.
-    if (resource != null) {
+    if (resource == null) {
+      failedLoadCount.increment();
+    } else {
+      DataSource dataSource = engineJob.getDataSource();
+      if (dataSource != null) {
+        loadLatencies.get(dataSource).record(engineJob.getStartTime());
+      }
       //又添加监听为Engine 类
       resource.setResourceListener(key, this);
 
@@ -367,7 +474,7 @@ public class Engine implements EngineJobListener,
     Util.assertMainThread();
     //从 activeResources 中删除这个 资源
     Log.e(TAG,"从 activeResources 中删除缓存  cacheKey="+cacheKey);
-    activeResources.deactivate(cacheKey);
+    activeResources.deactivate(cacheKey, resource);
     //resource 是否可以被缓存 ，默认为false
     if (resource.isCacheable()) {
       //终于看到了缓存到 LruCache中 ，这个是变换过的资源
@@ -377,6 +484,96 @@ public class Engine implements EngineJobListener,
     }
   }
 
+  /**
+   * Returns how long loads whose resources came from the given source took, from the call to
+   * {@link #load} until the resource was ready, including time spent waiting for an executor.
+   *
+   * <p>Loads that were added to a load already in progress aren't counted separately.
+   */
+  @NonNull
+  public LatencyStats getLoadLatency(@NonNull DataSource dataSource) {
+    return loadLatencies.get(dataSource).snapshot();
+  }
+
+  /**
+   * Returns how long loads waited in executor queues, grouped by their priority when they were
+   * taken from the queue.
+   *
+   * <p>Loads that start from the disk cache and then fetch their source data, or that decode on a
+   * separate executor, are queued and counted more than once.
+   */
+  @NonNull
+  public LatencyStats getQueueLatency(@NonNull Priority priority) {
+    return queueLatencies.get(priority).snapshot();
+  }
+
+  /** Returns the number of loads that finished without a resource. */
+  public long getFailedLoadCount() {
+    return failedLoadCount.sum();
+  }
+
+  /**
+   * Returns the number of loads that were dropped because they didn't start fetching data before
+   * the time to live set with
+   * {@link com.bumptech.glide.request.RequestOptions#timeToLive(long)} ran out.
+   *
+   * <p>Expired loads are also counted as failed loads.
+   */
+  public long getExpiredLoadCount() {
+    return expiredLoadCount.sum();
+  }
+
+  /**
+   * Returns the queue depth and latencies of fetching data, on the disk cache and source
+   * executors, or null if this Engine doesn't have a separate decode executor.
+   */
+  @Nullable
+  public StageStats getFetchStageStats() {
+    return hasDecodeExecutor ? fetchStage.snapshot() : null;
+  }
+
+  /**
+   * Returns the queue depth and latencies of decoding, transforming and encoding fetched data, or
+   * null if this Engine doesn't have a separate decode executor.
+   */
+  @Nullable
+  public StageStats getDecodeStageStats() {
+    return hasDecodeExecutor ? decodeStage.snapshot() : null;
+  }
+
+  /**
+   * Returns how many finished loads were delivered to the main thread in each batch, or null if
+   * this Engine doesn't batch result delivery.
+   */
+  @Nullable
+  public DeliveryStats getDeliveryStats() {
+    return resultBatcher != null ? resultBatcher.snapshot() : null;
+  }
+
+  /**
+   * Returns a snapshot of the resources that are currently displayed, which are tracked separately
+   * from, and not counted by, the memory cache.
+   */
+  @NonNull
+  public CacheStats getActiveResourcesStats() {
+    return CacheStats.of(activeResources, activeResources.getCurrentSize(), /*maxSize=*/ 0);
+  }
+
+  /**
+   * Returns a snapshot of the disk cache, or null if it hasn't been created yet or doesn't keep
+   * counts.
+   */
+  @Nullable
+  public CacheStats getDiskCacheStats() {
+    DiskCache diskCache = diskCacheProvider.getDiskCacheIfCreated();
+    if (diskCache instanceof DiskLruCacheWrapper) {
+      return ((DiskLruCacheWrapper) diskCache).getCacheStats();
+    } else if (diskCache instanceof SegmentedDiskCache) {
+      return ((SegmentedDiskCache) diskCache).getCacheStats();
+    }
+    return null;
+  }
+
   public void clearDiskCache() {
     diskCacheProvider.getDiskCache().clear();
   }
@@ -403,6 +600,19 @@ public class Engine implements EngineJobListener,
     public void cancel() {
       engineJob.removeCallback(cb);
     }
+
+    /**
+     * Changes the priority of the load, moving it ahead of or behind other loads that are waiting
+     * for an executor.
+     *
+     * <p>Loads shared by more than one request are only ever promoted, so that demoting one
+     * request doesn't delay the others.
+     *
+     * <p>Must be called on the main thread.
+     */
+    public void setPriority(@NonNull Priority priority) {
+      engineJob.setPriority(cb, priority);
+    }
   }
 
   private static class LazyDiskCacheProvider implements DecodeJob.DiskCacheProvider {
@@ -422,6 +632,11 @@ public class Engine implements EngineJobListener,
       diskCache.clear();
     }
 
+    @Nullable
+    DiskCache getDiskCacheIfCreated() {
+      return diskCache;
+    }
+
     @Override
     public DiskCache getDiskCache() {
       if (diskCache == null) {
@@ -446,13 +661,19 @@ public class Engine implements EngineJobListener,
             new FactoryPools.Factory<DecodeJob<?>>() {
           @Override
           public DecodeJob<?> create() {
-            return new DecodeJob<>(diskCacheProvider, pool);
+            return new DecodeJob<>(
+                diskCacheProvider, pool, expiredLoadCount, queueLatencies);
           }
         });
+    @Synthetic final StripedCounter expiredLoadCount;
+    @Synthetic final Map<Priority, LatencyRecorder> queueLatencies;
     private int creationOrder;
 
-    DecodeJobFactory(DecodeJob.DiskCacheProvider diskCacheProvider) {
+    DecodeJobFactory(DecodeJob.DiskCacheProvider diskCacheProvider,
+        StripedCounter expiredLoadCount, Map<Priority, LatencyRecorder> queueLatencies) {
       this.diskCacheProvider = diskCacheProvider;
+      this.expiredLoadCount = expiredLoadCount;
+      this.queueLatencies = queueLatencies;
     }
 
     @SuppressWarnings("unchecked")
@@ -465,6 +686,7 @@ public class Engine implements EngineJobListener,
         Class<?> resourceClass,//目前不知道干什么用的，默认为 Object.class
         Class<R> transcodeClass,//asDrawable() 流程时  transcodeClass 为 Class<Drawable>
         Priority priority,//优先级
+        long deadline,
         DiskCacheStrategy diskCacheStrategy,//硬盘缓存策略 默认为 DiskCacheStrategy.AUTOMATIC
         Map<Class<?>, Transformation<?>> transformations,// 用于转换 ，一般是有值得
         boolean isTransformationRequired,//是否要进行转换，一般是 false
@@ -486,6 +708,7 @@ public class Engine implements EngineJobListener,
           resourceClass,
           transcodeClass,
           priority,
+          deadline,
           diskCacheStrategy,
           transformations,
           isTransformationRequired,
@@ -503,6 +726,10 @@ public class Engine implements EngineJobListener,
     @Synthetic final GlideExecutor sourceExecutor;
     @Synthetic final GlideExecutor sourceUnlimitedExecutor;
     @Synthetic final GlideExecutor animationExecutor;
+    @Nullable @Synthetic final GlideExecutor decodeExecutor;
+    @Synthetic final StageRecorder fetchStage;
+    @Synthetic final StageRecorder decodeStage;
+    @Nullable @Synthetic final MainThreadBatcher resultBatcher;
     @Synthetic final EngineJobListener listener;// 为Engine类
     //一个 EngineJob 的池子
     @Synthetic final Pools.Pool<EngineJob<?>> pool =
@@ -516,6 +743,10 @@ public class Engine implements EngineJobListener,
                     sourceExecutor,
                     sourceUnlimitedExecutor,
                     animationExecutor,
+                    decodeExecutor,
+                    fetchStage,
+                    decodeStage,
+                    resultBatcher,
                     listener,
                     pool);
               }
@@ -526,12 +757,20 @@ public class Engine implements EngineJobListener,
         GlideExecutor sourceExecutor,
         GlideExecutor sourceUnlimitedExecutor,
         GlideExecutor animationExecutor,
+        @Nullable GlideExecutor decodeExecutor,
+        StageRecorder fetchStage,
+        StageRecorder decodeStage,
+        @Nullable MainThreadBatcher resultBatcher,
         EngineJobListener listener // 为Engine类
     ) {
       this.diskCacheExecutor = diskCacheExecutor;
       this.sourceExecutor = sourceExecutor;
       this.sourceUnlimitedExecutor = sourceUnlimitedExecutor;
       this.animationExecutor = animationExecutor;
+      this.decodeExecutor = decodeExecutor;
+      this.fetchStage = fetchStage;
+      this.decodeStage = decodeStage;
+      this.resultBatcher = resultBatcher;
       this.listener = listener;
     }
 
@@ -541,6 +780,9 @@ public class Engine implements EngineJobListener,
       shutdownAndAwaitTermination(sourceExecutor);
       shutdownAndAwaitTermination(sourceUnlimitedExecutor);
       shutdownAndAwaitTermination(animationExecutor);
+      if (decodeExecutor != null) {
+        shutdownAndAwaitTermination(decodeExecutor);
+      }
     }
 
     @SuppressWarnings("unchecked")
@@ -4,12 +4,15 @@ import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
 import android.support.v4.util.Pools;
+import com.bumptech.glide.Priority;
 import com.bumptech.glide.load.DataSource;
 import com.bumptech.glide.load.Key;
 import com.bumptech.glide.load.engine.executor.GlideExecutor;
 import com.bumptech.glide.request.ResourceCallback;
+import com.bumptech.glide.util.LogTime;
 import com.bumptech.glide.util.Synthetic;
 import com.bumptech.glide.util.Util;
 import com.bumptech.glide.util.pool.FactoryPools.Poolable;
@@ -42,6 +45,10 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
   private final GlideExecutor sourceExecutor;
   private final GlideExecutor sourceUnlimitedExecutor;
   private final GlideExecutor animationExecutor;
+  @Nullable private final GlideExecutor decodeExecutor;
+  @Nullable private final StageRecorder fetchStage;
+  @Nullable private final StageRecorder decodeStage;
+  @Nullable private final MainThreadBatcher resultBatcher;
 
   private Key key;//这次请求的 key 是一个 EngineKey
   private boolean isCacheable;//是否使用内存缓存，一般为 true
@@ -58,6 +65,9 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
   private List<ResourceCallback> ignoredCallbacks;//被忽略的回调
   private EngineResource<?> engineResource;
   private DecodeJob<R> decodeJob;
+  private long startTime;
+  // The executor decodeJob was last submitted to, which may be a background thread.
+  @Nullable private volatile GlideExecutor queuedExecutor;
 
   // Checked primarily on the main thread, but also on other threads in reschedule.
   private volatile boolean isCancelled;
@@ -67,6 +77,10 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
       GlideExecutor sourceExecutor,
       GlideExecutor sourceUnlimitedExecutor,
       GlideExecutor animationExecutor,
+      @Nullable GlideExecutor decodeExecutor,
+      @Nullable StageRecorder fetchStage,
+      @Nullable StageRecorder decodeStage,
+      @Nullable MainThreadBatcher resultBatcher,
       EngineJobListener listener,// 为Engine类
       Pools.Pool<EngineJob<?>> pool) {
     this(
@@ -74,6 +88,10 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
         sourceExecutor,
         sourceUnlimitedExecutor,
         animationExecutor,
+        decodeExecutor,
+        fetchStage,
+        decodeStage,
+        resultBatcher,
         listener,
         pool,
         DEFAULT_FACTORY);
@@ -88,10 +106,41 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
       EngineJobListener listener,// 为Engine类
       Pools.Pool<EngineJob<?>> pool,
       EngineResourceFactory engineResourceFactory) {
+    this(
+        diskCacheExecutor,
+        sourceExecutor,
+        sourceUnlimitedExecutor,
+        animationExecutor,
+        /*decodeExecutor=*/ null,
+        /*fetchStage=*/ null,
+        /*decodeStage=*/ null,
+        /*resultBatcher=*/ null,
+        listener,
+        pool,
+        engineResourceFactory);
+  }
+
+  @VisibleForTesting
+  EngineJob(
+      GlideExecutor diskCacheExecutor,
+      GlideExecutor sourceExecutor,
+      GlideExecutor sourceUnlimitedExecutor,
+      GlideExecutor animationExecutor,
+      @Nullable GlideExecutor decodeExecutor,
+      @Nullable StageRecorder fetchStage,
+      @Nullable StageRecorder decodeStage,
+      @Nullable MainThreadBatcher resultBatcher,
+      EngineJobListener listener,
+      Pools.Pool<EngineJob<?>> pool,
+      EngineResourceFactory engineResourceFactory) {
     this.diskCacheExecutor = diskCacheExecutor;
     this.sourceExecutor = sourceExecutor;
     this.sourceUnlimitedExecutor = sourceUnlimitedExecutor;
     this.animationExecutor = animationExecutor;
+    this.decodeExecutor = decodeExecutor;
+    this.fetchStage = fetchStage;
+    this.decodeStage = decodeStage;
+    this.resultBatcher = resultBatcher;
     this.listener = listener;
     this.pool = pool;
     this.engineResourceFactory = engineResourceFactory;
@@ -116,13 +165,29 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
   public void start(DecodeJob<R> decodeJob) {
     //记录用于解码的 job
     this.decodeJob = decodeJob;
+    startTime = LogTime.getLogTime();
     //是否可以直接从 硬盘中的缓存解码？ 可以的话直接 使用 diskCacheExecutor 这个线程池
     //不行的话使用其他线程池，默认配置的话是 sourceExecutor 这个线程池
     GlideExecutor executor = decodeJob.willDecodeFromCache()
         ? diskCacheExecutor
         : getActiveSourceExecutor();
     //开始执行  decodeJob ,会调用到 DecodeJob 的run方法
-    executor.execute(decodeJob);
+    execute(executor, decodeJob, fetchStage);
+  }
+
+  /**
+   * Returns the time this job was started, from {@link LogTime#getLogTime()}.
+   */
+  long getStartTime() {
+    return startTime;
+  }
+
+  /**
+   * Returns where the resource was loaded from, or null if it hasn't finished loading or failed.
+   */
+  @Nullable
+  DataSource getDataSource() {
+    return dataSource;
   }
 
   /**
@@ -156,6 +221,62 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
     }
   }
 
+  /**
+   * Changes the priority of the {@link DecodeJob} on behalf of the given callback, moving it within
+   * the queue of the executor it's waiting for, if any.
+   *
+   * <p>Jobs with more than one callback are only promoted.
+   */
+  void setPriority(ResourceCallback cb, final Priority priority) {
+    Util.assertMainThread();
+    stateVerifier.throwIfRecycled();
+    final DecodeJob<R> job = decodeJob;
+    if (job == null || isCancelled || hasResource || hasLoadFailed || !cbs.contains(cb)
+        || (cbs.size() > 1 && !job.isPromotedBy(priority))) {
+      return;
+    }
+    Runnable change = new Runnable() {
+      @Override
+      public void run() {
+        job.setPriority(priority);
+      }
+    };
+    GlideExecutor executor = queuedExecutor;
+    if (executor != null) {
+      executor.reorder(job, change);
+    } else {
+      change.run();
+    }
+  }
+
+  /**
+   * Adds the deadline of a request that's waiting for this job, moving the {@link DecodeJob}
+   * within the queue of the executor it's waiting for if the deadline is earlier than its current
+   * one.
+   *
+   * @see DecodeJob#mergeDeadline(long)
+   */
+  void mergeDeadline(final long deadline) {
+    Util.assertMainThread();
+    stateVerifier.throwIfRecycled();
+    final DecodeJob<R> job = decodeJob;
+    if (job == null || isCancelled || hasResource || hasLoadFailed) {
+      return;
+    }
+    Runnable change = new Runnable() {
+      @Override
+      public void run() {
+        job.mergeDeadline(deadline);
+      }
+    };
+    GlideExecutor executor = queuedExecutor;
+    if (executor != null && job.isHastenedBy(deadline)) {
+      executor.reorder(job, change);
+    } else {
+      change.run();
+    }
+  }
+
   boolean onlyRetrieveFromCache() {
     return onlyRetrieveFromCache;
   }
@@ -270,6 +391,7 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
     hasResource = false;
     decodeJob.release(isRemovedFromQueue);
     decodeJob = null;
+    queuedExecutor = null;
     exception = null;
     dataSource = null;
     pool.release(this);
@@ -283,13 +405,21 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
     this.resource = resource;
     this.dataSource = dataSource;
     //这里会切换到主线程 去handleMessage方法中看
-    MAIN_THREAD_HANDLER.obtainMessage(MSG_COMPLETE, this).sendToTarget();
+    postToMainThread(MAIN_THREAD_HANDLER.obtainMessage(MSG_COMPLETE, this));
   }
 
   @Override
   public void onLoadFailed(GlideException e) {
     this.exception = e;
-    MAIN_THREAD_HANDLER.obtainMessage(MSG_EXCEPTION, this).sendToTarget();
+    postToMainThread(MAIN_THREAD_HANDLER.obtainMessage(MSG_EXCEPTION, this));
+  }
+
+  private void postToMainThread(Message message) {
+    if (resultBatcher != null) {
+      resultBatcher.post(message);
+    } else {
+      message.sendToTarget();
+    }
   }
 
   @Override
@@ -297,7 +427,30 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
     // Even if the job is cancelled here, it still needs to be scheduled so that it can clean itself
     // up.
     //开始进行解码 会再次执行 DecodeJob 的 run方法
-    getActiveSourceExecutor().execute(job);
+    if (usesDecodeExecutor() && job.isDecodingRetrievedData()) {
+      execute(decodeExecutor, job, decodeStage);
+    } else {
+      execute(getActiveSourceExecutor(), job, fetchStage);
+    }
+  }
+
+  /**
+   * Returns {@code true} if a decode executor was provided and this load uses the default source
+   * executor, rather than one the request chose explicitly.
+   */
+  @Override
+  public boolean usesDecodeExecutor() {
+    return decodeExecutor != null && !useUnlimitedSourceGeneratorPool && !useAnimationPool;
+  }
+
+  private void execute(
+      GlideExecutor executor, DecodeJob<?> job, @Nullable StageRecorder stage) {
+    if (stage != null && usesDecodeExecutor()) {
+      job.onQueued(stage);
+    }
+    job.onSubmitted();
+    queuedExecutor = executor;
+    executor.execute(job);
   }
 
   @Synthetic
@@ -0,0 +1,41 @@
+package com.bumptech.glide.load.engine;
+
+import android.support.annotation.NonNull;
+import com.bumptech.glide.util.LogTime;
+import com.bumptech.glide.util.StripedCounter;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records the durations of loads, in microseconds, for {@link LatencyStats}.
+ */
+final class LatencyRecorder {
+  private static final double MICROS_PER_MILLI = 1000d;
+
+  private final StripedCounter count = new StripedCounter();
+  private final StripedCounter totalMicros = new StripedCounter();
+  private final AtomicLong maxMicros = new AtomicLong();
+
+  /**
+   * Records a load that started at the given time.
+   *
+   * @param startTime A time obtained from {@link LogTime#getLogTime()}.
+   */
+  void record(long startTime) {
+    long micros = Math.round(LogTime.getElapsedMillis(startTime) * MICROS_PER_MILLI);
+    count.increment();
+    totalMicros.add(micros);
+    long max;
+    // Usually a single read, new maximums are rare.
+    while (micros > (max = maxMicros.get())) {
+      if (maxMicros.compareAndSet(max, micros)) {
+        break;
+      }
+    }
+  }
+
+  @NonNull
+  LatencyStats snapshot() {
+    return new LatencyStats(
+        count.sum(), totalMicros.sum() / MICROS_PER_MILLI, maxMicros.get() / MICROS_PER_MILLI);
+  }
+}
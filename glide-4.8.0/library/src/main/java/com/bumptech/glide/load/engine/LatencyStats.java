@@ -0,0 +1,43 @@
+package com.bumptech.glide.load.engine;
+
+/**
+ * An immutable snapshot of how long a group of loads took, from the time they were started in
+ * {@link Engine} until their resource was ready.
+ */
+public final class LatencyStats {
+  private final long count;
+  private final double totalMillis;
+  private final double maxMillis;
+
+  LatencyStats(long count, double totalMillis, double maxMillis) {
+    this.count = count;
+    this.totalMillis = totalMillis;
+    this.maxMillis = maxMillis;
+  }
+
+  /** Returns the number of loads. */
+  public long getCount() {
+    return count;
+  }
+
+  /** Returns the sum of the durations of all loads in milliseconds. */
+  public double getTotalMillis() {
+    return totalMillis;
+  }
+
+  /** Returns the mean duration of a load in milliseconds, or 0 if there haven't been any. */
+  public double getMeanMillis() {
+    return count == 0 ? 0 : totalMillis / count;
+  }
+
+  /** Returns the duration of the slowest load in milliseconds. */
+  public double getMaxMillis() {
+    return maxMillis;
+  }
+
+  @Override
+  public String toString() {
+    return "LatencyStats{count=" + count + ", meanMillis=" + getMeanMillis() + ", maxMillis="
+        + maxMillis + "}";
+  }
+}
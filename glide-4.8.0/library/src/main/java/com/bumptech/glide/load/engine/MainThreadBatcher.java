@@ -0,0 +1,173 @@
+package com.bumptech.glide.load.engine;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.Choreographer;
+import com.bumptech.glide.util.Preconditions;
+import com.bumptech.glide.util.Synthetic;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Dispatches {@link Message}s on the main thread in batches, at most once per frame, rather than
+ * posting each of them to the main thread's queue separately.
+ *
+ * <p>When many loads finish at about the same time, for example while a list is flung, a message
+ * per load interleaves Glide's callbacks with input and layout and may spread them over several
+ * frames. Messages posted here before the next frame are instead dispatched together just before
+ * it's drawn, using {@link Choreographer} on API 16 and above. Older versions don't have
+ * {@link Choreographer}, so batches are dispatched from a single message on the main thread's
+ * queue instead. If no frame is drawn within {@link #MAX_BATCH_DELAY_MILLIS}, for example because
+ * the screen is off, the batch is dispatched anyway.
+ */
+final class MainThreadBatcher implements Handler.Callback {
+  static final long MAX_BATCH_DELAY_MILLIS = 100;
+  private static final int MSG_SCHEDULE = 1;
+  private static final int MSG_DISPATCH = 2;
+
+  private final Handler mainHandler = new Handler(Looper.getMainLooper(), this);
+  @Nullable private final FrameScheduler frameScheduler;
+
+  private List<Message> pending = new ArrayList<>();
+  private List<Message> dispatching = new ArrayList<>();
+  private boolean isScheduled;
+  private long batchCount;
+  private long resultCount;
+  private long messageCount;
+  private int maxBatchSize;
+
+  MainThreadBatcher() {
+    this(/*isFrameSchedulingAvailable=*/
+        Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN);
+  }
+
+  // Exposed for testing only.
+  MainThreadBatcher(boolean isFrameSchedulingAvailable) {
+    frameScheduler = isFrameSchedulingAvailable ? new FrameScheduler(this) : null;
+  }
+
+  /**
+   * Adds the given message, which must have a target {@link Handler}, to the next batch.
+   *
+   * <p>May be called on any thread.
+   */
+  void post(@NonNull Message message) {
+    Preconditions.checkArgument(message.getTarget() != null, "Message must have a target");
+    boolean schedule;
+    synchronized (this) {
+      pending.add(message);
+      schedule = !isScheduled;
+      isScheduled = true;
+    }
+    if (!schedule) {
+      return;
+    }
+    if (Looper.myLooper() == Looper.getMainLooper()) {
+      schedule();
+    } else {
+      sendToMainThread(frameScheduler != null ? MSG_SCHEDULE : MSG_DISPATCH, /*delayMillis=*/ 0);
+    }
+  }
+
+  @NonNull
+  synchronized DeliveryStats snapshot() {
+    return new DeliveryStats(batchCount, resultCount, messageCount, maxBatchSize);
+  }
+
+  @Override
+  public boolean handleMessage(Message message) {
+    switch (message.what) {
+      case MSG_SCHEDULE:
+        schedule();
+        break;
+      case MSG_DISPATCH:
+        dispatchPending();
+        break;
+      default:
+        return false;
+    }
+    return true;
+  }
+
+  private void schedule() {
+    if (frameScheduler != null) {
+      frameScheduler.schedule();
+      sendToMainThread(MSG_DISPATCH, MAX_BATCH_DELAY_MILLIS);
+    } else {
+      sendToMainThread(MSG_DISPATCH, /*delayMillis=*/ 0);
+    }
+  }
+
+  private void sendToMainThread(int what, long delayMillis) {
+    synchronized (this) {
+      messageCount++;
+    }
+    mainHandler.sendEmptyMessageDelayed(what, delayMillis);
+  }
+
+  @Synthetic
+  void dispatchPending() {
+    List<Message> batch;
+    synchronized (this) {
+      if (pending.isEmpty()) {
+        return;
+      }
+      // Whichever of the frame callback or the fallback message runs first dispatches the batch.
+      // The other is cancelled before isScheduled is cleared, otherwise a post() from another
+      // thread in between could schedule a message that's then removed here, leaving its batch
+      // scheduled but never dispatched.
+      mainHandler.removeMessages(MSG_DISPATCH);
+      if (frameScheduler != null) {
+        frameScheduler.cancel();
+      }
+      batch = pending;
+      pending = dispatching;
+      dispatching = batch;
+      isScheduled = false;
+    }
+
+    int size = batch.size();
+    try {
+      for (int i = 0; i < size; i++) {
+        Message message = batch.get(i);
+        message.getTarget().dispatchMessage(message);
+        message.recycle();
+      }
+    } finally {
+      batch.clear();
+      synchronized (this) {
+        batchCount++;
+        resultCount += size;
+        maxBatchSize = Math.max(maxBatchSize, size);
+      }
+    }
+  }
+
+  @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+  private static final class FrameScheduler implements Choreographer.FrameCallback {
+    private final MainThreadBatcher batcher;
+
+    FrameScheduler(MainThreadBatcher batcher) {
+      this.batcher = batcher;
+    }
+
+    // Choreographer.getInstance() is per thread, so these must only be called on the main thread.
+    void schedule() {
+      Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    void cancel() {
+      Choreographer.getInstance().removeFrameCallback(this);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+      batcher.dispatchPending();
+    }
+  }
+}
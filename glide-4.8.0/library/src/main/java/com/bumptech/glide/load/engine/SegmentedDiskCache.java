@@ -0,0 +1,204 @@
+package com.bumptech.glide.load.engine;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.engine.cache.CacheStats;
+import com.bumptech.glide.load.engine.cache.DiskCache;
+import com.bumptech.glide.load.engine.cache.DiskCacheAdapter;
+import com.bumptech.glide.load.engine.cache.DiskLruCacheWrapper;
+import com.bumptech.glide.util.Preconditions;
+import java.io.File;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link DiskCache} that stores unmodified source data and transformed resources in two
+ * separate caches, each with their own size budget.
+ *
+ * <p>Source data written by {@link DataCacheGenerator} and {@link SourceGenerator} is usually much
+ * larger than the transformed resources written by {@link DecodeJob}, so in a single cache a few
+ * large originals can evict many small thumbnails that each cost a full decode and transform to
+ * recreate. Splitting the caches lets the transformed resources keep a guaranteed share of the
+ * disk.
+ *
+ * <p>Keys for transformed resources are routed to the resource cache, all other keys go to the
+ * data cache. The two caches must not share a directory.
+ */
+public final class SegmentedDiskCache implements DiskCache {
+  private final DiskCache dataCache;
+  private final DiskCache resourceCache;
+  private final SegmentStats dataStats;
+  private final SegmentStats resourceStats;
+
+  @VisibleForTesting
+  SegmentedDiskCache(DiskCache dataCache, DiskCache resourceCache) {
+    this(dataCache, resourceCache, new SegmentStats(), new SegmentStats());
+  }
+
+  private SegmentedDiskCache(DiskCache dataCache, DiskCache resourceCache,
+      SegmentStats dataStats, SegmentStats resourceStats) {
+    this.dataCache = dataCache;
+    this.resourceCache = resourceCache;
+    this.dataStats = dataStats;
+    this.resourceStats = resourceStats;
+  }
+
+  @Nullable
+  @Override
+  public File get(Key key) {
+    boolean isResource = isResource(key);
+    File result = (isResource ? resourceCache : dataCache).get(key);
+    (isResource ? resourceStats : dataStats).record(result != null);
+    return result;
+  }
+
+  @Override
+  public void put(Key key, Writer writer) {
+    segmentFor(key).put(key, writer);
+  }
+
+  @Override
+  public void delete(Key key) {
+    segmentFor(key).delete(key);
+  }
+
+  @Override
+  public void clear() {
+    try {
+      dataCache.clear();
+    } finally {
+      resourceCache.clear();
+    }
+  }
+
+  /** Returns the hit counters for unmodified source data. */
+  @NonNull
+  public SegmentStats getDataStats() {
+    return dataStats;
+  }
+
+  /** Returns the hit counters for transformed resources. */
+  @NonNull
+  public SegmentStats getResourceStats() {
+    return resourceStats;
+  }
+
+  /**
+   * Returns a snapshot of both segments combined. Evictions and sizes are only included for
+   * segments that are {@link DiskLruCacheWrapper}s.
+   */
+  @NonNull
+  public CacheStats getCacheStats() {
+    long evictionCount = 0;
+    long currentSize = 0;
+    long maxSize = 0;
+    for (DiskCache segment : new DiskCache[] { dataCache, resourceCache }) {
+      if (segment instanceof DiskLruCacheWrapper) {
+        CacheStats segmentStats = ((DiskLruCacheWrapper) segment).getCacheStats();
+        evictionCount += segmentStats.getEvictionCount();
+        currentSize += segmentStats.getCurrentSize();
+        maxSize += segmentStats.getMaxSize();
+      }
+    }
+    return new CacheStats(
+        dataStats.getHitCount() + resourceStats.getHitCount(),
+        dataStats.getMissCount() + resourceStats.getMissCount(),
+        evictionCount,
+        currentSize,
+        maxSize);
+  }
+
+  private DiskCache segmentFor(Key key) {
+    return isResource(key) ? resourceCache : dataCache;
+  }
+
+  private static boolean isResource(Key key) {
+    return key instanceof ResourceCacheKey;
+  }
+
+  /**
+   * Counts lookups against one of the segments of a {@link SegmentedDiskCache}.
+   */
+  public static final class SegmentStats {
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    SegmentStats() {
+      // Package private.
+    }
+
+    void record(boolean hit) {
+      (hit ? hitCount : missCount).incrementAndGet();
+    }
+
+    public long getHitCount() {
+      return hitCount.get();
+    }
+
+    public long getMissCount() {
+      return missCount.get();
+    }
+
+    /** Returns the fraction of lookups that were hits, or 0 if there haven't been any lookups. */
+    public double getHitRate() {
+      long hits = hitCount.get();
+      long total = hits + missCount.get();
+      return total == 0 ? 0 : hits / (double) total;
+    }
+
+    @Override
+    public String toString() {
+      return "SegmentStats{hits=" + getHitCount() + ", misses=" + getMissCount() + "}";
+    }
+  }
+
+  /**
+   * Builds a {@link SegmentedDiskCache} from a factory for each segment.
+   *
+   * <p>The counters returned by {@link #getDataStats()} and {@link #getResourceStats()} are shared
+   * with the cache this factory builds, so they can be read without access to the cache itself.
+   */
+  public static final class Factory implements DiskCache.Factory {
+    private final DiskCache.Factory dataCacheFactory;
+    private final DiskCache.Factory resourceCacheFactory;
+    private final SegmentStats dataStats = new SegmentStats();
+    private final SegmentStats resourceStats = new SegmentStats();
+
+    /**
+     * @param dataCacheFactory     Builds the cache for unmodified source data.
+     * @param resourceCacheFactory Builds the cache for transformed resources, which must use a
+     *                             different directory than the data cache.
+     */
+    public Factory(@NonNull DiskCache.Factory dataCacheFactory,
+        @NonNull DiskCache.Factory resourceCacheFactory) {
+      this.dataCacheFactory = Preconditions.checkNotNull(dataCacheFactory);
+      this.resourceCacheFactory = Preconditions.checkNotNull(resourceCacheFactory);
+    }
+
+    @NonNull
+    public SegmentStats getDataStats() {
+      return dataStats;
+    }
+
+    @NonNull
+    public SegmentStats getResourceStats() {
+      return resourceStats;
+    }
+
+    @NonNull
+    @Override
+    public DiskCache build() {
+      return new SegmentedDiskCache(
+          orAdapter(dataCacheFactory.build()),
+          orAdapter(resourceCacheFactory.build()),
+          dataStats,
+          resourceStats);
+    }
+
+    // Matches Engine, which falls back to a no-op cache if a factory can't build one.
+    private static DiskCache orAdapter(@Nullable DiskCache diskCache) {
+      return diskCache != null ? diskCache : new DiskCacheAdapter();
+    }
+  }
+}
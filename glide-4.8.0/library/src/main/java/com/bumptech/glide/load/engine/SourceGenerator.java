@@ -81,9 +81,10 @@ class SourceGenerator implements DataFetcherGenerator,
       //获取编码器这里是 StreamEncoder
       Encoder<Object> encoder = helper.getSourceEncoder(dataToCache);
       DataCacheWriter<Object> writer =
-          new DataCacheWriter<>(encoder, dataToCache, helper.getOptions());
+          new DataCacheWriter.ReadBack<>(encoder, dataToCache, helper.getOptions());
       //创建原始key
-      originalKey = new DataCacheKey(loadData.sourceKey, helper.getSignature());
+      originalKey = new DataCacheKey(
+          loadData.sourceKey, helper.getSignature(), helper.isDataCompressed());
       //将原始文件缓存到磁盘,最终会调用 DiskLruCacheWrapper.put 方法
       helper.getDiskCache().put(originalKey, writer);
       if (Log.isLoggable(TAG, Log.VERBOSE)) {
@@ -0,0 +1,43 @@
+package com.bumptech.glide.load.engine;
+
+import android.support.annotation.NonNull;
+import com.bumptech.glide.util.LogTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records the queue depth and latencies of one stage of {@link Engine}'s pipeline for
+ * {@link StageStats}.
+ */
+final class StageRecorder {
+  private final AtomicInteger queueDepth = new AtomicInteger();
+  private final LatencyRecorder waitLatency = new LatencyRecorder();
+  private final LatencyRecorder runLatency = new LatencyRecorder();
+
+  /**
+   * Records a job being submitted to this stage's executor and returns the time it was queued.
+   */
+  long onQueued() {
+    queueDepth.incrementAndGet();
+    return LogTime.getLogTime();
+  }
+
+  /**
+   * Records a job queued at the given time starting to run and returns the time it started.
+   */
+  long onStarted(long queuedTime) {
+    queueDepth.decrementAndGet();
+    waitLatency.record(queuedTime);
+    return LogTime.getLogTime();
+  }
+
+  /** Records a job that started running at the given time finishing its run. */
+  void onFinished(long startTime) {
+    runLatency.record(startTime);
+  }
+
+  @NonNull
+  StageStats snapshot() {
+    return new StageStats(
+        Math.max(0, queueDepth.get()), waitLatency.snapshot(), runLatency.snapshot());
+  }
+}
@@ -0,0 +1,45 @@
+package com.bumptech.glide.load.engine;
+
+import android.support.annotation.NonNull;
+
+/**
+ * An immutable snapshot of how loads have moved through one stage of {@link Engine}'s pipeline,
+ * for example fetching data or decoding it, when the stages run on separate executors.
+ */
+public final class StageStats {
+  private final int queueDepth;
+  private final LatencyStats waitLatency;
+  private final LatencyStats runLatency;
+
+  StageStats(int queueDepth, LatencyStats waitLatency, LatencyStats runLatency) {
+    this.queueDepth = queueDepth;
+    this.waitLatency = waitLatency;
+    this.runLatency = runLatency;
+  }
+
+  /** Returns the number of jobs waiting for a thread in this stage's executor. */
+  public int getQueueDepth() {
+    return queueDepth;
+  }
+
+  /** Returns how long jobs waited in this stage's queue before starting to run. */
+  @NonNull
+  public LatencyStats getWaitLatency() {
+    return waitLatency;
+  }
+
+  /**
+   * Returns how long jobs ran on this stage's executor each time they were run, not including
+   * time spent waiting for asynchronous fetchers.
+   */
+  @NonNull
+  public LatencyStats getRunLatency() {
+    return runLatency;
+  }
+
+  @Override
+  public String toString() {
+    return "StageStats{queueDepth=" + queueDepth + ", waitLatency=" + waitLatency
+        + ", runLatency=" + runLatency + "}";
+  }
+}
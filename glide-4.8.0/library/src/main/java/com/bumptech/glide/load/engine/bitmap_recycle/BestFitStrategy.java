@@ -0,0 +1,208 @@
+package com.bumptech.glide.load.engine.bitmap_recycle;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.os.SystemClock;
+import android.support.annotation.Nullable;
+import android.support.annotation.RequiresApi;
+import android.support.annotation.VisibleForTesting;
+import com.bumptech.glide.load.engine.bitmap_recycle.SizeConfigStrategy.Key;
+import com.bumptech.glide.load.engine.bitmap_recycle.SizeConfigStrategy.KeyPool;
+import com.bumptech.glide.util.Util;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keys {@link android.graphics.Bitmap Bitmaps} by their byte size and
+ * {@link android.graphics.Bitmap.Config}, like {@link SizeConfigStrategy}, but returns the
+ * smallest pooled {@link android.graphics.Bitmap} of any compatible config that can hold the
+ * request, so that as few bytes as possible are wasted by re-using larger
+ * {@link android.graphics.Bitmap Bitmaps}.
+ *
+ * <p>The fraction of re-used bytes that weren't needed is available from
+ * {@link #getWasteRatio()}. After {@link #onMemoryPressure()}, pooled
+ * {@link android.graphics.Bitmap Bitmaps} may only be used for requests at most
+ * {@link #MAX_SIZE_MULTIPLE_UNDER_PRESSURE} times smaller than them for a while, so that small
+ * requests don't keep large allocations alive when memory is low.
+ */
+@RequiresApi(Build.VERSION_CODES.KITKAT)
+final class BestFitStrategy implements LruPoolStrategy {
+  @VisibleForTesting
+  static final int MAX_SIZE_MULTIPLE = 8;
+  @VisibleForTesting
+  static final int MAX_SIZE_MULTIPLE_UNDER_PRESSURE = 2;
+  @VisibleForTesting
+  static final long MEMORY_PRESSURE_DURATION_MS = TimeUnit.SECONDS.toMillis(30);
+
+  private final KeyPool keyPool = new KeyPool();
+  private final GroupedLinkedMap<Key, Bitmap> groupedMap = new GroupedLinkedMap<>();
+  private final Map<Bitmap.Config, NavigableMap<Integer, Integer>> sortedSizes = new HashMap<>();
+
+  private long requestedBytes;
+  private long reusedBytes;
+  private int largestRequestedSize;
+  private long memoryPressureEndTime;
+  private boolean isUnderMemoryPressure;
+
+  @Override
+  public void put(Bitmap bitmap) {
+    int size = Util.getBitmapByteSize(bitmap);
+    Key key = keyPool.get(size, bitmap.getConfig());
+
+    groupedMap.put(key, bitmap);
+
+    NavigableMap<Integer, Integer> sizes = getSizesForConfig(bitmap.getConfig());
+    Integer current = sizes.get(size);
+    sizes.put(size, current == null ? 1 : current + 1);
+  }
+
+  @Override
+  @Nullable
+  public Bitmap get(int width, int height, Bitmap.Config config) {
+    int size = Util.getBitmapByteSize(width, height, config);
+    largestRequestedSize = Math.max(largestRequestedSize, size);
+    long maxSize = (long) size * getMaxSizeMultiple();
+
+    Integer bestSize = null;
+    Bitmap.Config bestConfig = config;
+    for (Bitmap.Config possibleConfig : SizeConfigStrategy.getInConfigs(config)) {
+      Integer possibleSize = getSizesForConfig(possibleConfig).ceilingKey(size);
+      if (possibleSize != null && possibleSize <= maxSize
+          && (bestSize == null || possibleSize < bestSize)) {
+        bestSize = possibleSize;
+        bestConfig = possibleConfig;
+        if (possibleSize == size) {
+          break;
+        }
+      }
+    }
+
+    // Gets for the requested size count as accesses for the LRU even if there's no match.
+    Key bestKey = keyPool.get(bestSize != null ? bestSize : size, bestConfig);
+    Bitmap result = groupedMap.get(bestKey);
+    if (result != null) {
+      // Decrement must be called before reconfigure.
+      decrementBitmapOfSize(bestSize, result);
+      requestedBytes += size;
+      reusedBytes += bestSize;
+      result.reconfigure(width, height,
+          result.getConfig() != null ? result.getConfig() : Bitmap.Config.ARGB_8888);
+    }
+    return result;
+  }
+
+  @Override
+  @Nullable
+  public Bitmap removeLast() {
+    Bitmap removed = groupedMap.removeLast();
+    if (removed != null) {
+      decrementBitmapOfSize(Util.getBitmapByteSize(removed), removed);
+    }
+    return removed;
+  }
+
+  /**
+   * Restricts re-use to {@link #MAX_SIZE_MULTIPLE_UNDER_PRESSURE} for the next
+   * {@link #MEMORY_PRESSURE_DURATION_MS} and forgets the sizes requested so far.
+   *
+   * <p>Callers should remove oversized {@link Bitmap}s with {@link #removeOversized()} first.
+   */
+  void onMemoryPressure() {
+    isUnderMemoryPressure = true;
+    memoryPressureEndTime = SystemClock.uptimeMillis() + MEMORY_PRESSURE_DURATION_MS;
+    largestRequestedSize = 0;
+  }
+
+  /**
+   * Removes and returns a pooled {@link Bitmap} that's more than
+   * {@link #MAX_SIZE_MULTIPLE_UNDER_PRESSURE} times larger than any size requested since the
+   * last call to {@link #onMemoryPressure()}, or {@code null} if there are none or nothing has
+   * been requested.
+   */
+  @Nullable
+  Bitmap removeOversized() {
+    if (largestRequestedSize == 0) {
+      return null;
+    }
+    long limit = (long) largestRequestedSize * MAX_SIZE_MULTIPLE_UNDER_PRESSURE;
+    for (Map.Entry<Bitmap.Config, NavigableMap<Integer, Integer>> entry : sortedSizes.entrySet()) {
+      NavigableMap<Integer, Integer> sizes = entry.getValue();
+      if (!sizes.isEmpty() && sizes.lastKey() > limit) {
+        int size = sizes.lastKey();
+        Bitmap removed = groupedMap.get(keyPool.get(size, entry.getKey()));
+        if (removed != null) {
+          decrementBitmapOfSize(size, removed);
+          return removed;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the fraction of the bytes in re-used {@link Bitmap}s that were larger than the
+   * requests they were used for, or 0 if no {@link Bitmap}s have been re-used.
+   */
+  float getWasteRatio() {
+    return reusedBytes == 0 ? 0 : (reusedBytes - requestedBytes) / (float) reusedBytes;
+  }
+
+  private int getMaxSizeMultiple() {
+    if (isUnderMemoryPressure && SystemClock.uptimeMillis() >= memoryPressureEndTime) {
+      isUnderMemoryPressure = false;
+    }
+    return isUnderMemoryPressure ? MAX_SIZE_MULTIPLE_UNDER_PRESSURE : MAX_SIZE_MULTIPLE;
+  }
+
+  private void decrementBitmapOfSize(int size, Bitmap removed) {
+    NavigableMap<Integer, Integer> sizes = getSizesForConfig(removed.getConfig());
+    Integer current = sizes.get(size);
+    if (current == null) {
+      throw new NullPointerException("Tried to decrement empty size"
+          + ", size: " + size
+          + ", removed: " + logBitmap(removed)
+          + ", this: " + this);
+    }
+
+    if (current == 1) {
+      sizes.remove(size);
+    } else {
+      sizes.put(size, current - 1);
+    }
+  }
+
+  private NavigableMap<Integer, Integer> getSizesForConfig(Bitmap.Config config) {
+    NavigableMap<Integer, Integer> sizes = sortedSizes.get(config);
+    if (sizes == null) {
+      sizes = new TreeMap<>();
+      sortedSizes.put(config, sizes);
+    }
+    return sizes;
+  }
+
+  @Override
+  public String logBitmap(Bitmap bitmap) {
+    return SizeConfigStrategy.getBitmapString(Util.getBitmapByteSize(bitmap), bitmap.getConfig());
+  }
+
+  @Override
+  public String logBitmap(int width, int height, Bitmap.Config config) {
+    return SizeConfigStrategy.getBitmapString(
+        Util.getBitmapByteSize(width, height, config), config);
+  }
+
+  @Override
+  public int getSize(Bitmap bitmap) {
+    return Util.getBitmapByteSize(bitmap);
+  }
+
+  @Override
+  public String toString() {
+    return "BestFitStrategy{groupedMap=" + groupedMap + ", sortedSizes=" + sortedSizes
+        + ", wasteRatio=" + getWasteRatio() + ", isUnderMemoryPressure=" + isUnderMemoryPressure
+        + "}";
+  }
+}
@@ -0,0 +1,250 @@
+package com.bumptech.glide.load.engine.bitmap_recycle;
+
+import android.content.ComponentCallbacks2;
+import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
+import android.util.Log;
+import com.bumptech.glide.load.engine.cache.CacheCounters;
+import com.bumptech.glide.load.engine.cache.IncrementallyTrimmable;
+import com.bumptech.glide.util.Preconditions;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A pool of direct {@link ByteBuffer}s used to stage encoded image data outside of the Java heap.
+ *
+ * <p>Buffers are grouped into power of two size classes from {@link #MIN_SIZE_CLASS_BYTES} to
+ * {@link #MAX_SIZE_CLASS_BYTES}. Requests are rounded up to the next size class, so a buffer
+ * returned by {@link #get(int)} may be up to twice as large as requested. Buffers in size classes
+ * smaller than {@link #SLAB_SIZE_BYTES} are sliced from a single slab allocation so that loading
+ * many small images doesn't call {@link ByteBuffer#allocateDirect(int)}, which is relatively
+ * expensive and may block on a full garbage collection, for each one. Requests larger than the
+ * largest size class are allocated exactly and aren't pooled.
+ *
+ * <p>Buffers must be returned with {@link #put(ByteBuffer)} once nothing refers to them any more,
+ * typically in {@link com.bumptech.glide.load.data.DataFetcher#cleanup()}. Direct memory for
+ * buffers evicted from the pool is freed when they're garbage collected, and a slab is only freed
+ * once every buffer sliced from it has been.
+ *
+ * <p>This class is thread safe.
+ */
+public final class DirectByteBufferPool implements CacheCounters, IncrementallyTrimmable {
+  private static final String TAG = "DirectByteBufferPool";
+  @VisibleForTesting
+  static final int MIN_SIZE_CLASS_BYTES = 16 * 1024;
+  @VisibleForTesting
+  static final int MAX_SIZE_CLASS_BYTES = 8 * 1024 * 1024;
+  @VisibleForTesting
+  static final int SLAB_SIZE_BYTES = 256 * 1024;
+  private static final int DEFAULT_MAX_SIZE_BYTES = 8 * 1024 * 1024;
+
+  private final List<ArrayDeque<ByteBuffer>> sizeClasses;
+  private int maxSize;
+  private int currentSize;
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  /**
+   * Constructor for a pool that holds up to 8MB of unused buffers.
+   */
+  public DirectByteBufferPool() {
+    this(DEFAULT_MAX_SIZE_BYTES);
+  }
+
+  /**
+   * Constructor for DirectByteBufferPool.
+   *
+   * @param maxSize The maximum size in bytes of the unused buffers held by the pool.
+   */
+  public DirectByteBufferPool(int maxSize) {
+    Preconditions.checkArgument(maxSize >= 0, "Max size must be >= 0");
+    this.maxSize = maxSize;
+    int count = getSizeClassIndex(MAX_SIZE_CLASS_BYTES) + 1;
+    sizeClasses = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      sizeClasses.add(new ArrayDeque<ByteBuffer>());
+    }
+  }
+
+  /**
+   * Returns a direct buffer with a capacity of at least {@code size} bytes, its position set to
+   * zero, its limit set to {@code size} and its byte order set to {@link ByteOrder#BIG_ENDIAN}.
+   *
+   * <p>The contents of the buffer are undefined.
+   */
+  @NonNull
+  public ByteBuffer get(int size) {
+    Preconditions.checkArgument(size >= 0, "Size must be >= 0");
+    if (size > MAX_SIZE_CLASS_BYTES) {
+      return ByteBuffer.allocateDirect(size);
+    }
+    int index = getSizeClassIndex(size);
+    int sizeClassBytes = getSizeClassBytes(index);
+    ByteBuffer result;
+    synchronized (this) {
+      result = sizeClasses.get(index).pollFirst();
+      if (result != null) {
+        hits++;
+        currentSize -= sizeClassBytes;
+      } else {
+        misses++;
+        result = allocate(index, sizeClassBytes);
+      }
+    }
+    result.clear();
+    result.limit(size);
+    result.order(ByteOrder.BIG_ENDIAN);
+    return result;
+  }
+
+  /**
+   * Returns a buffer obtained from {@link #get(int)} to the pool.
+   *
+   * <p>Buffers that aren't direct or that weren't allocated by a pool are ignored. The caller must
+   * not use the buffer, or any view of it, after calling this method.
+   */
+  public void put(@NonNull ByteBuffer buffer) {
+    int capacity = buffer.capacity();
+    if (!buffer.isDirect() || buffer.isReadOnly() || capacity < MIN_SIZE_CLASS_BYTES
+        || capacity > MAX_SIZE_CLASS_BYTES || Integer.bitCount(capacity) != 1) {
+      return;
+    }
+    synchronized (this) {
+      if (capacity > maxSize / 2) {
+        return;
+      }
+      sizeClasses.get(getSizeClassIndex(capacity)).addFirst(buffer);
+      currentSize += capacity;
+      evictToSize(maxSize);
+    }
+  }
+
+  /** Returns the sum of the capacities of the unused buffers in the pool in bytes. */
+  public synchronized int getCurrentSize() {
+    return currentSize;
+  }
+
+  /** Returns the maximum size of the unused buffers in the pool in bytes. */
+  public synchronized int getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Sets the maximum size of the unused buffers in the pool in bytes, evicting buffers if the pool
+   * is now too large.
+   */
+  public synchronized void setMaxSize(int maxSize) {
+    Preconditions.checkArgument(maxSize >= 0, "Max size must be >= 0");
+    this.maxSize = maxSize;
+    evictToSize(maxSize);
+  }
+
+  /**
+   * Evicts all unused buffers from the pool.
+   */
+  public synchronized void clearMemory() {
+    evictToSize(0);
+  }
+
+  /**
+   * Evicts unused buffers from the pool as appropriate for the given
+   * {@link ComponentCallbacks2#onTrimMemory(int)} level.
+   */
+  public synchronized void trimMemory(int level) {
+    if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+      clearMemory();
+    } else if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN
+        || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+      evictToSize(maxSize / 2);
+    }
+  }
+
+  @Override
+  public long getSizeInBytes() {
+    return getCurrentSize();
+  }
+
+  @Override
+  public long getMaxSizeInBytes() {
+    return getMaxSize();
+  }
+
+  @Override
+  public synchronized void trimToSizeInBytes(long size) {
+    evictToSize((int) Math.min(Integer.MAX_VALUE, size));
+  }
+
+  @Override
+  public synchronized long getHitCount() {
+    return hits;
+  }
+
+  @Override
+  public synchronized long getMissCount() {
+    return misses;
+  }
+
+  @Override
+  public synchronized long getEvictionCount() {
+    return evictions;
+  }
+
+  /**
+   * Allocates a buffer in the given size class, slicing a new slab for small size classes and
+   * adding the rest of the slab to the pool.
+   */
+  private ByteBuffer allocate(int index, int sizeClassBytes) {
+    if (sizeClassBytes >= SLAB_SIZE_BYTES) {
+      return ByteBuffer.allocateDirect(sizeClassBytes);
+    }
+    if (Log.isLoggable(TAG, Log.VERBOSE)) {
+      Log.v(TAG, "Allocating slab for " + sizeClassBytes + " byte buffers");
+    }
+    ByteBuffer slab = ByteBuffer.allocateDirect(SLAB_SIZE_BYTES);
+    ByteBuffer result = null;
+    for (int offset = 0; offset < SLAB_SIZE_BYTES; offset += sizeClassBytes) {
+      slab.limit(offset + sizeClassBytes);
+      slab.position(offset);
+      ByteBuffer slice = slab.slice();
+      if (result == null) {
+        result = slice;
+      } else {
+        sizeClasses.get(index).addLast(slice);
+        currentSize += sizeClassBytes;
+      }
+    }
+    evictToSize(maxSize);
+    return result;
+  }
+
+  /**
+   * Evicts the least recently returned buffers from the largest size classes first, which frees
+   * the most memory for the fewest future allocations.
+   */
+  private void evictToSize(int size) {
+    for (int index = sizeClasses.size() - 1; index >= 0 && currentSize > size; index--) {
+      ArrayDeque<ByteBuffer> sizeClass = sizeClasses.get(index);
+      while (currentSize > size && sizeClass.pollLast() != null) {
+        currentSize -= getSizeClassBytes(index);
+        evictions++;
+      }
+    }
+  }
+
+  private static int getSizeClassIndex(int size) {
+    if (size <= MIN_SIZE_CLASS_BYTES) {
+      return 0;
+    }
+    // The number of times MIN_SIZE_CLASS_BYTES must be doubled to be at least size.
+    return 1 + Integer.numberOfLeadingZeros(MIN_SIZE_CLASS_BYTES)
+        - Integer.numberOfLeadingZeros(size - 1);
+  }
+
+  private static int getSizeClassBytes(int index) {
+    return MIN_SIZE_CLASS_BYTES << index;
+  }
+}
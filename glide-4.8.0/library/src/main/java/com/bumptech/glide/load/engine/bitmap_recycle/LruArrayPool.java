@@ -3,6 +3,8 @@ package com.bumptech.glide.load.engine.bitmap_recycle;
 import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
 import android.util.Log;
+import com.bumptech.glide.load.engine.cache.CacheCounters;
+import com.bumptech.glide.load.engine.cache.IncrementallyTrimmable;
 import com.bumptech.glide.util.Preconditions;
 import com.bumptech.glide.util.Synthetic;
 import java.util.HashMap;
@@ -14,7 +16,7 @@ import java.util.TreeMap;
  * A fixed size Array Pool that evicts arrays using an LRU strategy to keep the pool under
  * the maximum byte size.
  */
-public final class LruArrayPool implements ArrayPool {
+public final class LruArrayPool implements ArrayPool, CacheCounters, IncrementallyTrimmable {
   // 4MB.
   private static final int DEFAULT_SIZE = 4 * 1024 * 1024;
 
@@ -31,12 +33,16 @@ public final class LruArrayPool implements ArrayPool {
   private final KeyPool keyPool = new KeyPool();
   private final Map<Class<?>, NavigableMap<Integer, Integer>> sortedSizes = new HashMap<>();
   private final Map<Class<?>, ArrayAdapterInterface<?>> adapters = new HashMap<>();
-  private final int maxSize;
+  private final int initialMaxSize;
+  private int maxSize;
   private int currentSize;
+  private long hits;
+  private long misses;
+  private long evictions;
 
   @VisibleForTesting
   public LruArrayPool() {
-    maxSize = DEFAULT_SIZE;
+    this(DEFAULT_SIZE);
   }
 
   /**
@@ -45,9 +51,53 @@ public final class LruArrayPool implements ArrayPool {
    * @param maxSize The maximum size in integers of the pool.
    */
   public LruArrayPool(int maxSize) {
+    this.initialMaxSize = maxSize;
     this.maxSize = maxSize;
   }
 
+  /**
+   * Returns the current maximum size of the pool in bytes.
+   */
+  public synchronized int getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Returns the sum of the sizes of all arrays currently in the pool in bytes.
+   */
+  public synchronized int getCurrentSize() {
+    return currentSize;
+  }
+
+  /**
+   * Multiplies the initial size of the pool by the given multiplier to dynamically and
+   * synchronously allow more or less arrays to be pooled, evicting arrays if the pool is now too
+   * large.
+   *
+   * @param sizeMultiplier The size multiplier to apply between 0 and 1.
+   */
+  public synchronized void setSizeMultiplier(float sizeMultiplier) {
+    Preconditions.checkArgument(sizeMultiplier >= 0, "Multiplier must be >= 0");
+    long newMaxSize = Math.round((double) initialMaxSize * sizeMultiplier);
+    maxSize = (int) Math.min(Integer.MAX_VALUE, newMaxSize);
+    evict();
+  }
+
+  @Override
+  public synchronized long getHitCount() {
+    return hits;
+  }
+
+  @Override
+  public synchronized long getMissCount() {
+    return misses;
+  }
+
+  @Override
+  public synchronized long getEvictionCount() {
+    return evictions;
+  }
+
   @Deprecated
   @Override
   public <T> void put(T array, Class<T> arrayClass) {
@@ -75,6 +125,37 @@ public final class LruArrayPool implements ArrayPool {
     evict();
   }
 
+  /**
+   * Adds the first {@code count} arrays to the pool while holding the pool's lock once.
+   */
+  synchronized void putAll(Object[] arrays, int count) {
+    for (int i = 0; i < count; i++) {
+      put(arrays[i]);
+    }
+  }
+
+  /**
+   * Removes up to {@code count} pooled arrays of exactly the given size into {@code arrays} while
+   * holding the pool's lock once and returns the number removed.
+   *
+   * <p>Unlike {@link #getExact(int, Class)}, new arrays aren't allocated if the pool doesn't
+   * contain enough arrays and neither hits nor misses are counted.
+   */
+  synchronized int removeExact(int size, Class<?> arrayClass, Object[] arrays, int count) {
+    ArrayAdapterInterface<?> arrayAdapter = getAdapterFromType(arrayClass);
+    int removed = 0;
+    while (removed < count) {
+      Object array = getArrayForKey(keyPool.get(size, arrayClass));
+      if (array == null) {
+        break;
+      }
+      currentSize -= size * arrayAdapter.getElementSizeInBytes();
+      decrementArrayOfSize(size, arrayClass);
+      arrays[removed++] = array;
+    }
+    return removed;
+  }
+
   @Override
   public synchronized <T> T getExact(int size, Class<T> arrayClass) {
     Key key = keyPool.get(size, arrayClass);
@@ -97,11 +178,13 @@ public final class LruArrayPool implements ArrayPool {
     ArrayAdapterInterface<T> arrayAdapter = getAdapterFromType(arrayClass);
     T result = getArrayForKey(key);
     if (result != null) {
+      hits++;
       currentSize -= arrayAdapter.getArrayLength(result) * arrayAdapter.getElementSizeInBytes();
       decrementArrayOfSize(arrayAdapter.getArrayLength(result), arrayClass);
     }
 
     if (result == null) {
+      misses++;
       if (Log.isLoggable(arrayAdapter.getTag(), Log.VERBOSE)) {
         Log.v(arrayAdapter.getTag(), "Allocated " + key.size + " bytes");
       }
@@ -146,6 +229,21 @@ public final class LruArrayPool implements ArrayPool {
     }
   }
 
+  @Override
+  public long getSizeInBytes() {
+    return getCurrentSize();
+  }
+
+  @Override
+  public long getMaxSizeInBytes() {
+    return getMaxSize();
+  }
+
+  @Override
+  public synchronized void trimToSizeInBytes(long size) {
+    evictToSize((int) Math.min(Integer.MAX_VALUE, size));
+  }
+
   private void evict() {
     evictToSize(maxSize);
   }
@@ -157,6 +255,7 @@ public final class LruArrayPool implements ArrayPool {
       ArrayAdapterInterface<Object> arrayAdapter = getAdapterFromObject(evicted);
       currentSize -= arrayAdapter.getArrayLength(evicted) * arrayAdapter.getElementSizeInBytes();
       decrementArrayOfSize(arrayAdapter.getArrayLength(evicted), evicted.getClass());
+      evictions++;
       if (Log.isLoggable(arrayAdapter.getTag(), Log.VERBOSE)) {
         Log.v(arrayAdapter.getTag(), "evicted: " + arrayAdapter.getArrayLength(evicted));
       }
@@ -208,18 +307,6 @@ public final class LruArrayPool implements ArrayPool {
     return (ArrayAdapterInterface<T>) adapter;
   }
 
-  // VisibleForTesting
-  int getCurrentSize() {
-    int currentSize = 0;
-    for (Class<?> type : sortedSizes.keySet()) {
-      for (Integer size : sortedSizes.get(type).keySet()) {
-        ArrayAdapterInterface<?> adapter = getAdapterFromType(type);
-        currentSize += size * sortedSizes.get(type).get(size) * adapter.getElementSizeInBytes();
-      }
-    }
-    return currentSize;
-  }
-
   private static final class KeyPool extends BaseKeyPool<Key> {
 
     @Synthetic
@@ -8,6 +8,8 @@ import android.os.Build;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.util.Log;
+import com.bumptech.glide.load.engine.cache.CacheCounters;
+import com.bumptech.glide.load.engine.cache.IncrementallyTrimmable;
 import com.bumptech.glide.util.Synthetic;
 import java.util.Arrays;
 import java.util.Collections;
@@ -20,7 +22,7 @@ import java.util.Set;
  * and then uses an LRU eviction policy to evict {@link android.graphics.Bitmap}s from the least
  * recently used bucket in order to keep the pool below a given maximum size limit.
  */
-public class LruBitmapPool implements BitmapPool {
+public class LruBitmapPool implements BitmapPool, CacheCounters, IncrementallyTrimmable {
   private static final String TAG = "LruBitmapPool";
   private static final Bitmap.Config DEFAULT_CONFIG = Bitmap.Config.ARGB_8888;
 
@@ -31,10 +33,10 @@ public class LruBitmapPool implements BitmapPool {
 
   private long maxSize;
   private long currentSize;
-  private int hits;
-  private int misses;
-  private int puts;
-  private int evictions;
+  private long hits;
+  private long misses;
+  private long puts;
+  private long evictions;
 
   // Exposed for testing only.
   LruBitmapPool(long maxSize, LruPoolStrategy strategy, Set<Bitmap.Config> allowedConfigs) {
@@ -68,11 +70,57 @@ public class LruBitmapPool implements BitmapPool {
     this(maxSize, getDefaultStrategy(), allowedConfigs);
   }
 
+  /**
+   * Returns a new LruBitmapPool that, on KitKat and above, re-uses the smallest large enough
+   * {@link Bitmap} across all compatible configs and tracks how many of the re-used bytes were
+   * larger than requested, see {@link #getWasteRatio()}.
+   *
+   * <p>On {@link android.content.ComponentCallbacks2#TRIM_MEMORY_RUNNING_LOW} and above, the
+   * returned pool also evicts {@link Bitmap}s more than twice the largest size requested since the
+   * previous trim, and for a while afterwards only re-uses {@link Bitmap}s at most twice the
+   * requested size.
+   *
+   * <p>Below KitKat, {@link Bitmap}s can't be reconfigured, so the returned pool is the same as
+   * one returned by {@link #LruBitmapPool(long)}.
+   *
+   * @param maxSize The initial maximum size of the pool in bytes.
+   */
+  // Public API.
+  @SuppressWarnings("WeakerAccess")
+  @NonNull
+  public static LruBitmapPool newBestFitPool(long maxSize) {
+    LruPoolStrategy strategy = Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT
+        ? new BestFitStrategy() : getDefaultStrategy();
+    return new LruBitmapPool(maxSize, strategy, getDefaultAllowedConfigs());
+  }
+
   @Override
   public long getMaxSize() {
     return maxSize;
   }
 
+  /**
+   * Returns the sum of the sizes of all {@link Bitmap}s currently in the pool in bytes.
+   */
+  public synchronized long getCurrentSize() {
+    return currentSize;
+  }
+
+  @Override
+  public synchronized long getHitCount() {
+    return hits;
+  }
+
+  @Override
+  public synchronized long getMissCount() {
+    return misses;
+  }
+
+  @Override
+  public synchronized long getEvictionCount() {
+    return evictions;
+  }
+
   @Override
   public synchronized void setSizeMultiplier(float sizeMultiplier) {
     maxSize = Math.round(initialMaxSize * sizeMultiplier);
@@ -221,8 +269,61 @@ public class LruBitmapPool implements BitmapPool {
       clearMemory();
     } else if (level >= android.content.ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN
         || level == android.content.ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+      trimOversized();
       trimToSize(getMaxSize() / 2);
+    } else if (level == android.content.ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+      trimOversized();
+    }
+  }
+
+  /**
+   * Evicts {@link Bitmap}s that are much larger than any recently requested size and temporarily
+   * stops larger {@link Bitmap}s from being re-used for small requests, if this pool was created
+   * with {@link #newBestFitPool(long)}.
+   */
+  @TargetApi(Build.VERSION_CODES.KITKAT)
+  private synchronized void trimOversized() {
+    if (!(strategy instanceof BestFitStrategy)) {
+      return;
     }
+    BestFitStrategy bestFitStrategy = (BestFitStrategy) strategy;
+    Bitmap removed;
+    while ((removed = bestFitStrategy.removeOversized()) != null) {
+      tracker.remove(removed);
+      currentSize -= strategy.getSize(removed);
+      evictions++;
+      if (Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Evicting oversized bitmap=" + strategy.logBitmap(removed));
+      }
+      removed.recycle();
+    }
+    bestFitStrategy.onMemoryPressure();
+    dump();
+  }
+
+  /**
+   * Returns the fraction of the bytes in re-used {@link Bitmap}s that were larger than the
+   * requests they were used for, or 0 if the pool doesn't track waste, which it only does on
+   * KitKat and above if it was created with {@link #newBestFitPool(long)}.
+   */
+  @TargetApi(Build.VERSION_CODES.KITKAT)
+  public synchronized float getWasteRatio() {
+    return strategy instanceof BestFitStrategy ? ((BestFitStrategy) strategy).getWasteRatio() : 0;
+  }
+
+  @Override
+  public long getSizeInBytes() {
+    return getCurrentSize();
+  }
+
+  @Override
+  public long getMaxSizeInBytes() {
+    return getMaxSize();
+  }
+
+  @Override
+  public void trimToSizeInBytes(long size) {
+    trimToSize(size);
   }
 
   private synchronized void trimToSize(long size) {
@@ -0,0 +1,326 @@
+package com.bumptech.glide.load.engine.bitmap_recycle;
+
+import android.content.ComponentCallbacks2;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import com.bumptech.glide.load.engine.cache.CacheCounters;
+import com.bumptech.glide.load.engine.cache.IncrementallyTrimmable;
+import com.bumptech.glide.util.Preconditions;
+import com.bumptech.glide.util.StripedCounter;
+import com.bumptech.glide.util.Synthetic;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * An {@link ArrayPool} that keeps a few byte arrays of common sizes in small per thread stacks,
+ * or magazines, in front of a shared {@link ArrayPool}.
+ *
+ * <p>Decodes typically borrow and return a handful of
+ * {@link ArrayPool#STANDARD_BUFFER_SIZE_BYTES} buffers on the same executor thread. Those
+ * borrows and returns are served from the calling thread's magazine without taking a lock. When a
+ * magazine is empty it's refilled with up to half its capacity from the shared pool, and when it's
+ * full half of it is flushed to the shared pool, each under a single lock if the shared pool is an
+ * {@link LruArrayPool}. All other sizes and types go directly to the shared pool.
+ *
+ * <p>Arrays held in magazines aren't counted towards the shared pool's maximum size, so each
+ * thread that uses the pool may hold up to the magazine capacity of each size in addition to it.
+ * {@link #trimMemory(int)} and {@link #clearMemory()} empty every thread's magazines.
+ */
+public final class MagazineArrayPool
+    implements ArrayPool, CacheCounters, IncrementallyTrimmable {
+  @VisibleForTesting
+  static final int DEFAULT_MAGAZINE_CAPACITY = 4;
+
+  private final ArrayPool shared;
+  private final int[] magazineSizes;
+  private final int capacity;
+  private final int batchSize;
+  private final Queue<WeakReference<Magazine[]>> allMagazines = new ConcurrentLinkedQueue<>();
+  private final StripedCounter hits = new StripedCounter();
+  private final ThreadLocal<Magazine[]> magazines = new ThreadLocal<Magazine[]>() {
+    @Override
+    protected Magazine[] initialValue() {
+      return newMagazines();
+    }
+  };
+
+  /**
+   * Constructor for a pool that keeps up to {@link #DEFAULT_MAGAZINE_CAPACITY}
+   * {@link ArrayPool#STANDARD_BUFFER_SIZE_BYTES} byte arrays per thread.
+   *
+   * @param shared The pool to borrow arrays from and return arrays to.
+   */
+  public MagazineArrayPool(@NonNull ArrayPool shared) {
+    this(shared, new int[] { STANDARD_BUFFER_SIZE_BYTES }, DEFAULT_MAGAZINE_CAPACITY);
+  }
+
+  /**
+   * Constructor for MagazineArrayPool.
+   *
+   * @param shared        The pool to borrow arrays from and return arrays to.
+   * @param magazineSizes The lengths of the byte arrays to keep in per thread magazines.
+   * @param capacity      The maximum number of byte arrays of each size to keep per thread.
+   */
+  public MagazineArrayPool(@NonNull ArrayPool shared, @NonNull int[] magazineSizes, int capacity) {
+    Preconditions.checkArgument(capacity >= 2, "Capacity must be >= 2");
+    this.shared = Preconditions.checkNotNull(shared);
+    this.magazineSizes = magazineSizes.clone();
+    this.capacity = capacity;
+    this.batchSize = capacity / 2;
+  }
+
+  /** Returns the {@link ArrayPool} that arrays are borrowed from when magazines are empty. */
+  @NonNull
+  public ArrayPool getShared() {
+    return shared;
+  }
+
+  @Deprecated
+  @Override
+  public <T> void put(T array, Class<T> arrayClass) {
+    put(array);
+  }
+
+  @Override
+  public <T> void put(T array) {
+    Magazine magazine = array instanceof byte[] ? getMagazine(((byte[]) array).length) : null;
+    if (magazine == null) {
+      shared.put(array);
+      return;
+    }
+    byte[] bytes = (byte[]) array;
+    if (!magazine.push(bytes)) {
+      flush(magazine);
+      magazine.push(bytes);
+    }
+  }
+
+  @Override
+  public <T> T get(int size, Class<T> arrayClass) {
+    T result = getFromMagazine(size, arrayClass);
+    return result != null ? result : shared.get(size, arrayClass);
+  }
+
+  @Override
+  public <T> T getExact(int size, Class<T> arrayClass) {
+    T result = getFromMagazine(size, arrayClass);
+    return result != null ? result : shared.getExact(size, arrayClass);
+  }
+
+  @Override
+  public void clearMemory() {
+    drainMagazines(/*returnToShared=*/ false);
+    shared.clearMemory();
+  }
+
+  @Override
+  public void trimMemory(int level) {
+    if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN
+        || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+      // Lets the shared pool decide which of the arrays to keep.
+      drainMagazines(/*returnToShared=*/ true);
+    }
+    shared.trimMemory(level);
+  }
+
+  /**
+   * Returns the size of the shared pool, if it's {@link IncrementallyTrimmable}, not including
+   * arrays in magazines.
+   */
+  @Override
+  public long getSizeInBytes() {
+    return shared instanceof IncrementallyTrimmable
+        ? ((IncrementallyTrimmable) shared).getSizeInBytes() : 0;
+  }
+
+  @Override
+  public long getMaxSizeInBytes() {
+    return shared instanceof IncrementallyTrimmable
+        ? ((IncrementallyTrimmable) shared).getMaxSizeInBytes() : 0;
+  }
+
+  /**
+   * Returns the arrays in every thread's magazines to the shared pool and then trims the shared
+   * pool, if it's {@link IncrementallyTrimmable}.
+   */
+  @Override
+  public void trimToSizeInBytes(long size) {
+    drainMagazines(/*returnToShared=*/ true);
+    if (shared instanceof IncrementallyTrimmable) {
+      ((IncrementallyTrimmable) shared).trimToSizeInBytes(size);
+    }
+  }
+
+  @Override
+  public long getHitCount() {
+    long sharedHits =
+        shared instanceof CacheCounters ? ((CacheCounters) shared).getHitCount() : 0;
+    return hits.sum() + sharedHits;
+  }
+
+  @Override
+  public long getMissCount() {
+    return shared instanceof CacheCounters ? ((CacheCounters) shared).getMissCount() : 0;
+  }
+
+  @Override
+  public long getEvictionCount() {
+    return shared instanceof CacheCounters ? ((CacheCounters) shared).getEvictionCount() : 0;
+  }
+
+  @Nullable
+  private <T> T getFromMagazine(int size, Class<T> arrayClass) {
+    Magazine magazine = arrayClass == byte[].class ? getMagazine(size) : null;
+    if (magazine == null) {
+      return null;
+    }
+    byte[] result = magazine.pop();
+    if (result == null) {
+      result = refill(magazine, size);
+    }
+    if (result != null) {
+      hits.increment();
+    }
+    @SuppressWarnings("unchecked")
+    T array = (T) result;
+    return array;
+  }
+
+  @Nullable
+  private byte[] refill(Magazine magazine, int size) {
+    if (!(shared instanceof LruArrayPool)) {
+      return null;
+    }
+    Object[] batch = magazine.batch;
+    int count = ((LruArrayPool) shared).removeExact(size, byte[].class, batch, batchSize);
+    for (int i = 1; i < count; i++) {
+      magazine.push((byte[]) batch[i]);
+    }
+    byte[] result = count > 0 ? (byte[]) batch[0] : null;
+    clear(batch, count);
+    return result;
+  }
+
+  private void flush(Magazine magazine) {
+    Object[] batch = magazine.batch;
+    int count = 0;
+    byte[] array;
+    while (count < batchSize && (array = magazine.pop()) != null) {
+      batch[count++] = array;
+    }
+    putAll(batch, count);
+    clear(batch, count);
+  }
+
+  private void putAll(Object[] arrays, int count) {
+    if (shared instanceof LruArrayPool) {
+      ((LruArrayPool) shared).putAll(arrays, count);
+    } else {
+      for (int i = 0; i < count; i++) {
+        shared.put(arrays[i]);
+      }
+    }
+  }
+
+  private void drainMagazines(boolean returnToShared) {
+    Object[] drained = new Object[capacity];
+    Iterator<WeakReference<Magazine[]>> iterator = allMagazines.iterator();
+    while (iterator.hasNext()) {
+      Magazine[] threadMagazines = iterator.next().get();
+      if (threadMagazines == null) {
+        iterator.remove();
+        continue;
+      }
+      for (Magazine magazine : threadMagazines) {
+        int count = magazine.drainTo(drained);
+        if (returnToShared) {
+          putAll(drained, count);
+        }
+        clear(drained, count);
+      }
+    }
+  }
+
+  @Nullable
+  private Magazine getMagazine(int size) {
+    for (int i = 0; i < magazineSizes.length; i++) {
+      if (magazineSizes[i] == size) {
+        return magazines.get()[i];
+      }
+    }
+    return null;
+  }
+
+  @SuppressWarnings("WeakerAccess")
+  @Synthetic
+  Magazine[] newMagazines() {
+    Magazine[] result = new Magazine[magazineSizes.length];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = new Magazine(capacity, batchSize);
+    }
+    allMagazines.add(new WeakReference<>(result));
+    return result;
+  }
+
+  private static void clear(Object[] arrays, int count) {
+    for (int i = 0; i < count; i++) {
+      arrays[i] = null;
+    }
+  }
+
+  /**
+   * A fixed size stack of arrays that's only pushed to and popped from by the thread that owns it,
+   * but that may be drained by any thread.
+   *
+   * <p>Pops and drains both atomically swap slots to null, so an array is never returned by both.
+   * Only the owner sets slots to non null values, so pushes don't need to be atomic.
+   */
+  private static final class Magazine {
+    private final AtomicReferenceArray<byte[]> slots;
+    /** Scratch space for batched transfers, only used by the owning thread. */
+    final Object[] batch;
+
+    Magazine(int capacity, int batchSize) {
+      slots = new AtomicReferenceArray<>(capacity);
+      batch = new Object[batchSize];
+    }
+
+    boolean push(byte[] array) {
+      for (int i = 0; i < slots.length(); i++) {
+        if (slots.get(i) == null) {
+          slots.set(i, array);
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Nullable
+    byte[] pop() {
+      for (int i = slots.length() - 1; i >= 0; i--) {
+        if (slots.get(i) != null) {
+          byte[] result = slots.getAndSet(i, null);
+          if (result != null) {
+            return result;
+          }
+        }
+      }
+      return null;
+    }
+
+    int drainTo(Object[] arrays) {
+      int count = 0;
+      for (int i = 0; i < slots.length(); i++) {
+        byte[] array = slots.getAndSet(i, null);
+        if (array != null) {
+          arrays[count++] = array;
+        }
+      }
+      return count;
+    }
+  }
+}
@@ -0,0 +1,448 @@
+package com.bumptech.glide.load.engine.bitmap_recycle;
+
+import android.annotation.SuppressLint;
+import android.annotation.TargetApi;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.RequiresApi;
+import android.util.Log;
+import com.bumptech.glide.load.engine.cache.CacheCounters;
+import com.bumptech.glide.load.engine.cache.IncrementallyTrimmable;
+import com.bumptech.glide.util.StripedCounter;
+import com.bumptech.glide.util.Util;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link BitmapPool} that can be used from many threads at once without locking.
+ *
+ * <p>{@link Bitmap}s are grouped by {@link Bitmap.Config} and by size class, where each size class
+ * holds {@link Bitmap}s whose allocation sizes are between consecutive powers of two. Each group is
+ * a lock free stack, so puts and gets for different sizes or configs don't contend at all and
+ * those for the same group contend only on a single compare and set.
+ *
+ * <p>Like {@link SizeConfigStrategy}, a {@link Bitmap} is reused for a request if its config
+ * has the same number of bytes per pixel and its allocation is at least as large as, but no more
+ * than eight times larger than, the requested size. Only the top of each stack is checked, so a
+ * request may miss even though a suitable {@link Bitmap} is deeper in the stack of its smallest
+ * size class.
+ *
+ * <p>Eviction is approximately least recently used. Rather than ordering every {@link Bitmap},
+ * the pool evicts from the group that was least recently put to or taken from, on the basis that
+ * {@link Bitmap}s in the same group can be used for the same requests. Evictions are made by one
+ * thread at a time, other threads carry on without waiting for them.
+ *
+ * <p>Relies on {@link Bitmap#reconfigure(int, int, Bitmap.Config)}, so requires KitKat or higher.
+ */
+@RequiresApi(Build.VERSION_CODES.KITKAT)
+public final class SizeClassBitmapPool
+    implements BitmapPool, CacheCounters, IncrementallyTrimmable {
+  private static final String TAG = "SizeClassBitmapPool";
+  private static final Bitmap.Config DEFAULT_CONFIG = Bitmap.Config.ARGB_8888;
+  private static final int MAX_SIZE_MULTIPLE = 8;
+  // One for each bit position of a positive int.
+  private static final int SIZE_CLASS_COUNT = 31;
+  // Classes above the requested size's class that can contain a Bitmap no larger than
+  // MAX_SIZE_MULTIPLE times the requested size.
+  private static final int MAX_SIZE_CLASS_STEPS = 3;
+
+  private static final Bitmap.Config[] ARGB_8888_IN_CONFIGS;
+  static {
+    Bitmap.Config[] result =
+        new Bitmap.Config[] {
+            Bitmap.Config.ARGB_8888,
+            // The value returned by Bitmaps with the hidden Bitmap config.
+            null,
+        };
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+      result = Arrays.copyOf(result, result.length + 1);
+      result[result.length - 1] = Bitmap.Config.RGBA_F16;
+    }
+    ARGB_8888_IN_CONFIGS = result;
+  }
+
+  private final Set<Bitmap.Config> allowedConfigs;
+  private final long initialMaxSize;
+  // Indexed by configIndex(config) * SIZE_CLASS_COUNT + size class.
+  private final SizeClass[] sizeClasses =
+      new SizeClass[(Bitmap.Config.values().length + 1) * SIZE_CLASS_COUNT];
+  private final AtomicLong currentSize = new AtomicLong();
+  private final ReentrantLock evictionLock = new ReentrantLock();
+  private final StripedCounter hitCount = new StripedCounter();
+  private final StripedCounter missCount = new StripedCounter();
+  private final StripedCounter evictionCount = new StripedCounter();
+  private volatile long maxSize;
+
+  /**
+   * Constructor for SizeClassBitmapPool.
+   *
+   * @param maxSize The initial maximum size of the pool in bytes.
+   */
+  public SizeClassBitmapPool(long maxSize) {
+    this(maxSize, getDefaultAllowedConfigs());
+  }
+
+  /**
+   * Constructor for SizeClassBitmapPool.
+   *
+   * @param maxSize        The initial maximum size of the pool in bytes.
+   * @param allowedConfigs The {@link Bitmap.Config}s of the {@link Bitmap}s that may be put in the
+   *                       pool, others will be recycled.
+   */
+  // Public API.
+  @SuppressWarnings("WeakerAccess")
+  public SizeClassBitmapPool(long maxSize, @NonNull Set<Bitmap.Config> allowedConfigs) {
+    this.initialMaxSize = maxSize;
+    this.maxSize = maxSize;
+    this.allowedConfigs = allowedConfigs;
+    for (int i = 0; i < sizeClasses.length; i++) {
+      sizeClasses[i] = new SizeClass();
+    }
+  }
+
+  @Override
+  public long getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Returns the sum of the sizes of all {@link Bitmap}s currently in the pool in bytes.
+   */
+  public long getCurrentSize() {
+    return currentSize.get();
+  }
+
+  @Override
+  public long getHitCount() {
+    return hitCount.sum();
+  }
+
+  @Override
+  public long getMissCount() {
+    return missCount.sum();
+  }
+
+  @Override
+  public long getEvictionCount() {
+    return evictionCount.sum();
+  }
+
+  @Override
+  public void setSizeMultiplier(float sizeMultiplier) {
+    maxSize = Math.round(initialMaxSize * sizeMultiplier);
+    evict();
+  }
+
+  @Override
+  public void put(Bitmap bitmap) {
+    if (bitmap == null) {
+      throw new NullPointerException("Bitmap must not be null");
+    }
+    if (bitmap.isRecycled()) {
+      throw new IllegalStateException("Cannot pool recycled bitmap");
+    }
+    int size = Util.getBitmapByteSize(bitmap);
+    if (!bitmap.isMutable() || size > maxSize || !allowedConfigs.contains(bitmap.getConfig())) {
+      if (Log.isLoggable(TAG, Log.VERBOSE)) {
+        Log.v(TAG, "Reject bitmap from pool"
+            + ", bitmap: " + bitmap
+            + ", is mutable: " + bitmap.isMutable()
+            + ", is allowed config: " + allowedConfigs.contains(bitmap.getConfig()));
+      }
+      bitmap.recycle();
+      return;
+    }
+
+    SizeClass sizeClass = sizeClassFor(bitmap.getConfig(), size);
+    sizeClass.push(new Node(bitmap, size));
+    sizeClass.lastAccessTime = System.nanoTime();
+    currentSize.addAndGet(size);
+    evict();
+  }
+
+  @NonNull
+  @Override
+  public Bitmap get(int width, int height, Bitmap.Config config) {
+    Bitmap result = getDirtyOrNull(width, height, config);
+    if (result != null) {
+      // Bitmaps in the pool contain random data that in some cases must be cleared for an image
+      // to be rendered correctly. See LruBitmapPool#get.
+      result.eraseColor(Color.TRANSPARENT);
+    } else {
+      result = createBitmap(width, height, config);
+    }
+    return result;
+  }
+
+  @NonNull
+  @Override
+  public Bitmap getDirty(int width, int height, Bitmap.Config config) {
+    Bitmap result = getDirtyOrNull(width, height, config);
+    if (result == null) {
+      result = createBitmap(width, height, config);
+    }
+    return result;
+  }
+
+  @NonNull
+  private static Bitmap createBitmap(int width, int height, @Nullable Bitmap.Config config) {
+    return Bitmap.createBitmap(width, height, config != null ? config : DEFAULT_CONFIG);
+  }
+
+  @Nullable
+  private Bitmap getDirtyOrNull(int width, int height, @Nullable Bitmap.Config config) {
+    assertNotHardwareConfig(config);
+    // Config will be null for non public config types, see LruBitmapPool#getDirtyOrNull.
+    Bitmap.Config requestedConfig = config != null ? config : DEFAULT_CONFIG;
+    int size = Util.getBitmapByteSize(width, height, requestedConfig);
+    int firstSizeClass = sizeClassIndex(size);
+    int lastSizeClass = Math.min(SIZE_CLASS_COUNT - 1, firstSizeClass + MAX_SIZE_CLASS_STEPS);
+    for (Bitmap.Config possibleConfig : getInConfigs(requestedConfig)) {
+      int offset = configIndex(possibleConfig) * SIZE_CLASS_COUNT;
+      for (int i = firstSizeClass; i <= lastSizeClass; i++) {
+        SizeClass sizeClass = sizeClasses[offset + i];
+        Node node = sizeClass.pop();
+        if (node == null) {
+          continue;
+        }
+        // Only the smallest and largest classes can contain Bitmaps that are too small or too
+        // large.
+        if (node.size < size || node.size > (long) size * MAX_SIZE_MULTIPLE) {
+          sizeClass.push(new Node(node.bitmap, node.size));
+          continue;
+        }
+        sizeClass.lastAccessTime = System.nanoTime();
+        currentSize.addAndGet(-node.size);
+        hitCount.increment();
+        Bitmap result = node.bitmap;
+        result.reconfigure(width, height,
+            result.getConfig() != null ? result.getConfig() : Bitmap.Config.ARGB_8888);
+        normalize(result);
+        return result;
+      }
+    }
+    missCount.increment();
+    if (Log.isLoggable(TAG, Log.DEBUG)) {
+      Log.d(TAG, "Missing bitmap=[" + width + "x" + height + "], " + config);
+    }
+    return null;
+  }
+
+  // Setting these two values provides Bitmaps that are essentially equivalent to those returned
+  // from Bitmap.createBitmap.
+  private static void normalize(Bitmap bitmap) {
+    bitmap.setHasAlpha(true);
+    bitmap.setPremultiplied(true);
+  }
+
+  @TargetApi(Build.VERSION_CODES.O)
+  private static void assertNotHardwareConfig(@Nullable Bitmap.Config config) {
+    // Avoid short circuiting on sdk int since it breaks on some versions of Android.
+    if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
+      return;
+    }
+
+    if (config == Bitmap.Config.HARDWARE) {
+      throw new IllegalArgumentException("Cannot create a mutable Bitmap with config: " + config
+          + ". Consider setting Downsampler#ALLOW_HARDWARE_CONFIG to false in your RequestOptions"
+          + " and/or in GlideBuilder.setDefaultRequestOptions");
+    }
+  }
+
+  @Override
+  public void clearMemory() {
+    if (Log.isLoggable(TAG, Log.DEBUG)) {
+      Log.d(TAG, "clearMemory");
+    }
+    trimToSize(0);
+  }
+
+  @SuppressLint("InlinedApi")
+  @Override
+  public void trimMemory(int level) {
+    if (Log.isLoggable(TAG, Log.DEBUG)) {
+      Log.d(TAG, "trimMemory, level=" + level);
+    }
+    if (level >= android.content.ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+      clearMemory();
+    } else if (level >= android.content.ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN
+        || level == android.content.ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+      trimToSize(getMaxSize() / 2);
+    }
+  }
+
+  @Override
+  public long getSizeInBytes() {
+    return getCurrentSize();
+  }
+
+  @Override
+  public long getMaxSizeInBytes() {
+    return getMaxSize();
+  }
+
+  @Override
+  public void trimToSizeInBytes(long size) {
+    trimToSize(size);
+  }
+
+  /**
+   * Evicts until the pool is within its maximum size, unless another thread is already evicting.
+   */
+  private void evict() {
+    // Checked again after releasing the lock so that a put made while another thread was
+    // finishing its eviction isn't left over the limit.
+    while (currentSize.get() > maxSize && evictionLock.tryLock()) {
+      try {
+        trimToSizeLocked(maxSize);
+      } finally {
+        evictionLock.unlock();
+      }
+    }
+  }
+
+  private void trimToSize(long size) {
+    evictionLock.lock();
+    try {
+      trimToSizeLocked(size);
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  private void trimToSizeLocked(long size) {
+    while (currentSize.get() > size) {
+      Node removed = removeLeastRecentlyUsed();
+      if (removed == null) {
+        // Everything left was taken by concurrent gets, which have yet to update the size.
+        return;
+      }
+      currentSize.addAndGet(-removed.size);
+      evictionCount.increment();
+      if (Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Evicting bitmap=" + removed.bitmap);
+      }
+      removed.bitmap.recycle();
+    }
+  }
+
+  @Nullable
+  private Node removeLeastRecentlyUsed() {
+    while (true) {
+      SizeClass leastRecentlyUsed = null;
+      for (SizeClass sizeClass : sizeClasses) {
+        if (!sizeClass.isEmpty()
+            && (leastRecentlyUsed == null
+            || sizeClass.lastAccessTime < leastRecentlyUsed.lastAccessTime)) {
+          leastRecentlyUsed = sizeClass;
+        }
+      }
+      if (leastRecentlyUsed == null) {
+        return null;
+      }
+      Node removed = leastRecentlyUsed.pop();
+      // Retry if a concurrent get emptied the class.
+      if (removed != null) {
+        return removed;
+      }
+    }
+  }
+
+  private SizeClass sizeClassFor(@Nullable Bitmap.Config config, int size) {
+    return sizeClasses[configIndex(config) * SIZE_CLASS_COUNT + sizeClassIndex(size)];
+  }
+
+  private static int configIndex(@Nullable Bitmap.Config config) {
+    return config == null ? 0 : config.ordinal() + 1;
+  }
+
+  /** Returns the index of the highest set bit of the given size, so that size classes double. */
+  private static int sizeClassIndex(int size) {
+    return size <= 0 ? 0 : 31 - Integer.numberOfLeadingZeros(size);
+  }
+
+  private static Bitmap.Config[] getInConfigs(Bitmap.Config requested) {
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O
+        && Bitmap.Config.RGBA_F16.equals(requested)) {
+      return ARGB_8888_IN_CONFIGS;
+    }
+    switch (requested) {
+      case ARGB_8888:
+        return ARGB_8888_IN_CONFIGS;
+      default:
+        // We probably could allow ARGB_4444 and RGB_565 to decode into each other, but ARGB_4444
+        // is deprecated and we'd rather be safe.
+        return new Bitmap.Config[] { requested };
+    }
+  }
+
+  @TargetApi(Build.VERSION_CODES.O)
+  private static Set<Bitmap.Config> getDefaultAllowedConfigs() {
+    Set<Bitmap.Config> configs = new HashSet<>(Arrays.asList(Bitmap.Config.values()));
+    // Bitmaps with a native config that doesn't map to a java config can be reconfigured and reused
+    // on KitKat+, see LruBitmapPool#getDefaultAllowedConfigs.
+    configs.add(null);
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+      configs.remove(Bitmap.Config.HARDWARE);
+    }
+    return Collections.unmodifiableSet(configs);
+  }
+
+  private static final class Node {
+    final Bitmap bitmap;
+    final int size;
+    // Written before the node is published by a successful compare and set.
+    Node next;
+
+    Node(Bitmap bitmap, int size) {
+      this.bitmap = bitmap;
+      this.size = size;
+    }
+  }
+
+  /**
+   * A lock free stack of the {@link Bitmap}s in a single config and size class.
+   *
+   * <p>Nodes must never be pushed more than once, so that a compare and set on the top of the
+   * stack can't succeed against a node that was popped and pushed again in between.
+   */
+  private static final class SizeClass {
+    private final AtomicReference<Node> top = new AtomicReference<>();
+    // The last time a Bitmap was put in or taken from this class by a get, not updated by
+    // evictions. Approximate, concurrent puts and gets may write out of order.
+    volatile long lastAccessTime;
+
+    void push(Node node) {
+      Node current;
+      do {
+        current = top.get();
+        node.next = current;
+      } while (!top.compareAndSet(current, node));
+    }
+
+    @Nullable
+    Node pop() {
+      Node current;
+      do {
+        current = top.get();
+        if (current == null) {
+          return null;
+        }
+      } while (!top.compareAndSet(current, current.next));
+      current.next = null;
+      return current;
+    }
+
+    boolean isEmpty() {
+      return top.get() == null;
+    }
+  }
+}
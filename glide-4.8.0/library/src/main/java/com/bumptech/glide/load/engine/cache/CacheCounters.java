@@ -0,0 +1,25 @@
+package com.bumptech.glide.load.engine.cache;
+
+/**
+ * Implemented by in memory caches and pools that count how often they're used.
+ *
+ * <p>Counts are totals since the cache or pool was created, callers interested in rates should
+ * sample them periodically and use the difference between samples.
+ */
+public interface CacheCounters {
+  /**
+   * Returns the number of requests that were satisfied by an item in the cache or pool.
+   */
+  long getHitCount();
+
+  /**
+   * Returns the number of requests that couldn't be satisfied by an item in the cache or pool.
+   */
+  long getMissCount();
+
+  /**
+   * Returns the number of items removed from the cache or pool to make room for others, or to
+   * trim memory.
+   */
+  long getEvictionCount();
+}
@@ -0,0 +1,90 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * An immutable snapshot of how a single cache or pool has been used since it was created.
+ *
+ * <p>Counts are only available for caches and pools that implement {@link CacheCounters} and
+ * are zero otherwise.
+ */
+public final class CacheStats {
+  private final long hitCount;
+  private final long missCount;
+  private final long evictionCount;
+  private final long currentSize;
+  private final long maxSize;
+
+  /**
+   * Constructor for CacheStats.
+   *
+   * @param hitCount      The number of requests satisfied by the cache or pool.
+   * @param missCount     The number of requests the cache or pool couldn't satisfy.
+   * @param evictionCount The number of items removed to make room for others or to trim memory.
+   * @param currentSize   The number of bytes currently held by the cache or pool.
+   * @param maxSize       The maximum number of bytes the cache or pool may hold, or 0 if it's
+   *                      unbounded.
+   */
+  public CacheStats(
+      long hitCount, long missCount, long evictionCount, long currentSize, long maxSize) {
+    this.hitCount = hitCount;
+    this.missCount = missCount;
+    this.evictionCount = evictionCount;
+    this.currentSize = currentSize;
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Returns a snapshot of the given cache or pool using the counts from {@code counters}, if it
+   * implements {@link CacheCounters}.
+   */
+  @NonNull
+  public static CacheStats of(@Nullable Object counters, long currentSize, long maxSize) {
+    if (counters instanceof CacheCounters) {
+      CacheCounters cacheCounters = (CacheCounters) counters;
+      return new CacheStats(
+          cacheCounters.getHitCount(),
+          cacheCounters.getMissCount(),
+          cacheCounters.getEvictionCount(),
+          currentSize,
+          maxSize);
+    }
+    return new CacheStats(/*hitCount=*/ 0, /*missCount=*/ 0, /*evictionCount=*/ 0, currentSize,
+        maxSize);
+  }
+
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  public long getMissCount() {
+    return missCount;
+  }
+
+  public long getEvictionCount() {
+    return evictionCount;
+  }
+
+  /** Returns the fraction of requests that were hits, or 0 if there haven't been any requests. */
+  public double getHitRate() {
+    long total = hitCount + missCount;
+    return total == 0 ? 0 : hitCount / (double) total;
+  }
+
+  /** Returns the number of bytes held when the snapshot was taken. */
+  public long getCurrentSize() {
+    return currentSize;
+  }
+
+  /** Returns the maximum number of bytes that may be held, or 0 if there is no limit. */
+  public long getMaxSize() {
+    return maxSize;
+  }
+
+  @Override
+  public String toString() {
+    return "CacheStats{hits=" + hitCount + ", misses=" + missCount + ", evictions="
+        + evictionCount + ", currentSize=" + currentSize + ", maxSize=" + maxSize + "}";
+  }
+}
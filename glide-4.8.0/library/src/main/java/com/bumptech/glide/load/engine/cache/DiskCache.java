@@ -36,6 +36,16 @@ public interface DiskCache {
     boolean write(@NonNull File file);
   }
 
+  /**
+   * A {@link Writer} for data that's read back from the cache as soon as
+   * {@link #put(Key, Writer)} returns, like source data that's decoded from the cache once it's
+   * been fetched.
+   *
+   * <p>The data usually can't be read from anywhere else once it's been written, so caches that
+   * choose which writes to keep must always write data from these writers.
+   */
+  interface ReadBackWriter extends Writer { }
+
   /**
    * Get the cache for the value at the given key.
    *
@@ -0,0 +1,175 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.util.Log;
+import com.bumptech.glide.disklrucache.DiskLruCache;
+import com.bumptech.glide.util.Preconditions;
+import com.bumptech.glide.util.Synthetic;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds written but uncommitted {@link DiskLruCache.Editor}s and commits them in batches on a
+ * background thread, so that a burst of writes appends to and flushes the journal once rather than
+ * once per entry.
+ *
+ * <p>Data is always written to the entry's dirty file by the thread that calls
+ * {@link DiskCache#put}, only the commit is deferred. Entries aren't visible to
+ * {@link DiskLruCache#get(String)} until they're committed, so callers must use
+ * {@link #commitIfPending(String)} before reading or removing an entry.
+ *
+ * <p>Each pending write is committed to the {@link DiskLruCache} it was written to.
+ * {@link #discardPending()} must be called before a cache is closed, otherwise its pending writes
+ * fail to commit and are aborted.
+ */
+final class DiskCacheWriteBehindQueue {
+  private static final String TAG = "DiskLruCacheWrapper";
+
+  private final Map<String, PendingWrite> pending = new ConcurrentHashMap<>();
+  private final AtomicLong pendingBytes = new AtomicLong();
+  private final AtomicBoolean commitScheduled = new AtomicBoolean();
+  // Held while committing or discarding so that each pending write is completed exactly once.
+  private final Object commitLock = new Object();
+  private final Executor executor;
+  private final long maxPendingBytes;
+  private final DiskLruCacheWrapper.Stats stats;
+  private final Runnable commitRunnable = new Runnable() {
+    @Override
+    public void run() {
+      // Cleared first so writes enqueued while this batch is committed schedule the next batch.
+      commitScheduled.set(false);
+      commitPending();
+    }
+  };
+
+  DiskCacheWriteBehindQueue(
+      Executor executor, long maxPendingBytes, DiskLruCacheWrapper.Stats stats) {
+    Preconditions.checkArgument(maxPendingBytes > 0, "Max pending bytes must be greater than 0");
+    this.executor = Preconditions.checkNotNull(executor);
+    this.maxPendingBytes = maxPendingBytes;
+    this.stats = stats;
+  }
+
+  boolean isPending(String safeKey) {
+    return pending.containsKey(safeKey);
+  }
+
+  long getPendingBytes() {
+    return pendingBytes.get();
+  }
+
+  /**
+   * Takes ownership of the given editor, whose file has been written, and commits it later.
+   *
+   * <p>Must be called while holding the write lock for {@code safeKey}. If the total size of the
+   * pending files exceeds the budget, all pending writes are committed on the calling thread
+   * before this method returns so that callers can't outpace the disk.
+   */
+  void enqueue(DiskLruCache diskCache, String safeKey, DiskLruCache.Editor editor, long bytes) {
+    pending.put(safeKey, new PendingWrite(diskCache, safeKey, editor, bytes));
+    if (pendingBytes.addAndGet(bytes) > maxPendingBytes) {
+      commitPending();
+    } else if (commitScheduled.compareAndSet(false, true)) {
+      executor.execute(commitRunnable);
+    }
+  }
+
+  /** Commits all pending writes if there's a pending write for {@code safeKey}. */
+  void commitIfPending(String safeKey) {
+    if (pending.containsKey(safeKey)) {
+      commitPending();
+    }
+  }
+
+  /** Commits all pending writes with a single journal flush per {@link DiskLruCache}. */
+  @Synthetic
+  void commitPending() {
+    synchronized (commitLock) {
+      if (pending.isEmpty()) {
+        return;
+      }
+      Map<DiskLruCache, List<PendingWrite>> batches = new IdentityHashMap<>();
+      for (PendingWrite write : pending.values()) {
+        List<PendingWrite> batch = batches.get(write.diskCache);
+        if (batch == null) {
+          batch = new ArrayList<>();
+          batches.put(write.diskCache, batch);
+        }
+        batch.add(write);
+      }
+      for (Map.Entry<DiskLruCache, List<PendingWrite>> entry : batches.entrySet()) {
+        commitBatch(entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
+  private void commitBatch(DiskLruCache diskCache, List<PendingWrite> batch) {
+    List<DiskLruCache.Editor> editors = new ArrayList<>(batch.size());
+    for (PendingWrite write : batch) {
+      editors.add(write.editor);
+    }
+    try {
+      diskCache.commitAll(editors);
+      stats.writeBehindBatchCount.incrementAndGet();
+      stats.writeBehindCommitCount.addAndGet(editors.size());
+    } catch (IOException | IllegalStateException e) {
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Unable to commit " + editors.size() + " pending writes", e);
+      }
+    } finally {
+      // Entries are only removed once they're committed, so a key is always either pending or
+      // readable from the cache while its commit is in progress.
+      for (PendingWrite write : batch) {
+        abortUnlessCommitted(write.editor);
+        remove(write);
+      }
+    }
+  }
+
+  /** Aborts all pending writes, which are never committed. */
+  void discardPending() {
+    synchronized (commitLock) {
+      for (PendingWrite write : new ArrayList<>(pending.values())) {
+        abortUnlessCommitted(write.editor);
+        remove(write);
+      }
+    }
+  }
+
+  private void remove(PendingWrite write) {
+    if (pending.remove(write.safeKey) != null) {
+      pendingBytes.addAndGet(-write.bytes);
+    }
+  }
+
+  private static void abortUnlessCommitted(DiskLruCache.Editor editor) {
+    try {
+      editor.abortUnlessCommitted();
+    } catch (IllegalStateException e) {
+      // The editor was already aborted when its cache was closed.
+      if (Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Pending write was already aborted", e);
+      }
+    }
+  }
+
+  private static final class PendingWrite {
+    @Synthetic final DiskLruCache diskCache;
+    @Synthetic final String safeKey;
+    @Synthetic final DiskLruCache.Editor editor;
+    @Synthetic final long bytes;
+
+    PendingWrite(DiskLruCache diskCache, String safeKey, DiskLruCache.Editor editor, long bytes) {
+      this.diskCache = diskCache;
+      this.safeKey = safeKey;
+      this.editor = editor;
+      this.bytes = bytes;
+    }
+  }
+}
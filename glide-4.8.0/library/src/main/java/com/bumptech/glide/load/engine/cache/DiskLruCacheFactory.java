@@ -13,6 +13,7 @@ import java.io.File;
 @SuppressWarnings("unused")
 public class DiskLruCacheFactory implements DiskCache.Factory {
   private final long diskCacheSize;
+  private final DiskLruCacheWrapper.Builder wrapperBuilder;
   private final CacheDirectoryGetter cacheDirectoryGetter;
 
   /**
@@ -51,7 +52,24 @@ public class DiskLruCacheFactory implements DiskCache.Factory {
   // Public API.
   @SuppressWarnings("WeakerAccess")
   public DiskLruCacheFactory(CacheDirectoryGetter cacheDirectoryGetter, long diskCacheSize) {
+    this(cacheDirectoryGetter, diskCacheSize, new DiskLruCacheWrapper.Builder());
+  }
+
+  /**
+   * Creates a factory for disk caches configured by the given {@link DiskLruCacheWrapper.Builder},
+   * for example to read and write the cache from several threads at once or to read the journal
+   * in the background.
+   *
+   * @param cacheDirectoryGetter Interface called out of UI thread to get the cache folder.
+   * @param diskCacheSize        Desired max bytes size for the LRU disk cache.
+   * @param wrapperBuilder       Options for the disk caches built by this factory.
+   */
+  // Public API.
+  @SuppressWarnings("WeakerAccess")
+  public DiskLruCacheFactory(CacheDirectoryGetter cacheDirectoryGetter, long diskCacheSize,
+      DiskLruCacheWrapper.Builder wrapperBuilder) {
     this.diskCacheSize = diskCacheSize;
+    this.wrapperBuilder = wrapperBuilder;
     this.cacheDirectoryGetter = cacheDirectoryGetter;
   }
 
@@ -67,6 +85,6 @@ public class DiskLruCacheFactory implements DiskCache.Factory {
       return null;
     }
 
-    return DiskLruCacheWrapper.create(cacheDir, diskCacheSize);
+    return wrapperBuilder.build(cacheDir, diskCacheSize);
   }
 }
@@ -4,12 +4,26 @@
 
 package com.bumptech.glide.load.engine.cache;
 
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.util.Log;
 import com.bumptech.glide.disklrucache.DiskLruCache;
 import com.bumptech.glide.disklrucache.DiskLruCache.Value;
 import com.bumptech.glide.load.Key;
+import com.bumptech.glide.util.Preconditions;
+import com.bumptech.glide.util.Synthetic;
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * The default DiskCache implementation. There must be no more than one active instance for a given
@@ -32,13 +46,41 @@ public class DiskLruCacheWrapper implements DiskCache {
 
   private static final int APP_VERSION = 1;
   private static final int VALUE_COUNT = 1;
+  private static final int DEFAULT_CONCURRENCY_LEVEL = 1;
+  private static final String OPEN_THREAD_NAME = "glide-disk-cache-open-thread";
+  private static final String WRITE_BEHIND_THREAD_NAME = "glide-disk-cache-write-thread";
+  private static final long WRITE_BEHIND_KEEP_ALIVE_SECONDS = 60;
+  // Used to size the admission filter, roughly a large thumbnail or a small source image.
+  private static final int ESTIMATED_ENTRY_SIZE_BYTES = 32 * 1024;
+  // The admission filter only rejects writes once the cache is close enough to full that a write
+  // is likely to evict an existing entry.
+  private static final float ADMISSION_FILL_FRACTION = 0.9f;
   private static DiskLruCacheWrapper wrapper;
 
   private final SafeKeyGenerator safeKeyGenerator;
   private final File directory;
   private final long maxSize;
+  private final int concurrencyLevel;
+  private final boolean binaryJournal;
   private final DiskCacheWriteLocker writeLocker = new DiskCacheWriteLocker();
-  private DiskLruCache diskLruCache;
+  // Puts hold the read lock and clear() holds the write lock, so that a put in progress can't write
+  // to or enqueue an edit for a cache that's being deleted. Must be acquired before this object's
+  // lock, which puts need to open the cache.
+  private final ReadWriteLock clearLock = new ReentrantReadWriteLock();
+  private final Stats stats = new Stats();
+  @Nullable private final FrequencySketch frequencySketch;
+  @Nullable private final DiskCacheWriteBehindQueue writeBehindQueue;
+  // Written while holding this object's lock, volatile so stats can be read without waiting for an
+  // open to finish.
+  private volatile DiskLruCache diskLruCache;
+  // Evictions made by caches that were cleared and replaced, written while holding this object's
+  // lock.
+  private volatile long previousEvictionCount;
+  /**
+   * The open started by {@link Builder#setOpenAsynchronously(boolean)}, or null once it has been
+   * consumed by {@link #getDiskCache()}.
+   */
+  @Nullable private volatile FutureTask<DiskLruCache> pendingOpen;
 
   /**
    * Get a DiskCache in the given directory and size. If a disk cache has already been created with
@@ -81,38 +123,146 @@ public class DiskLruCacheWrapper implements DiskCache {
   // Deprecated public API.
   @SuppressWarnings({"WeakerAccess", "DeprecatedIsStillUsed"})
   protected DiskLruCacheWrapper(File directory, long maxSize) {
+    this(directory, maxSize, new Builder());
+  }
+
+  @Synthetic
+  DiskLruCacheWrapper(File directory, long maxSize, Builder builder) {
     this.directory = directory;
     this.maxSize = maxSize;
-    this.safeKeyGenerator = new SafeKeyGenerator();
+    this.concurrencyLevel = builder.concurrencyLevel;
+    this.binaryJournal = builder.binaryJournal;
+    this.safeKeyGenerator = new SafeKeyGenerator(builder.hashStrategy);
+    if (builder.admissionFilter) {
+      long expectedEntries = maxSize / ESTIMATED_ENTRY_SIZE_BYTES;
+      frequencySketch = new FrequencySketch((int) Math.min(Integer.MAX_VALUE, expectedEntries));
+    } else {
+      frequencySketch = null;
+    }
+    if (builder.writeBehindByteBudget > 0) {
+      writeBehindQueue = new DiskCacheWriteBehindQueue(
+          newWriteBehindExecutor(), builder.writeBehindByteBudget, stats);
+    } else {
+      writeBehindQueue = null;
+    }
+    if (builder.openAsynchronously) {
+      startOpen();
+    }
+  }
+
+  private void startOpen() {
+    FutureTask<DiskLruCache> open = new FutureTask<>(new Callable<DiskLruCache>() {
+      @Override
+      public DiskLruCache call() throws IOException {
+        return openDiskCache();
+      }
+    });
+    pendingOpen = open;
+    new Thread(open, OPEN_THREAD_NAME).start();
+  }
+
+  private static ThreadPoolExecutor newWriteBehindExecutor() {
+    return new ThreadPoolExecutor(
+        0 /*corePoolSize*/,
+        1 /*maximumPoolSize*/,
+        WRITE_BEHIND_KEEP_ALIVE_SECONDS,
+        TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(),
+        new ThreadFactory() {
+          @Override
+          public Thread newThread(@NonNull Runnable runnable) {
+            return new Thread(runnable, WRITE_BEHIND_THREAD_NAME);
+          }
+        });
+  }
+
+  @Synthetic
+  DiskLruCache openDiskCache() throws IOException {
+    return DiskLruCache.open(
+        directory, APP_VERSION, VALUE_COUNT, maxSize, concurrencyLevel, binaryJournal);
   }
 
   private synchronized DiskLruCache getDiskCache() throws IOException {
     if (diskLruCache == null) {
-      diskLruCache = DiskLruCache.open(directory, APP_VERSION, VALUE_COUNT, maxSize);
+      FutureTask<DiskLruCache> open = pendingOpen;
+      if (open != null) {
+        // If the background open failed, the next call will retry synchronously.
+        pendingOpen = null;
+        diskLruCache = awaitOpen(open);
+      } else {
+        diskLruCache = openDiskCache();
+      }
     }
     return diskLruCache;
   }
 
+  private static DiskLruCache awaitOpen(FutureTask<DiskLruCache> open) throws IOException {
+    boolean interrupted = false;
+    try {
+      while (true) {
+        try {
+          return open.get();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        } catch (ExecutionException e) {
+          Throwable cause = e.getCause();
+          if (cause instanceof IOException) {
+            throw (IOException) cause;
+          } else if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+          } else if (cause instanceof Error) {
+            throw (Error) cause;
+          }
+          throw new IOException(cause);
+        }
+      }
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Returns true if the journal is still being replayed on the background thread started by
+   * {@link Builder#setOpenAsynchronously(boolean)}.
+   */
+  private boolean isOpening() {
+    FutureTask<DiskLruCache> open = pendingOpen;
+    return open != null && !open.isDone();
+  }
+
   @Override
   public File get(Key key) {
     String safeKey = safeKeyGenerator.getSafeKey(key);
     if (Log.isLoggable(TAG, Log.VERBOSE)) {
       Log.v(TAG, "Get: Obtained: " + safeKey + " for for Key: " + key);
     }
+    if (frequencySketch != null) {
+      frequencySketch.increment(safeKey);
+    }
     File result = null;
-    try {
-      // It is possible that the there will be a put in between these two gets. If so that shouldn't
-      // be a problem because we will always put the same value at the same key so our input streams
-      // will still represent the same data.
-      final DiskLruCache.Value value = getDiskCache().get(safeKey);
-      if (value != null) {
-        result = value.getFile(0);
+    if (isOpening()) {
+      result = probe(safeKey);
+    } else {
+      if (writeBehindQueue != null) {
+        writeBehindQueue.commitIfPending(safeKey);
       }
-    } catch (IOException e) {
-      if (Log.isLoggable(TAG, Log.WARN)) {
-        Log.w(TAG, "Unable to get from disk cache", e);
+      try {
+        // It is possible that the there will be a put in between these two gets. If so that
+        // shouldn't be a problem because we will always put the same value at the same key so our
+        // input streams will still represent the same data.
+        final DiskLruCache.Value value = getDiskCache().get(safeKey);
+        if (value != null) {
+          result = value.getFile(0);
+        }
+      } catch (IOException e) {
+        if (Log.isLoggable(TAG, Log.WARN)) {
+          Log.w(TAG, "Unable to get from disk cache", e);
+        }
       }
     }
+    (result != null ? stats.hitCount : stats.missCount).incrementAndGet();
     return result;
   }
 
@@ -121,6 +271,7 @@ public class DiskLruCacheWrapper implements DiskCache {
     // We want to make sure that puts block so that data is available when put completes. We may
     // actually not write any data if we find that data is written by the time we acquire the lock.
     String safeKey = safeKeyGenerator.getSafeKey(key);
+    clearLock.readLock().lock();
     writeLocker.acquire(safeKey);
     try {
       if (Log.isLoggable(TAG, Log.VERBOSE)) {
@@ -130,22 +281,40 @@ public class DiskLruCacheWrapper implements DiskCache {
         // We assume we only need to put once, so if data was written while we were trying to get
         // the lock, we can simply abort.
         DiskLruCache diskCache = getDiskCache();
+        if (writeBehindQueue != null && writeBehindQueue.isPending(safeKey)) {
+          stats.duplicateWriteCount.incrementAndGet();
+          return;
+        }
         Value current = diskCache.get(safeKey);
         if (current != null) {
           return;
         }
+        if (!(writer instanceof ReadBackWriter) && !shouldAdmit(diskCache, safeKey)) {
+          if (Log.isLoggable(TAG, Log.VERBOSE)) {
+            Log.v(TAG, "Put: Rejected by admission filter: " + safeKey);
+          }
+          return;
+        }
 
         DiskLruCache.Editor editor = diskCache.edit(safeKey);
         if (editor == null) {
           throw new IllegalStateException("Had two simultaneous puts for: " + safeKey);
         }
+        boolean enqueued = false;
         try {
           File file = editor.getFile(0);
           if (writer.write(file)) {
-            editor.commit();
+            if (writeBehindQueue != null) {
+              writeBehindQueue.enqueue(diskCache, safeKey, editor, file.length());
+              enqueued = true;
+            } else {
+              editor.commit();
+            }
           }
         } finally {
-          editor.abortUnlessCommitted();
+          if (!enqueued) {
+            editor.abortUnlessCommitted();
+          }
         }
       } catch (IOException e) {
         if (Log.isLoggable(TAG, Log.WARN)) {
@@ -154,12 +323,16 @@ public class DiskLruCacheWrapper implements DiskCache {
       }
     } finally {
       writeLocker.release(safeKey);
+      clearLock.readLock().unlock();
     }
   }
 
   @Override
   public void delete(Key key) {
     String safeKey = safeKeyGenerator.getSafeKey(key);
+    if (writeBehindQueue != null) {
+      writeBehindQueue.commitIfPending(safeKey);
+    }
     try {
       getDiskCache().remove(safeKey);
     } catch (IOException e) {
@@ -169,23 +342,305 @@ public class DiskLruCacheWrapper implements DiskCache {
     }
   }
 
+  /**
+   * Deletes the cache and all of its entries, including pending writes.
+   *
+   * <p>Waits for puts that are in progress to finish first, so that their edits are discarded
+   * rather than written to the deleted cache. Puts that start after this method is called wait for
+   * the next cache to be opened.
+   */
   @Override
-  public synchronized void clear() {
+  public void clear() {
+    clearLock.writeLock().lock();
     try {
-      getDiskCache().delete();
-    } catch (IOException e) {
-      if (Log.isLoggable(TAG, Log.WARN)) {
-        Log.w(TAG, "Unable to clear disk cache or disk cache cleared externally", e);
+      synchronized (this) {
+        if (writeBehindQueue != null) {
+          writeBehindQueue.discardPending();
+        }
+        try {
+          getDiskCache().delete();
+        } catch (IOException e) {
+          if (Log.isLoggable(TAG, Log.WARN)) {
+            Log.w(TAG, "Unable to clear disk cache or disk cache cleared externally", e);
+          }
+        } finally {
+          // Delete can close the cache but still throw. If we don't null out the disk cache here,
+          // every subsequent request will try to act on a closed disk cache and fail. By nulling out
+          // the disk cache we at least allow for attempts to open the cache in the future. See
+          // #2465.
+          resetDiskCache();
+        }
       }
     } finally {
-      // Delete can close the cache but still throw. If we don't null out the disk cache here, every
-      // subsequent request will try to act on a closed disk cache and fail. By nulling out the disk
-      // cache we at least allow for attempts to open the cache in the future. See #2465.
-      resetDiskCache();
+      clearLock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Returns counters for lookups and, if the admission filter or write-behind are enabled, writes
+   * to this cache.
+   */
+  @NonNull
+  public Stats getStats() {
+    return stats;
+  }
+
+  /**
+   * Returns a snapshot of lookups, evictions and bytes used by this cache. Doesn't open the cache
+   * or wait for it to be opened, the current size is 0 until it has been.
+   */
+  @NonNull
+  public CacheStats getCacheStats() {
+    DiskLruCache current = diskLruCache;
+    long evictionCount = previousEvictionCount;
+    long currentSize = 0;
+    if (current != null) {
+      evictionCount += current.getEvictionCount();
+      currentSize = current.size();
+    }
+    return new CacheStats(
+        stats.getHitCount(), stats.getMissCount(), evictionCount, currentSize, maxSize);
+  }
+
+  /**
+   * Returns true if {@code safeKey} should be written to the cache.
+   *
+   * <p>Once the cache is nearly full, every write evicts an older entry. A write is only admitted
+   * if its key has been looked up more often recently than the entry that it would evict, so that
+   * images that are only ever loaded once don't push out images that are loaded repeatedly.
+   * Lookups, not writes, are counted, so a key written after a single miss doesn't outrank an
+   * entry that was read back from the cache.
+   *
+   * <p>Writes from {@link ReadBackWriter}s are always admitted and aren't counted, because the
+   * load that's writing them reads them back from the cache as soon as the write finishes.
+   */
+  private boolean shouldAdmit(DiskLruCache diskCache, String safeKey) {
+    if (frequencySketch == null) {
+      return true;
+    }
+    boolean admit = true;
+    if (diskCache.size() >= diskCache.getMaxSize() * ADMISSION_FILL_FRACTION) {
+      String victim = diskCache.getEldestKey();
+      admit = victim == null
+          || frequencySketch.frequency(safeKey) > frequencySketch.frequency(victim);
     }
+    (admit ? stats.admittedCount : stats.rejectedCount).incrementAndGet();
+    return admit;
   }
 
   private synchronized void resetDiskCache() {
+    if (diskLruCache != null) {
+      previousEvictionCount += diskLruCache.getEvictionCount();
+    }
     diskLruCache = null;
+    pendingOpen = null;
+  }
+
+  /**
+   * Looks for the committed file for the given key without waiting for the journal to be read.
+   *
+   * <p>Probes aren't recorded in the journal, so entries read while the cache is opening aren't
+   * moved to the head of the LRU order. The file may also belong to an entry the journal no
+   * longer references, in which case the open will delete it and reading it fails like any other
+   * externally cleared cache file.
+   */
+  @Nullable
+  private File probe(String safeKey) {
+    File file = DiskLruCache.getCleanFile(directory, safeKey, 0 /*index*/);
+    boolean exists = file.exists();
+    if (Log.isLoggable(TAG, Log.VERBOSE)) {
+      Log.v(TAG, "Get: Probed: " + safeKey + " while opening, exists: " + exists);
+    }
+    return exists ? file : null;
+  }
+
+  /**
+   * Counts the lookups and admission decisions made by a {@link DiskLruCacheWrapper}.
+   */
+  public static final class Stats {
+    @Synthetic final AtomicLong hitCount = new AtomicLong();
+    @Synthetic final AtomicLong missCount = new AtomicLong();
+    @Synthetic final AtomicLong admittedCount = new AtomicLong();
+    @Synthetic final AtomicLong rejectedCount = new AtomicLong();
+    @Synthetic final AtomicLong writeBehindBatchCount = new AtomicLong();
+    @Synthetic final AtomicLong writeBehindCommitCount = new AtomicLong();
+    @Synthetic final AtomicLong duplicateWriteCount = new AtomicLong();
+
+    @Synthetic
+    Stats() { }
+
+    public long getHitCount() {
+      return hitCount.get();
+    }
+
+    public long getMissCount() {
+      return missCount.get();
+    }
+
+    /** Returns the fraction of lookups that were hits, or 0 if there haven't been any lookups. */
+    public double getHitRate() {
+      long hits = hitCount.get();
+      long total = hits + missCount.get();
+      return total == 0 ? 0 : hits / (double) total;
+    }
+
+    /**
+     * Returns the number of writes allowed by the admission filter, or 0 if it isn't enabled.
+     */
+    public long getAdmittedCount() {
+      return admittedCount.get();
+    }
+
+    /**
+     * Returns the number of writes skipped by the admission filter, or 0 if it isn't enabled.
+     */
+    public long getRejectedCount() {
+      return rejectedCount.get();
+    }
+
+    /**
+     * Returns the number of batches of deferred commits, or 0 if write-behind isn't enabled.
+     */
+    public long getWriteBehindBatchCount() {
+      return writeBehindBatchCount.get();
+    }
+
+    /**
+     * Returns the number of deferred commits, across all batches, or 0 if write-behind isn't
+     * enabled.
+     */
+    public long getWriteBehindCommitCount() {
+      return writeBehindCommitCount.get();
+    }
+
+    /**
+     * Returns the number of writes skipped because a write for the same key was waiting to be
+     * committed, or 0 if write-behind isn't enabled.
+     */
+    public long getDuplicateWriteCount() {
+      return duplicateWriteCount.get();
+    }
+
+    @Override
+    public String toString() {
+      return "Stats{hits=" + getHitCount() + ", misses=" + getMissCount() + ", admitted="
+          + getAdmittedCount() + ", rejected=" + getRejectedCount() + ", writeBehindBatches="
+          + getWriteBehindBatchCount() + ", writeBehindCommits=" + getWriteBehindCommitCount()
+          + ", duplicateWrites=" + getDuplicateWriteCount() + "}";
+    }
+  }
+
+  /**
+   * Configures and creates {@link DiskLruCacheWrapper}s.
+   */
+  public static final class Builder {
+    @Synthetic int concurrencyLevel = DEFAULT_CONCURRENCY_LEVEL;
+    @Synthetic boolean binaryJournal;
+    @Synthetic boolean openAsynchronously;
+    @Synthetic boolean admissionFilter;
+    @Synthetic long writeBehindByteBudget;
+    @Synthetic SafeKeyGenerator.HashStrategy hashStrategy = SafeKeyGenerator.SHA_256;
+
+    /**
+     * Sets the estimated number of threads concurrently accessing the cache and returns this
+     * Builder.
+     *
+     * <p>Entries are split into segments that can be read and written concurrently, which helps
+     * when many threads hit the disk cache at once, for example with a large source executor. The
+     * on disk format is the same regardless of the concurrency level. Defaults to 1, which uses a
+     * single lock for all entries.
+     */
+    public Builder setConcurrencyLevel(int concurrencyLevel) {
+      Preconditions.checkArgument(concurrencyLevel > 0,
+          "Concurrency level must be greater than 0");
+      this.concurrencyLevel = concurrencyLevel;
+      return this;
+    }
+
+    /**
+     * Sets whether the cache uses the binary journal format and returns this Builder.
+     *
+     * <p>The binary journal is smaller and faster to replay than the default text journal, which
+     * reduces the time taken to open large caches. Existing journals in either format are
+     * converted to the requested format the first time the cache is opened.
+     */
+    public Builder setBinaryJournal(boolean binaryJournal) {
+      this.binaryJournal = binaryJournal;
+      return this;
+    }
+
+    /**
+     * Sets whether the cache's journal is read on a background thread as soon as the cache is
+     * created and returns this Builder.
+     *
+     * <p>By default the journal is read by whichever thread first uses the cache, so the first
+     * load to hit the disk cache waits for the whole journal to be replayed. When opening
+     * asynchronously, {@link #get(Key)} instead checks for the entry's file directly until the
+     * journal has been read. Writes and deletes still wait for the open to finish.
+     */
+    public Builder setOpenAsynchronously(boolean openAsynchronously) {
+      this.openAsynchronously = openAsynchronously;
+      return this;
+    }
+
+    /**
+     * Sets whether writes to a full cache are filtered by how often their keys are looked up and
+     * returns this Builder.
+     *
+     * <p>When enabled, a new entry is only written to a full cache if it has been requested more
+     * often recently than the least recently used entry it would evict, as estimated by a small
+     * frequency sketch. This avoids flash writes for images that are shown once, for example
+     * while scrolling through a long feed, and keeps them from evicting images that are shown
+     * repeatedly. Source data that's decoded from the cache right after it's written, from a
+     * {@link DiskCache.ReadBackWriter}, is always written, so the filter mostly applies to
+     * transformed resources. The number of admitted and rejected writes is available from {@link
+     * DiskLruCacheWrapper#getStats()}. Disabled by default.
+     */
+    public Builder setAdmissionFilter(boolean admissionFilter) {
+      this.admissionFilter = admissionFilter;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of bytes of written but uncommitted entries that can be waiting for
+     * a background commit and returns this Builder, or 0 to commit every entry as it's written.
+     *
+     * <p>Entries are still written to disk by the thread that puts them, but renaming them into
+     * place and recording them in the journal is deferred and batched, so a burst of writes
+     * flushes the journal once. Puts for a key that's waiting to be committed are skipped, and
+     * gets and deletes for a pending key commit it first. If the budget is exceeded, the thread
+     * that exceeded it commits every pending entry before its put returns. Entries that haven't
+     * been committed when the process dies are discarded the next time the cache is opened.
+     * Defaults to 0.
+     */
+    public Builder setWriteBehindByteBudget(long writeBehindByteBudget) {
+      Preconditions.checkArgument(writeBehindByteBudget >= 0,
+          "Write-behind byte budget must be greater than or equal to 0");
+      this.writeBehindByteBudget = writeBehindByteBudget;
+      return this;
+    }
+
+    /**
+     * Sets how {@link Key}s are hashed into the names of files in the cache and returns this
+     * Builder.
+     *
+     * <p>Defaults to {@link SafeKeyGenerator#SHA_256}. {@link SafeKeyGenerator#MURMUR3_128} is
+     * faster, but changing the strategy for an existing cache leaves its previous entries
+     * unreachable until they're evicted.
+     */
+    public Builder setKeyHashStrategy(@NonNull SafeKeyGenerator.HashStrategy hashStrategy) {
+      this.hashStrategy = Preconditions.checkNotNull(hashStrategy);
+      return this;
+    }
+
+    /**
+     * Creates a new DiskCache in the given directory with a specified max size.
+     *
+     * @param directory The directory for the disk cache
+     * @param maxSize   The max size for the disk cache
+     */
+    public DiskCache build(File directory, long maxSize) {
+      return new DiskLruCacheWrapper(directory, maxSize, this);
+    }
   }
 }
@@ -0,0 +1,111 @@
+package com.bumptech.glide.load.engine.cache;
+
+/**
+ * A count-min sketch that estimates how often keys have been seen recently, using four bit
+ * counters so that tracking many thousands of keys costs only a few kilobytes.
+ *
+ * <p>Each key maps to one counter in each of four rows of the table. Its frequency is the
+ * minimum of those counters, which may overestimate but never underestimate the number of times
+ * the key was incremented. Once the number of increments reaches ten times the table's capacity
+ * all counters are halved, so that keys that were popular a long time ago gradually lose their
+ * advantage over keys that are popular now.
+ *
+ * <p>Based on the sketch used by TinyLFU, see https://arxiv.org/abs/1512.00727.
+ */
+final class FrequencySketch {
+  static final int MAX_FREQUENCY = 15;
+
+  private static final int MIN_CAPACITY = 256;
+  private static final int MAX_CAPACITY = 1 << 20;
+  private static final int SAMPLE_MULTIPLIER = 10;
+  private static final long[] SEEDS = new long[] {
+      0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+  };
+  // Clears the top bit of each counter after shifting right by one.
+  private static final long RESET_MASK = 0x7777777777777777L;
+  // Selects the low bit of each counter.
+  private static final long ONE_MASK = 0x1111111111111111L;
+
+  // Each long holds sixteen counters.
+  private final long[] table;
+  private final int tableMask;
+  private final int sampleSize;
+  private int additions;
+
+  /**
+   * @param expectedEntries The approximate number of distinct keys the owning cache holds, used
+   *                        to size the table.
+   */
+  FrequencySketch(int expectedEntries) {
+    int capacity = ceilingPowerOfTwo(
+        Math.max(MIN_CAPACITY, Math.min(MAX_CAPACITY, expectedEntries)));
+    table = new long[capacity];
+    tableMask = capacity - 1;
+    sampleSize = capacity * SAMPLE_MULTIPLIER;
+  }
+
+  /**
+   * Returns the estimated number of times {@code key} has been incremented recently, at most
+   * {@link #MAX_FREQUENCY}.
+   */
+  synchronized int frequency(Object key) {
+    int hash = spread(key.hashCode());
+    int start = (hash & 3) << 2;
+    int frequency = Integer.MAX_VALUE;
+    for (int i = 0; i < 4; i++) {
+      int index = indexOf(hash, i);
+      int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+      frequency = Math.min(frequency, count);
+    }
+    return frequency;
+  }
+
+  /** Increments the estimated frequency of {@code key}. */
+  synchronized void increment(Object key) {
+    int hash = spread(key.hashCode());
+    int start = (hash & 3) << 2;
+    boolean added = false;
+    for (int i = 0; i < 4; i++) {
+      added |= incrementAt(indexOf(hash, i), start + i);
+    }
+    if (added && ++additions == sampleSize) {
+      reset();
+    }
+  }
+
+  private boolean incrementAt(int index, int counter) {
+    int offset = counter << 2;
+    long mask = 0xfL << offset;
+    if ((table[index] & mask) != mask) {
+      table[index] += 1L << offset;
+      return true;
+    }
+    return false;
+  }
+
+  private void reset() {
+    int oddCounters = 0;
+    for (int i = 0; i < table.length; i++) {
+      oddCounters += Long.bitCount(table[i] & ONE_MASK);
+      table[i] = (table[i] >>> 1) & RESET_MASK;
+    }
+    // Halving rounds each odd counter down, so remove the lost increments from the total too.
+    additions = (additions >>> 1) - (oddCounters >>> 2);
+  }
+
+  private int indexOf(int hash, int row) {
+    long h = (hash + SEEDS[row]) * SEEDS[row];
+    h += h >>> 32;
+    return (int) h & tableMask;
+  }
+
+  private static int spread(int hash) {
+    hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+    hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+    return (hash >>> 16) ^ hash;
+  }
+
+  private static int ceilingPowerOfTwo(int value) {
+    return 1 << -Integer.numberOfLeadingZeros(value - 1);
+  }
+}
@@ -0,0 +1,340 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.content.ComponentCallbacks2;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.util.LogTime;
+import com.bumptech.glide.util.Preconditions;
+import com.bumptech.glide.util.Synthetic;
+import com.bumptech.glide.util.Util;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Trims Glide's {@link MemoryCache}, {@link BitmapPool} and {@link ArrayPool} in small steps
+ * spread across several main thread messages, rather than all at once, so that a call to
+ * {@link ComponentCallbacks2#onTrimMemory(int)} while the user is scrolling doesn't drop frames.
+ *
+ * <p>Each message evicts chunks of at most {@link Builder#setChunkSizeBytes(long)} bytes until it
+ * has run for {@link Builder#setSliceBudgetMillis(long)} and then posts the rest of the work.
+ * Because frames are drawn between messages, each slice delays a frame by at most about one
+ * chunk more than the budget. The pools are trimmed before the memory cache because their
+ * contents are cheaper to recreate. The {@link BitmapPool} is trimmed again after the memory
+ * cache, which returns evicted {@link android.graphics.Bitmap}s to it.
+ *
+ * <p>Components that aren't {@link IncrementallyTrimmable} are trimmed synchronously with their
+ * own {@code trimMemory} and {@code clearMemory} methods, as are all components for levels below
+ * {@link ComponentCallbacks2#TRIM_MEMORY_UI_HIDDEN} other than
+ * {@link ComponentCallbacks2#TRIM_MEMORY_RUNNING_CRITICAL}, which don't reduce sizes.
+ *
+ * <p>Every completed trim is logged if the {@link #TAG} is loggable at {@link Log#DEBUG} and
+ * reported to the {@link Listener} given to the {@link Builder}, if any.
+ *
+ * <p>This class must only be used on the main thread.
+ */
+public final class IncrementalTrimmer {
+  public static final String TAG = "IncrementalTrimmer";
+
+  /** Notified on the main thread each time a trim finishes. */
+  public interface Listener {
+    void onTrimFinished(@NonNull Report report);
+  }
+
+  private final List<Step> steps = new ArrayList<>();
+  private final MemoryCache memoryCache;
+  private final BitmapPool bitmapPool;
+  private final ArrayPool arrayPool;
+  private final long sliceBudgetMillis;
+  private final long chunkSizeBytes;
+  @Nullable private final Listener listener;
+  private final Handler handler;
+  private final Runnable sliceRunnable = new Runnable() {
+    @Override
+    public void run() {
+      runSlice();
+    }
+  };
+
+  private boolean isRunning;
+  private int level;
+  private long startTime;
+  private double busyMillis;
+  private int sliceCount;
+  private long bytesFreed;
+
+  @Synthetic
+  IncrementalTrimmer(Builder builder, MemoryCache memoryCache, BitmapPool bitmapPool,
+      ArrayPool arrayPool, Handler handler) {
+    this.memoryCache = memoryCache;
+    this.bitmapPool = bitmapPool;
+    this.arrayPool = arrayPool;
+    this.sliceBudgetMillis = builder.sliceBudgetMillis;
+    this.chunkSizeBytes = builder.chunkSizeBytes;
+    this.listener = builder.listener;
+    this.handler = handler;
+
+    addStep(arrayPool);
+    addStep(bitmapPool);
+    addStep(memoryCache);
+    addStep(bitmapPool);
+  }
+
+  private void addStep(Object component) {
+    if (component instanceof IncrementallyTrimmable) {
+      steps.add(new Step((IncrementallyTrimmable) component));
+    }
+  }
+
+  /**
+   * Starts trimming memory as appropriate for the given
+   * {@link ComponentCallbacks2#onTrimMemory(int)} level.
+   *
+   * <p>If a previous trim hasn't finished yet, it continues towards the smaller of the two sizes.
+   */
+  public void trimMemory(int level) {
+    Util.assertMainThread();
+    final float fraction;
+    if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+      fraction = 0;
+    } else if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN
+        || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+      fraction = 0.5f;
+    } else {
+      memoryCache.trimMemory(level);
+      bitmapPool.trimMemory(level);
+      arrayPool.trimMemory(level);
+      return;
+    }
+    trimNotIncrementallyTrimmable(level);
+    start(level, fraction);
+  }
+
+  /**
+   * Starts evicting everything, like {@link ComponentCallbacks2#TRIM_MEMORY_COMPLETE}.
+   */
+  public void clearMemory() {
+    Util.assertMainThread();
+    if (!(memoryCache instanceof IncrementallyTrimmable)) {
+      memoryCache.clearMemory();
+    }
+    if (!(bitmapPool instanceof IncrementallyTrimmable)) {
+      bitmapPool.clearMemory();
+    }
+    if (!(arrayPool instanceof IncrementallyTrimmable)) {
+      arrayPool.clearMemory();
+    }
+    start(ComponentCallbacks2.TRIM_MEMORY_COMPLETE, /*fraction=*/ 0);
+  }
+
+  /** Returns {@code true} if a trim has been started and hasn't finished yet. */
+  public boolean isTrimming() {
+    return isRunning;
+  }
+
+  private void trimNotIncrementallyTrimmable(int level) {
+    if (!(memoryCache instanceof IncrementallyTrimmable)) {
+      memoryCache.trimMemory(level);
+    }
+    if (!(bitmapPool instanceof IncrementallyTrimmable)) {
+      bitmapPool.trimMemory(level);
+    }
+    if (!(arrayPool instanceof IncrementallyTrimmable)) {
+      arrayPool.trimMemory(level);
+    }
+  }
+
+  private void start(int level, float fraction) {
+    for (Step step : steps) {
+      long targetSize = (long) (step.trimmable.getMaxSizeInBytes() * fraction);
+      step.targetSize = isRunning ? Math.min(step.targetSize, targetSize) : targetSize;
+      step.isDone = false;
+    }
+    if (isRunning) {
+      this.level = Math.max(this.level, level);
+      return;
+    }
+    isRunning = true;
+    this.level = level;
+    startTime = LogTime.getLogTime();
+    busyMillis = 0;
+    sliceCount = 0;
+    bytesFreed = 0;
+    runSlice();
+  }
+
+  @Synthetic
+  void runSlice() {
+    long sliceStartTime = LogTime.getLogTime();
+    boolean isFinished = true;
+    for (Step step : steps) {
+      if (!trim(step, sliceStartTime)) {
+        isFinished = false;
+        break;
+      }
+    }
+    busyMillis += LogTime.getElapsedMillis(sliceStartTime);
+    sliceCount++;
+
+    if (isFinished) {
+      finish();
+    } else {
+      handler.post(sliceRunnable);
+    }
+  }
+
+  /**
+   * Trims the given step in chunks until it reaches its target or the slice is out of time,
+   * returning {@code true} if the step is done.
+   */
+  private boolean trim(Step step, long sliceStartTime) {
+    while (!step.isDone) {
+      long size = step.trimmable.getSizeInBytes();
+      if (size <= step.targetSize) {
+        step.isDone = true;
+        break;
+      }
+      step.trimmable.trimToSizeInBytes(Math.max(step.targetSize, size - chunkSizeBytes));
+      long newSize = step.trimmable.getSizeInBytes();
+      bytesFreed += Math.max(0, size - newSize);
+      if (newSize >= size) {
+        // Nothing left that can be evicted, for example because everything is in use.
+        step.isDone = true;
+      }
+      if (LogTime.getElapsedMillis(sliceStartTime) >= sliceBudgetMillis) {
+        break;
+      }
+    }
+    return step.isDone;
+  }
+
+  private void finish() {
+    isRunning = false;
+    Report report =
+        new Report(level, bytesFreed, LogTime.getElapsedMillis(startTime), busyMillis, sliceCount);
+    if (Log.isLoggable(TAG, Log.DEBUG)) {
+      Log.d(TAG, "Finished trimming: " + report);
+    }
+    if (listener != null) {
+      listener.onTrimFinished(report);
+    }
+  }
+
+  /**
+   * Describes a finished trim.
+   */
+  public static final class Report {
+    private final int level;
+    private final long bytesFreed;
+    private final double elapsedMillis;
+    private final double busyMillis;
+    private final int sliceCount;
+
+    @Synthetic
+    Report(int level, long bytesFreed, double elapsedMillis, double busyMillis, int sliceCount) {
+      this.level = level;
+      this.bytesFreed = bytesFreed;
+      this.elapsedMillis = elapsedMillis;
+      this.busyMillis = busyMillis;
+      this.sliceCount = sliceCount;
+    }
+
+    /**
+     * Returns the highest {@link ComponentCallbacks2} level trimmed for, or
+     * {@link ComponentCallbacks2#TRIM_MEMORY_COMPLETE} for {@link #clearMemory()}.
+     */
+    public int getLevel() {
+      return level;
+    }
+
+    /** Returns the number of bytes evicted by incremental trimming. */
+    public long getBytesFreed() {
+      return bytesFreed;
+    }
+
+    /** Returns the time from the start of the trim until it finished. */
+    public double getElapsedMillis() {
+      return elapsedMillis;
+    }
+
+    /** Returns the time the main thread spent trimming, the sum of all slices. */
+    public double getBusyMillis() {
+      return busyMillis;
+    }
+
+    /** Returns the number of main thread messages the trim was split across. */
+    public int getSliceCount() {
+      return sliceCount;
+    }
+
+    @Override
+    public String toString() {
+      return "Report{level=" + level + ", bytesFreed=" + bytesFreed + ", elapsedMillis="
+          + elapsedMillis + ", busyMillis=" + busyMillis + ", sliceCount=" + sliceCount + '}';
+    }
+  }
+
+  /**
+   * Builds {@link IncrementalTrimmer}s.
+   */
+  public static final class Builder {
+    static final long DEFAULT_SLICE_BUDGET_MILLIS = 4;
+    static final long DEFAULT_CHUNK_SIZE_BYTES = 1024 * 1024;
+
+    @Synthetic long sliceBudgetMillis = DEFAULT_SLICE_BUDGET_MILLIS;
+    @Synthetic long chunkSizeBytes = DEFAULT_CHUNK_SIZE_BYTES;
+    @Nullable @Synthetic Listener listener;
+
+    /**
+     * Sets how long each main thread message may spend trimming before posting the rest of the
+     * work, defaults to 4ms.
+     */
+    public Builder setSliceBudgetMillis(long sliceBudgetMillis) {
+      Preconditions.checkArgument(sliceBudgetMillis >= 0, "Slice budget must be >= 0");
+      this.sliceBudgetMillis = sliceBudgetMillis;
+      return this;
+    }
+
+    /**
+     * Sets the number of bytes evicted from a component between checks of the slice budget,
+     * defaults to 1MB. At least one item is evicted per chunk, however large it is.
+     */
+    public Builder setChunkSizeBytes(long chunkSizeBytes) {
+      Preconditions.checkArgument(chunkSizeBytes > 0, "Chunk size must be > 0");
+      this.chunkSizeBytes = chunkSizeBytes;
+      return this;
+    }
+
+    /**
+     * Sets a listener notified when each trim finishes, for example to log how long trims take.
+     */
+    public Builder setListener(@Nullable Listener listener) {
+      this.listener = listener;
+      return this;
+    }
+
+    /**
+     * Returns a trimmer for the given components.
+     */
+    @NonNull
+    public IncrementalTrimmer build(@NonNull MemoryCache memoryCache,
+        @NonNull BitmapPool bitmapPool, @NonNull ArrayPool arrayPool) {
+      return new IncrementalTrimmer(
+          this, memoryCache, bitmapPool, arrayPool, new Handler(Looper.getMainLooper()));
+    }
+  }
+
+  private static final class Step {
+    final IncrementallyTrimmable trimmable;
+    long targetSize;
+    boolean isDone;
+
+    Step(IncrementallyTrimmable trimmable) {
+      this.trimmable = trimmable;
+    }
+  }
+}
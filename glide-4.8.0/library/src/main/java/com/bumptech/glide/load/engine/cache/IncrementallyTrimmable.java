@@ -0,0 +1,24 @@
+package com.bumptech.glide.load.engine.cache;
+
+/**
+ * Implemented by in memory caches and pools that can be trimmed a little at a time, so that
+ * trimming memory can be spread across several main thread messages rather than blocking a frame.
+ *
+ * @see IncrementalTrimmer
+ */
+public interface IncrementallyTrimmable {
+  /**
+   * Returns the number of bytes currently held.
+   */
+  long getSizeInBytes();
+
+  /**
+   * Returns the maximum number of bytes that may be held.
+   */
+  long getMaxSizeInBytes();
+
+  /**
+   * Evicts least recently used items until no more than the given number of bytes are held.
+   */
+  void trimToSizeInBytes(long size);
+}
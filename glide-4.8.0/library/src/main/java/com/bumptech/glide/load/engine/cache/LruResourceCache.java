@@ -6,6 +6,7 @@ import android.support.annotation.Nullable;
 import com.bumptech.glide.load.Key;
 import com.bumptech.glide.load.engine.Resource;
 import com.bumptech.glide.util.LruCache;
+import com.bumptech.glide.util.StripedCounter;
 
 /**
  * An LRU in memory cache for {@link com.bumptech.glide.load.engine.Resource}s.
@@ -18,7 +19,11 @@ import com.bumptech.glide.util.LruCache;
  *
  * 这个缓存可以说是 第二级内存缓存，缓存的是之前用过但是现在没用的资源
  */
-public class LruResourceCache extends LruCache<Key, Resource<?>> implements MemoryCache {
+public class LruResourceCache extends LruCache<Key, Resource<?>>
+    implements MemoryCache, CacheCounters, IncrementallyTrimmable {
+  private final StripedCounter hitCount = new StripedCounter();
+  private final StripedCounter missCount = new StripedCounter();
+  private final StripedCounter evictionCount = new StripedCounter();
   private ResourceRemovedListener listener;
 
   /**
@@ -35,8 +40,38 @@ public class LruResourceCache extends LruCache<Key, Resource<?>> implements Memo
     this.listener = listener;
   }
 
+  @Nullable
+  @Override
+  public Resource<?> remove(@NonNull Key key) {
+    Resource<?> removed = super.remove(key);
+    if (removed != null) {
+      hitCount.increment();
+    } else {
+      missCount.increment();
+    }
+    return removed;
+  }
+
+  @Override
+  public long getHitCount() {
+    return hitCount.sum();
+  }
+
+  @Override
+  public long getMissCount() {
+    return missCount.sum();
+  }
+
+  @Override
+  public long getEvictionCount() {
+    return evictionCount.sum();
+  }
+
   @Override
   protected void onItemEvicted(@NonNull Key key, @Nullable Resource<?> item) {
+    if (item != null) {
+      evictionCount.increment();
+    }
     if (listener != null && item != null) {
       listener.onResourceRemoved(item);
     }
@@ -66,4 +101,19 @@ public class LruResourceCache extends LruCache<Key, Resource<?>> implements Memo
       trimToSize(getMaxSize() / 2);
     }
   }
+
+  @Override
+  public long getSizeInBytes() {
+    return getCurrentSize();
+  }
+
+  @Override
+  public long getMaxSizeInBytes() {
+    return getMaxSize();
+  }
+
+  @Override
+  public void trimToSizeInBytes(long size) {
+    trimToSize(size);
+  }
 }
@@ -0,0 +1,438 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.util.Log;
+import com.bumptech.glide.MemoryCategory;
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruArrayPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.MagazineArrayPool;
+import com.bumptech.glide.util.Preconditions;
+import com.bumptech.glide.util.Synthetic;
+import com.bumptech.glide.util.Util;
+import java.util.Arrays;
+
+/**
+ * Periodically moves memory between the {@link MemoryCache}, {@link BitmapPool} and
+ * {@link ArrayPool} so that whichever is under the most pressure gets a larger share of the total
+ * budget calculated by {@link MemorySizeCalculator}.
+ *
+ * <p>Galleries that decode many large images benefit from a larger bitmap pool, while feeds that
+ * show the same images over and over again benefit from a larger memory cache. Every interval the
+ * controller samples the {@link CacheCounters} of each component. A component's demand is its miss
+ * ratio over the interval if it also had to evict items, and zero otherwise. A step of the total
+ * budget is then moved from the component with the lowest demand to the one with the highest, as
+ * long as their demand differs enough, by changing their size multipliers. The total budget never
+ * changes, except when scaled by {@link #setMemoryCategory(MemoryCategory)}.
+ *
+ * <p>Only components that implement {@link CacheCounters} and have a non zero initial size are
+ * rebalanced. The array pool is only rebalanced if it's a {@link LruArrayPool}, which is the only
+ * {@link ArrayPool} that can be resized, or a {@link MagazineArrayPool} in front of one.
+ *
+ * <p>Every evaluation is logged if the {@link #TAG} is loggable at {@link Log#DEBUG} and reported
+ * to the {@link Listener} given to the {@link Builder}, if any, on the main thread.
+ */
+public final class MemoryBudgetController {
+  public static final String TAG = "MemoryBudget";
+
+  /** The components whose sizes are controlled. */
+  public enum Component {
+    MEMORY_CACHE,
+    BITMAP_POOL,
+    ARRAY_POOL,
+  }
+
+  /**
+   * Notified of every evaluation made by a {@link MemoryBudgetController}, including those that
+   * don't change anything.
+   */
+  public interface Listener {
+    void onEvaluated(@NonNull Decision decision);
+  }
+
+  // Below this many requests in an interval, a component is treated as idle.
+  private static final int MIN_REQUESTS = 20;
+  // Budget is only moved if the recipient misses this much more often than the donor.
+  private static final float MIN_DEMAND_DIFFERENCE = 0.1f;
+
+  private final Slot[] slots;
+  private final long totalBudget;
+  private final long stepSize;
+  @Synthetic final long intervalMillis;
+  @Nullable private final Listener listener;
+  @Synthetic final Handler handler;
+  private final Runnable rebalanceRunnable = new Runnable() {
+    @Override
+    public void run() {
+      rebalance();
+      handler.postDelayed(this, intervalMillis);
+    }
+  };
+  private float categoryMultiplier = 1f;
+  private boolean isStarted;
+
+  @Synthetic
+  MemoryBudgetController(Builder builder, final MemoryCache memoryCache,
+      final BitmapPool bitmapPool, ArrayPool arrayPool) {
+    intervalMillis = builder.intervalMillis;
+    listener = builder.listener;
+    handler = new Handler(Looper.getMainLooper());
+
+    slots = new Slot[Component.values().length];
+    slots[Component.MEMORY_CACHE.ordinal()] =
+        new Slot(memoryCache.getMaxSize(), counters(memoryCache), new Resizer() {
+          @Override
+          public void setSizeMultiplier(float multiplier) {
+            memoryCache.setSizeMultiplier(multiplier);
+          }
+        }, builder);
+    slots[Component.BITMAP_POOL.ordinal()] =
+        new Slot(bitmapPool.getMaxSize(), counters(bitmapPool), new Resizer() {
+          @Override
+          public void setSizeMultiplier(float multiplier) {
+            bitmapPool.setSizeMultiplier(multiplier);
+          }
+        }, builder);
+    if (arrayPool instanceof MagazineArrayPool) {
+      arrayPool = ((MagazineArrayPool) arrayPool).getShared();
+    }
+    if (arrayPool instanceof LruArrayPool) {
+      final LruArrayPool lruArrayPool = (LruArrayPool) arrayPool;
+      slots[Component.ARRAY_POOL.ordinal()] =
+          new Slot(lruArrayPool.getMaxSize(), lruArrayPool, new Resizer() {
+            @Override
+            public void setSizeMultiplier(float multiplier) {
+              lruArrayPool.setSizeMultiplier(multiplier);
+            }
+          }, builder);
+    } else {
+      slots[Component.ARRAY_POOL.ordinal()] = new Slot(0, null, null, builder);
+    }
+
+    long total = 0;
+    for (Slot slot : slots) {
+      if (slot.isManaged()) {
+        total += slot.initialSize;
+      }
+    }
+    totalBudget = total;
+    stepSize = (long) (total * builder.stepFraction);
+  }
+
+  @Nullable
+  private static CacheCounters counters(Object component) {
+    return component instanceof CacheCounters ? (CacheCounters) component : null;
+  }
+
+  /**
+   * Starts rebalancing once per interval on the main thread.
+   */
+  public void start() {
+    if (!isStarted) {
+      isStarted = true;
+      handler.postDelayed(rebalanceRunnable, intervalMillis);
+    }
+  }
+
+  /**
+   * Stops rebalancing, sizes are left as they are.
+   */
+  public void stop() {
+    isStarted = false;
+    handler.removeCallbacks(rebalanceRunnable);
+  }
+
+  /**
+   * Scales the size of every component by the given category's multiplier, on top of their
+   * current share of the budget.
+   *
+   * <p>Must be called on the main thread.
+   */
+  public void setMemoryCategory(@NonNull MemoryCategory memoryCategory) {
+    Util.assertMainThread();
+    categoryMultiplier = memoryCategory.getMultiplier();
+    applySizes();
+  }
+
+  /**
+   * Returns the multiplier currently applied to the initial size of the given component.
+   */
+  public float getSizeMultiplier(@NonNull Component component) {
+    return slots[component.ordinal()].getMultiplier(categoryMultiplier);
+  }
+
+  /**
+   * Samples each component and moves budget between them if necessary.
+   *
+   * <p>Must be called on the main thread, called automatically after {@link #start()}.
+   */
+  @NonNull
+  public Decision rebalance() {
+    Util.assertMainThread();
+    float[] demands = new float[slots.length];
+    Component donor = null;
+    Component recipient = null;
+    for (Component component : Component.values()) {
+      Slot slot = slots[component.ordinal()];
+      if (!slot.isManaged()) {
+        continue;
+      }
+      float demand = slot.sample();
+      demands[component.ordinal()] = demand;
+      if (slot.canGrow(stepSize)
+          && (recipient == null || demand > demands[recipient.ordinal()])) {
+        recipient = component;
+      }
+    }
+    for (Component component : Component.values()) {
+      Slot slot = slots[component.ordinal()];
+      if (slot.isManaged() && component != recipient && slot.canShrink(stepSize)
+          && (donor == null || demands[component.ordinal()] < demands[donor.ordinal()])) {
+        donor = component;
+      }
+    }
+
+    long moved = 0;
+    if (donor != null && recipient != null
+        && demands[recipient.ordinal()] - demands[donor.ordinal()] >= MIN_DEMAND_DIFFERENCE) {
+      moved = stepSize;
+      slots[donor.ordinal()].allocatedSize -= moved;
+      slots[recipient.ordinal()].allocatedSize += moved;
+      applySizes();
+    } else {
+      donor = null;
+      recipient = null;
+    }
+
+    float[] multipliers = new float[slots.length];
+    for (Component component : Component.values()) {
+      multipliers[component.ordinal()] = getSizeMultiplier(component);
+    }
+    Decision decision = new Decision(donor, recipient, moved, demands, multipliers);
+    if (Log.isLoggable(TAG, Log.DEBUG)) {
+      Log.d(TAG, decision.toString());
+    }
+    if (listener != null) {
+      listener.onEvaluated(decision);
+    }
+    return decision;
+  }
+
+  private void applySizes() {
+    // The memory cache needs to be trimmed before the bitmap pool to trim re-pooled Bitmaps too.
+    for (Slot slot : slots) {
+      // Components that aren't rebalanced still follow the memory category.
+      if (slot.resizer != null) {
+        slot.resizer.setSizeMultiplier(slot.getMultiplier(categoryMultiplier));
+      }
+    }
+  }
+
+  @VisibleForTesting
+  long getTotalBudget() {
+    return totalBudget;
+  }
+
+  /**
+   * The result of one evaluation by a {@link MemoryBudgetController}.
+   */
+  public static final class Decision {
+    @Nullable private final Component donor;
+    @Nullable private final Component recipient;
+    private final long bytesMoved;
+    private final float[] demands;
+    private final float[] multipliers;
+
+    @Synthetic
+    Decision(@Nullable Component donor, @Nullable Component recipient, long bytesMoved,
+        float[] demands, float[] multipliers) {
+      this.donor = donor;
+      this.recipient = recipient;
+      this.bytesMoved = bytesMoved;
+      this.demands = demands;
+      this.multipliers = multipliers;
+    }
+
+    /**
+     * Returns the component that gave up some of its budget, or null if nothing changed.
+     */
+    @Nullable
+    public Component getDonor() {
+      return donor;
+    }
+
+    /**
+     * Returns the component that was given more budget, or null if nothing changed.
+     */
+    @Nullable
+    public Component getRecipient() {
+      return recipient;
+    }
+
+    public long getBytesMoved() {
+      return bytesMoved;
+    }
+
+    /**
+     * Returns the demand of the given component over the last interval, between 0 and 1.
+     */
+    public float getDemand(@NonNull Component component) {
+      return demands[component.ordinal()];
+    }
+
+    /**
+     * Returns the size multiplier of the given component after this evaluation.
+     */
+    public float getSizeMultiplier(@NonNull Component component) {
+      return multipliers[component.ordinal()];
+    }
+
+    @Override
+    public String toString() {
+      return "Decision{"
+          + "donor=" + donor
+          + ", recipient=" + recipient
+          + ", bytesMoved=" + bytesMoved
+          + ", demands=" + Arrays.toString(demands)
+          + ", multipliers=" + Arrays.toString(multipliers)
+          + '}';
+    }
+  }
+
+  /**
+   * Builds {@link MemoryBudgetController}s.
+   */
+  public static final class Builder {
+    static final long DEFAULT_INTERVAL_MILLIS = 10_000;
+    static final float DEFAULT_STEP_FRACTION = 0.05f;
+    static final float DEFAULT_MIN_MULTIPLIER = 0.5f;
+    static final float DEFAULT_MAX_MULTIPLIER = 2f;
+
+    @Synthetic long intervalMillis = DEFAULT_INTERVAL_MILLIS;
+    @Synthetic float stepFraction = DEFAULT_STEP_FRACTION;
+    @Synthetic float minMultiplier = DEFAULT_MIN_MULTIPLIER;
+    @Synthetic float maxMultiplier = DEFAULT_MAX_MULTIPLIER;
+    @Nullable @Synthetic Listener listener;
+
+    /**
+     * Sets how often the budget is rebalanced, defaults to every 10 seconds.
+     */
+    public Builder setIntervalMillis(long intervalMillis) {
+      Preconditions.checkArgument(intervalMillis > 0, "Interval must be > 0");
+      this.intervalMillis = intervalMillis;
+      return this;
+    }
+
+    /**
+     * Sets the fraction of the total budget moved by each step, defaults to 5%.
+     */
+    public Builder setStepFraction(float stepFraction) {
+      Preconditions.checkArgument(
+          stepFraction > 0 && stepFraction <= 1, "Step fraction must be > 0 and <= 1");
+      this.stepFraction = stepFraction;
+      return this;
+    }
+
+    /**
+     * Sets the smallest and largest multiple of its initial size that each component may be
+     * given, defaults to half and twice.
+     */
+    public Builder setMultiplierBounds(float minMultiplier, float maxMultiplier) {
+      Preconditions.checkArgument(
+          minMultiplier >= 0 && minMultiplier <= 1, "Minimum multiplier must be between 0 and 1");
+      Preconditions.checkArgument(maxMultiplier >= 1, "Maximum multiplier must be >= 1");
+      this.minMultiplier = minMultiplier;
+      this.maxMultiplier = maxMultiplier;
+      return this;
+    }
+
+    /**
+     * Sets a listener notified of every evaluation, for example to log or chart decisions.
+     */
+    public Builder setListener(@Nullable Listener listener) {
+      this.listener = listener;
+      return this;
+    }
+
+    /**
+     * Returns a controller for the given components, which should be at their initial sizes.
+     */
+    @NonNull
+    public MemoryBudgetController build(@NonNull MemoryCache memoryCache,
+        @NonNull BitmapPool bitmapPool, @NonNull ArrayPool arrayPool) {
+      return new MemoryBudgetController(this, memoryCache, bitmapPool, arrayPool);
+    }
+  }
+
+  private interface Resizer {
+    void setSizeMultiplier(float multiplier);
+  }
+
+  private static final class Slot {
+    final long initialSize;
+    @Nullable final CacheCounters counters;
+    @Nullable final Resizer resizer;
+    final long minSize;
+    final long maxSize;
+    long allocatedSize;
+    private long lastHits;
+    private long lastMisses;
+    private long lastEvictions;
+
+    Slot(long initialSize, @Nullable CacheCounters counters, @Nullable Resizer resizer,
+        Builder builder) {
+      this.initialSize = initialSize;
+      this.counters = counters;
+      this.resizer = resizer;
+      minSize = (long) (initialSize * builder.minMultiplier);
+      maxSize = (long) (initialSize * builder.maxMultiplier);
+      allocatedSize = initialSize;
+      if (counters != null) {
+        lastHits = counters.getHitCount();
+        lastMisses = counters.getMissCount();
+        lastEvictions = counters.getEvictionCount();
+      }
+    }
+
+    boolean isManaged() {
+      return initialSize > 0 && counters != null && resizer != null;
+    }
+
+    boolean canGrow(long bytes) {
+      return allocatedSize + bytes <= maxSize;
+    }
+
+    boolean canShrink(long bytes) {
+      return allocatedSize - bytes >= minSize;
+    }
+
+    float getMultiplier(float categoryMultiplier) {
+      return initialSize == 0 ? categoryMultiplier
+          : categoryMultiplier * allocatedSize / (float) initialSize;
+    }
+
+    /** Returns the demand since the last sample. */
+    float sample() {
+      CacheCounters counters = Preconditions.checkNotNull(this.counters);
+      long hits = counters.getHitCount();
+      long misses = counters.getMissCount();
+      long evictions = counters.getEvictionCount();
+      long intervalHits = hits - lastHits;
+      long intervalMisses = misses - lastMisses;
+      long intervalEvictions = evictions - lastEvictions;
+      lastHits = hits;
+      lastMisses = misses;
+      lastEvictions = evictions;
+
+      long requests = intervalHits + intervalMisses;
+      if (requests < MIN_REQUESTS || intervalEvictions == 0) {
+        return 0;
+      }
+      return intervalMisses / (float) requests;
+    }
+  }
+}
@@ -0,0 +1,180 @@
+package com.bumptech.glide.load.engine.cache;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+
+/**
+ * A {@link MessageDigest} that computes the 128 bit, x64 variant of MurmurHash3 with a seed of 0.
+ *
+ * <p>MurmurHash3 is much faster than cryptographic digests like SHA-256 and has a good enough
+ * distribution that accidental collisions between 128 bit hashes are vanishingly unlikely. It
+ * isn't collision resistant though, so it shouldn't be used if keys can be chosen by an attacker.
+ *
+ * <p>The digest is the two 64 bit halves of the hash, each in little endian order, which matches
+ * the bytes produced by other common implementations.
+ */
+final class Murmur3MessageDigest extends MessageDigest {
+  static final String ALGORITHM = "MurmurHash3-128";
+  private static final int BLOCK_LENGTH = 16;
+  private static final int DIGEST_LENGTH = 16;
+  private static final long C1 = 0x87c37b91114253d5L;
+  private static final long C2 = 0x4cf5ad432745937fL;
+
+  private final byte[] block = new byte[BLOCK_LENGTH];
+  private int blockLength;
+  private long length;
+  private long h1;
+  private long h2;
+
+  Murmur3MessageDigest() {
+    super(ALGORITHM);
+  }
+
+  @Override
+  protected int engineGetDigestLength() {
+    return DIGEST_LENGTH;
+  }
+
+  @Override
+  protected void engineUpdate(byte input) {
+    block[blockLength++] = input;
+    length++;
+    if (blockLength == BLOCK_LENGTH) {
+      mixBlock(block, 0);
+      blockLength = 0;
+    }
+  }
+
+  @Override
+  protected void engineUpdate(byte[] input, int offset, int len) {
+    length += len;
+    if (blockLength > 0) {
+      int toCopy = Math.min(BLOCK_LENGTH - blockLength, len);
+      System.arraycopy(input, offset, block, blockLength, toCopy);
+      blockLength += toCopy;
+      offset += toCopy;
+      len -= toCopy;
+      if (blockLength < BLOCK_LENGTH) {
+        return;
+      }
+      mixBlock(block, 0);
+      blockLength = 0;
+    }
+    while (len >= BLOCK_LENGTH) {
+      mixBlock(input, offset);
+      offset += BLOCK_LENGTH;
+      len -= BLOCK_LENGTH;
+    }
+    System.arraycopy(input, offset, block, 0, len);
+    blockLength = len;
+  }
+
+  @Override
+  protected byte[] engineDigest() {
+    byte[] result = new byte[DIGEST_LENGTH];
+    try {
+      engineDigest(result, 0, DIGEST_LENGTH);
+    } catch (DigestException e) {
+      throw new IllegalStateException(e);
+    }
+    return result;
+  }
+
+  @Override
+  protected int engineDigest(byte[] buf, int offset, int len) throws DigestException {
+    if (len < DIGEST_LENGTH) {
+      throw new DigestException("Buffer too short, need " + DIGEST_LENGTH + " bytes, got " + len);
+    }
+    mixTail();
+    h1 ^= length;
+    h2 ^= length;
+    h1 += h2;
+    h2 += h1;
+    h1 = fmix64(h1);
+    h2 = fmix64(h2);
+    h1 += h2;
+    h2 += h1;
+    putLongLittleEndian(buf, offset, h1);
+    putLongLittleEndian(buf, offset + 8, h2);
+    engineReset();
+    return DIGEST_LENGTH;
+  }
+
+  @Override
+  protected void engineReset() {
+    blockLength = 0;
+    length = 0;
+    h1 = 0;
+    h2 = 0;
+  }
+
+  private void mixBlock(byte[] bytes, int offset) {
+    long k1 = getLongLittleEndian(bytes, offset);
+    long k2 = getLongLittleEndian(bytes, offset + 8);
+
+    h1 ^= mixK1(k1);
+    h1 = Long.rotateLeft(h1, 27);
+    h1 += h2;
+    h1 = h1 * 5 + 0x52dce729;
+
+    h2 ^= mixK2(k2);
+    h2 = Long.rotateLeft(h2, 31);
+    h2 += h1;
+    h2 = h2 * 5 + 0x38495ab5;
+  }
+
+  private void mixTail() {
+    if (blockLength == 0) {
+      return;
+    }
+    long k1 = 0;
+    long k2 = 0;
+    for (int i = blockLength - 1; i >= 8; i--) {
+      k2 ^= (block[i] & 0xffL) << ((i - 8) * 8);
+    }
+    for (int i = Math.min(blockLength, 8) - 1; i >= 0; i--) {
+      k1 ^= (block[i] & 0xffL) << (i * 8);
+    }
+    if (blockLength > 8) {
+      h2 ^= mixK2(k2);
+    }
+    h1 ^= mixK1(k1);
+  }
+
+  private static long mixK1(long k1) {
+    k1 *= C1;
+    k1 = Long.rotateLeft(k1, 31);
+    k1 *= C2;
+    return k1;
+  }
+
+  private static long mixK2(long k2) {
+    k2 *= C2;
+    k2 = Long.rotateLeft(k2, 33);
+    k2 *= C1;
+    return k2;
+  }
+
+  private static long fmix64(long k) {
+    k ^= k >>> 33;
+    k *= 0xff51afd7ed558ccdL;
+    k ^= k >>> 33;
+    k *= 0xc4ceb9fe1a85ec53L;
+    k ^= k >>> 33;
+    return k;
+  }
+
+  private static long getLongLittleEndian(byte[] bytes, int offset) {
+    long result = 0;
+    for (int i = 7; i >= 0; i--) {
+      result = (result << 8) | (bytes[offset + i] & 0xffL);
+    }
+    return result;
+  }
+
+  private static void putLongLittleEndian(byte[] bytes, int offset, long value) {
+    for (int i = 0; i < 8; i++) {
+      bytes[offset + i] = (byte) (value >>> (i * 8));
+    }
+  }
+}
@@ -6,9 +6,9 @@ import com.bumptech.glide.load.Key;
 import com.bumptech.glide.util.LruCache;
 import com.bumptech.glide.util.Preconditions;
 import com.bumptech.glide.util.Synthetic;
-import com.bumptech.glide.util.Util;
 import com.bumptech.glide.util.pool.FactoryPools;
 import com.bumptech.glide.util.pool.StateVerifier;
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
@@ -19,28 +19,80 @@ import java.security.NoSuchAlgorithmException;
 // Public API.
 @SuppressWarnings("WeakerAccess")
 public class SafeKeyGenerator {
+  /**
+   * Hashes keys with SHA-256 into 64 character file names, the default.
+   */
+  public static final HashStrategy SHA_256 = new HashStrategy() {
+    @NonNull
+    @Override
+    public MessageDigest newDigest() {
+      try {
+        return MessageDigest.getInstance("SHA-256");
+      } catch (NoSuchAlgorithmException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    @NonNull
+    @Override
+    public String getFileNamePrefix() {
+      return "";
+    }
+  };
+
+  /**
+   * Hashes keys with the 128 bit variant of MurmurHash3, which is several times faster than
+   * {@link #SHA_256}.
+   *
+   * <p>File names are prefixed so they can't be confused with the names of entries written with
+   * {@link #SHA_256}. Unlike SHA-256, MurmurHash3 isn't collision resistant, so it's only suitable
+   * if the models used to build keys, like URLs, can't be chosen by an attacker trying to replace
+   * one cached image with another.
+   */
+  public static final HashStrategy MURMUR3_128 = new HashStrategy() {
+    @NonNull
+    @Override
+    public MessageDigest newDigest() {
+      return new Murmur3MessageDigest();
+    }
+
+    @NonNull
+    @Override
+    public String getFileNamePrefix() {
+      return "m3-";
+    }
+  };
+
+  private static final char[] HEX_CHAR_ARRAY = "0123456789abcdef".toCharArray();
+
   private final LruCache<Key, String> loadIdToSafeHash = new LruCache<>(1000);
-  private final Pools.Pool<PoolableDigestContainer> digestPool = FactoryPools.threadSafe(10,
-      new FactoryPools.Factory<PoolableDigestContainer>() {
-        @Override
-        public PoolableDigestContainer create() {
-          try {
-            return new PoolableDigestContainer(MessageDigest.getInstance("SHA-256"));
-          } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException(e);
+  private final Pools.Pool<PoolableDigestContainer> digestPool;
+
+  public SafeKeyGenerator() {
+    this(SHA_256);
+  }
+
+  /**
+   * @param hashStrategy Determines how keys are hashed into file names. Changing the strategy used
+   *                     for an existing disk cache effectively empties it because entries written
+   *                     with the previous strategy are never found.
+   */
+  public SafeKeyGenerator(@NonNull final HashStrategy hashStrategy) {
+    Preconditions.checkNotNull(hashStrategy);
+    digestPool = FactoryPools.threadSafe(10,
+        new FactoryPools.Factory<PoolableDigestContainer>() {
+          @Override
+          public PoolableDigestContainer create() {
+            return new PoolableDigestContainer(
+                hashStrategy.newDigest(), hashStrategy.getFileNamePrefix());
           }
-        }
-      });
+        });
+  }
 
   public String getSafeKey(Key key) {
-    String safeKey;
-    synchronized (loadIdToSafeHash) {
-      safeKey = loadIdToSafeHash.get(key);
-    }
+    String safeKey = loadIdToSafeHash.get(key);
     if (safeKey == null) {
       safeKey = calculateHexStringDigest(key);
-    }
-    synchronized (loadIdToSafeHash) {
       loadIdToSafeHash.put(key, safeKey);
     }
     return safeKey;
@@ -50,20 +102,69 @@ public class SafeKeyGenerator {
     PoolableDigestContainer container = Preconditions.checkNotNull(digestPool.acquire());
     try {
       key.updateDiskCacheKey(container.messageDigest);
-      // calling digest() will automatically reset()
-      return Util.sha256BytesToHex(container.messageDigest.digest());
+      return container.digestToHex();
     } finally {
       digestPool.release(container);
     }
   }
 
+  /**
+   * Determines how {@link SafeKeyGenerator} hashes {@link Key}s into file names.
+   */
+  public interface HashStrategy {
+
+    /**
+     * Returns a new digest, which will only be used by one thread at a time and is reset after
+     * each key.
+     */
+    @NonNull
+    MessageDigest newDigest();
+
+    /**
+     * Returns a string, made up of the characters {@code [a-z0-9_-]}, prepended to every file name
+     * so that file names produced by different strategies never collide.
+     *
+     * <p>File names, including the prefix and two hex characters per byte of the digest, must be at
+     * most 120 characters long.
+     */
+    @NonNull
+    String getFileNamePrefix();
+  }
+
   private static final class PoolableDigestContainer implements FactoryPools.Poolable {
 
     @Synthetic final MessageDigest messageDigest;
     private final StateVerifier stateVerifier = StateVerifier.newInstance();
+    // Reused for every key so that only the returned String is allocated.
+    private final byte[] digest;
+    private final char[] hexChars;
+    private final int prefixLength;
 
-    PoolableDigestContainer(MessageDigest messageDigest) {
+    PoolableDigestContainer(MessageDigest messageDigest, String prefix) {
       this.messageDigest = messageDigest;
+      int digestLength = messageDigest.getDigestLength();
+      Preconditions.checkArgument(digestLength > 0, "Digest must have a fixed length");
+      digest = new byte[digestLength];
+      prefixLength = prefix.length();
+      hexChars = new char[prefixLength + digestLength * 2];
+      prefix.getChars(0, prefixLength, hexChars, 0);
+    }
+
+    @Synthetic
+    String digestToHex() {
+      try {
+        // Resets the digest.
+        messageDigest.digest(digest, 0, digest.length);
+      } catch (DigestException e) {
+        throw new IllegalStateException(e);
+      }
+      int v;
+      for (int j = 0; j < digest.length; j++) {
+        v = digest[j] & 0xFF;
+        hexChars[prefixLength + j * 2] = HEX_CHAR_ARRAY[v >>> 4];
+        hexChars[prefixLength + j * 2 + 1] = HEX_CHAR_ARRAY[v & 0x0F];
+      }
+      return new String(hexChars);
     }
 
     @NonNull
@@ -0,0 +1,454 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.annotation.SuppressLint;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.util.StripedCounter;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A scan resistant in memory cache for {@link Resource}s that uses Window TinyLFU rather than LRU
+ * to pick which resources to evict.
+ *
+ * <p>New resources enter a small LRU window. Once the window is full, the least recently used
+ * resource in it is only admitted to the main cache if it has been used more often recently than
+ * the resource it would replace, as estimated by a {@link FrequencySketch}. The main cache is a
+ * segmented LRU: resources start in a probation segment and are moved to a protected segment if
+ * they're used again. A fling through a long list of resources that are each shown once only
+ * churns the window and probation segment, so resources shown over and over again, like avatars,
+ * stay in the protected segment rather than being evicted as they would be by
+ * {@link LruResourceCache}.
+ *
+ * <p>Sizes are in bytes and admission is byte size aware, a large resource that is rarely used
+ * won't evict several smaller resources that are used more often.
+ *
+ * <p>Workloads that mostly reuse resources loaded moments ago favor a large window, which behaves
+ * like LRU, and workloads with popular resources favor a small one. The window starts small and is
+ * resized by hill climbing: the hit ratio is sampled periodically and the window keeps growing or
+ * shrinking for as long as the hit ratio improves.
+ *
+ * <p>{@link #remove(Key)}, which Glide calls to check the cache for every load, doesn't wait for
+ * other threads. Changes to the order of resources are buffered and applied by whichever thread
+ * next holds the eviction lock, {@link #put(Key, Resource)} and trimming take the lock.
+ *
+ * <p>Use {@link com.bumptech.glide.GlideBuilder#setMemoryCache(MemoryCache)} to replace the
+ * default {@link LruResourceCache}:
+ *
+ * <pre>
+ *   builder.setMemoryCache(new TinyLfuResourceCache(
+ *       new MemorySizeCalculator.Builder(context).build().getMemoryCacheSize()));
+ * </pre>
+ */
+public class TinyLfuResourceCache
+    implements MemoryCache, CacheCounters, IncrementallyTrimmable {
+  // The initial window is only large enough to absorb short bursts of new resources.
+  private static final float DEFAULT_WINDOW_FRACTION = 0.05f;
+  private static final float PROTECTED_FRACTION = 0.8f;
+  // The fraction of the maximum size the window is resized by after the first sample.
+  private static final float STEP_FRACTION = 0.0625f;
+  private static final float STEP_DECAY = 0.98f;
+  // A change in hit ratio this large suggests the workload changed, so the step size is reset.
+  private static final float RESTART_THRESHOLD = 0.05f;
+  private static final int SAMPLE_MULTIPLIER = 10;
+  // Used to size the frequency sketch, larger than thumbnails, smaller than full screen images.
+  private static final int ESTIMATED_RESOURCE_SIZE_BYTES = 64 * 1024;
+
+  private final ConcurrentHashMap<Key, Node> data = new ConcurrentHashMap<>();
+  private final AtomicLong currentSize = new AtomicLong();
+  private final Queue<Node> removedNodes = new ConcurrentLinkedQueue<>();
+  private final StripedCounter hitCount = new StripedCounter();
+  private final StripedCounter missCount = new StripedCounter();
+  private final StripedCounter evictionCount = new StripedCounter();
+  private final ReentrantLock evictionLock = new ReentrantLock();
+  private final long initialMaxSize;
+  private final int samplePeriod;
+
+  // Guarded by evictionLock.
+  private final LinkedHashSet<Node> window = new LinkedHashSet<>();
+  private final LinkedHashSet<Node> probation = new LinkedHashSet<>();
+  private final LinkedHashSet<Node> protectedSegment = new LinkedHashSet<>();
+  private final Map<Key, Boolean> recentlyUsed;
+  private final FrequencySketch sketch;
+  private long maxWindowSize;
+  private long windowSize;
+  private long protectedSize;
+  private float stepSize;
+  private float previousHitRatio;
+  private long sampleStartHitCount;
+  private long sampleStartMissCount;
+
+  private volatile long maxSize;
+  private ResourceRemovedListener listener;
+
+  /**
+   * Constructor for TinyLfuResourceCache.
+   *
+   * @param size The maximum size in bytes the in memory cache can use.
+   */
+  public TinyLfuResourceCache(long size) {
+    this.initialMaxSize = size;
+    this.maxSize = size;
+    maxWindowSize = (long) (size * DEFAULT_WINDOW_FRACTION);
+    // Start by shrinking the window, most caches benefit from a small window.
+    stepSize = -STEP_FRACTION * size;
+    final int expectedEntries =
+        (int) Math.min(Integer.MAX_VALUE, size / ESTIMATED_RESOURCE_SIZE_BYTES);
+    samplePeriod = Math.max(expectedEntries, 1) * SAMPLE_MULTIPLIER;
+    sketch = new FrequencySketch(expectedEntries);
+    recentlyUsed = new LinkedHashMap<Key, Boolean>() {
+      @Override
+      protected boolean removeEldestEntry(Entry<Key, Boolean> eldest) {
+        return size() > Math.max(expectedEntries, 1);
+      }
+    };
+  }
+
+  @Override
+  public long getCurrentSize() {
+    return currentSize.get();
+  }
+
+  @Override
+  public long getMaxSize() {
+    return maxSize;
+  }
+
+  @Override
+  public void setSizeMultiplier(float multiplier) {
+    if (multiplier < 0) {
+      throw new IllegalArgumentException("Multiplier must be >= 0");
+    }
+    evictionLock.lock();
+    try {
+      long newMaxSize = Math.round(initialMaxSize * multiplier);
+      if (maxSize > 0) {
+        maxWindowSize = (long) (maxWindowSize * (newMaxSize / (double) maxSize));
+      }
+      maxSize = newMaxSize;
+      drainRemovedNodes();
+      evict();
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Nullable
+  @Override
+  public Resource<?> remove(@NonNull Key key) {
+    Node node = data.remove(key);
+    if (node == null) {
+      missCount.increment();
+      return null;
+    }
+    hitCount.increment();
+    currentSize.addAndGet(-node.size);
+    removedNodes.add(node);
+    if (evictionLock.tryLock()) {
+      try {
+        drainRemovedNodes();
+      } finally {
+        evictionLock.unlock();
+      }
+    }
+    return node.resource;
+  }
+
+  @Nullable
+  @Override
+  public Resource<?> put(@NonNull Key key, @Nullable Resource<?> resource) {
+    int size = resource == null ? 1 : resource.getSize();
+    evictionLock.lock();
+    try {
+      if (size >= maxSize) {
+        onItemEvicted(resource);
+        return null;
+      }
+      drainRemovedNodes();
+      climb();
+      sketch.increment(key);
+
+      Node node = new Node(key, resource, size);
+      Node old = data.put(key, node);
+      currentSize.addAndGet(size);
+      if (old != null) {
+        currentSize.addAndGet(-old.size);
+        unlink(old);
+      }
+      if (recentlyUsed.remove(key) != null) {
+        addToProtected(node);
+      } else {
+        node.segment = Node.WINDOW;
+        window.add(node);
+        windowSize += size;
+      }
+      evict();
+
+      if (old == null) {
+        return null;
+      }
+      if (old.resource != null && !old.resource.equals(resource)) {
+        onItemEvicted(old.resource);
+      }
+      return old.resource;
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public void setResourceRemovedListener(@NonNull ResourceRemovedListener listener) {
+    this.listener = listener;
+  }
+
+  @Override
+  public void clearMemory() {
+    trimToSize(0);
+  }
+
+  @SuppressLint("InlinedApi")
+  @Override
+  public void trimMemory(int level) {
+    if (level >= android.content.ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+      // Entering list of cached background apps
+      // Evict our entire bitmap cache
+      clearMemory();
+    } else if (level >= android.content.ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN
+        || level == android.content.ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+      // The app's UI is no longer visible, or app is in the foreground but system is running
+      // critically low on memory
+      // Evict the least valuable half of our bitmap cache
+      trimToSize(getMaxSize() / 2);
+    }
+  }
+
+  @Override
+  public long getSizeInBytes() {
+    return getCurrentSize();
+  }
+
+  @Override
+  public long getMaxSizeInBytes() {
+    return getMaxSize();
+  }
+
+  @Override
+  public void trimToSizeInBytes(long size) {
+    trimToSize(size);
+  }
+
+  private void trimToSize(long size) {
+    evictionLock.lock();
+    try {
+      drainRemovedNodes();
+      evictUntil(size);
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public long getHitCount() {
+    return hitCount.sum();
+  }
+
+  @Override
+  public long getMissCount() {
+    return missCount.sum();
+  }
+
+  @Override
+  public long getEvictionCount() {
+    return evictionCount.sum();
+  }
+
+  private void onItemEvicted(@Nullable Resource<?> resource) {
+    if (resource != null) {
+      evictionCount.increment();
+    }
+    if (listener != null && resource != null) {
+      listener.onResourceRemoved(resource);
+    }
+  }
+
+  /**
+   * Unlinks nodes removed by {@link #remove(Key)}, remembering keys for resources that were in
+   * the main cache so that they go straight to the protected segment when they're put back.
+   */
+  private void drainRemovedNodes() {
+    Node node;
+    while ((node = removedNodes.poll()) != null) {
+      if (node.segment == Node.PROBATION || node.segment == Node.PROTECTED) {
+        recentlyUsed.put(node.key, Boolean.TRUE);
+      }
+      unlink(node);
+    }
+  }
+
+  private void addToProtected(Node node) {
+    node.segment = Node.PROTECTED;
+    protectedSegment.add(node);
+    protectedSize += node.size;
+    long maxProtectedSize = (long) ((maxSize - maxWindowSize) * PROTECTED_FRACTION);
+    while (protectedSize > maxProtectedSize) {
+      Node demoted = first(protectedSegment);
+      protectedSegment.remove(demoted);
+      protectedSize -= demoted.size;
+      demoted.segment = Node.PROBATION;
+      probation.add(demoted);
+    }
+  }
+
+  /**
+   * Resizes the window once enough loads have been sampled, continuing in the same direction if
+   * the hit ratio improved since the last sample and reversing direction otherwise.
+   */
+  private void climb() {
+    long totalHits = hitCount.sum();
+    long totalMisses = missCount.sum();
+    long hits = totalHits - sampleStartHitCount;
+    long requests = hits + totalMisses - sampleStartMissCount;
+    if (requests < samplePeriod) {
+      return;
+    }
+    sampleStartHitCount = totalHits;
+    sampleStartMissCount = totalMisses;
+
+    float hitRatio = hits / (float) requests;
+    float change = hitRatio - previousHitRatio;
+    float adjustment = change >= 0 ? stepSize : -stepSize;
+    if (Math.abs(change) >= RESTART_THRESHOLD) {
+      stepSize = Math.signum(adjustment) * STEP_FRACTION * maxSize;
+    } else {
+      stepSize = STEP_DECAY * adjustment;
+    }
+    previousHitRatio = hitRatio;
+    maxWindowSize = Math.max(0, Math.min(maxSize, maxWindowSize + (long) adjustment));
+  }
+
+  private void evict() {
+    while (windowSize > maxWindowSize) {
+      Node candidate = first(window);
+      window.remove(candidate);
+      windowSize -= candidate.size;
+      candidate.segment = Node.NONE;
+      if (admit(candidate)) {
+        candidate.segment = Node.PROBATION;
+        probation.add(candidate);
+      }
+    }
+    evictUntil(maxSize);
+  }
+
+  /**
+   * Evicts resources from the main cache that are used less often than the given candidate until
+   * there's room for it, or evicts the candidate and returns false if there isn't.
+   */
+  private boolean admit(Node candidate) {
+    int candidateFrequency = -1;
+    while (currentSize.get() > maxSize) {
+      Node victim = first(probation);
+      if (victim == null) {
+        victim = first(protectedSegment);
+      }
+      if (victim == null) {
+        break;
+      }
+      if (candidateFrequency == -1) {
+        candidateFrequency = sketch.frequency(candidate.key);
+      }
+      // Ties go to the victim so that a scan of new resources can't displace existing ones.
+      if (candidateFrequency > sketch.frequency(victim.key)) {
+        evictNode(victim);
+      } else {
+        evictNode(candidate);
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void evictUntil(long size) {
+    while (currentSize.get() > size) {
+      Node victim = first(probation);
+      if (victim == null) {
+        victim = first(window);
+      }
+      if (victim == null) {
+        victim = first(protectedSegment);
+      }
+      if (victim == null) {
+        // Only removed nodes that haven't been drained yet are left.
+        drainRemovedNodes();
+        break;
+      }
+      evictNode(victim);
+    }
+  }
+
+  private void evictNode(Node node) {
+    unlink(node);
+    // The node may have been removed concurrently, in which case it's no longer ours to evict.
+    if (data.remove(node.key, node)) {
+      currentSize.addAndGet(-node.size);
+      onItemEvicted(node.resource);
+    }
+  }
+
+  private void unlink(Node node) {
+    switch (node.segment) {
+      case Node.WINDOW:
+        window.remove(node);
+        windowSize -= node.size;
+        break;
+      case Node.PROBATION:
+        probation.remove(node);
+        break;
+      case Node.PROTECTED:
+        protectedSegment.remove(node);
+        protectedSize -= node.size;
+        break;
+      default:
+        // Not linked.
+    }
+    node.segment = Node.NONE;
+  }
+
+  @Nullable
+  private static Node first(LinkedHashSet<Node> segment) {
+    Iterator<Node> iterator = segment.iterator();
+    return iterator.hasNext() ? iterator.next() : null;
+  }
+
+  /**
+   * A cached resource, compared by identity so that a resource replaced by another with the same
+   * key can be unlinked safely.
+   */
+  private static final class Node {
+    static final int NONE = 0;
+    static final int WINDOW = 1;
+    static final int PROBATION = 2;
+    static final int PROTECTED = 3;
+
+    final Key key;
+    final Resource<?> resource;
+    final int size;
+    // Guarded by evictionLock.
+    int segment = NONE;
+
+    Node(Key key, Resource<?> resource, int size) {
+      this.key = key;
+      this.resource = resource;
+      this.size = size;
+    }
+  }
+}
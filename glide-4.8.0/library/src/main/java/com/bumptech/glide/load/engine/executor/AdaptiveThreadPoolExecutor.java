@@ -0,0 +1,340 @@
+package com.bumptech.glide.load.engine.executor;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.util.Log;
+import com.bumptech.glide.util.Preconditions;
+import com.bumptech.glide.util.Synthetic;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A prioritized {@link ThreadPoolExecutor} that adds threads while its jobs spend most of their
+ * time blocked, for example on the network, and jobs wait in its queue, and removes them again
+ * when the queue is idle or jobs are bound by the CPU.
+ *
+ * <p>For each job the executor measures how long it waited in the queue, how long it ran and how
+ * much CPU time its thread used while it ran. Once per interval, on whichever thread submits or
+ * finishes a job first, it compares the jobs started and finished during the interval against the
+ * {@link Builder}'s targets:
+ *
+ * <ul>
+ *   <li>If jobs waited longer than the target and spent at least half of their time blocked, one
+ *   thread is added. Blocked threads don't compete for the CPU, so more of them increase
+ *   throughput.
+ *   <li>If the queue was empty and no job waited, or if jobs spent less than a quarter of their
+ *   time blocked and there are more threads than cores, one thread is removed.
+ * </ul>
+ *
+ * <p>The thread count never leaves the bounds given to the {@link Builder}. Every evaluation is
+ * logged if the {@link #TAG} is loggable at {@link Log#DEBUG} and reported to the {@link Listener}
+ * given to the {@link Builder}, if any, on the thread that made it.
+ *
+ * @see GlideExecutor#newAdaptiveSourceExecutor(Builder)
+ */
+public final class AdaptiveThreadPoolExecutor extends ThreadPoolExecutor {
+  public static final String TAG = "AdaptiveExecutor";
+
+  /**
+   * Notified of every evaluation made by an {@link AdaptiveThreadPoolExecutor}, including those
+   * that don't change anything.
+   */
+  public interface Listener {
+    void onEvaluated(@NonNull Decision decision);
+  }
+
+  // Jobs that spend at least this fraction of their time blocked allow more threads.
+  private static final float GROW_BLOCKED_FRACTION = 0.5f;
+  // Jobs that spend less than this fraction of their time blocked are CPU bound.
+  private static final float SHRINK_BLOCKED_FRACTION = 0.25f;
+
+  private final int minThreads;
+  private final int maxThreads;
+  private final int cores;
+  private final long intervalMillis;
+  private final long targetQueueMillis;
+  @Nullable private final Listener listener;
+  private final ConcurrentMap<Runnable, Long> queuedTimes = new ConcurrentHashMap<>();
+  private final ThreadLocal<long[]> runStartTimes = new ThreadLocal<long[]>() {
+    @Override
+    protected long[] initialValue() {
+      return new long[2];
+    }
+  };
+  private final AtomicLong lastEvaluationTime;
+  private final AtomicLong startedCount = new AtomicLong();
+  private final AtomicLong totalQueueMillis = new AtomicLong();
+  private final AtomicLong totalRunMillis = new AtomicLong();
+  private final AtomicLong totalCpuMillis = new AtomicLong();
+
+  @Synthetic
+  AdaptiveThreadPoolExecutor(Builder builder, int cores, ThreadFactory threadFactory) {
+    super(
+        clamp(builder.initialThreads, builder.minThreads, builder.maxThreads) /* corePoolSize */,
+        clamp(builder.initialThreads, builder.minThreads, builder.maxThreads) /* maximumPool */,
+        0 /* keepAliveTime */,
+        TimeUnit.MILLISECONDS,
+        new IndexedPriorityBlockingQueue<Runnable>(),
+        threadFactory);
+    this.minThreads = builder.minThreads;
+    this.maxThreads = builder.maxThreads;
+    this.cores = cores;
+    this.intervalMillis = builder.intervalMillis;
+    this.targetQueueMillis = builder.targetQueueMillis;
+    this.listener = builder.listener;
+    lastEvaluationTime = new AtomicLong(SystemClock.uptimeMillis());
+  }
+
+  @Override
+  public void execute(@NonNull Runnable command) {
+    long now = SystemClock.uptimeMillis();
+    queuedTimes.put(command, now);
+    try {
+      super.execute(command);
+    } catch (RejectedExecutionException e) {
+      queuedTimes.remove(command);
+      throw e;
+    }
+    maybeEvaluate(now);
+  }
+
+  @Override
+  protected void beforeExecute(Thread t, Runnable r) {
+    super.beforeExecute(t, r);
+    long now = SystemClock.uptimeMillis();
+    Long queuedTime = queuedTimes.remove(r);
+    if (queuedTime != null) {
+      startedCount.incrementAndGet();
+      totalQueueMillis.addAndGet(now - queuedTime);
+    }
+    long[] startTimes = runStartTimes.get();
+    startTimes[0] = now;
+    startTimes[1] = SystemClock.currentThreadTimeMillis();
+  }
+
+  @Override
+  protected void afterExecute(Runnable r, Throwable t) {
+    super.afterExecute(r, t);
+    long now = SystemClock.uptimeMillis();
+    long[] startTimes = runStartTimes.get();
+    totalRunMillis.addAndGet(now - startTimes[0]);
+    totalCpuMillis.addAndGet(SystemClock.currentThreadTimeMillis() - startTimes[1]);
+    maybeEvaluate(now);
+  }
+
+  private void maybeEvaluate(long now) {
+    long last = lastEvaluationTime.get();
+    if (now - last >= intervalMillis && lastEvaluationTime.compareAndSet(last, now)) {
+      evaluate(now);
+    }
+  }
+
+  /**
+   * Samples the jobs run since the last evaluation and adds or removes a thread if necessary.
+   *
+   * <p>Called automatically once per interval.
+   */
+  @NonNull
+  public Decision evaluate() {
+    long now = SystemClock.uptimeMillis();
+    lastEvaluationTime.set(now);
+    return evaluate(now);
+  }
+
+  private synchronized Decision evaluate(long now) {
+    long started = startedCount.getAndSet(0);
+    long queueMillis = totalQueueMillis.getAndSet(0);
+    long runMillis = totalRunMillis.getAndSet(0);
+    long cpuMillis = totalCpuMillis.getAndSet(0);
+
+    // Jobs stuck behind blocked threads haven't started, so they also count towards the wait.
+    long headWaitMillis = 0;
+    Runnable head = getQueue().peek();
+    Long headQueuedTime = head != null ? queuedTimes.get(head) : null;
+    if (headQueuedTime != null) {
+      headWaitMillis = now - headQueuedTime;
+    }
+    long meanQueueMillis =
+        Math.max(started == 0 ? 0 : queueMillis / started, headWaitMillis);
+    float blockedFraction =
+        runMillis <= 0 ? 0 : Math.max(0, Math.min(1, 1 - cpuMillis / (float) runMillis));
+    // Without finished jobs, a full queue behind busy threads is most likely waiting on I/O.
+    if (runMillis <= 0 && headWaitMillis > 0) {
+      blockedFraction = 1;
+    }
+
+    int oldThreads = getCorePoolSize();
+    int newThreads = decide(oldThreads, minThreads, maxThreads, cores, meanQueueMillis,
+        targetQueueMillis, blockedFraction, /*isQueueEmpty=*/ head == null);
+    if (newThreads > oldThreads) {
+      setMaximumPoolSize(newThreads);
+      setCorePoolSize(newThreads);
+    } else if (newThreads < oldThreads) {
+      setCorePoolSize(newThreads);
+      setMaximumPoolSize(newThreads);
+    }
+
+    Decision decision =
+        new Decision(oldThreads, newThreads, started, meanQueueMillis, blockedFraction);
+    if (Log.isLoggable(TAG, Log.DEBUG)) {
+      Log.d(TAG, decision.toString());
+    }
+    if (listener != null) {
+      listener.onEvaluated(decision);
+    }
+    return decision;
+  }
+
+  @VisibleForTesting
+  static int decide(int threads, int minThreads, int maxThreads, int cores,
+      long meanQueueMillis, long targetQueueMillis, float blockedFraction, boolean isQueueEmpty) {
+    int result = threads;
+    if (meanQueueMillis > targetQueueMillis && blockedFraction >= GROW_BLOCKED_FRACTION) {
+      result = threads + 1;
+    } else if ((isQueueEmpty && meanQueueMillis == 0)
+        || (blockedFraction < SHRINK_BLOCKED_FRACTION && threads > cores)) {
+      result = threads - 1;
+    }
+    return clamp(result, minThreads, maxThreads);
+  }
+
+  private static int clamp(int value, int min, int max) {
+    return Math.max(min, Math.min(max, value));
+  }
+
+  /**
+   * The result of one evaluation by an {@link AdaptiveThreadPoolExecutor}.
+   */
+  public static final class Decision {
+    private final int oldThreadCount;
+    private final int newThreadCount;
+    private final long startedCount;
+    private final long meanQueueMillis;
+    private final float blockedFraction;
+
+    @Synthetic
+    Decision(int oldThreadCount, int newThreadCount, long startedCount, long meanQueueMillis,
+        float blockedFraction) {
+      this.oldThreadCount = oldThreadCount;
+      this.newThreadCount = newThreadCount;
+      this.startedCount = startedCount;
+      this.meanQueueMillis = meanQueueMillis;
+      this.blockedFraction = blockedFraction;
+    }
+
+    /** Returns the number of threads before this evaluation. */
+    public int getOldThreadCount() {
+      return oldThreadCount;
+    }
+
+    /** Returns the number of threads after this evaluation. */
+    public int getNewThreadCount() {
+      return newThreadCount;
+    }
+
+    /** Returns the number of jobs that started running during the last interval. */
+    public long getStartedCount() {
+      return startedCount;
+    }
+
+    /**
+     * Returns how long jobs waited in the queue during the last interval, or how long the job at
+     * the head of the queue has been waiting, whichever is longer.
+     */
+    public long getMeanQueueMillis() {
+      return meanQueueMillis;
+    }
+
+    /**
+     * Returns the fraction of the time jobs that finished during the last interval spent not using
+     * the CPU, between 0 and 1.
+     */
+    public float getBlockedFraction() {
+      return blockedFraction;
+    }
+
+    @Override
+    public String toString() {
+      return "Decision{"
+          + "oldThreadCount=" + oldThreadCount
+          + ", newThreadCount=" + newThreadCount
+          + ", startedCount=" + startedCount
+          + ", meanQueueMillis=" + meanQueueMillis
+          + ", blockedFraction=" + blockedFraction
+          + '}';
+    }
+  }
+
+  /**
+   * Configures {@link AdaptiveThreadPoolExecutor}s, built with
+   * {@link GlideExecutor#newAdaptiveSourceExecutor(Builder)}.
+   */
+  public static final class Builder {
+    static final long DEFAULT_INTERVAL_MILLIS = 1000;
+    static final long DEFAULT_TARGET_QUEUE_MILLIS = 100;
+
+    @Synthetic int initialThreads = GlideExecutor.calculateBestThreadCount();
+    @Synthetic int minThreads = 1;
+    @Synthetic int maxThreads =
+        Math.max(initialThreads, 2 * RuntimeCompat.availableProcessors());
+    @Synthetic long intervalMillis = DEFAULT_INTERVAL_MILLIS;
+    @Synthetic long targetQueueMillis = DEFAULT_TARGET_QUEUE_MILLIS;
+    @Nullable @Synthetic Listener listener;
+
+    /**
+     * Sets the smallest and largest number of threads, defaults to one and twice the number of
+     * cores.
+     */
+    public Builder setThreadBounds(int minThreads, int maxThreads) {
+      Preconditions.checkArgument(minThreads >= 1, "Minimum threads must be >= 1");
+      Preconditions.checkArgument(
+          maxThreads >= minThreads, "Maximum threads must be >= minimum threads");
+      this.minThreads = minThreads;
+      this.maxThreads = maxThreads;
+      return this;
+    }
+
+    /**
+     * Sets the number of threads to start with, defaults to
+     * {@link GlideExecutor#calculateBestThreadCount()}. Clamped to the thread bounds.
+     */
+    public Builder setInitialThreads(int initialThreads) {
+      Preconditions.checkArgument(initialThreads >= 1, "Initial threads must be >= 1");
+      this.initialThreads = initialThreads;
+      return this;
+    }
+
+    /**
+     * Sets how often the thread count is evaluated, defaults to every second.
+     */
+    public Builder setIntervalMillis(long intervalMillis) {
+      Preconditions.checkArgument(intervalMillis > 0, "Interval must be > 0");
+      this.intervalMillis = intervalMillis;
+      return this;
+    }
+
+    /**
+     * Sets how long jobs may wait in the queue before a thread is added, defaults to 100ms.
+     */
+    public Builder setTargetQueueMillis(long targetQueueMillis) {
+      Preconditions.checkArgument(targetQueueMillis >= 0, "Target must be >= 0");
+      this.targetQueueMillis = targetQueueMillis;
+      return this;
+    }
+
+    /**
+     * Sets a listener notified of every evaluation, for example to log or chart decisions.
+     */
+    public Builder setListener(@Nullable Listener listener) {
+      this.listener = listener;
+      return this;
+    }
+  }
+}
@@ -8,6 +8,7 @@ import android.util.Log;
 import com.bumptech.glide.util.Synthetic;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -51,6 +52,23 @@ public final class GlideExecutor implements ExecutorService {
 
   private static final String ANIMATION_EXECUTOR_NAME = "animation";
 
+  /**
+   * The default thread name prefix for executors used to fetch data when decoding has its own
+   * executor.
+   */
+  private static final String DEFAULT_FETCH_EXECUTOR_NAME = "fetch";
+
+  /**
+   * The default thread name prefix for executors used to decode/transform/encode data that has
+   * already been fetched.
+   */
+  private static final String DEFAULT_DECODE_EXECUTOR_NAME = "decode";
+
+  /**
+   * Fetch threads spend most of their time blocked on I/O, so they're allowed to outnumber cores.
+   */
+  private static final int FETCH_THREADS_PER_DECODE_THREAD = 2;
+
   /**
    * The default keep alive time for threads in our cached thread pools in milliseconds.
    */
@@ -127,7 +145,7 @@ public final class GlideExecutor implements ExecutorService {
             threadCount /* maximumPoolSize 默认位1*/,
             0 /* keepAliveTime */,
             TimeUnit.MILLISECONDS,
-            new PriorityBlockingQueue<Runnable>(),
+            new IndexedPriorityBlockingQueue<Runnable>(),
             new DefaultThreadFactory(name, uncaughtThrowableStrategy, true)));
   }
 
@@ -196,7 +214,7 @@ public final class GlideExecutor implements ExecutorService {
             threadCount /* maximumPoolSize */,
             0 /* keepAliveTime 线程保活时间为 0 ，因为都是核心线程所以肯定都是存活的*/,
             TimeUnit.MILLISECONDS,
-            new PriorityBlockingQueue<Runnable>(),
+            new IndexedPriorityBlockingQueue<Runnable>(),
             new DefaultThreadFactory(name, uncaughtThrowableStrategy, false)));
   }
 
@@ -260,13 +278,97 @@ public final class GlideExecutor implements ExecutorService {
             threadCount,//最大线程数 最大为2 最小为1
             KEEP_ALIVE_TIME_MS,
             TimeUnit.MILLISECONDS,
-            new PriorityBlockingQueue<Runnable>(),
+            new IndexedPriorityBlockingQueue<Runnable>(),
             new DefaultThreadFactory(
                 ANIMATION_EXECUTOR_NAME,
                 uncaughtThrowableStrategy,
                 true)));
   }
 
+  /**
+   * Returns a new fixed thread pool with twice the thread count returned from
+   * {@link #calculateBestThreadCount()}, the {@link #DEFAULT_FETCH_EXECUTOR_NAME} thread name
+   * prefix, and the
+   * {@link com.bumptech.glide.load.engine.executor.GlideExecutor.UncaughtThrowableStrategy#DEFAULT}
+   * uncaught throwable strategy.
+   *
+   * <p>Intended to be used as the source executor alongside an executor from
+   * {@link #newDecodeExecutor()}, in which case it only fetches data and allows network operations
+   * on its threads.
+   */
+  public static GlideExecutor newFetchExecutor() {
+    return newSourceExecutor(
+        FETCH_THREADS_PER_DECODE_THREAD * calculateBestThreadCount(),
+        DEFAULT_FETCH_EXECUTOR_NAME,
+        UncaughtThrowableStrategy.DEFAULT);
+  }
+
+  /**
+   * Returns a new fixed thread pool with the default thread count returned from
+   * {@link #calculateBestThreadCount()}, the {@link #DEFAULT_DECODE_EXECUTOR_NAME} thread name
+   * prefix, and the
+   * {@link com.bumptech.glide.load.engine.executor.GlideExecutor.UncaughtThrowableStrategy#DEFAULT}
+   * uncaught throwable strategy.
+   *
+   * <p>Decode executors only decode, transform and encode data that has already been fetched.
+   */
+  public static GlideExecutor newDecodeExecutor() {
+    return newDecodeExecutor(calculateBestThreadCount(), UncaughtThrowableStrategy.DEFAULT);
+  }
+
+  /**
+   * Returns a new fixed thread pool with the given thread count and
+   * {@link UncaughtThrowableStrategy} to use to decode, transform and encode data that has already
+   * been fetched.
+   */
+  // Public API.
+  @SuppressWarnings("WeakerAccess")
+  public static GlideExecutor newDecodeExecutor(
+      int threadCount, UncaughtThrowableStrategy uncaughtThrowableStrategy) {
+    return new GlideExecutor(
+        new ThreadPoolExecutor(
+            threadCount /* corePoolSize */,
+            threadCount /* maximumPoolSize */,
+            0 /* keepAliveTime */,
+            TimeUnit.MILLISECONDS,
+            new IndexedPriorityBlockingQueue<Runnable>(),
+            new DefaultThreadFactory(
+                DEFAULT_DECODE_EXECUTOR_NAME, uncaughtThrowableStrategy, false)));
+  }
+
+  /**
+   * Returns a new {@link AdaptiveThreadPoolExecutor} with the default bounds and targets, the
+   * {@link #DEFAULT_SOURCE_EXECUTOR_NAME} thread name prefix, and the
+   * {@link com.bumptech.glide.load.engine.executor.GlideExecutor.UncaughtThrowableStrategy#DEFAULT}
+   * uncaught throwable strategy.
+   *
+   * <p>Source executors allow network operations on their threads.
+   */
+  public static GlideExecutor newAdaptiveSourceExecutor() {
+    return newAdaptiveSourceExecutor(new AdaptiveThreadPoolExecutor.Builder());
+  }
+
+  /**
+   * Returns a new {@link AdaptiveThreadPoolExecutor} that adds and removes threads as configured
+   * by the given {@link AdaptiveThreadPoolExecutor.Builder}, with the
+   * {@link #DEFAULT_SOURCE_EXECUTOR_NAME} thread name prefix, and the
+   * {@link com.bumptech.glide.load.engine.executor.GlideExecutor.UncaughtThrowableStrategy#DEFAULT}
+   * uncaught throwable strategy.
+   *
+   * <p>Source executors allow network operations on their threads.
+   */
+  // Public API.
+  @SuppressWarnings("WeakerAccess")
+  public static GlideExecutor newAdaptiveSourceExecutor(
+      @NonNull AdaptiveThreadPoolExecutor.Builder builder) {
+    return new GlideExecutor(
+        new AdaptiveThreadPoolExecutor(
+            builder,
+            RuntimeCompat.availableProcessors(),
+            new DefaultThreadFactory(
+                DEFAULT_SOURCE_EXECUTOR_NAME, UncaughtThrowableStrategy.DEFAULT, false)));
+  }
+
   @VisibleForTesting
   GlideExecutor(ExecutorService delegate) {
     this.delegate = delegate;
@@ -277,6 +379,26 @@ public final class GlideExecutor implements ExecutorService {
     delegate.execute(command);
   }
 
+  /**
+   * Runs {@code change}, which may change how {@code command} compares to other queued runnables,
+   * and moves {@code command} to its new position in the queue if it's waiting to run.
+   *
+   * <p>{@code change} must not block. It's always run, even if {@code command} isn't queued, so
+   * that the new ordering applies the next time {@code command} is executed.
+   *
+   * @return {@code true} if {@code command} was waiting to run in this executor's queue.
+   */
+  public boolean reorder(@NonNull Runnable command, @NonNull Runnable change) {
+    if (delegate instanceof ThreadPoolExecutor) {
+      BlockingQueue<Runnable> queue = ((ThreadPoolExecutor) delegate).getQueue();
+      if (queue instanceof IndexedPriorityBlockingQueue) {
+        return ((IndexedPriorityBlockingQueue<Runnable>) queue).reorder(command, change);
+      }
+    }
+    change.run();
+    return false;
+  }
+
   @NonNull
   @Override
   public Future<?> submit(@NonNull Runnable task) {
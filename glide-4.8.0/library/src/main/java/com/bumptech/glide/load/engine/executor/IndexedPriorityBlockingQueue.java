@@ -0,0 +1,347 @@
+package com.bumptech.glide.load.engine.executor;
+
+import android.support.annotation.NonNull;
+import java.util.AbstractQueue;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An unbounded {@link BlockingQueue} with the same ordering as
+ * {@link java.util.concurrent.PriorityBlockingQueue} that can also move an element whose ordering
+ * has changed with {@link #reorder(Object, Runnable)}.
+ *
+ * <p>The queue is a binary heap indexed by element identity, so reordering an element takes
+ * logarithmic time rather than the linear time of removing it and adding it back. Elements must
+ * implement {@link Comparable}.
+ *
+ * <p>Each element may only be in the queue once at a time. Iterators are weakly consistent and
+ * iterate over a snapshot of the queue.
+ *
+ * @param <E> The type of element.
+ */
+final class IndexedPriorityBlockingQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notEmpty = lock.newCondition();
+  private final Map<E, Integer> indices = new IdentityHashMap<>();
+  private Object[] heap = new Object[INITIAL_CAPACITY];
+  private int size;
+
+  /**
+   * Runs {@code change}, which may change how {@code element} compares to other elements, and then
+   * moves {@code element} to its new position if it's in the queue.
+   *
+   * <p>{@code change} is run while holding the queue's lock so that other threads never compare
+   * elements while their ordering is changing. It must not block or access the queue.
+   *
+   * @return {@code true} if {@code element} was in the queue.
+   */
+  boolean reorder(@NonNull E element, @NonNull Runnable change) {
+    lock.lock();
+    try {
+      change.run();
+      Integer index = indices.get(element);
+      if (index == null) {
+        return false;
+      }
+      if (!siftUp(index, element)) {
+        siftDown(index, element);
+      }
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean offer(@NonNull E e) {
+    if (e == null) {
+      throw new NullPointerException();
+    }
+    lock.lock();
+    try {
+      if (indices.containsKey(e)) {
+        throw new IllegalArgumentException("Element is already queued: " + e);
+      }
+      if (size == heap.length) {
+        heap = Arrays.copyOf(heap, size * 2);
+      }
+      size++;
+      siftUp(size - 1, e);
+      notEmpty.signal();
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void put(@NonNull E e) {
+    offer(e);
+  }
+
+  @Override
+  public boolean offer(E e, long timeout, @NonNull TimeUnit unit) {
+    return offer(e);
+  }
+
+  @Override
+  public E poll() {
+    lock.lock();
+    try {
+      return dequeue();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @NonNull
+  @Override
+  public E take() throws InterruptedException {
+    lock.lockInterruptibly();
+    try {
+      E result;
+      while ((result = dequeue()) == null) {
+        notEmpty.await();
+      }
+      return result;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public E poll(long timeout, @NonNull TimeUnit unit) throws InterruptedException {
+    long nanos = unit.toNanos(timeout);
+    lock.lockInterruptibly();
+    try {
+      E result;
+      while ((result = dequeue()) == null && nanos > 0) {
+        nanos = notEmpty.awaitNanos(nanos);
+      }
+      return result;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public E peek() {
+    lock.lock();
+    try {
+      return size == 0 ? null : (E) heap[0];
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int size() {
+    lock.lock();
+    try {
+      return size;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int remainingCapacity() {
+    return Integer.MAX_VALUE;
+  }
+
+  @SuppressWarnings("SuspiciousMethodCalls")
+  @Override
+  public boolean remove(Object o) {
+    lock.lock();
+    try {
+      Integer index = indices.get(o);
+      if (index == null) {
+        return false;
+      }
+      removeAt(index);
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @SuppressWarnings("SuspiciousMethodCalls")
+  @Override
+  public boolean contains(Object o) {
+    lock.lock();
+    try {
+      return indices.containsKey(o);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    lock.lock();
+    try {
+      Arrays.fill(heap, 0, size, null);
+      indices.clear();
+      size = 0;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int drainTo(@NonNull Collection<? super E> c) {
+    return drainTo(c, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public int drainTo(@NonNull Collection<? super E> c, int maxElements) {
+    if (c == this) {
+      throw new IllegalArgumentException();
+    }
+    lock.lock();
+    try {
+      int count = 0;
+      E e;
+      while (count < maxElements && (e = dequeue()) != null) {
+        c.add(e);
+        count++;
+      }
+      return count;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @NonNull
+  @Override
+  public Object[] toArray() {
+    lock.lock();
+    try {
+      return Arrays.copyOf(heap, size);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @NonNull
+  @Override
+  public Iterator<E> iterator() {
+    return new Snapshot(toArray());
+  }
+
+  @SuppressWarnings("unchecked")
+  private E dequeue() {
+    if (size == 0) {
+      return null;
+    }
+    E result = (E) heap[0];
+    removeAt(0);
+    return result;
+  }
+
+  @SuppressWarnings("unchecked")
+  private void removeAt(int index) {
+    indices.remove(heap[index]);
+    size--;
+    E last = (E) heap[size];
+    heap[size] = null;
+    if (index != size) {
+      if (!siftUp(index, last)) {
+        siftDown(index, last);
+      }
+    }
+  }
+
+  /**
+   * Moves {@code e}, which belongs at {@code index}, towards the root until it's no smaller than
+   * its parent. Returns {@code true} if it moved.
+   */
+  @SuppressWarnings("unchecked")
+  private boolean siftUp(int index, E e) {
+    Comparable<? super E> key = (Comparable<? super E>) e;
+    int start = index;
+    while (index > 0) {
+      int parent = (index - 1) >>> 1;
+      E parentElement = (E) heap[parent];
+      if (key.compareTo(parentElement) >= 0) {
+        break;
+      }
+      setAt(index, parentElement);
+      index = parent;
+    }
+    setAt(index, e);
+    return index != start;
+  }
+
+  /** Moves {@code e}, which belongs at {@code index}, away from the root until it's in order. */
+  @SuppressWarnings("unchecked")
+  private void siftDown(int index, E e) {
+    Comparable<? super E> key = (Comparable<? super E>) e;
+    int half = size >>> 1;
+    while (index < half) {
+      int child = 2 * index + 1;
+      E childElement = (E) heap[child];
+      int right = child + 1;
+      if (right < size && ((Comparable<? super E>) childElement).compareTo((E) heap[right]) > 0) {
+        child = right;
+        childElement = (E) heap[child];
+      }
+      if (key.compareTo(childElement) <= 0) {
+        break;
+      }
+      setAt(index, childElement);
+      index = child;
+    }
+    setAt(index, e);
+  }
+
+  private void setAt(int index, E e) {
+    heap[index] = e;
+    indices.put(e, index);
+  }
+
+  private final class Snapshot implements Iterator<E> {
+    private final Object[] elements;
+    private int cursor;
+    private int lastReturned = -1;
+
+    Snapshot(Object[] elements) {
+      this.elements = elements;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return cursor < elements.length;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public E next() {
+      if (cursor >= elements.length) {
+        throw new NoSuchElementException();
+      }
+      lastReturned = cursor;
+      return (E) elements[cursor++];
+    }
+
+    @Override
+    public void remove() {
+      if (lastReturned < 0) {
+        throw new IllegalStateException();
+      }
+      IndexedPriorityBlockingQueue.this.remove(elements[lastReturned]);
+      lastReturned = -1;
+    }
+  }
+}
@@ -0,0 +1,205 @@
+package com.bumptech.glide.load.engine.prefill;
+
+import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts how often {@link Bitmap}s of each size and {@link Bitmap.Config} are requested from a
+ * {@link com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool} so that the most common types
+ * can be pre-filled the next time the app starts.
+ *
+ * <p>Only the first {@link #MAX_TRACKED_TYPES} distinct types are counted so that apps that load
+ * into views of many different sizes don't grow the histogram without bound. Counts read from a
+ * previous session are halved so that sizes the app no longer uses fade out over a few sessions.
+ *
+ * <p>This class is thread safe.
+ */
+public final class BitmapDemandHistogram {
+  @VisibleForTesting
+  static final int MAX_TRACKED_TYPES = 64;
+  private static final int VERSION = 1;
+
+  private final ConcurrentMap<Type, AtomicInteger> counts = new ConcurrentHashMap<>();
+
+  /** Records a single request for a {@link Bitmap} with the given attributes. */
+  public void record(int width, int height, @Nullable Bitmap.Config config) {
+    add(width, height, config, 1);
+  }
+
+  private void add(int width, int height, @Nullable Bitmap.Config config, int delta) {
+    if (width <= 0 || height <= 0 || delta <= 0) {
+      return;
+    }
+    Type type = new Type(width, height, config);
+    AtomicInteger count = counts.get(type);
+    if (count == null) {
+      if (counts.size() >= MAX_TRACKED_TYPES) {
+        return;
+      }
+      AtomicInteger newCount = new AtomicInteger();
+      count = counts.putIfAbsent(type, newCount);
+      if (count == null) {
+        count = newCount;
+      }
+    }
+    count.addAndGet(delta);
+  }
+
+  /**
+   * Returns builders for up to {@code maxTypes} of the most requested types, weighted by how often
+   * each was requested, in descending order.
+   */
+  @NonNull
+  public List<PreFillType.Builder> getMostRequested(int maxTypes) {
+    List<Map.Entry<Type, Integer>> entries = getSortedEntries();
+    int size = Math.min(maxTypes, entries.size());
+    List<PreFillType.Builder> result = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      Map.Entry<Type, Integer> entry = entries.get(i);
+      Type type = entry.getKey();
+      result.add(
+          new PreFillType.Builder(type.width, type.height)
+              .setConfig(type.config)
+              .setWeight(entry.getValue()));
+    }
+    return result;
+  }
+
+  /**
+   * Writes up to {@code maxTypes} of the most requested types and their counts to the given
+   * stream.
+   */
+  public void writeTo(@NonNull OutputStream os, int maxTypes) throws IOException {
+    List<Map.Entry<Type, Integer>> entries = getSortedEntries();
+    int size = Math.min(maxTypes, entries.size());
+    DataOutputStream out = new DataOutputStream(os);
+    out.writeInt(VERSION);
+    out.writeInt(size);
+    for (int i = 0; i < size; i++) {
+      Map.Entry<Type, Integer> entry = entries.get(i);
+      Type type = entry.getKey();
+      out.writeInt(type.width);
+      out.writeInt(type.height);
+      out.writeUTF(type.config == null ? "" : type.config.name());
+      out.writeInt(entry.getValue());
+    }
+    out.flush();
+  }
+
+  /**
+   * Adds half of each count written by {@link #writeTo(OutputStream, int)} in a previous session
+   * to this histogram.
+   *
+   * <p>Types whose {@link Bitmap.Config} isn't available on this version of Android are ignored.
+   *
+   * @throws IOException If the stream can't be read or wasn't written by this class.
+   */
+  public void readFrom(@NonNull InputStream is) throws IOException {
+    DataInputStream in = new DataInputStream(is);
+    int version = in.readInt();
+    if (version != VERSION) {
+      throw new IOException("Unexpected version: " + version);
+    }
+    int size = in.readInt();
+    if (size < 0) {
+      throw new IOException("Unexpected size: " + size);
+    }
+    for (int i = 0; i < size; i++) {
+      int width = in.readInt();
+      int height = in.readInt();
+      String configName = in.readUTF();
+      int count = in.readInt() / 2;
+
+      Bitmap.Config config;
+      try {
+        config = configName.isEmpty() ? null : Bitmap.Config.valueOf(configName);
+      } catch (IllegalArgumentException e) {
+        continue;
+      }
+      add(width, height, config, count);
+    }
+  }
+
+  private List<Map.Entry<Type, Integer>> getSortedEntries() {
+    List<Map.Entry<Type, Integer>> entries = new ArrayList<>(counts.size());
+    for (Map.Entry<Type, AtomicInteger> entry : counts.entrySet()) {
+      entries.add(new SnapshotEntry(entry.getKey(), entry.getValue().get()));
+    }
+    Collections.sort(entries, new Comparator<Map.Entry<Type, Integer>>() {
+      @Override
+      public int compare(Map.Entry<Type, Integer> lhs, Map.Entry<Type, Integer> rhs) {
+        return rhs.getValue().compareTo(lhs.getValue());
+      }
+    });
+    return entries;
+  }
+
+  private static final class SnapshotEntry implements Map.Entry<Type, Integer> {
+    private final Type type;
+    private final Integer count;
+
+    SnapshotEntry(Type type, Integer count) {
+      this.type = type;
+      this.count = count;
+    }
+
+    @Override
+    public Type getKey() {
+      return type;
+    }
+
+    @Override
+    public Integer getValue() {
+      return count;
+    }
+
+    @Override
+    public Integer setValue(Integer value) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  private static final class Type {
+    final int width;
+    final int height;
+    @Nullable final Bitmap.Config config;
+
+    Type(int width, int height, @Nullable Bitmap.Config config) {
+      this.width = width;
+      this.height = height;
+      this.config = config;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (o instanceof Type) {
+        Type other = (Type) o;
+        return width == other.width && height == other.height && config == other.config;
+      }
+      return false;
+    }
+
+    @Override
+    public int hashCode() {
+      int result = width;
+      result = 31 * result + height;
+      result = 31 * result + (config != null ? config.hashCode() : 0);
+      return result;
+    }
+  }
+}
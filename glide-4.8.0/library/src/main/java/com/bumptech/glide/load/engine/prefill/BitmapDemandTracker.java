@@ -0,0 +1,167 @@
+package com.bumptech.glide.load.engine.prefill;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
+import android.util.Log;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.util.Synthetic;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Records which {@link android.graphics.Bitmap}s are requested from Glide's {@link BitmapPool},
+ * persists the most common sizes and uses them to pre-fill the pool with a
+ * {@link BitmapPreFiller} the next time the app starts, so that the first decodes after a cold
+ * start can re-use {@link android.graphics.Bitmap}s rather than allocating them.
+ *
+ * <p>Reads and writes happen on the given {@link Executor}. Pre-filling starts the first time the
+ * main thread is idle after the previous session's histogram has been read.
+ */
+public final class BitmapDemandTracker {
+  /** The name of the file in the app's cache directory that Glide persists the histogram to. */
+  public static final String DEFAULT_FILE_NAME = "glide_bitmap_demand";
+  private static final String TAG = "BitmapDemand";
+  /** The maximum number of sizes that are persisted and pre-filled. */
+  @VisibleForTesting
+  static final int MAX_PRE_FILL_TYPES = 8;
+
+  private final BitmapDemandHistogram histogram = new BitmapDemandHistogram();
+  private final Handler mainHandler = new Handler(Looper.getMainLooper());
+  private final File file;
+  private final Executor executor;
+
+  /**
+   * Constructor for BitmapDemandTracker.
+   *
+   * @param file     The file to persist the histogram to.
+   * @param executor The executor to read and write the file on.
+   */
+  public BitmapDemandTracker(@NonNull File file, @NonNull Executor executor) {
+    this.file = file;
+    this.executor = executor;
+  }
+
+  /**
+   * Returns a {@link BitmapPool} that records requests in this tracker and delegates to the given
+   * {@link BitmapPool}.
+   */
+  @NonNull
+  public BitmapPool wrap(@NonNull BitmapPool bitmapPool) {
+    return new DemandRecordingBitmapPool(bitmapPool, histogram);
+  }
+
+  @NonNull
+  BitmapDemandHistogram getHistogram() {
+    return histogram;
+  }
+
+  /**
+   * Reads the histogram persisted by a previous session, if any, and pre-fills the most common
+   * sizes with the given {@link BitmapPreFiller} once the main thread is idle.
+   *
+   * <p>The {@link BitmapPreFiller} should use the {@link BitmapPool} given to
+   * {@link #wrap(BitmapPool)} so that pre-filled {@link android.graphics.Bitmap}s aren't recorded.
+   */
+  public void preFillWhenIdle(@NonNull final BitmapPreFiller preFiller) {
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        if (!read()) {
+          return;
+        }
+        List<PreFillType.Builder> builders = histogram.getMostRequested(MAX_PRE_FILL_TYPES);
+        if (builders.isEmpty()) {
+          return;
+        }
+        final PreFillType.Builder[] toPreFill =
+            builders.toArray(new PreFillType.Builder[builders.size()]);
+        mainHandler.post(new Runnable() {
+          @Override
+          public void run() {
+            Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+              @Override
+              public boolean queueIdle() {
+                preFiller.preFill(toPreFill);
+                return false;
+              }
+            });
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * Persists the most common sizes requested so far so that they can be pre-filled the next time
+   * the app starts.
+   */
+  public void save() {
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        write();
+      }
+    });
+  }
+
+  @Synthetic
+  boolean read() {
+    if (!file.exists()) {
+      return false;
+    }
+    InputStream is = null;
+    try {
+      is = new FileInputStream(file);
+      histogram.readFrom(is);
+      return true;
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Failed to read bitmap demand from: " + file, e);
+      }
+      return false;
+    } finally {
+      closeQuietly(is);
+    }
+  }
+
+  @Synthetic
+  void write() {
+    File temp = new File(file.getPath() + ".tmp");
+    OutputStream os = null;
+    try {
+      os = new FileOutputStream(temp);
+      histogram.writeTo(os, MAX_PRE_FILL_TYPES);
+      os.close();
+      os = null;
+      if (!temp.renameTo(file) && Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Failed to rename " + temp + " to " + file);
+      }
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Failed to write bitmap demand to: " + file, e);
+      }
+    } finally {
+      closeQuietly(os);
+    }
+  }
+
+  private static void closeQuietly(Closeable closeable) {
+    if (closeable != null) {
+      try {
+        closeable.close();
+      } catch (IOException e) {
+        // Ignored.
+      }
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package com.bumptech.glide.load.engine.prefill;
+
+import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.engine.cache.CacheCounters;
+
+/**
+ * A {@link BitmapPool} that records the attributes of every requested {@link Bitmap} in a
+ * {@link BitmapDemandHistogram} and otherwise delegates to another {@link BitmapPool}.
+ */
+public final class DemandRecordingBitmapPool implements BitmapPool, CacheCounters {
+  private final BitmapPool wrapped;
+  private final BitmapDemandHistogram histogram;
+
+  public DemandRecordingBitmapPool(
+      @NonNull BitmapPool wrapped, @NonNull BitmapDemandHistogram histogram) {
+    this.wrapped = wrapped;
+    this.histogram = histogram;
+  }
+
+  /** Returns the {@link BitmapPool} that holds the {@link Bitmap}s. */
+  @NonNull
+  public BitmapPool getWrapped() {
+    return wrapped;
+  }
+
+  @Override
+  public long getMaxSize() {
+    return wrapped.getMaxSize();
+  }
+
+  @Override
+  public void setSizeMultiplier(float sizeMultiplier) {
+    wrapped.setSizeMultiplier(sizeMultiplier);
+  }
+
+  @Override
+  public void put(Bitmap bitmap) {
+    wrapped.put(bitmap);
+  }
+
+  @NonNull
+  @Override
+  public Bitmap get(int width, int height, Bitmap.Config config) {
+    histogram.record(width, height, config);
+    return wrapped.get(width, height, config);
+  }
+
+  @NonNull
+  @Override
+  public Bitmap getDirty(int width, int height, Bitmap.Config config) {
+    histogram.record(width, height, config);
+    return wrapped.getDirty(width, height, config);
+  }
+
+  @Override
+  public void clearMemory() {
+    wrapped.clearMemory();
+  }
+
+  @Override
+  public void trimMemory(int level) {
+    wrapped.trimMemory(level);
+  }
+
+  @Override
+  public long getHitCount() {
+    return wrapped instanceof CacheCounters ? ((CacheCounters) wrapped).getHitCount() : 0;
+  }
+
+  @Override
+  public long getMissCount() {
+    return wrapped instanceof CacheCounters ? ((CacheCounters) wrapped).getMissCount() : 0;
+  }
+
+  @Override
+  public long getEvictionCount() {
+    return wrapped instanceof CacheCounters ? ((CacheCounters) wrapped).getEvictionCount() : 0;
+  }
+}
@@ -0,0 +1,178 @@
+package com.bumptech.glide.load.model;
+
+import android.support.annotation.NonNull;
+import android.util.Log;
+import com.bumptech.glide.load.Encoder;
+import com.bumptech.glide.load.Option;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * An {@link Encoder} that compresses data with {@link Deflater} before writing it to the disk
+ * cache, if {@link #COMPRESS} is set for the request.
+ *
+ * <p>Worthwhile for sources that are stored uncompressed or poorly compressed, like BMPs or raw
+ * pixel data loaded from {@code byte[]}s, so that more of them fit in the disk cache. Already
+ * compressed formats, like JPEG, shrink little if at all and only pay the extra CPU cost.
+ *
+ * <p>The default encoders for the same data class are registered first, so compressing encoders
+ * must be added with {@link com.bumptech.glide.Registry#prepend(Class, Encoder)}:
+ *
+ * <pre>
+ *   registry
+ *       .prepend(InputStream.class, DeflateEncoder.forStreams(glide.getArrayPool()))
+ *       .prepend(ByteBuffer.class, DeflateEncoder.forByteBuffers(glide.getArrayPool()));
+ * </pre>
+ *
+ * <p>Compressed files are read back through {@link DeflatedFileLoader}, which Glide registers by
+ * default. Data for requests that set {@link #COMPRESS} is cached under different keys than data
+ * for requests that don't, so only requests that set it read compressed entries or pay to check
+ * whether an entry is compressed.
+ *
+ * @param <Data> The type of data written to the disk cache.
+ */
+public class DeflateEncoder<Data> implements Encoder<Data> {
+  /**
+   * A boolean option that, if set to true, compresses data written to the disk cache.
+   *
+   * <p>Defaults to false, in which case data is written as is.
+   */
+  public static final Option<Boolean> COMPRESS =
+      Option.memory("com.bumptech.glide.load.model.DeflateEncoder.Compress", false);
+
+  /**
+   * An integer option between 0 and 9 that is used as the {@link Deflater} compression level.
+   *
+   * <p>Defaults to {@link Deflater#BEST_SPEED}, higher levels compress slightly better but are
+   * several times slower.
+   */
+  public static final Option<Integer> COMPRESSION_LEVEL = Option.memory(
+      "com.bumptech.glide.load.model.DeflateEncoder.CompressionLevel", Deflater.BEST_SPEED);
+
+  private static final String TAG = "DeflateEncoder";
+  private static final int DEFLATER_BUFFER_SIZE_BYTES = 8 * 1024;
+
+  private final Encoder<Data> uncompressedEncoder;
+  private final DataWriter<Data> dataWriter;
+  private final ArrayPool byteArrayPool;
+
+  /**
+   * @param uncompressedEncoder Used to write the data if {@link #COMPRESS} isn't set.
+   * @param dataWriter          Used to write the data to the compressing stream.
+   */
+  // Public API.
+  @SuppressWarnings("WeakerAccess")
+  public DeflateEncoder(@NonNull Encoder<Data> uncompressedEncoder,
+      @NonNull DataWriter<Data> dataWriter, @NonNull ArrayPool byteArrayPool) {
+    this.uncompressedEncoder = uncompressedEncoder;
+    this.dataWriter = dataWriter;
+    this.byteArrayPool = byteArrayPool;
+  }
+
+  /** Returns an encoder for {@link InputStream}s that falls back to {@link StreamEncoder}. */
+  @NonNull
+  public static DeflateEncoder<InputStream> forStreams(@NonNull ArrayPool byteArrayPool) {
+    return new DeflateEncoder<>(
+        new StreamEncoder(byteArrayPool), new StreamWriter(), byteArrayPool);
+  }
+
+  /** Returns an encoder for {@link ByteBuffer}s that falls back to {@link ByteBufferEncoder}. */
+  @NonNull
+  public static DeflateEncoder<ByteBuffer> forByteBuffers(@NonNull ArrayPool byteArrayPool) {
+    return new DeflateEncoder<>(new ByteBufferEncoder(), new ByteBufferWriter(), byteArrayPool);
+  }
+
+  @Override
+  public boolean encode(@NonNull Data data, @NonNull File file, @NonNull Options options) {
+    if (!options.get(COMPRESS)) {
+      return uncompressedEncoder.encode(data, file, options);
+    }
+    byte[] buffer = byteArrayPool.get(ArrayPool.STANDARD_BUFFER_SIZE_BYTES, byte[].class);
+    Deflater deflater = new Deflater(options.get(COMPRESSION_LEVEL));
+    boolean success = false;
+    FileOutputStream fos = null;
+    try {
+      fos = new FileOutputStream(file);
+      DeflatedFile.writeHeader(fos.getChannel());
+      DeflaterOutputStream os =
+          new DeflaterOutputStream(fos, deflater, DEFLATER_BUFFER_SIZE_BYTES);
+      dataWriter.write(data, os, buffer);
+      os.finish();
+      long uncompressedLength = deflater.getBytesRead();
+      if (uncompressedLength <= Integer.MAX_VALUE) {
+        DeflatedFile.writeUncompressedLength(fos.getChannel(), (int) uncompressedLength);
+      }
+      fos.close();
+      success = true;
+      if (Log.isLoggable(TAG, Log.VERBOSE)) {
+        Log.v(TAG, "Compressed " + uncompressedLength + " bytes to " + file.length() + " bytes");
+      }
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Failed to compress data", e);
+      }
+    } finally {
+      if (fos != null) {
+        try {
+          fos.close();
+        } catch (IOException e) {
+          // Do nothing.
+        }
+      }
+      deflater.end();
+      byteArrayPool.put(buffer);
+    }
+    return success;
+  }
+
+  /**
+   * Writes a specific type of data to an {@link OutputStream}.
+   *
+   * @param <Data> The type of data that can be written.
+   */
+  public interface DataWriter<Data> {
+    /**
+     * Writes all of the given data, using {@code buffer} as scratch space if necessary.
+     */
+    void write(@NonNull Data data, @NonNull OutputStream os, @NonNull byte[] buffer)
+        throws IOException;
+  }
+
+  private static final class StreamWriter implements DataWriter<InputStream> {
+    @Override
+    public void write(@NonNull InputStream data, @NonNull OutputStream os, @NonNull byte[] buffer)
+        throws IOException {
+      int read;
+      while ((read = data.read(buffer)) != -1) {
+        os.write(buffer, 0, read);
+      }
+    }
+  }
+
+  private static final class ByteBufferWriter implements DataWriter<ByteBuffer> {
+    @Override
+    public void write(@NonNull ByteBuffer data, @NonNull OutputStream os, @NonNull byte[] buffer)
+        throws IOException {
+      // Like ByteBufferEncoder, writes from the start of the buffer, but leaves the position of
+      // the given buffer unchanged.
+      ByteBuffer source = (ByteBuffer) data.duplicate().position(0);
+      if (source.hasArray()) {
+        os.write(source.array(), source.arrayOffset(), source.remaining());
+        return;
+      }
+      while (source.hasRemaining()) {
+        int length = Math.min(source.remaining(), buffer.length);
+        source.get(buffer, 0, length);
+        os.write(buffer, 0, length);
+      }
+    }
+  }
+}
@@ -0,0 +1,125 @@
+package com.bumptech.glide.load.model;
+
+import android.support.annotation.NonNull;
+import com.bumptech.glide.util.Preconditions;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A model for a {@link File} written by {@link DeflateEncoder}, which must be inflated before it
+ * can be decoded.
+ *
+ * <p>Files start with a header made up of a four byte magic number and the uncompressed length of
+ * the data as a big endian int, or -1 if the length isn't known, followed by the data as a zlib
+ * stream.
+ */
+// Public API.
+@SuppressWarnings("WeakerAccess")
+public final class DeflatedFile {
+  static final int HEADER_LENGTH = 8;
+  static final int UNKNOWN_LENGTH = -1;
+  // "GLZ" followed by the format version.
+  private static final int MAGIC = 0x474C5A01;
+
+  private final File file;
+
+  public DeflatedFile(@NonNull File file) {
+    this.file = Preconditions.checkNotNull(file);
+  }
+
+  @NonNull
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * Returns true if the given file starts with the header written by {@link DeflateEncoder}.
+   *
+   * <p>Reads at most {@link #HEADER_LENGTH} bytes and returns false if the file can't be read.
+   */
+  public static boolean isDeflated(@NonNull File file) {
+    if (file.length() < HEADER_LENGTH) {
+      return false;
+    }
+    InputStream is = null;
+    try {
+      is = new FileInputStream(file);
+      return readInt(is) == MAGIC;
+    } catch (IOException e) {
+      return false;
+    } finally {
+      if (is != null) {
+        try {
+          is.close();
+        } catch (IOException e) {
+          // Ignored.
+        }
+      }
+    }
+  }
+
+  /** Writes a header with an unknown length, the length can be filled in later. */
+  static void writeHeader(FileChannel channel) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+    header.putInt(MAGIC).putInt(UNKNOWN_LENGTH).flip();
+    while (header.hasRemaining()) {
+      channel.write(header);
+    }
+  }
+
+  /** Replaces the length in a header written by {@link #writeHeader(FileChannel)}. */
+  static void writeUncompressedLength(FileChannel channel, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(4);
+    buffer.putInt(length).flip();
+    long position = 4;
+    while (buffer.hasRemaining()) {
+      position += channel.write(buffer, position);
+    }
+  }
+
+  /**
+   * Reads the header from the given stream, leaving it positioned at the start of the compressed
+   * data, and returns the uncompressed length or {@link #UNKNOWN_LENGTH}.
+   */
+  static int readHeader(InputStream is) throws IOException {
+    if (readInt(is) != MAGIC) {
+      throw new IOException("Not a deflated file");
+    }
+    return readInt(is);
+  }
+
+  private static int readInt(InputStream is) throws IOException {
+    int result = 0;
+    for (int i = 0; i < 4; i++) {
+      int read = is.read();
+      if (read == -1) {
+        throw new IOException("Unexpected end of file");
+      }
+      result = (result << 8) | read;
+    }
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o instanceof DeflatedFile) {
+      DeflatedFile other = (DeflatedFile) o;
+      return file.equals(other.file);
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    return file.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return "DeflatedFile{file=" + file + "}";
+  }
+}
@@ -0,0 +1,247 @@
+package com.bumptech.glide.load.model;
+
+import android.support.annotation.NonNull;
+import android.util.Log;
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.signature.ObjectKey;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Loads data from {@link DeflatedFile}s written by {@link DeflateEncoder}, inflating it as it's
+ * read.
+ *
+ * @param <Data> The type of data loaded from the given {@link DeflatedFile} ({@link InputStream}
+ *               or {@link ByteBuffer}).
+ */
+public class DeflatedFileLoader<Data> implements ModelLoader<DeflatedFile, Data> {
+  private static final String TAG = "DeflatedFileLoader";
+  private static final int INFLATER_BUFFER_SIZE_BYTES = 8 * 1024;
+
+  private final Opener<Data> opener;
+
+  // Public API.
+  @SuppressWarnings("WeakerAccess")
+  public DeflatedFileLoader(Opener<Data> opener) {
+    this.opener = opener;
+  }
+
+  @Override
+  public LoadData<Data> buildLoadData(@NonNull DeflatedFile model, int width, int height,
+      @NonNull Options options) {
+    return new LoadData<>(new ObjectKey(model), new DeflatedFileFetcher<>(model, opener));
+  }
+
+  @Override
+  public boolean handles(@NonNull DeflatedFile model) {
+    return true;
+  }
+
+  /**
+   * Allows opening a specific type of data from a {@link DeflatedFile}.
+   *
+   * @param <Data> The type of data that can be opened.
+   */
+  public interface Opener<Data> {
+    Data open(DeflatedFile file) throws IOException;
+    void close(Data data) throws IOException;
+    Class<Data> getDataClass();
+  }
+
+  private static final class DeflatedFileFetcher<Data> implements DataFetcher<Data> {
+    private final DeflatedFile file;
+    private final Opener<Data> opener;
+    private Data data;
+
+    DeflatedFileFetcher(DeflatedFile file, Opener<Data> opener) {
+      this.file = file;
+      this.opener = opener;
+    }
+
+    @Override
+    public void loadData(@NonNull Priority priority, @NonNull DataCallback<? super Data> callback) {
+      try {
+        data = opener.open(file);
+      } catch (IOException e) {
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+          Log.d(TAG, "Failed to open deflated file", e);
+        }
+        callback.onLoadFailed(e);
+        return;
+      }
+      callback.onDataReady(data);
+    }
+
+    @Override
+    public void cleanup() {
+      if (data != null) {
+        try {
+          opener.close(data);
+        } catch (IOException e) {
+          // Ignored.
+        }
+      }
+    }
+
+    @Override
+    public void cancel() {
+      // Do nothing.
+    }
+
+    @NonNull
+    @Override
+    public Class<Data> getDataClass() {
+      return opener.getDataClass();
+    }
+
+    @NonNull
+    @Override
+    public DataSource getDataSource() {
+      return DataSource.LOCAL;
+    }
+  }
+
+  /**
+   * Base factory for loading data from {@link DeflatedFile}s.
+   *
+   * @param <Data> The type of data that will be loaded for a given {@link DeflatedFile}.
+   */
+  public static class Factory<Data> implements ModelLoaderFactory<DeflatedFile, Data> {
+    private final Opener<Data> opener;
+
+    public Factory(Opener<Data> opener) {
+      this.opener = opener;
+    }
+
+    @NonNull
+    @Override
+    public final ModelLoader<DeflatedFile, Data> build(
+        @NonNull MultiModelLoaderFactory multiFactory) {
+      return new DeflatedFileLoader<>(opener);
+    }
+
+    @Override
+    public final void teardown() {
+      // Do nothing.
+    }
+  }
+
+  /**
+   * Factory for loading {@link InputStream}s that inflate {@link DeflatedFile}s as they're read.
+   */
+  public static class StreamFactory extends Factory<InputStream> {
+    public StreamFactory() {
+      super(new Opener<InputStream>() {
+        @Override
+        public InputStream open(DeflatedFile file) throws IOException {
+          InputStream is = openStream(file);
+          return new InflaterInputStream(is, new Inflater(), INFLATER_BUFFER_SIZE_BYTES) {
+            @Override
+            public void close() throws IOException {
+              try {
+                super.close();
+              } finally {
+                // InflaterInputStream only ends Inflaters that it creates.
+                inf.end();
+              }
+            }
+          };
+        }
+
+        @Override
+        public void close(InputStream inputStream) throws IOException {
+          inputStream.close();
+        }
+
+        @Override
+        public Class<InputStream> getDataClass() {
+          return InputStream.class;
+        }
+      });
+    }
+  }
+
+  /**
+   * Factory for loading {@link ByteBuffer}s containing the entire inflated contents of
+   * {@link DeflatedFile}s.
+   */
+  public static class ByteBufferFactory extends Factory<ByteBuffer> {
+    public ByteBufferFactory() {
+      super(new Opener<ByteBuffer>() {
+        @Override
+        public ByteBuffer open(DeflatedFile file) throws IOException {
+          return inflate(file);
+        }
+
+        @Override
+        public void close(ByteBuffer byteBuffer) {
+          // Do nothing.
+        }
+
+        @Override
+        public Class<ByteBuffer> getDataClass() {
+          return ByteBuffer.class;
+        }
+      });
+    }
+  }
+
+  /**
+   * Opens the data as an {@link InputStream} and returns it after reading the header.
+   */
+  static InputStream openStream(DeflatedFile file) throws IOException {
+    InputStream is = new BufferedInputStream(new FileInputStream(file.getFile()));
+    try {
+      DeflatedFile.readHeader(is);
+    } catch (IOException e) {
+      is.close();
+      throw e;
+    }
+    return is;
+  }
+
+  /** Inflates the entire file into a heap {@link ByteBuffer}. */
+  static ByteBuffer inflate(DeflatedFile file) throws IOException {
+    InputStream is = new FileInputStream(file.getFile());
+    Inflater inflater = new Inflater();
+    try {
+      int length = DeflatedFile.readHeader(is);
+      InputStream inflating = new InflaterInputStream(is, inflater, INFLATER_BUFFER_SIZE_BYTES);
+      if (length != DeflatedFile.UNKNOWN_LENGTH) {
+        byte[] result = new byte[length];
+        int offset = 0;
+        int read;
+        while (offset < length && (read = inflating.read(result, offset, length - offset)) != -1) {
+          offset += read;
+        }
+        if (offset != length) {
+          throw new IOException("Expected " + length + " bytes, but only inflated " + offset);
+        }
+        return ByteBuffer.wrap(result);
+      }
+      ByteArrayOutputStream os = new ByteArrayOutputStream();
+      byte[] buffer = new byte[INFLATER_BUFFER_SIZE_BYTES];
+      int read;
+      while ((read = inflating.read(buffer)) != -1) {
+        os.write(buffer, 0, read);
+      }
+      return ByteBuffer.wrap(os.toByteArray());
+    } finally {
+      inflater.end();
+      try {
+        is.close();
+      } catch (IOException e) {
+        // Ignored.
+      }
+    }
+  }
+}
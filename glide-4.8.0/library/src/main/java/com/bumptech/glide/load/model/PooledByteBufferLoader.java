@@ -0,0 +1,227 @@
+package com.bumptech.glide.load.model;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.util.Log;
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.engine.bitmap_recycle.DirectByteBufferPool;
+import com.bumptech.glide.util.Synthetic;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A wrapper that reads the {@link InputStream}s loaded by another {@link ModelLoader}, typically a
+ * network loader, into direct {@link ByteBuffer}s from a {@link DirectByteBufferPool} so that the
+ * encoded image is staged outside of the Java heap.
+ *
+ * <p>Each buffer is returned to the pool in {@link DataFetcher#cleanup()}, after the data has been
+ * written to the disk cache or decoded. Only register this loader for models whose decoders don't
+ * keep a reference to the {@link ByteBuffer} after decoding. Animated GIFs do, for example, so
+ * they must either be loaded with {@link com.bumptech.glide.RequestManager#asBitmap()} or from a
+ * model this loader isn't registered for.
+ *
+ * <p>For example, to stage images loaded from urls in the pool set with
+ * {@link com.bumptech.glide.GlideBuilder#setDirectByteBufferPool(DirectByteBufferPool)}, in
+ * {@link com.bumptech.glide.module.AppGlideModule#registerComponents}:
+ *
+ * <pre>
+ * {@code
+ * registry.prepend(GlideUrl.class, ByteBuffer.class,
+ *     new PooledByteBufferLoader.Factory<>(GlideUrl.class, glide.getDirectByteBufferPool()));
+ * }
+ * </pre>
+ *
+ * @param <Model> The type of model.
+ */
+public class PooledByteBufferLoader<Model> implements ModelLoader<Model, ByteBuffer> {
+  private static final String TAG = "PooledByteBufferLoader";
+  // 16 Kb
+  private static final int BUFFER_SIZE = 16384;
+  private static final AtomicReference<byte[]> BUFFER_REF = new AtomicReference<>();
+
+  private final ModelLoader<Model, InputStream> streamLoader;
+  private final DirectByteBufferPool pool;
+
+  // Public API.
+  @SuppressWarnings("WeakerAccess")
+  public PooledByteBufferLoader(
+      @NonNull ModelLoader<Model, InputStream> streamLoader, @NonNull DirectByteBufferPool pool) {
+    this.streamLoader = streamLoader;
+    this.pool = pool;
+  }
+
+  @Nullable
+  @Override
+  public LoadData<ByteBuffer> buildLoadData(@NonNull Model model, int width, int height,
+      @NonNull Options options) {
+    LoadData<InputStream> streamData = streamLoader.buildLoadData(model, width, height, options);
+    if (streamData == null) {
+      return null;
+    }
+    return new LoadData<>(
+        streamData.sourceKey,
+        streamData.alternateKeys,
+        new PooledByteBufferFetcher(streamData.fetcher, pool));
+  }
+
+  @Override
+  public boolean handles(@NonNull Model model) {
+    return streamLoader.handles(model);
+  }
+
+  /**
+   * Reads the given stream into a direct {@link ByteBuffer} from the given pool, without copying
+   * the data into a {@code byte[]} the size of the stream on the Java heap.
+   *
+   * <p>The returned buffer's position is zero and its limit is the number of bytes read. It must be
+   * returned to the pool with {@link DirectByteBufferPool#put(ByteBuffer)} once it's no longer
+   * used. If reading fails, the buffer is returned to the pool before this method throws.
+   */
+  @VisibleForTesting
+  @NonNull
+  static ByteBuffer fromStream(@NonNull InputStream stream, @NonNull DirectByteBufferPool pool)
+      throws IOException {
+    byte[] buffer = BUFFER_REF.getAndSet(null);
+    if (buffer == null) {
+      buffer = new byte[BUFFER_SIZE];
+    }
+
+    ByteBuffer result = pool.get(Math.max(BUFFER_SIZE, stream.available()));
+    result.limit(result.capacity());
+    boolean success = false;
+    try {
+      int n;
+      while ((n = stream.read(buffer)) >= 0) {
+        if (result.remaining() < n) {
+          ByteBuffer larger = pool.get(Math.max(result.capacity() * 2, result.position() + n));
+          larger.limit(larger.capacity());
+          result.flip();
+          larger.put(result);
+          pool.put(result);
+          result = larger;
+        }
+        result.put(buffer, 0, n);
+      }
+      success = true;
+    } finally {
+      BUFFER_REF.set(buffer);
+      if (!success) {
+        pool.put(result);
+      }
+    }
+
+    result.flip();
+    return result;
+  }
+
+  /**
+   * Factory for {@link PooledByteBufferLoader}s that wrap the {@link InputStream} loader
+   * registered for the given model class.
+   *
+   * @param <Model> The type of model.
+   */
+  public static class Factory<Model> implements ModelLoaderFactory<Model, ByteBuffer> {
+    private final Class<Model> modelClass;
+    private final DirectByteBufferPool pool;
+
+    public Factory(@NonNull Class<Model> modelClass, @NonNull DirectByteBufferPool pool) {
+      this.modelClass = modelClass;
+      this.pool = pool;
+    }
+
+    @NonNull
+    @Override
+    public ModelLoader<Model, ByteBuffer> build(@NonNull MultiModelLoaderFactory multiFactory) {
+      return new PooledByteBufferLoader<>(multiFactory.build(modelClass, InputStream.class), pool);
+    }
+
+    @Override
+    public void teardown() {
+      // Do nothing.
+    }
+  }
+
+  private static final class PooledByteBufferFetcher
+      implements DataFetcher<ByteBuffer>, DataFetcher.DataCallback<InputStream> {
+    private final DataFetcher<InputStream> streamFetcher;
+    private final DirectByteBufferPool pool;
+    @Nullable private DataCallback<? super ByteBuffer> callback;
+    @Nullable private ByteBuffer buffer;
+
+    @Synthetic
+    @SuppressWarnings("WeakerAccess")
+    PooledByteBufferFetcher(DataFetcher<InputStream> streamFetcher, DirectByteBufferPool pool) {
+      this.streamFetcher = streamFetcher;
+      this.pool = pool;
+    }
+
+    @Override
+    public void loadData(@NonNull Priority priority,
+        @NonNull DataCallback<? super ByteBuffer> callback) {
+      this.callback = callback;
+      streamFetcher.loadData(priority, this);
+    }
+
+    @Override
+    public void onDataReady(@Nullable InputStream data) {
+      DataCallback<? super ByteBuffer> callback = this.callback;
+      if (callback == null) {
+        return;
+      }
+      if (data == null) {
+        callback.onDataReady(null);
+        return;
+      }
+      try {
+        buffer = fromStream(data, pool);
+      } catch (IOException e) {
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+          Log.d(TAG, "Failed to read stream into pooled buffer", e);
+        }
+        callback.onLoadFailed(e);
+        return;
+      }
+      callback.onDataReady(buffer);
+    }
+
+    @Override
+    public void onLoadFailed(@NonNull Exception e) {
+      if (callback != null) {
+        callback.onLoadFailed(e);
+      }
+    }
+
+    @Override
+    public void cleanup() {
+      streamFetcher.cleanup();
+      callback = null;
+      if (buffer != null) {
+        pool.put(buffer);
+        buffer = null;
+      }
+    }
+
+    @Override
+    public void cancel() {
+      streamFetcher.cancel();
+    }
+
+    @NonNull
+    @Override
+    public Class<ByteBuffer> getDataClass() {
+      return ByteBuffer.class;
+    }
+
+    @NonNull
+    @Override
+    public DataSource getDataSource() {
+      return streamFetcher.getDataSource();
+    }
+  }
+}
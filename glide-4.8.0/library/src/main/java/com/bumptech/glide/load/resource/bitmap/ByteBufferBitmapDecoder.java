@@ -5,9 +5,7 @@ import android.support.annotation.NonNull;
 import com.bumptech.glide.load.Options;
 import com.bumptech.glide.load.ResourceDecoder;
 import com.bumptech.glide.load.engine.Resource;
-import com.bumptech.glide.util.ByteBufferUtil;
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.ByteBuffer;
 
 /**
@@ -30,10 +28,8 @@ public class ByteBufferBitmapDecoder implements ResourceDecoder<ByteBuffer, Bitm
   public Resource<Bitmap> decode(@NonNull ByteBuffer source, int width, int height,
       @NonNull Options options)
       throws IOException {
-    //ByteBuffer 转为 InputStream
-    InputStream is = ByteBufferUtil.toStream(source);
     //调用 downsampler 的 decode 方法 会返回一个 Resource<Bitmap>
     //这个方法里 的 Bitmap是经过 缩放旋转（如果有需要） 过的，但是没有进行变换
-    return downsampler.decode(is, width, height, options);
+    return downsampler.decode(source, width, height, options);
   }
 }
@@ -20,6 +20,7 @@ import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
 import com.bumptech.glide.load.resource.bitmap.DownsampleStrategy.SampleSizeRounding;
 import com.bumptech.glide.request.RequestOptions;
 import com.bumptech.glide.request.target.Target;
+import com.bumptech.glide.util.ByteBufferUtil;
 import com.bumptech.glide.util.LogTime;
 import com.bumptech.glide.util.Preconditions;
 import com.bumptech.glide.util.Util;
@@ -167,6 +168,27 @@ public final class Downsampler {
     return decode(is, outWidth, outHeight, options, EMPTY_CALLBACKS);
   }
 
+  /**
+   * Returns a Bitmap decoded from the given {@link ByteBuffer} that is rotated to match any EXIF
+   * data present in the buffer and that is downsampled according to the given dimensions and any
+   * provided  {@link com.bumptech.glide.load.resource.bitmap.DownsampleStrategy} option.
+   *
+   * <p>The image's type and orientation are parsed directly from the buffer, so buffers that are
+   * memory mapped from a file, like those returned for cached data, are only read through a stream
+   * by {@link BitmapFactory} itself.
+   *
+   * @see #decode(InputStream, int, int, Options, DecodeCallbacks)
+   */
+  public Resource<Bitmap> decode(ByteBuffer buffer, int requestedWidth, int requestedHeight,
+      Options options) throws IOException {
+    // Duplicates share the buffer's contents but leave its position untouched.
+    int orientation =
+        ImageHeaderParserUtils.getOrientation(parsers, buffer.duplicate(), byteArrayPool);
+    ImageType imageType = ImageHeaderParserUtils.getType(parsers, buffer.duplicate());
+    return decode(ByteBufferUtil.toStream(buffer), requestedWidth, requestedHeight, options,
+        EMPTY_CALLBACKS, imageType, orientation);
+  }
+
   /**
    * Returns a Bitmap decoded from the given {@link InputStream} that is rotated to match any EXIF
    * data present in the stream and that is downsampled according to the given dimensions and any
@@ -191,9 +213,21 @@ public final class Downsampler {
    * @return A new bitmap containing the image from the given InputStream, or recycle if recycle is
    * not null.
    */
-  @SuppressWarnings({"resource", "deprecation"})
   public Resource<Bitmap> decode(InputStream is, int requestedWidth, int requestedHeight,
       Options options, DecodeCallbacks callbacks) throws IOException {
+    return decode(is, requestedWidth, requestedHeight, options, callbacks, null /*imageType*/,
+        ImageHeaderParser.UNKNOWN_ORIENTATION);
+  }
+
+  /**
+   * @param imageType   The type of the image if it has already been parsed, or null to parse it
+   *                    from {@code is}.
+   * @param orientation The orientation of the image if {@code imageType} is not null.
+   */
+  @SuppressWarnings({"resource", "deprecation"})
+  private Resource<Bitmap> decode(InputStream is, int requestedWidth, int requestedHeight,
+      Options options, DecodeCallbacks callbacks, @Nullable ImageType imageType, int orientation)
+      throws IOException {
     Preconditions.checkArgument(is.markSupported(), "You must provide an InputStream that supports"
         + " mark()");
 
@@ -211,7 +245,7 @@ public final class Downsampler {
       //解码出合适尺寸的 Bitamp 并进行了 旋转和缩放
       Bitmap result = decodeFromWrappedStreams(is, bitmapFactoryOptions,
           downsampleStrategy, decodeFormat, isHardwareConfigAllowed, requestedWidth,
-          requestedHeight, fixBitmapToRequestedDimensions, callbacks);
+          requestedHeight, fixBitmapToRequestedDimensions, callbacks, imageType, orientation);
       //封装为 BitmapResource 进行返回
       return BitmapResource.obtain(result, bitmapPool);
     } finally {
@@ -224,7 +258,8 @@ public final class Downsampler {
       BitmapFactory.Options options, DownsampleStrategy downsampleStrategy,
       DecodeFormat decodeFormat, boolean isHardwareConfigAllowed, int requestedWidth,
       int requestedHeight, boolean fixBitmapToRequestedDimensions,
-      DecodeCallbacks callbacks) throws IOException {
+      DecodeCallbacks callbacks, @Nullable ImageType imageType, int orientation)
+      throws IOException {
     long startTime = LogTime.getLogTime();
 
     int[] sourceDimensions = getDimensions(is, options, callbacks, bitmapPool);
@@ -240,7 +275,9 @@ public final class Downsampler {
       isHardwareConfigAllowed = false;
     }
 
-    int orientation = ImageHeaderParserUtils.getOrientation(parsers, is, byteArrayPool);
+    if (imageType == null) {
+      orientation = ImageHeaderParserUtils.getOrientation(parsers, is, byteArrayPool);
+    }
     int degreesToRotate = TransformationUtils.getExifOrientationDegrees(orientation);
     boolean isExifOrientationRequired = TransformationUtils.isExifOrientationRequired(orientation);
 
@@ -248,7 +285,9 @@ public final class Downsampler {
     int targetHeight = requestedHeight == Target.SIZE_ORIGINAL ? sourceHeight : requestedHeight;
 
     //获取图片类型 GIF or PNG  or JPEG or WEBP or 其他
-    ImageType imageType = ImageHeaderParserUtils.getType(parsers, is, byteArrayPool);
+    if (imageType == null) {
+      imageType = ImageHeaderParserUtils.getType(parsers, is, byteArrayPool);
+    }
 
     //处理缩放
     calculateScaling(
@@ -265,7 +304,7 @@ public final class Downsampler {
         options);
     //对配置进行调整
     calculateConfig(
-        is,
+        imageType,
         decodeFormat,
         isHardwareConfigAllowed,
         isExifOrientationRequired,
@@ -516,7 +555,7 @@ public final class Downsampler {
 
   @SuppressWarnings("deprecation")
   private void calculateConfig(
-      InputStream is,
+      ImageType imageType,
       DecodeFormat format,
       boolean isHardwareConfigAllowed,
       boolean isExifOrientationRequired,
@@ -541,16 +580,7 @@ public final class Downsampler {
       return;
     }
 
-    boolean hasAlpha = false;
-    try {
-      hasAlpha = ImageHeaderParserUtils.getType(parsers, is, byteArrayPool).hasAlpha();
-    } catch (IOException e) {
-      if (Log.isLoggable(TAG, Log.DEBUG)) {
-        Log.d(TAG, "Cannot determine whether the image has alpha or not from header"
-            + ", format " + format, e);
-      }
-    }
-
+    boolean hasAlpha = imageType.hasAlpha();
     optionsWithScaling.inPreferredConfig =
         hasAlpha ? Bitmap.Config.ARGB_8888 : Bitmap.Config.RGB_565;
     if (optionsWithScaling.inPreferredConfig == Config.RGB_565) {
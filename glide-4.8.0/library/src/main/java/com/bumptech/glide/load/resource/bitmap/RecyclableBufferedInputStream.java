@@ -20,6 +20,7 @@ package com.bumptech.glide.load.resource.bitmap;
 import android.support.annotation.NonNull;
 import android.support.annotation.VisibleForTesting;
 import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import com.bumptech.glide.util.ByteCopyCounter;
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -142,6 +143,7 @@ public class RecyclableBufferedInputStream extends FilterInputStream {
     if (markpos == -1 || pos - markpos >= marklimit) {
       // Mark position not put or exceeded readlimit
       int result = localIn.read(localBuf);
+      ByteCopyCounter.record(result);
       if (result > 0) {
         markpos = -1;
         pos = 0;
@@ -178,6 +180,7 @@ public class RecyclableBufferedInputStream extends FilterInputStream {
     pos -= markpos;
     count = markpos = 0;
     int bytesread = localIn.read(localBuf, pos, localBuf.length - pos);
+    ByteCopyCounter.record(bytesread);
     count = bytesread <= 0 ? pos : pos + bytesread;
     return bytesread;
   }
@@ -307,6 +310,7 @@ public class RecyclableBufferedInputStream extends FilterInputStream {
       // simply read the bytes directly bypassing the buffer.
       if (markpos == -1 && required >= localBuf.length) {
         read = localIn.read(buffer, offset, required);
+        ByteCopyCounter.record(read);
         if (read == -1) {
           return required == byteCount ? -1 : byteCount - required;
         }
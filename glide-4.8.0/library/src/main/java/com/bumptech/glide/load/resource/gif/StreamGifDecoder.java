@@ -9,6 +9,7 @@ import com.bumptech.glide.load.Options;
 import com.bumptech.glide.load.ResourceDecoder;
 import com.bumptech.glide.load.engine.Resource;
 import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import com.bumptech.glide.util.ByteCopyCounter;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -59,6 +60,7 @@ public class StreamGifDecoder implements ResourceDecoder<InputStream, GifDrawabl
       byte[] data = new byte[bufferSize];
       while ((nRead = is.read(data)) != -1) {
         buffer.write(data, 0, nRead);
+        ByteCopyCounter.record(nRead);
       }
       buffer.flush();
     } catch (IOException e) {
@@ -67,6 +69,7 @@ public class StreamGifDecoder implements ResourceDecoder<InputStream, GifDrawabl
       }
       return null;
     }
+    ByteCopyCounter.record(buffer.size());
     return buffer.toByteArray();
   }
 }
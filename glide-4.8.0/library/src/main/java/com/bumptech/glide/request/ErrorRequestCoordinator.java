@@ -1,13 +1,16 @@
 package com.bumptech.glide.request;
 
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import com.bumptech.glide.Priority;
 
 /**
  * Runs a single primary {@link Request} until it completes and then a fallback error request only
  * if the single primary request fails.
  */
 public final class ErrorRequestCoordinator implements RequestCoordinator,
-    Request {
+    Request,
+    Reprioritizable {
 
   @Nullable
   private final RequestCoordinator parent;
@@ -30,6 +33,19 @@ public final class ErrorRequestCoordinator implements RequestCoordinator,
     }
   }
 
+  /**
+   * Changes the priority of both the primary and the error request.
+   */
+  @Override
+  public void setPriority(@NonNull Priority priority) {
+    if (primary instanceof Reprioritizable) {
+      ((Reprioritizable) primary).setPriority(priority);
+    }
+    if (error instanceof Reprioritizable) {
+      ((Reprioritizable) error).setPriority(priority);
+    }
+  }
+
   @Override
   public void clear() {
     primary.clear();
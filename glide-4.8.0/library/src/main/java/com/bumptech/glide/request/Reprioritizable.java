@@ -0,0 +1,20 @@
+package com.bumptech.glide.request;
+
+import android.support.annotation.NonNull;
+import com.bumptech.glide.Priority;
+
+/**
+ * A {@link Request} whose {@link Priority} can be changed after it's started.
+ *
+ * @see com.bumptech.glide.RequestManager#setPriority(com.bumptech.glide.request.target.Target,
+ * Priority)
+ */
+public interface Reprioritizable {
+
+  /**
+   * Changes the priority of this request, including the priority of any load it's waiting for.
+   *
+   * <p>Must be called on the main thread.
+   */
+  void setPriority(@NonNull Priority priority);
+}
@@ -63,6 +63,7 @@ public class RequestOptions implements Cloneable {
   private static final int USE_UNLIMITED_SOURCE_GENERATORS_POOL = 1 << 18;
   private static final int ONLY_RETRIEVE_FROM_CACHE = 1 << 19;
   private static final int USE_ANIMATION_POOL = 1 << 20;
+  private static final int TIME_TO_LIVE = 1 << 21;
 
   @Nullable
   private static RequestOptions skipMemoryCacheTrueOptions;
@@ -87,6 +88,7 @@ public class RequestOptions implements Cloneable {
   private DiskCacheStrategy diskCacheStrategy = DiskCacheStrategy.AUTOMATIC;
   @NonNull
   private Priority priority = Priority.NORMAL;
+  private long timeToLiveMs = RequestOptions.UNSET;
   @Nullable
   private Drawable errorPlaceholder;
   private int errorId;
@@ -378,6 +380,16 @@ public class RequestOptions implements Cloneable {
     return new RequestOptions().timeout(timeout);
   }
 
+  /**
+   * Returns a {@link RequestOptions} object with {@link #timeToLive(long)} set.
+   */
+  @SuppressWarnings("WeakerAccess") // Public API
+  @NonNull
+  @CheckResult
+  public static RequestOptions timeToLiveOf(@IntRange(from = 0) long timeToLiveMs) {
+    return new RequestOptions().timeToLive(timeToLiveMs);
+  }
+
   /**
    * Returns a {@link com.bumptech.glide.request.RequestOptions} with {@link
    * #encodeQuality(int)} called with the given quality.
@@ -1016,6 +1028,37 @@ public class RequestOptions implements Cloneable {
     return set(HttpGlideUrlLoader.TIMEOUT, timeoutMs);
   }
 
+  /**
+   * Sets how long the load may wait for an executor after it's started before it's dropped
+   * instead of fetching data.
+   *
+   * <p>Within a {@link Priority}, loads with a deadline start earliest deadline first, ahead of
+   * loads without one. Loads that haven't started fetching data by their deadline fail instead of
+   * running, which avoids loading images for views that have long since scrolled off screen. Loads
+   * that have already fetched their data are always decoded.
+   *
+   * <p>Like the {@link Priority}, the time to live isn't part of the memory cache key. Requests for
+   * the same resource share a load, which is ordered by the earliest of their deadlines and is
+   * only dropped once all of their deadlines have passed.
+   *
+   * <p>Unset by default, in which case loads never expire.
+   *
+   * @param timeToLiveMs The time to live in milliseconds.
+   * @see com.bumptech.glide.load.engine.Engine#getExpiredLoadCount()
+   */
+  @NonNull
+  @CheckResult
+  public RequestOptions timeToLive(@IntRange(from = 0) long timeToLiveMs) {
+    if (isAutoCloneEnabled) {
+      return clone().timeToLive(timeToLiveMs);
+    }
+    Preconditions.checkArgument(timeToLiveMs >= 0, "Time to live must be >= 0");
+    this.timeToLiveMs = timeToLiveMs;
+    fields |= TIME_TO_LIVE;
+
+    return selfOrThrowIfLocked();
+  }
+
   /**
    * Applies {@link com.bumptech.glide.load.resource.bitmap.CenterCrop} to all default types, and
    * ignores unknown types.
@@ -1423,6 +1466,9 @@ public class RequestOptions implements Cloneable {
     if (isSet(other.fields, PRIORITY)) {
       priority = other.priority;
     }
+    if (isSet(other.fields, TIME_TO_LIVE)) {
+      timeToLiveMs = other.timeToLiveMs;
+    }
     if (isSet(other.fields, ERROR_PLACEHOLDER)) {
       errorPlaceholder = other.errorPlaceholder;
       errorId = 0;
@@ -1519,6 +1565,7 @@ public class RequestOptions implements Cloneable {
           && onlyRetrieveFromCache == other.onlyRetrieveFromCache
           && diskCacheStrategy.equals(other.diskCacheStrategy)
           && priority == other.priority
+          && timeToLiveMs == other.timeToLiveMs
           && options.equals(other.options)
           && transformations.equals(other.transformations)
           && resourceClass.equals(other.resourceClass)
@@ -1546,6 +1593,7 @@ public class RequestOptions implements Cloneable {
     hashCode = Util.hashCode(onlyRetrieveFromCache, hashCode);
     hashCode = Util.hashCode(diskCacheStrategy, hashCode);
     hashCode = Util.hashCode(priority, hashCode);
+    hashCode = Util.hashCode((int) (timeToLiveMs ^ (timeToLiveMs >>> 32)), hashCode);
     hashCode = Util.hashCode(options, hashCode);
     hashCode = Util.hashCode(transformations, hashCode);
     hashCode = Util.hashCode(resourceClass, hashCode);
@@ -1688,6 +1736,11 @@ public class RequestOptions implements Cloneable {
     return priority;
   }
 
+  /** Returns the time to live set with {@link #timeToLive(long)}, or -1 if it isn't set. */
+  public final long getTimeToLiveMs() {
+    return timeToLiveMs;
+  }
+
   public final int getOverrideWidth() {
     return overrideWidth;
   }
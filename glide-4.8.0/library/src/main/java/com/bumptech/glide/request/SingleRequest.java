@@ -37,6 +37,7 @@ import java.util.List;
  *            开始请求是在他的 begin 方法中
  */
 public final class SingleRequest<R> implements Request,
+    Reprioritizable,
     SizeReadyCallback,
     ResourceCallback,
     FactoryPools.Poolable {
@@ -103,6 +104,8 @@ public final class SingleRequest<R> implements Request,
   private int overrideWidth;
   private int overrideHeight;
   private Priority priority;
+  // Set by setPriority, kept separately so that isEquivalentTo compares the requested priority.
+  @Nullable private Priority priorityOverride;
   private Target<R> target;
   @Nullable private List<RequestListener<R>> requestListeners;
   private Engine engine;
@@ -220,6 +223,7 @@ public final class SingleRequest<R> implements Request,
     requestCoordinator = null;
     animationFactory = null;
     loadStatus = null;
+    priorityOverride = null;
     errorDrawable = null;
     placeholderDrawable = null;
     fallbackDrawable = null;
@@ -313,6 +317,20 @@ public final class SingleRequest<R> implements Request,
     }
   }
 
+  /**
+   * Changes the priority of the load started by this request, if it's still waiting for an
+   * executor, and of any load started when this request is restarted.
+   */
+  @Override
+  public void setPriority(@NonNull Priority priority) {
+    Util.assertMainThread();
+    stateVerifier.throwIfRecycled();
+    priorityOverride = priority;
+    if (loadStatus != null) {
+      loadStatus.setPriority(priority);
+    }
+  }
+
   /**
    * Cancels the current load if it is in progress, clears any resources held onto by the request
    * and replaces the loaded resource if the load completed with the placeholder.
@@ -461,7 +479,8 @@ public final class SingleRequest<R> implements Request,
         this.height,
         requestOptions.getResourceClass(),
         transcodeClass,
-        priority,
+        priorityOverride != null ? priorityOverride : priority,
+        requestOptions.getTimeToLiveMs(),
         requestOptions.getDiskCacheStrategy(),
         requestOptions.getTransformations(),
         requestOptions.isTransformationRequired(),
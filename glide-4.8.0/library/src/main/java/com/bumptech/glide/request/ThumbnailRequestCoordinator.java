@@ -1,14 +1,17 @@
 package com.bumptech.glide.request;
 
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
+import com.bumptech.glide.Priority;
 
 /**
  * A coordinator that coordinates two individual {@link Request}s that load a small thumbnail
  * version of an image and the full size version of the image at the same time.
  */
 public class ThumbnailRequestCoordinator implements RequestCoordinator,
-    Request {
+    Request,
+    Reprioritizable {
   @Nullable private final RequestCoordinator parent;
 
   private Request full;
@@ -120,6 +123,19 @@ public class ThumbnailRequestCoordinator implements RequestCoordinator,
     }
   }
 
+  /**
+   * Changes the priority of both the full and the thumbnail request.
+   */
+  @Override
+  public void setPriority(@NonNull Priority priority) {
+    if (full instanceof Reprioritizable) {
+      ((Reprioritizable) full).setPriority(priority);
+    }
+    if (thumb instanceof Reprioritizable) {
+      ((Reprioritizable) thumb).setPriority(priority);
+    }
+  }
+
   @Override
   public void clear() {
     isRunning = false;
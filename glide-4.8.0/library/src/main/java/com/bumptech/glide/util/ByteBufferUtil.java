@@ -216,6 +216,7 @@ public final class ByteBufferUtil {
       }
       int toRead = Math.min(byteCount, available());
       byteBuffer.get(buffer, byteOffset, toRead);
+      ByteCopyCounter.record(toRead);
       return toRead;
     }
 
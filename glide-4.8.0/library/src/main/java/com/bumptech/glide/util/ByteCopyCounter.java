@@ -0,0 +1,68 @@
+package com.bumptech.glide.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the bytes of encoded image data that are copied into Java arrays while data is read and
+ * decoded, for example when
+ * {@link com.bumptech.glide.load.resource.bitmap.RecyclableBufferedInputStream} fills its buffer or
+ * when a memory mapped {@link java.nio.ByteBuffer} is read as a stream.
+ *
+ * <p>Useful to compare load paths, data read from a memory mapped file and parsed directly should
+ * copy little more than the bytes the platform decoder asks for, while data read through
+ * {@link java.io.InputStream}s may be copied several times. Counting is disabled by default. When
+ * it's enabled, the bytes copied by each load are included in the verbose logs of
+ * {@code DecodeJob}.
+ */
+// Public API.
+@SuppressWarnings("WeakerAccess")
+public final class ByteCopyCounter {
+  private static final AtomicLong TOTAL_BYTES_COPIED = new AtomicLong();
+  private static final ThreadLocal<long[]> THREAD_BYTES_COPIED = new ThreadLocal<long[]>() {
+    @Override
+    protected long[] initialValue() {
+      return new long[1];
+    }
+  };
+  private static volatile boolean enabled;
+
+  private ByteCopyCounter() {
+    // Utility class.
+  }
+
+  /** Enables or disables counting, which adds a small cost to every counted read. */
+  public static void setEnabled(boolean isEnabled) {
+    enabled = isEnabled;
+  }
+
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /** Records that {@code byteCount} bytes were copied on the current thread. */
+  public static void record(int byteCount) {
+    if (!enabled || byteCount <= 0) {
+      return;
+    }
+    TOTAL_BYTES_COPIED.addAndGet(byteCount);
+    THREAD_BYTES_COPIED.get()[0] += byteCount;
+  }
+
+  /** Returns the number of bytes copied on all threads since counting was last reset. */
+  public static long getTotalBytesCopied() {
+    return TOTAL_BYTES_COPIED.get();
+  }
+
+  /**
+   * Returns the number of bytes copied on the current thread, which can be compared before and
+   * after a load to find the bytes copied by that load.
+   */
+  public static long getThreadBytesCopied() {
+    return THREAD_BYTES_COPIED.get()[0];
+  }
+
+  /** Resets the total returned by {@link #getTotalBytesCopied()} to 0. */
+  public static void reset() {
+    TOTAL_BYTES_COPIED.set(0);
+  }
+}
@@ -2,23 +2,43 @@ package com.bumptech.glide.util;
 
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * A general purpose size limited cache that evicts items using an LRU algorithm. By default every
  * item is assumed to have a size of one. Subclasses can override {@link #getSize(Object)}} to
  * change the size on a per item basis.
  *
+ * <p>{@link #get(Object)} and {@link #contains(Object)} don't lock, so many threads can read from
+ * the cache at once. Rather than moving an item to the front of the LRU order as it's read, reads
+ * are recorded in small per thread buffers that are applied in batches by whichever thread next
+ * holds the lock, which all writes take. If a buffer fills up before it can be applied, further
+ * reads are dropped, so under heavy contention the order is approximately least recently used.
+ * Without contention, every read is applied before the next write.
+ *
+ * <p>{@link #onItemEvicted(Object, Object)} is called while holding the lock.
+ *
  * @param <T> The type of the keys.
  * @param <Y> The type of the values.
  */
 public class LruCache<T, Y> {
-  private final Map<T, Y> cache = new LinkedHashMap<>(100, 0.75f, true);
+  // Must be powers of two.
+  private static final int READ_BUFFER_COUNT = 4;
+  private static final int READ_BUFFER_SIZE = 16;
+
+  private final ConcurrentHashMap<T, Node<T, Y>> cache = new ConcurrentHashMap<>(100, 0.75f);
+  private final ReentrantLock evictionLock = new ReentrantLock();
+  private final ReadBuffer[] readBuffers = new ReadBuffer[READ_BUFFER_COUNT];
+  // The sentinel of a circular doubly linked list, from least to most recently used. Guarded by
+  // evictionLock.
+  private final Node<T, Y> head = new Node<>(null, null, 0);
   private final long initialMaxSize;
-  private long maxSize;
-  private long currentSize;
+  // Written while holding evictionLock.
+  private volatile long maxSize;
+  private volatile long currentSize;
 
   /**
    * Constructor for LruCache.
@@ -29,6 +49,11 @@ public class LruCache<T, Y> {
   public LruCache(long size) {
     this.initialMaxSize = size;
     this.maxSize = size;
+    head.prev = head;
+    head.next = head;
+    for (int i = 0; i < READ_BUFFER_COUNT; i++) {
+      readBuffers[i] = new ReadBuffer();
+    }
   }
 
   /**
@@ -38,12 +63,17 @@ public class LruCache<T, Y> {
    *
    * @param multiplier The multiplier to apply.
    */
-  public synchronized void setSizeMultiplier(float multiplier) {
+  public void setSizeMultiplier(float multiplier) {
     if (multiplier < 0) {
       throw new IllegalArgumentException("Multiplier must be >= 0");
     }
-    maxSize = Math.round(initialMaxSize * multiplier);
-    evict();
+    evictionLock.lock();
+    try {
+      maxSize = Math.round(initialMaxSize * multiplier);
+      evict();
+    } finally {
+      evictionLock.unlock();
+    }
   }
 
   /**
@@ -51,6 +81,8 @@ public class LruCache<T, Y> {
    * size passed in to the constructor. Subclasses can override this method to return sizes in
    * various units, usually bytes.
    *
+   * <p>Called once when the item is put, the size can't change while the item is in the cache.
+   *
    * @param item The item to get the size of.
    */
   protected int getSize(@Nullable Y item) {
@@ -60,7 +92,7 @@ public class LruCache<T, Y> {
   /**
    * Returns the number of entries stored in cache.
    */
-  protected synchronized int getCount() {
+  protected int getCount() {
     return cache.size();
   }
 
@@ -77,14 +109,14 @@ public class LruCache<T, Y> {
   /**
    * Returns the current maximum size of the cache in bytes.
    */
-  public synchronized long getMaxSize() {
+  public long getMaxSize() {
     return maxSize;
   }
 
   /**
    * Returns the sum of the sizes of all items in the cache.
    */
-  public synchronized long getCurrentSize() {
+  public long getCurrentSize() {
     return currentSize;
   }
 
@@ -94,7 +126,7 @@ public class LruCache<T, Y> {
    * @param key The key to check.
    */
 
-  public synchronized boolean contains(@NonNull T key) {
+  public boolean contains(@NonNull T key) {
     return cache.containsKey(key);
   }
 
@@ -104,8 +136,21 @@ public class LruCache<T, Y> {
    * @param key The key to check.
    */
   @Nullable
-  public synchronized Y get(@NonNull T key) {
-    return cache.get(key);
+  public Y get(@NonNull T key) {
+    Node<T, Y> node = cache.get(key);
+    if (node == null) {
+      return null;
+    }
+    int index = (int) Thread.currentThread().getId() & (READ_BUFFER_COUNT - 1);
+    ReadBuffer buffer = readBuffers[index];
+    if (buffer.offer(node) && evictionLock.tryLock()) {
+      try {
+        drainReadBuffers();
+      } finally {
+        evictionLock.unlock();
+      }
+    }
+    return node.value;
   }
 
   /**
@@ -120,27 +165,38 @@ public class LruCache<T, Y> {
    * @param item The item to add.
    */
   @Nullable
-  public synchronized Y put(@NonNull T key, @Nullable Y item) {
+  public Y put(@NonNull T key, @Nullable Y item) {
     final int itemSize = getSize(item);
-    if (itemSize >= maxSize) {
-      onItemEvicted(key, item);
-      return null;
-    }
-
-    if (item != null) {
-      currentSize += itemSize;
-    }
-    @Nullable final Y old = cache.put(key, item);
-    if (old != null) {
-      currentSize -= getSize(old);
+    evictionLock.lock();
+    try {
+      if (itemSize >= maxSize) {
+        onItemEvicted(key, item);
+        return null;
+      }
+      drainReadBuffers();
 
-      if (!old.equals(item)) {
-        onItemEvicted(key, old);
+      @Nullable Node<T, Y> old = cache.get(key);
+      // Like LinkedHashMap, keep the key that's already in the map, which subclasses may rely on
+      // if they recycle keys.
+      Node<T, Y> node = new Node<>(old != null ? old.key : key, item, item != null ? itemSize : 0);
+      cache.put(key, node);
+      currentSize += node.size;
+      link(node);
+      @Nullable Y oldValue = null;
+      if (old != null) {
+        unlink(old);
+        currentSize -= old.size;
+        oldValue = old.value;
+        if (oldValue != null && !oldValue.equals(item)) {
+          onItemEvicted(key, oldValue);
+        }
       }
-    }
-    evict();
+      evict();
 
-    return old;
+      return oldValue;
+    } finally {
+      evictionLock.unlock();
+    }
   }
 
   /**
@@ -149,12 +205,19 @@ public class LruCache<T, Y> {
    * @param key The key to remove the item at.
    */
   @Nullable
-  public synchronized Y remove(@NonNull T key) {
-    final Y value = cache.remove(key);
-    if (value != null) {
-      currentSize -= getSize(value);
+  public Y remove(@NonNull T key) {
+    evictionLock.lock();
+    try {
+      Node<T, Y> node = cache.remove(key);
+      if (node == null) {
+        return null;
+      }
+      unlink(node);
+      currentSize -= node.size;
+      return node.value;
+    } finally {
+      evictionLock.unlock();
     }
-    return value;
   }
 
   /**
@@ -170,21 +233,113 @@ public class LruCache<T, Y> {
    *
    * @param size The size the cache should be less than.
    */
-  protected synchronized void trimToSize(long size) {
-    Map.Entry<T, Y> last;
-    Iterator<Map.Entry<T, Y>> cacheIterator;
-    while (currentSize > size) {
-      cacheIterator  = cache.entrySet().iterator();
-      last = cacheIterator.next();
-      final Y toRemove = last.getValue();
-      currentSize -= getSize(toRemove);
-      final T key = last.getKey();
-      cacheIterator.remove();
-      onItemEvicted(key, toRemove);
+  protected void trimToSize(long size) {
+    evictionLock.lock();
+    try {
+      drainReadBuffers();
+      while (currentSize > size && head.next != head) {
+        Node<T, Y> last = head.next;
+        cache.remove(last.key);
+        unlink(last);
+        currentSize -= last.size;
+        onItemEvicted(last.key, last.value);
+      }
+    } finally {
+      evictionLock.unlock();
     }
   }
 
   private void evict() {
     trimToSize(maxSize);
   }
+
+  private void drainReadBuffers() {
+    for (ReadBuffer buffer : readBuffers) {
+      Node<T, Y> node;
+      while ((node = buffer.poll()) != null) {
+        // The node may have been removed or replaced since it was read.
+        if (node.prev != null) {
+          unlink(node);
+          link(node);
+        }
+      }
+    }
+  }
+
+  private void link(Node<T, Y> node) {
+    node.prev = head.prev;
+    node.next = head;
+    head.prev.next = node;
+    head.prev = node;
+  }
+
+  private void unlink(Node<T, Y> node) {
+    node.prev.next = node.next;
+    node.next.prev = node.prev;
+    node.prev = null;
+    node.next = null;
+  }
+
+  private static final class Node<T, Y> {
+    final T key;
+    final Y value;
+    final int size;
+    // Guarded by evictionLock, null if the node isn't in the cache.
+    Node<T, Y> prev;
+    Node<T, Y> next;
+
+    Node(T key, Y value, int size) {
+      this.key = key;
+      this.value = value;
+      this.size = size;
+    }
+  }
+
+  /**
+   * A bounded, lossy, multiple producer, single consumer ring buffer of nodes that have been read.
+   */
+  private static final class ReadBuffer {
+    private final AtomicReferenceArray<Node<?, ?>> slots =
+        new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+    private final AtomicLong writeCount = new AtomicLong();
+    // Only written while holding evictionLock.
+    private volatile long readCount;
+
+    /**
+     * Adds the node unless the buffer is full or another thread is adding one at the same time,
+     * and returns true if the buffer should be drained.
+     */
+    boolean offer(Node<?, ?> node) {
+      long head = readCount;
+      long tail = writeCount.get();
+      long size = tail - head;
+      if (size >= READ_BUFFER_SIZE) {
+        return true;
+      }
+      if (writeCount.compareAndSet(tail, tail + 1)) {
+        slots.lazySet((int) tail & (READ_BUFFER_SIZE - 1), node);
+        return size + 1 >= READ_BUFFER_SIZE / 2;
+      }
+      return false;
+    }
+
+    /** Returns the oldest node, or null if the buffer is empty. */
+    @SuppressWarnings("unchecked")
+    @Nullable
+    <T, Y> Node<T, Y> poll() {
+      long head = readCount;
+      if (head == writeCount.get()) {
+        return null;
+      }
+      int index = (int) head & (READ_BUFFER_SIZE - 1);
+      Node<?, ?> node = slots.get(index);
+      if (node == null) {
+        // The writer has claimed the slot but hasn't published the node yet.
+        return null;
+      }
+      slots.lazySet(index, null);
+      readCount = head + 1;
+      return (Node<T, Y>) node;
+    }
+  }
 }
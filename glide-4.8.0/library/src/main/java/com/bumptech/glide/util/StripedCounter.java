@@ -0,0 +1,45 @@
+package com.bumptech.glide.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter that many threads can update at once without contending on a single value.
+ *
+ * <p>Updates are spread across a small number of cells chosen by thread id, each on its own cache
+ * line, and {@link #sum()} adds the cells together. Sums read while other threads are updating
+ * the counter include some, but not necessarily all, of the concurrent updates.
+ */
+public final class StripedCounter {
+  // Must be a power of two.
+  private static final int CELL_COUNT = 8;
+  // Cells are spaced one 64 byte cache line apart so that updates to neighbouring cells don't
+  // invalidate each other.
+  private static final int LONGS_PER_CELL = 8;
+
+  private final AtomicLongArray cells = new AtomicLongArray(CELL_COUNT * LONGS_PER_CELL);
+
+  /** Adds one to the counter. */
+  public void increment() {
+    add(1);
+  }
+
+  /** Adds the given, possibly negative, value to the counter. */
+  public void add(long value) {
+    int cell = (int) Thread.currentThread().getId() & (CELL_COUNT - 1);
+    cells.addAndGet(cell * LONGS_PER_CELL, value);
+  }
+
+  /** Returns the sum of all values added to the counter. */
+  public long sum() {
+    long sum = 0;
+    for (int i = 0; i < CELL_COUNT; i++) {
+      sum += cells.get(i * LONGS_PER_CELL);
+    }
+    return sum;
+  }
+
+  @Override
+  public String toString() {
+    return Long.toString(sum());
+  }
+}
@@ -3,9 +3,11 @@ package com.bumptech.glide.load.engine;
 import static com.google.common.truth.Truth.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import com.bumptech.glide.load.Key;
 import com.bumptech.glide.load.engine.ActiveResources.DequeuedResourceCallback;
@@ -67,13 +69,28 @@ public class ActiveResourcesTest {
     EngineResource<Object> engineResource =
         new EngineResource<>(resource, /*isCacheable=*/ true, /*isRecyclable=*/ true);
     resources.activate(key, engineResource);
-    resources.deactivate(key);
+    resources.deactivate(key, engineResource);
     assertThat(resources.get(key)).isNull();
   }
 
   @Test
   public void deactivate_withNotActiveKey_doesNotThrow() {
-    resources.deactivate(key);
+    resources.deactivate(
+        key, new EngineResource<>(resource, /*isCacheable=*/ true, /*isRecyclable=*/ true));
+  }
+
+  @Test
+  public void deactivate_withReplacedResource_leavesNewerResourceActive() {
+    EngineResource<Object> first =
+        new EngineResource<>(resource, /*isCacheable=*/ true, /*isRecyclable=*/ true);
+    EngineResource<Object> second =
+        new EngineResource<>(resource, /*isCacheable=*/ true, /*isRecyclable=*/ true);
+    resources.activate(key, first);
+    resources.activate(key, second);
+
+    resources.deactivate(key, first);
+
+    assertThat(resources.get(key)).isSameAs(second);
   }
 
   @Test
@@ -149,7 +166,7 @@ public class ActiveResourcesTest {
     resources.activate(key, engineResource);
 
     ResourceWeakReference weakRef = resources.activeEngineResources.get(key);
-    resources.deactivate(key);
+    resources.deactivate(key, engineResource);
 
     enqueueAndWaitForRef(weakRef);
 
@@ -283,7 +300,7 @@ public class ActiveResourcesTest {
     CountDownLatch latch = getLatchForClearedRef();
     weakRef.enqueue();
 
-    resources.deactivate(key);
+    resources.deactivate(key, engineResource);
 
     waitForLatch(latch);
 
@@ -361,6 +378,118 @@ public class ActiveResourcesTest {
     verify(listener, never()).onResourceReleased(any(Key.class), any(EngineResource.class));
   }
 
+  @Test
+  public void get_onBackgroundThread_withActiveAndClearedKeys_notifiesListenerOnMainThread()
+      throws InterruptedException {
+    final Key otherKey = mock(Key.class);
+    resources.activate(key,
+        new EngineResource<>(resource, /*isCacheable=*/ true, /*isRecyclable=*/ true));
+    resources.activate(otherKey,
+        new EngineResource<>(resource, /*isCacheable=*/ true, /*isRecyclable=*/ true));
+    resources.activeEngineResources.get(key).clear();
+    resources.activeEngineResources.get(otherKey).clear();
+
+    final EngineResource<?>[] results = new EngineResource<?>[2];
+    Thread thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        results[0] = resources.get(key);
+        results[1] = resources.get(otherKey);
+      }
+    });
+    thread.start();
+    thread.join();
+
+    assertThat(results[0]).isNull();
+    assertThat(results[1]).isNull();
+    verify(listener, never()).onResourceReleased(any(Key.class), any(EngineResource.class));
+
+    ShadowLooper.getShadowMainLooper().runToEndOfTasks();
+
+    verify(listener).onResourceReleased(eq(key), any(EngineResource.class));
+    verify(listener).onResourceReleased(eq(otherKey), any(EngineResource.class));
+    assertThat(resources.activeEngineResources).isEmpty();
+  }
+
+  @Test
+  public void queueIdle_withClearedReferenceAlreadyCleanedUpByGet_notifiesListenerOnce() {
+    EngineResource<Object> engineResource =
+        new EngineResource<>(resource, /*isCacheable=*/ true, /*isRecyclable=*/ true);
+    resources.activate(key, engineResource);
+
+    ResourceWeakReference weakRef = resources.activeEngineResources.get(key);
+    weakRef.clear();
+    resources.get(key);
+
+    enqueueAndWaitForRef(weakRef);
+
+    verify(listener).onResourceReleased(eq(key), any(EngineResource.class));
+  }
+
+  @Test
+  public void queueIdle_afterReferenceQueuedThenReactivated_keepsNewResourceActive() {
+    EngineResource<Object> first =
+        new EngineResource<>(resource, /*isCacheable=*/ true, /*isRecyclable=*/ true);
+    resources.activate(key, first);
+
+    ResourceWeakReference weakRef = resources.activeEngineResources.get(key);
+    CountDownLatch latch = getLatchForClearedRef();
+    weakRef.enqueue();
+
+    EngineResource<Object> second =
+        new EngineResource<>(resource, /*isCacheable=*/ true, /*isRecyclable=*/ true);
+    resources.activate(key, second);
+
+    waitForLatch(latch);
+
+    assertThat(resources.get(key)).isEqualTo(second);
+  }
+
+  @Test
+  public void get_countsHitsAndMisses() {
+    resources.activate(key,
+        new EngineResource<>(resource, /*isCacheable=*/ true, /*isRecyclable=*/ true));
+
+    resources.get(key);
+    resources.get(key);
+    resources.get(mock(Key.class));
+
+    assertThat(resources.getHitCount()).isEqualTo(2);
+    assertThat(resources.getMissCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void getCurrentSize_includesOnlyActiveResources() {
+    when(resource.getSize()).thenReturn(100);
+    Key otherKey = mock(Key.class);
+    EngineResource<Object> other =
+        new EngineResource<>(resource, /*isCacheable=*/ true, /*isRecyclable=*/ true);
+    resources.activate(key,
+        new EngineResource<>(resource, /*isCacheable=*/ true, /*isRecyclable=*/ true));
+    resources.activate(otherKey, other);
+    // Replaces the first resource.
+    resources.activate(key,
+        new EngineResource<>(resource, /*isCacheable=*/ true, /*isRecyclable=*/ true));
+    assertThat(resources.getCurrentSize()).isEqualTo(200);
+
+    resources.deactivate(otherKey, other);
+    assertThat(resources.getCurrentSize()).isEqualTo(100);
+  }
+
+  @Test
+  public void get_withActiveAndClearedKey_countsEvictionAndRemovesSize() {
+    when(resource.getSize()).thenReturn(100);
+    resources.activate(key,
+        new EngineResource<>(resource, /*isCacheable=*/ true, /*isRecyclable=*/ true));
+    resources.activeEngineResources.get(key).clear();
+
+    assertThat(resources.get(key)).isNull();
+
+    assertThat(resources.getEvictionCount()).isEqualTo(1);
+    assertThat(resources.getMissCount()).isEqualTo(1);
+    assertThat(resources.getCurrentSize()).isEqualTo(0);
+  }
+
   private void enqueueAndWaitForRef(ResourceWeakReference ref) {
     CountDownLatch latch = getLatchForClearedRef();
     ref.enqueue();
@@ -44,7 +44,11 @@ public class DataCacheKeyTest {
     keyTester
         .addEquivalenceGroup(
             new DataCacheKey(firstKey, firstSignature),
-            new DataCacheKey(firstKey, firstSignature))
+            new DataCacheKey(firstKey, firstSignature),
+            new DataCacheKey(firstKey, firstSignature, /*isCompressed=*/ false))
+        .addEquivalenceGroup(
+            new DataCacheKey(firstKey, firstSignature, /*isCompressed=*/ true),
+            new DataCacheKey(firstKey, firstSignature, /*isCompressed=*/ true))
         .addEquivalenceGroup(new DataCacheKey(firstKey, secondSignature))
         .addEquivalenceGroup(new DataCacheKey(secondKey, firstSignature))
         .addEquivalenceGroup(new DataCacheKey(secondKey, secondSignature))
@@ -0,0 +1,189 @@
+package com.bumptech.glide.load.engine;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import android.os.SystemClock;
+import android.support.v4.util.Pools;
+import com.bumptech.glide.GlideContext;
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.Transformation;
+import com.bumptech.glide.util.StripedCounter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowSystemClock;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class DecodeJobTest {
+  private StripedCounter expiredLoadCount;
+  private Map<Priority, LatencyRecorder> queueLatencies;
+  private int order;
+
+  @Before
+  public void setUp() {
+    expiredLoadCount = new StripedCounter();
+    queueLatencies = new EnumMap<>(Priority.class);
+    for (Priority priority : Priority.values()) {
+      queueLatencies.put(priority, new LatencyRecorder());
+    }
+  }
+
+  @Test
+  public void compareTo_withSamePriority_ordersByDeadlineThenWithoutDeadline() {
+    DecodeJob<Object> noDeadline = newJob(Priority.NORMAL, /*timeToLive=*/ null);
+    DecodeJob<Object> lateDeadline = newJob(Priority.NORMAL, /*timeToLive=*/ 500L);
+    DecodeJob<Object> earlyDeadline = newJob(Priority.NORMAL, /*timeToLive=*/ 100L);
+    List<DecodeJob<Object>> jobs = new ArrayList<>();
+    jobs.add(noDeadline);
+    jobs.add(lateDeadline);
+    jobs.add(earlyDeadline);
+
+    Collections.sort(jobs);
+
+    assertThat(jobs).containsExactly(earlyDeadline, lateDeadline, noDeadline).inOrder();
+  }
+
+  @Test
+  public void compareTo_withDifferentPriorities_ordersByPriorityFirst() {
+    DecodeJob<Object> lowWithDeadline = newJob(Priority.LOW, /*timeToLive=*/ 100L);
+    DecodeJob<Object> highWithoutDeadline = newJob(Priority.HIGH, /*timeToLive=*/ null);
+
+    assertThat(highWithoutDeadline.compareTo(lowWithDeadline)).isLessThan(0);
+  }
+
+  @Test
+  public void compareTo_withSameDeadline_ordersByCreation() {
+    DecodeJob<Object> first = newJob(Priority.NORMAL, /*timeToLive=*/ 100L);
+    DecodeJob<Object> second = newJob(Priority.NORMAL, /*timeToLive=*/ 100L);
+
+    assertThat(first.compareTo(second)).isLessThan(0);
+    assertThat(second.compareTo(first)).isGreaterThan(0);
+  }
+
+  @Test
+  public void run_afterDeadline_failsWithoutFetchingAndCountsExpiredLoad() {
+    DecodeJob.Callback<Object> callback = mockCallback();
+    DecodeJob<Object> job = newJob(Priority.NORMAL, /*timeToLive=*/ 100L, callback);
+
+    ShadowSystemClock.sleep(101);
+    job.run();
+
+    verify(callback).onLoadFailed(any(GlideException.class));
+    assertThat(expiredLoadCount.sum()).isEqualTo(1);
+  }
+
+  @Test
+  public void mergeDeadline_withEarlierDeadline_changesOrder() {
+    DecodeJob<Object> first = newJob(Priority.NORMAL, /*timeToLive=*/ 500L);
+    DecodeJob<Object> second = newJob(Priority.NORMAL, /*timeToLive=*/ 500L);
+    long earlier = SystemClock.uptimeMillis() + 100;
+
+    assertThat(second.isHastenedBy(earlier)).isTrue();
+    second.mergeDeadline(earlier);
+
+    assertThat(second.compareTo(first)).isLessThan(0);
+    assertThat(second.isHastenedBy(earlier)).isFalse();
+  }
+
+  @Test
+  public void mergeDeadline_withoutDeadline_neverExpires() {
+    DecodeJob<Object> job = newJob(Priority.NORMAL, /*timeToLive=*/ 100L);
+    job.mergeDeadline(DecodeJob.NO_DEADLINE);
+
+    ShadowSystemClock.sleep(101);
+
+    assertThat(job.isExpired()).isFalse();
+  }
+
+  @Test
+  public void mergeDeadline_withLaterDeadline_expiresAfterLaterDeadline() {
+    DecodeJob<Object> job = newJob(Priority.NORMAL, /*timeToLive=*/ 100L);
+    job.mergeDeadline(SystemClock.uptimeMillis() + 200);
+
+    ShadowSystemClock.sleep(101);
+    assertThat(job.isExpired()).isFalse();
+
+    ShadowSystemClock.sleep(100);
+    assertThat(job.isExpired()).isTrue();
+  }
+
+  @Test
+  public void setPriority_changesOrder() {
+    DecodeJob<Object> first = newJob(Priority.NORMAL, /*timeToLive=*/ null);
+    DecodeJob<Object> second = newJob(Priority.NORMAL, /*timeToLive=*/ null);
+
+    second.setPriority(Priority.HIGH);
+
+    assertThat(second.compareTo(first)).isLessThan(0);
+    assertThat(first.isPromotedBy(Priority.HIGH)).isTrue();
+    assertThat(first.isPromotedBy(Priority.LOW)).isFalse();
+  }
+
+  @Test
+  public void run_afterSubmitted_recordsQueueLatencyForCurrentPriority() {
+    // Expires so that run() returns without loading anything.
+    DecodeJob<Object> job = newJob(Priority.LOW, /*timeToLive=*/ 100L);
+    job.onSubmitted();
+    job.setPriority(Priority.IMMEDIATE);
+
+    ShadowSystemClock.sleep(101);
+    job.run();
+
+    assertThat(queueLatencies.get(Priority.IMMEDIATE).snapshot().getCount()).isEqualTo(1);
+    assertThat(queueLatencies.get(Priority.LOW).snapshot().getCount()).isEqualTo(0);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static DecodeJob.Callback<Object> mockCallback() {
+    return mock(DecodeJob.Callback.class);
+  }
+
+  private DecodeJob<Object> newJob(Priority priority, Long timeToLive) {
+    return newJob(priority, timeToLive, mockCallback());
+  }
+
+  @SuppressWarnings("unchecked")
+  private DecodeJob<Object> newJob(
+      Priority priority, Long timeToLive, DecodeJob.Callback<Object> callback) {
+    long deadline = timeToLive != null
+        ? SystemClock.uptimeMillis() + timeToLive : DecodeJob.NO_DEADLINE;
+    DecodeJob<Object> job = new DecodeJob<>(
+        mock(DecodeJob.DiskCacheProvider.class),
+        (Pools.Pool<DecodeJob<?>>) mock(Pools.Pool.class),
+        expiredLoadCount,
+        queueLatencies);
+    return job.init(
+        mock(GlideContext.class),
+        /*model=*/ new Object(),
+        mock(EngineKey.class),
+        mock(Key.class),
+        /*width=*/ 100,
+        /*height=*/ 100,
+        Object.class,
+        Object.class,
+        priority,
+        deadline,
+        DiskCacheStrategy.AUTOMATIC,
+        new HashMap<Class<?>, Transformation<?>>(),
+        /*isTransformationRequired=*/ false,
+        /*isScaleOnlyOrNoTransform=*/ true,
+        /*onlyRetrieveFromCache=*/ false,
+        new Options(),
+        callback,
+        order++);
+  }
+}
@@ -3,9 +3,11 @@ package com.bumptech.glide.load.engine;
 import static com.bumptech.glide.tests.Util.anyResource;
 import static com.bumptech.glide.tests.Util.isADataSource;
 import static com.bumptech.glide.tests.Util.mockResource;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isNull;
 import static org.mockito.Mockito.doAnswer;
@@ -19,6 +21,7 @@ import static org.mockito.Mockito.when;
 import android.os.Handler;
 import android.os.Looper;
 import android.support.v4.util.Pools;
+import com.bumptech.glide.Priority;
 import com.bumptech.glide.load.DataSource;
 import com.bumptech.glide.load.Key;
 import com.bumptech.glide.load.engine.executor.GlideExecutor;
@@ -69,6 +72,21 @@ public class EngineJobTest {
         .onEngineJobComplete(eq(job), eq(harness.key), eq(harness.engineResource));
   }
 
+  @Test
+  public void testOnResourceReady_withResultBatcher_notifiesCallbacksInNextBatch() {
+    harness.resultBatcher = new MainThreadBatcher();
+    EngineJob<Object> job = harness.getJob();
+    job.start(harness.decodeJob);
+    ShadowLooper.pauseMainLooper();
+    job.onResourceReady(harness.resource, harness.dataSource);
+
+    verify(harness.cb, never()).onResourceReady(anyResource(), isADataSource());
+
+    ShadowLooper.runUiThreadTasks();
+    verify(harness.cb).onResourceReady(eq(harness.engineResource), eq(harness.dataSource));
+    assertEquals(1, harness.resultBatcher.snapshot().getResultCount());
+  }
+
   @Test
   public void testNotifiesAllCallbacksOnReady() {
     MultiCbHarness harness = new MultiCbHarness();
@@ -455,6 +473,110 @@ public class EngineJobTest {
     verify(harness.decodeJob).run();
   }
 
+  @Test
+  public void testSubmitsDecodeJobToDecodeServiceWhenDecodingRetrievedData() {
+    harness.decodeService = MockGlideExecutor.newMainThreadExecutor();
+    EngineJob<Object> job = harness.getJob();
+    when(harness.decodeJob.isDecodingRetrievedData()).thenReturn(true);
+    harness.sourceService.shutdownNow();
+    job.reschedule(harness.decodeJob);
+
+    verify(harness.decodeJob).onQueued(harness.decodeStage);
+    verify(harness.decodeJob).run();
+  }
+
+  @Test
+  public void testSubmitsDecodeJobToSourceServiceWhenFetchingWithDecodeService() {
+    harness.decodeService = MockGlideExecutor.newMainThreadExecutor();
+    EngineJob<Object> job = harness.getJob();
+    when(harness.decodeJob.isDecodingRetrievedData()).thenReturn(false);
+    harness.decodeService.shutdownNow();
+    job.reschedule(harness.decodeJob);
+
+    verify(harness.decodeJob).onQueued(harness.fetchStage);
+    verify(harness.decodeJob).run();
+  }
+
+  @Test
+  public void testDoesNotUseDecodeServiceWithUnlimitedSourceService() {
+    harness.decodeService = MockGlideExecutor.newMainThreadExecutor();
+    harness.useUnlimitedSourceGeneratorPool = true;
+    EngineJob<Object> job = harness.getJob();
+    when(harness.decodeJob.isDecodingRetrievedData()).thenReturn(true);
+    harness.decodeService.shutdownNow();
+    job.reschedule(harness.decodeJob);
+
+    assertFalse(job.usesDecodeExecutor());
+    verify(harness.decodeJob, never()).onQueued(any(StageRecorder.class));
+    verify(harness.decodeJob).run();
+  }
+
+  @Test
+  public void testSetPriority_changesDecodeJobPriority() {
+    EngineJob<Object> job = harness.getJob();
+    job.start(harness.decodeJob);
+
+    job.setPriority(harness.cb, Priority.IMMEDIATE);
+
+    verify(harness.decodeJob).setPriority(Priority.IMMEDIATE);
+  }
+
+  @Test
+  public void testSetPriority_withMultipleCallbacks_doesNotDemoteDecodeJob() {
+    EngineJob<Object> job = harness.getJob();
+    job.addCallback(mock(ResourceCallback.class));
+    job.start(harness.decodeJob);
+    when(harness.decodeJob.isPromotedBy(Priority.LOW)).thenReturn(false);
+
+    job.setPriority(harness.cb, Priority.LOW);
+
+    verify(harness.decodeJob, never()).setPriority(any(Priority.class));
+  }
+
+  @Test
+  public void testSetPriority_withUnknownCallback_doesNothing() {
+    EngineJob<Object> job = harness.getJob();
+    job.start(harness.decodeJob);
+
+    job.setPriority(mock(ResourceCallback.class), Priority.IMMEDIATE);
+
+    verify(harness.decodeJob, never()).setPriority(any(Priority.class));
+  }
+
+  @Test
+  public void testMergeDeadline_withEarlierDeadline_mergesIntoDecodeJob() {
+    EngineJob<Object> job = harness.getJob();
+    job.start(harness.decodeJob);
+    when(harness.decodeJob.isHastenedBy(100)).thenReturn(true);
+
+    job.mergeDeadline(100);
+
+    verify(harness.decodeJob).mergeDeadline(100);
+  }
+
+  @Test
+  public void testMergeDeadline_withLaterDeadline_mergesIntoDecodeJob() {
+    EngineJob<Object> job = harness.getJob();
+    job.start(harness.decodeJob);
+    when(harness.decodeJob.isHastenedBy(100)).thenReturn(false);
+
+    job.mergeDeadline(100);
+
+    verify(harness.decodeJob).mergeDeadline(100);
+  }
+
+  @Test
+  public void testMergeDeadline_afterLoadFailed_doesNothing() {
+    EngineJob<Object> job = harness.getJob();
+    job.start(harness.decodeJob);
+    job.onLoadFailed(new GlideException("test"));
+    ShadowLooper.runUiThreadTasks();
+
+    job.mergeDeadline(100);
+
+    verify(harness.decodeJob, never()).mergeDeadline(anyLong());
+  }
+
   @SuppressWarnings("unchecked")
   private static class MultiCbHarness {
     final Key key = mock(Key.class);
@@ -516,6 +638,10 @@ public class EngineJobTest {
     final GlideExecutor sourceService = MockGlideExecutor.newMainThreadExecutor();
     final GlideExecutor sourceUnlimitedService = MockGlideExecutor.newMainThreadExecutor();
     final GlideExecutor animationService = MockGlideExecutor.newMainThreadExecutor();
+    final StageRecorder fetchStage = new StageRecorder();
+    final StageRecorder decodeStage = new StageRecorder();
+    GlideExecutor decodeService;
+    MainThreadBatcher resultBatcher;
     boolean isCacheable = true;
     boolean useUnlimitedSourceGeneratorPool = false;
     final boolean useAnimationPool = false;
@@ -532,6 +658,10 @@ public class EngineJobTest {
               sourceService,
               sourceUnlimitedService,
               animationService,
+              decodeService,
+              fetchStage,
+              decodeStage,
+              resultBatcher,
               listener,
               pool,
               factory);
@@ -18,6 +18,7 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import android.os.SystemClock;
 import com.bumptech.glide.GlideContext;
 import com.bumptech.glide.Priority;
 import com.bumptech.glide.load.DataSource;
@@ -106,6 +107,16 @@ public class EngineTest {
     verify(harness.job).addCallback(eq(newCallback));
   }
 
+  @Test
+  public void testDeadlineIsMergedIntoExistingRunnerWithExistingLoad() {
+    harness.doLoad();
+
+    harness.timeToLiveMs = 100;
+    harness.doLoad();
+
+    verify(harness.job).mergeDeadline(SystemClock.uptimeMillis() + 100);
+  }
+
   @Test
   public void testLoadStatusIsReturnedForExistingJob() {
     harness.doLoad();
@@ -649,6 +660,7 @@ public class EngineTest {
     boolean isMemoryCacheable = true;
     boolean useUnlimitedSourceGeneratorPool = false;
     boolean onlyRetrieveFromCache = false;
+    long timeToLiveMs = -1;
     final boolean isScaleOnlyOrNoTransform = true;
 
     EngineTestHarness() {
@@ -678,6 +690,7 @@ public class EngineTest {
           Object.class /*resourceClass*/,
           Object.class /*transcodeClass*/,
           Priority.HIGH,
+          timeToLiveMs,
           DiskCacheStrategy.ALL,
           transformations,
           false /*isTransformationRequired*/,
@@ -700,6 +713,8 @@ public class EngineTest {
                 MockGlideExecutor.newMainThreadExecutor(),
                 MockGlideExecutor.newMainThreadExecutor(),
                 MockGlideExecutor.newMainThreadExecutor(),
+                /*decodeExecutor=*/ null,
+                /*resultBatcher=*/ null,
                 jobs,
                 keyFactory,
                 activeResources,
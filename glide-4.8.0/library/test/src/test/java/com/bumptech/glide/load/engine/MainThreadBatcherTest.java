@@ -0,0 +1,144 @@
+package com.bumptech.glide.load.engine;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class MainThreadBatcherTest {
+  private final List<Integer> dispatched = new ArrayList<>();
+  private Handler target;
+  private MainThreadBatcher batcher;
+
+  @Before
+  public void setUp() {
+    target = new Handler(Looper.getMainLooper(), new Handler.Callback() {
+      @Override
+      public boolean handleMessage(Message message) {
+        dispatched.add(message.what);
+        return true;
+      }
+    });
+    batcher = new MainThreadBatcher();
+    ShadowLooper.pauseMainLooper();
+  }
+
+  @Test
+  public void post_dispatchesMessagesTogetherInOrderOnNextFrame() {
+    batcher.post(target.obtainMessage(1));
+    batcher.post(target.obtainMessage(2));
+    batcher.post(target.obtainMessage(3));
+
+    assertThat(dispatched).isEmpty();
+
+    ShadowLooper.runUiThreadTasks();
+
+    assertThat(dispatched).containsExactly(1, 2, 3).inOrder();
+    DeliveryStats stats = batcher.snapshot();
+    assertThat(stats.getBatchCount()).isEqualTo(1);
+    assertThat(stats.getResultCount()).isEqualTo(3);
+    assertThat(stats.getMaxBatchSize()).isEqualTo(3);
+  }
+
+  @Test
+  public void post_afterBatchDispatched_schedulesNewBatch() {
+    batcher.post(target.obtainMessage(1));
+    ShadowLooper.runUiThreadTasks();
+    batcher.post(target.obtainMessage(2));
+    batcher.post(target.obtainMessage(3));
+    ShadowLooper.runUiThreadTasks();
+
+    assertThat(dispatched).containsExactly(1, 2, 3).inOrder();
+    DeliveryStats stats = batcher.snapshot();
+    assertThat(stats.getBatchCount()).isEqualTo(2);
+    assertThat(stats.getMaxBatchSize()).isEqualTo(2);
+    assertThat(stats.getMeanBatchSize()).isWithin(0.001).of(1.5);
+  }
+
+  @Test
+  public void post_fromBackgroundThread_postsOneMessagePerBatchToScheduleFrame()
+      throws InterruptedException {
+    Thread thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        for (int i = 0; i < 10; i++) {
+          batcher.post(target.obtainMessage(i));
+        }
+      }
+    });
+    thread.start();
+    thread.join();
+
+    ShadowLooper.runUiThreadTasks();
+
+    assertThat(dispatched).hasSize(10);
+    DeliveryStats stats = batcher.snapshot();
+    assertThat(stats.getBatchCount()).isEqualTo(1);
+    // One message to schedule the frame callback and one fallback in case no frame is drawn.
+    assertThat(stats.getMessageCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void post_fromBackgroundThreadDuringDispatch_withoutFrameScheduling_dispatchesLater()
+      throws InterruptedException {
+    batcher = new MainThreadBatcher(/*isFrameSchedulingAvailable=*/ false);
+    final List<Thread> posters = new ArrayList<>();
+    Handler postingTarget = new Handler(Looper.getMainLooper(), new Handler.Callback() {
+      @Override
+      public boolean handleMessage(Message message) {
+        dispatched.add(message.what);
+        // Robolectric's scheduler is locked while it runs tasks, so the post completes after this
+        // batch is dispatched and can't be joined here.
+        posters.add(postFromBackgroundThread(target.obtainMessage(2)));
+        return true;
+      }
+    });
+    batcher.post(postingTarget.obtainMessage(1));
+    ShadowLooper.runUiThreadTasks();
+    posters.get(0).join();
+
+    assertThat(dispatched).containsExactly(1);
+
+    ShadowLooper.runUiThreadTasks();
+    assertThat(dispatched).containsExactly(1, 2).inOrder();
+
+    // Later posts are still scheduled.
+    postFromBackgroundThread(target.obtainMessage(3)).join();
+    ShadowLooper.runUiThreadTasks();
+    assertThat(dispatched).containsExactly(1, 2, 3).inOrder();
+    assertThat(batcher.snapshot().getBatchCount()).isEqualTo(3);
+  }
+
+  @Test
+  public void post_afterFrameDispatchesBatch_doesNotDispatchAgainAfterMaxDelay() {
+    batcher.post(target.obtainMessage(1));
+    ShadowLooper.runUiThreadTasks();
+
+    ShadowLooper.idleMainLooper(MainThreadBatcher.MAX_BATCH_DELAY_MILLIS);
+
+    assertThat(dispatched).containsExactly(1);
+    assertThat(batcher.snapshot().getBatchCount()).isEqualTo(1);
+  }
+
+  private Thread postFromBackgroundThread(final Message message) {
+    Thread thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        batcher.post(message);
+      }
+    });
+    thread.start();
+    return thread;
+  }
+}
@@ -0,0 +1,152 @@
+package com.bumptech.glide.load.engine;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.Transformation;
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import com.bumptech.glide.load.engine.cache.DiskCache;
+import com.bumptech.glide.signature.ObjectKey;
+import java.io.File;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+@RunWith(JUnit4.class)
+public class SegmentedDiskCacheTest {
+  @Mock private DiskCache dataCache;
+  @Mock private DiskCache resourceCache;
+  @Mock private DiskCache.Writer writer;
+  @Mock private Transformation<Object> transformation;
+  private DataCacheKey dataKey;
+  private ResourceCacheKey resourceKey;
+  private SegmentedDiskCache cache;
+
+  @Before
+  public void setUp() {
+    MockitoAnnotations.initMocks(this);
+    dataKey = new DataCacheKey(new ObjectKey("source"), new ObjectKey("signature"));
+    resourceKey = new ResourceCacheKey(mock(ArrayPool.class), new ObjectKey("source"),
+        new ObjectKey("signature"), 100, 100, transformation, Object.class, new Options());
+    cache = new SegmentedDiskCache(dataCache, resourceCache);
+  }
+
+  @Test
+  public void get_withDataKey_readsFromDataCache() {
+    File file = new File("data");
+    when(dataCache.get(dataKey)).thenReturn(file);
+
+    assertThat(cache.get(dataKey)).isEqualTo(file);
+    verify(resourceCache, never()).get(dataKey);
+  }
+
+  @Test
+  public void get_withResourceKey_readsFromResourceCache() {
+    File file = new File("resource");
+    when(resourceCache.get(resourceKey)).thenReturn(file);
+
+    assertThat(cache.get(resourceKey)).isEqualTo(file);
+    verify(dataCache, never()).get(resourceKey);
+  }
+
+  @Test
+  public void get_withOtherKey_readsFromDataCache() {
+    ObjectKey key = new ObjectKey("other");
+    cache.get(key);
+
+    verify(dataCache).get(key);
+  }
+
+  @Test
+  public void put_routesBySegment() {
+    cache.put(dataKey, writer);
+    cache.put(resourceKey, writer);
+
+    verify(dataCache).put(dataKey, writer);
+    verify(resourceCache).put(resourceKey, writer);
+    verify(dataCache, never()).put(resourceKey, writer);
+  }
+
+  @Test
+  public void delete_routesBySegment() {
+    cache.delete(dataKey);
+    cache.delete(resourceKey);
+
+    verify(dataCache).delete(dataKey);
+    verify(resourceCache).delete(resourceKey);
+  }
+
+  @Test
+  public void clear_clearsBothSegments() {
+    cache.clear();
+
+    verify(dataCache).clear();
+    verify(resourceCache).clear();
+  }
+
+  @Test
+  public void clear_whenDataCacheThrows_stillClearsResourceCache() {
+    doThrow(new RuntimeException("test")).when(dataCache).clear();
+    try {
+      cache.clear();
+    } catch (RuntimeException e) {
+      // Expected.
+    }
+
+    verify(resourceCache).clear();
+  }
+
+  @Test
+  public void get_countsHitsAndMissesPerSegment() {
+    when(resourceCache.get(resourceKey)).thenReturn(new File("resource"));
+
+    cache.get(resourceKey);
+    cache.get(resourceKey);
+    cache.get(dataKey);
+
+    assertThat(cache.getResourceStats().getHitCount()).isEqualTo(2);
+    assertThat(cache.getResourceStats().getMissCount()).isEqualTo(0);
+    assertThat(cache.getDataStats().getHitCount()).isEqualTo(0);
+    assertThat(cache.getDataStats().getMissCount()).isEqualTo(1);
+    assertThat(cache.getResourceStats().getHitRate()).isEqualTo(1d);
+    assertThat(cache.getDataStats().getHitRate()).isEqualTo(0d);
+  }
+
+  @Test
+  public void factory_sharesStatsWithBuiltCache() {
+    DiskCache.Factory dataFactory = mock(DiskCache.Factory.class);
+    DiskCache.Factory resourceFactory = mock(DiskCache.Factory.class);
+    when(dataFactory.build()).thenReturn(dataCache);
+    when(resourceFactory.build()).thenReturn(resourceCache);
+    SegmentedDiskCache.Factory factory =
+        new SegmentedDiskCache.Factory(dataFactory, resourceFactory);
+
+    DiskCache built = factory.build();
+    built.get(dataKey);
+
+    assertThat(factory.getDataStats().getMissCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void factory_withNullSegment_usesNoOpCache() {
+    DiskCache.Factory dataFactory = mock(DiskCache.Factory.class);
+    DiskCache.Factory resourceFactory = mock(DiskCache.Factory.class);
+    when(dataFactory.build()).thenReturn(dataCache);
+    SegmentedDiskCache.Factory factory =
+        new SegmentedDiskCache.Factory(dataFactory, resourceFactory);
+
+    DiskCache built = factory.build();
+    built.put(resourceKey, writer);
+
+    assertThat(built.get(resourceKey)).isNull();
+    verify(dataCache, never()).put(resourceKey, writer);
+  }
+}
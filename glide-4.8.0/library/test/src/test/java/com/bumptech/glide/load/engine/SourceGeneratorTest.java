@@ -0,0 +1,240 @@
+package com.bumptech.glide.load.engine;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.support.annotation.NonNull;
+import com.bumptech.glide.GlideContext;
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.Registry;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.ResourceDecoder;
+import com.bumptech.glide.load.Transformation;
+import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruArrayPool;
+import com.bumptech.glide.load.engine.cache.DiskCache;
+import com.bumptech.glide.load.engine.cache.DiskLruCacheWrapper;
+import com.bumptech.glide.load.model.DeflateEncoder;
+import com.bumptech.glide.load.model.DeflatedFile;
+import com.bumptech.glide.load.model.DeflatedFileLoader;
+import com.bumptech.glide.load.model.FileLoader;
+import com.bumptech.glide.load.model.ModelLoader;
+import com.bumptech.glide.load.model.ModelLoaderFactory;
+import com.bumptech.glide.load.model.MultiModelLoaderFactory;
+import com.bumptech.glide.load.model.StreamEncoder;
+import com.bumptech.glide.signature.EmptySignature;
+import com.bumptech.glide.signature.ObjectKey;
+import com.bumptech.glide.tests.Util;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class SourceGeneratorTest {
+  private static final String MODEL = "model";
+
+  private final byte[] data = new byte[30];
+  private File dir;
+  private DiskLruCacheWrapper diskCache;
+  private DataFetcherGenerator.FetcherReadyCallback cb;
+  private GlideContext glideContext;
+  private DecodeJob.DiskCacheProvider diskCacheProvider;
+  private DecodeHelper<byte[]> helper;
+
+  @SuppressWarnings("unchecked")
+  @Before
+  public void setUp() {
+    dir = new File(RuntimeEnvironment.application.getCacheDir(), "source_generator");
+    diskCache = (DiskLruCacheWrapper)
+        new DiskLruCacheWrapper.Builder().setAdmissionFilter(true).build(dir, 100);
+
+    ArrayPool arrayPool = new LruArrayPool();
+    Registry registry = new Registry()
+        .append(InputStream.class, new StreamEncoder(arrayPool))
+        .prepend(InputStream.class, DeflateEncoder.forStreams(arrayPool))
+        .append(String.class, InputStream.class, new SourceLoaderFactory())
+        .append(File.class, InputStream.class, new FileLoader.StreamFactory())
+        .append(DeflatedFile.class, InputStream.class, new DeflatedFileLoader.StreamFactory())
+        .append(InputStream.class, byte[].class, mock(ResourceDecoder.class));
+    glideContext = mock(GlideContext.class);
+    when(glideContext.getRegistry()).thenReturn(registry);
+
+    diskCacheProvider = mock(DecodeJob.DiskCacheProvider.class);
+    when(diskCacheProvider.getDiskCache()).thenReturn(diskCache);
+
+    helper = newHelper(new Options());
+    cb = mock(DataFetcherGenerator.FetcherReadyCallback.class);
+  }
+
+  private DecodeHelper<byte[]> newHelper(Options options) {
+    DecodeHelper<byte[]> helper = new DecodeHelper<>();
+    helper.init(
+        glideContext,
+        MODEL,
+        EmptySignature.obtain(),
+        /*width=*/ 100,
+        /*height=*/ 100,
+        DiskCacheStrategy.AUTOMATIC,
+        Object.class,
+        byte[].class,
+        Priority.NORMAL,
+        options,
+        Collections.<Class<?>, Transformation<?>>emptyMap(),
+        /*isTransformationRequired=*/ false,
+        /*isScaleOnlyOrNoTransform=*/ true,
+        diskCacheProvider);
+    return helper;
+  }
+
+  @After
+  public void tearDown() {
+    diskCache.clear();
+  }
+
+  @Test
+  public void startNext_withFullCacheAndAdmissionFilter_stillDecodesFromCache() {
+    fillCache();
+    SourceGenerator generator = new SourceGenerator(helper, cb);
+
+    assertThat(generator.startNext()).isTrue();
+    verify(cb).reschedule();
+
+    // Writes the fetched data to the cache and reads it back.
+    assertThat(generator.startNext()).isTrue();
+    verify(cb).onDataFetcherReady(
+        eq(new ObjectKey(MODEL)),
+        any(InputStream.class),
+        any(DataFetcher.class),
+        eq(DataSource.REMOTE),
+        any(Key.class));
+    assertThat(diskCache.getStats().getRejectedCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void startNext_withCompress_readsBackInflatedData() throws IOException {
+    data[0] = 1;
+    helper = newHelper(new Options().set(DeflateEncoder.COMPRESS, true));
+    SourceGenerator generator = new SourceGenerator(helper, cb);
+    generator.startNext();
+
+    assertThat(generator.startNext()).isTrue();
+
+    ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+    verify(cb).onDataFetcherReady(
+        any(Key.class), captor.capture(), any(DataFetcher.class), eq(DataSource.REMOTE),
+        any(Key.class));
+    InputStream is = (InputStream) captor.getValue();
+    byte[] result = new byte[data.length];
+    assertThat(is.read(result)).isEqualTo(data.length);
+    assertThat(is.read()).isEqualTo(-1);
+    is.close();
+    assertThat(result).isEqualTo(data);
+  }
+
+  @Test
+  public void startNext_withoutCompress_doesNotReadCompressedEntry() {
+    SourceGenerator compressing =
+        new SourceGenerator(newHelper(new Options().set(DeflateEncoder.COMPRESS, true)), cb);
+    compressing.startNext();
+    compressing.startNext();
+
+    DataCacheGenerator generator = new DataCacheGenerator(
+        Collections.<Key>singletonList(new ObjectKey(MODEL)), helper, cb);
+
+    assertThat(generator.startNext()).isFalse();
+  }
+
+  // Fills the cache with entries that have been looked up more often than the source data will be,
+  // so that the admission filter would reject it.
+  private void fillCache() {
+    DiskCache.Writer writer = new DiskCache.Writer() {
+      @Override
+      public boolean write(@NonNull File file) {
+        try {
+          Util.writeFile(file, data);
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+        return true;
+      }
+    };
+    for (String name : new String[] { "a", "b", "c" }) {
+      ObjectKey key = new ObjectKey(name);
+      diskCache.put(key, writer);
+      diskCache.get(key);
+      diskCache.get(key);
+    }
+  }
+
+  private final class SourceLoaderFactory implements ModelLoaderFactory<String, InputStream> {
+    @NonNull
+    @Override
+    public ModelLoader<String, InputStream> build(@NonNull MultiModelLoaderFactory multiFactory) {
+      return new ModelLoader<String, InputStream>() {
+        @Override
+        public LoadData<InputStream> buildLoadData(@NonNull String model, int width, int height,
+            @NonNull Options options) {
+          return new LoadData<>(new ObjectKey(model), new SourceFetcher());
+        }
+
+        @Override
+        public boolean handles(@NonNull String model) {
+          return true;
+        }
+      };
+    }
+
+    @Override
+    public void teardown() {
+      // Do nothing.
+    }
+  }
+
+  private final class SourceFetcher implements DataFetcher<InputStream> {
+    @Override
+    public void loadData(@NonNull Priority priority,
+        @NonNull DataCallback<? super InputStream> callback) {
+      callback.onDataReady(new ByteArrayInputStream(data));
+    }
+
+    @Override
+    public void cleanup() {
+      // Do nothing.
+    }
+
+    @Override
+    public void cancel() {
+      // Do nothing.
+    }
+
+    @NonNull
+    @Override
+    public Class<InputStream> getDataClass() {
+      return InputStream.class;
+    }
+
+    @NonNull
+    @Override
+    public DataSource getDataSource() {
+      return DataSource.REMOTE;
+    }
+  }
+}
@@ -0,0 +1,151 @@
+package com.bumptech.glide.load.engine.bitmap_recycle;
+
+import static android.content.ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW;
+import static com.google.common.truth.Truth.assertThat;
+
+import android.graphics.Bitmap;
+import android.os.SystemClock;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.Shadows;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 19, shadows = {
+    SizeClassBitmapPoolTest.ReconfigurableShadowBitmap.class })
+public class BestFitStrategyTest {
+  private BestFitStrategy strategy;
+
+  @Before
+  public void setUp() {
+    strategy = new BestFitStrategy();
+  }
+
+  @Test
+  public void get_withMultipleLargerBitmaps_returnsSmallest() {
+    Bitmap large = createMutableBitmap(200, 200);
+    Bitmap small = createMutableBitmap(120, 120);
+    strategy.put(large);
+    strategy.put(small);
+
+    assertThat(strategy.get(100, 100, Bitmap.Config.ARGB_8888)).isSameAs(small);
+  }
+
+  @Test
+  public void get_withReusedLargerBitmap_recordsWasteRatio() {
+    strategy.put(createMutableBitmap(200, 100));
+    strategy.put(createMutableBitmap(100, 100));
+
+    strategy.get(100, 100, Bitmap.Config.ARGB_8888);
+    assertThat(strategy.getWasteRatio()).isEqualTo(0f);
+
+    strategy.get(100, 100, Bitmap.Config.ARGB_8888);
+    // 80000 bytes reused for 40000 bytes requested, and 40000 bytes for 40000 before that.
+    assertThat(strategy.getWasteRatio()).isWithin(0.001f).of(1 / 3f);
+  }
+
+  @Test
+  public void get_withBitmapMoreThanMaxSizeMultipleLarger_returnsNull() {
+    strategy.put(createMutableBitmap(300, 300));
+
+    assertThat(strategy.get(100, 100, Bitmap.Config.ARGB_8888)).isNull();
+  }
+
+  @Test
+  public void get_underMemoryPressure_doesNotReuseBitmapsMoreThanTwiceAsLarge() {
+    Bitmap bitmap = createMutableBitmap(200, 200);
+    strategy.put(bitmap);
+
+    strategy.onMemoryPressure();
+
+    assertThat(strategy.get(100, 100, Bitmap.Config.ARGB_8888)).isNull();
+    assertThat(strategy.get(150, 150, Bitmap.Config.ARGB_8888)).isSameAs(bitmap);
+  }
+
+  @Test
+  public void get_afterMemoryPressureExpires_reusesLargerBitmaps() {
+    Bitmap bitmap = createMutableBitmap(200, 200);
+    strategy.put(bitmap);
+
+    strategy.onMemoryPressure();
+    SystemClock.setCurrentTimeMillis(
+        SystemClock.uptimeMillis() + BestFitStrategy.MEMORY_PRESSURE_DURATION_MS);
+
+    assertThat(strategy.get(100, 100, Bitmap.Config.ARGB_8888)).isSameAs(bitmap);
+  }
+
+  @Test
+  public void removeOversized_removesBitmapsMoreThanTwiceLargestRequest() {
+    Bitmap large = createMutableBitmap(300, 300);
+    Bitmap medium = createMutableBitmap(100, 100);
+    strategy.put(large);
+    strategy.put(medium);
+    strategy.get(100, 100, Bitmap.Config.RGB_565);
+
+    assertThat(strategy.removeOversized()).isSameAs(large);
+    assertThat(strategy.removeOversized()).isNull();
+    assertThat(strategy.get(100, 100, Bitmap.Config.ARGB_8888)).isSameAs(medium);
+  }
+
+  @Test
+  public void removeOversized_withoutRequests_removesNothing() {
+    strategy.put(createMutableBitmap(300, 300));
+
+    assertThat(strategy.removeOversized()).isNull();
+  }
+
+  @Test
+  public void lruBitmapPool_trimMemoryRunningLow_evictsOversizedBitmaps() {
+    LruBitmapPool pool = new LruBitmapPool(
+        /*maxSize=*/ 1024 * 1024, strategy, Collections.singleton(Bitmap.Config.ARGB_8888));
+    Bitmap large = createMutableBitmap(300, 300);
+    pool.put(large);
+    pool.put(createMutableBitmap(100, 100));
+    pool.getDirty(50, 50, Bitmap.Config.ARGB_8888);
+
+    pool.trimMemory(TRIM_MEMORY_RUNNING_LOW);
+
+    assertThat(large.isRecycled()).isTrue();
+    assertThat(pool.getCurrentSize()).isEqualTo(0);
+    assertThat(pool.getEvictionCount()).isEqualTo(1);
+    assertThat(pool.getWasteRatio()).isWithin(0.001f).of(0.75f);
+  }
+
+  @Test
+  public void lruBitmapPool_newBestFitPool_evictsOversizedBitmapsOnTrimMemoryRunningLow() {
+    LruBitmapPool pool = LruBitmapPool.newBestFitPool(/*maxSize=*/ 1024 * 1024);
+    Bitmap large = createMutableBitmap(300, 300);
+    pool.put(large);
+    pool.put(createMutableBitmap(100, 100));
+    pool.getDirty(50, 50, Bitmap.Config.ARGB_8888);
+
+    pool.trimMemory(TRIM_MEMORY_RUNNING_LOW);
+
+    assertThat(large.isRecycled()).isTrue();
+    assertThat(pool.getEvictionCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void lruBitmapPool_byDefault_keepsOversizedBitmapsOnTrimMemoryRunningLow() {
+    LruBitmapPool pool = new LruBitmapPool(/*maxSize=*/ 1024 * 1024);
+    Bitmap large = createMutableBitmap(300, 300);
+    pool.put(large);
+    pool.put(createMutableBitmap(100, 100));
+    pool.getDirty(50, 50, Bitmap.Config.ARGB_8888);
+
+    pool.trimMemory(TRIM_MEMORY_RUNNING_LOW);
+
+    assertThat(large.isRecycled()).isFalse();
+    assertThat(pool.getEvictionCount()).isEqualTo(0);
+    assertThat(pool.getWasteRatio()).isEqualTo(0f);
+  }
+
+  private static Bitmap createMutableBitmap(int width, int height) {
+    Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    Shadows.shadowOf(bitmap).setMutable(true);
+    return bitmap;
+  }
+}
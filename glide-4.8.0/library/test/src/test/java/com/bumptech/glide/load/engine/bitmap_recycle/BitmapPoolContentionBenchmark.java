@@ -0,0 +1,116 @@
+package com.bumptech.glide.load.engine.bitmap_recycle;
+
+import android.graphics.Bitmap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.Shadows;
+import org.robolectric.annotation.Config;
+
+/**
+ * Measures how many get and put pairs per second {@link LruBitmapPool} and
+ * {@link SizeClassBitmapPool} handle from one or more threads, each repeatedly taking a
+ * {@link Bitmap} of one of a few common sizes from the pool and returning it, as concurrent decodes
+ * and transformations do.
+ *
+ * <p>Not run as part of the test suite, run {@link #main(String[])} directly with the test
+ * classpath. Pooled {@link Bitmap}s need Robolectric's shadows, so {@link #main(String[])} runs
+ * {@link #benchmark()} with Robolectric.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 19, shadows = {
+    SizeClassBitmapPoolTest.ReconfigurableShadowBitmap.class })
+public final class BitmapPoolContentionBenchmark {
+  private static final int[] THREAD_COUNTS = new int[] { 1, 4, 8 };
+  private static final int[][] SIZES = new int[][] {
+      { 100, 100 }, { 200, 150 }, { 360, 640 }, { 720, 1280 } };
+  private static final int BITMAPS_PER_SIZE = 8;
+  private static final long MAX_SIZE = 64 * 1024 * 1024;
+  private static final int OPERATIONS_PER_THREAD = 200000;
+  private static final int WARMUP_ITERATIONS = 3;
+  private static final int MEASURED_ITERATIONS = 5;
+
+  public static void main(String[] args) {
+    Result result = JUnitCore.runClasses(BitmapPoolContentionBenchmark.class);
+    if (!result.wasSuccessful()) {
+      throw new IllegalStateException("Benchmark failed: " + result.getFailures());
+    }
+  }
+
+  @Test
+  public void benchmark() throws Exception {
+    System.out.println("threads\tLruBitmapPool ops/s\tSizeClassBitmapPool ops/s");
+    for (int threadCount : THREAD_COUNTS) {
+      double lru = measure(threadCount, /*sizeClass=*/ false);
+      double sizeClass = measure(threadCount, /*sizeClass=*/ true);
+      System.out.println(threadCount + "\t" + (long) lru + "\t" + (long) sizeClass);
+    }
+  }
+
+  private static double measure(int threadCount, boolean sizeClass) throws Exception {
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      runOnce(threadCount, sizeClass);
+    }
+    long totalNanos = 0;
+    for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+      totalNanos += runOnce(threadCount, sizeClass);
+    }
+    long totalOperations = (long) threadCount * OPERATIONS_PER_THREAD * MEASURED_ITERATIONS;
+    return totalOperations / (totalNanos / (double) TimeUnit.SECONDS.toNanos(1));
+  }
+
+  private static long runOnce(int threadCount, boolean sizeClass) throws Exception {
+    final BitmapPool pool =
+        sizeClass ? new SizeClassBitmapPool(MAX_SIZE) : new LruBitmapPool(MAX_SIZE);
+    for (int[] size : SIZES) {
+      for (int i = 0; i < BITMAPS_PER_SIZE * threadCount; i++) {
+        Bitmap bitmap = Bitmap.createBitmap(size[0], size[1], Bitmap.Config.ARGB_8888);
+        Shadows.shadowOf(bitmap).setMutable(true);
+        pool.put(bitmap);
+      }
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    final CountDownLatch start = new CountDownLatch(1);
+    List<Future<Void>> results = new ArrayList<>(threadCount);
+    for (int t = 0; t < threadCount; t++) {
+      final int[] sizeIndexes = new int[OPERATIONS_PER_THREAD];
+      Random random = new Random(t);
+      for (int i = 0; i < sizeIndexes.length; i++) {
+        sizeIndexes[i] = random.nextInt(SIZES.length);
+      }
+      results.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          start.await();
+          for (int sizeIndex : sizeIndexes) {
+            int[] size = SIZES[sizeIndex];
+            Bitmap bitmap = pool.getDirty(size[0], size[1], Bitmap.Config.ARGB_8888);
+            pool.put(bitmap);
+          }
+          return null;
+        }
+      }));
+    }
+    try {
+      long startTime = System.nanoTime();
+      start.countDown();
+      for (Future<Void> result : results) {
+        result.get();
+      }
+      return System.nanoTime() - startTime;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
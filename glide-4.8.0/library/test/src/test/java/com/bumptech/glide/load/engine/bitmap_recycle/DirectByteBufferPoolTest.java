@@ -0,0 +1,116 @@
+package com.bumptech.glide.load.engine.bitmap_recycle;
+
+import static com.bumptech.glide.load.engine.bitmap_recycle.DirectByteBufferPool.MAX_SIZE_CLASS_BYTES;
+import static com.bumptech.glide.load.engine.bitmap_recycle.DirectByteBufferPool.MIN_SIZE_CLASS_BYTES;
+import static com.bumptech.glide.load.engine.bitmap_recycle.DirectByteBufferPool.SLAB_SIZE_BYTES;
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.ComponentCallbacks2;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class DirectByteBufferPoolTest {
+  private static final int MAX_SIZE = 4 * 1024 * 1024;
+
+  private DirectByteBufferPool pool;
+
+  @Before
+  public void setUp() {
+    pool = new DirectByteBufferPool(MAX_SIZE);
+  }
+
+  @Test
+  public void get_returnsDirectBufferRoundedUpToSizeClass() {
+    ByteBuffer buffer = pool.get(SLAB_SIZE_BYTES + 1);
+
+    assertThat(buffer.isDirect()).isTrue();
+    assertThat(buffer.capacity()).isEqualTo(2 * SLAB_SIZE_BYTES);
+    assertThat(buffer.position()).isEqualTo(0);
+    assertThat(buffer.limit()).isEqualTo(SLAB_SIZE_BYTES + 1);
+  }
+
+  @Test
+  public void get_withSmallSize_slicesSlabAndPoolsRemainder() {
+    ByteBuffer buffer = pool.get(1);
+
+    assertThat(buffer.capacity()).isEqualTo(MIN_SIZE_CLASS_BYTES);
+    assertThat(pool.getCurrentSize()).isEqualTo(SLAB_SIZE_BYTES - MIN_SIZE_CLASS_BYTES);
+    assertThat(pool.getMissCount()).isEqualTo(1);
+
+    pool.get(MIN_SIZE_CLASS_BYTES);
+
+    assertThat(pool.getHitCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void get_afterPut_reusesBufferAndResetsState() {
+    ByteBuffer buffer = pool.get(2 * SLAB_SIZE_BYTES);
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    buffer.position(10);
+    pool.put(buffer);
+
+    ByteBuffer result = pool.get(SLAB_SIZE_BYTES + 1);
+
+    assertThat(result).isSameAs(buffer);
+    assertThat(result.position()).isEqualTo(0);
+    assertThat(result.limit()).isEqualTo(SLAB_SIZE_BYTES + 1);
+    assertThat(result.order()).isEqualTo(ByteOrder.BIG_ENDIAN);
+    assertThat(pool.getCurrentSize()).isEqualTo(0);
+  }
+
+  @Test
+  public void get_withSizeLargerThanLargestSizeClass_allocatesExactly() {
+    ByteBuffer buffer = pool.get(MAX_SIZE_CLASS_BYTES + 1);
+
+    assertThat(buffer.capacity()).isEqualTo(MAX_SIZE_CLASS_BYTES + 1);
+    pool.put(buffer);
+    assertThat(pool.getCurrentSize()).isEqualTo(0);
+  }
+
+  @Test
+  public void put_withHeapBuffer_ignoresBuffer() {
+    pool.put(ByteBuffer.allocate(MIN_SIZE_CLASS_BYTES));
+
+    assertThat(pool.getCurrentSize()).isEqualTo(0);
+  }
+
+  @Test
+  public void put_beyondMaxSize_evictsLargestSizeClassFirst() {
+    pool.put(ByteBuffer.allocateDirect(MAX_SIZE / 2));
+    pool.put(ByteBuffer.allocateDirect(MAX_SIZE / 4));
+    pool.put(ByteBuffer.allocateDirect(MAX_SIZE / 4));
+    pool.put(ByteBuffer.allocateDirect(MAX_SIZE / 4));
+
+    assertThat(pool.getCurrentSize()).isEqualTo(3 * MAX_SIZE / 4);
+    assertThat(pool.getEvictionCount()).isEqualTo(1);
+    assertThat(pool.get(MAX_SIZE / 2).capacity()).isEqualTo(MAX_SIZE / 2);
+    assertThat(pool.getMissCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void trimMemory_withUiHidden_trimsToHalfOfMaxSize() {
+    pool.put(ByteBuffer.allocateDirect(MAX_SIZE / 2));
+    pool.put(ByteBuffer.allocateDirect(MAX_SIZE / 4));
+    pool.put(ByteBuffer.allocateDirect(MAX_SIZE / 4));
+
+    pool.trimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+
+    assertThat(pool.getCurrentSize()).isEqualTo(MAX_SIZE / 2);
+  }
+
+  @Test
+  public void trimMemory_withBackground_evictsEverything() {
+    pool.get(1);
+
+    pool.trimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+
+    assertThat(pool.getCurrentSize()).isEqualTo(0);
+  }
+}
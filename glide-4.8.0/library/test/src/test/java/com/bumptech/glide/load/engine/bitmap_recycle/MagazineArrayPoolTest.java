@@ -0,0 +1,107 @@
+package com.bumptech.glide.load.engine.bitmap_recycle;
+
+import static android.content.ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN;
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class MagazineArrayPoolTest {
+  private static final int SIZE = 16;
+  private static final int CAPACITY = 4;
+
+  private LruArrayPool shared;
+  private MagazineArrayPool pool;
+
+  @Before
+  public void setUp() {
+    shared = new LruArrayPool(1024);
+    pool = new MagazineArrayPool(shared, new int[] { SIZE }, CAPACITY);
+  }
+
+  @Test
+  public void get_afterPutOnSameThread_returnsArrayWithoutUsingSharedPool() {
+    byte[] array = new byte[SIZE];
+    pool.put(array);
+
+    assertThat(shared.getCurrentSize()).isEqualTo(0);
+    assertThat(pool.get(SIZE, byte[].class)).isSameAs(array);
+    assertThat(pool.getHitCount()).isEqualTo(1);
+    assertThat(shared.getHitCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void put_withFullMagazine_flushesHalfOfMagazineToSharedPool() {
+    for (int i = 0; i < CAPACITY + 1; i++) {
+      pool.put(new byte[SIZE]);
+    }
+
+    assertThat(shared.getCurrentSize()).isEqualTo(CAPACITY / 2 * SIZE);
+  }
+
+  @Test
+  public void get_withEmptyMagazine_refillsFromSharedPool() {
+    byte[] first = new byte[SIZE];
+    byte[] second = new byte[SIZE];
+    shared.put(first);
+    shared.put(second);
+
+    byte[] result = pool.get(SIZE, byte[].class);
+
+    assertThat(shared.getCurrentSize()).isEqualTo(0);
+    assertThat(pool.getExact(SIZE, byte[].class)).isSameAs(result == first ? second : first);
+    assertThat(pool.getHitCount()).isEqualTo(2);
+    assertThat(pool.getMissCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void get_withEmptyMagazineAndSharedPool_allocatesArray() {
+    byte[] result = pool.get(SIZE, byte[].class);
+
+    assertThat(result).hasLength(SIZE);
+    assertThat(pool.getMissCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void put_withOtherSize_addsToSharedPool() {
+    pool.put(new byte[SIZE * 2]);
+    pool.put(new int[SIZE]);
+
+    assertThat(shared.getCurrentSize()).isEqualTo(SIZE * 2 + SIZE * 4);
+  }
+
+  @Test
+  public void trimMemory_returnsArraysInOtherThreadsMagazinesToSharedPool()
+      throws InterruptedException {
+    final byte[] array = new byte[SIZE];
+    Thread thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        pool.put(array);
+      }
+    });
+    thread.start();
+    thread.join();
+
+    pool.trimMemory(TRIM_MEMORY_UI_HIDDEN);
+
+    assertThat(shared.getCurrentSize()).isEqualTo(SIZE);
+    assertThat(pool.get(SIZE, byte[].class)).isSameAs(array);
+  }
+
+  @Test
+  public void clearMemory_removesArraysFromMagazines() {
+    byte[] array = new byte[SIZE];
+    pool.put(array);
+
+    pool.clearMemory();
+
+    assertThat(shared.getCurrentSize()).isEqualTo(0);
+    assertThat(pool.get(SIZE, byte[].class)).isNotSameAs(array);
+  }
+}
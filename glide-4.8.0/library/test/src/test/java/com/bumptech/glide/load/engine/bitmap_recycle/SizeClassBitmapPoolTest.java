@@ -0,0 +1,205 @@
+package com.bumptech.glide.load.engine.bitmap_recycle;
+
+import static android.content.ComponentCallbacks2.TRIM_MEMORY_BACKGROUND;
+import static android.content.ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN;
+import static com.google.common.truth.Truth.assertThat;
+
+import android.graphics.Bitmap;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.Shadows;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.shadows.ShadowBitmap;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 19, shadows = {
+    SizeClassBitmapPoolTest.ReconfigurableShadowBitmap.class })
+public class SizeClassBitmapPoolTest {
+  private static final int BITMAP_SIZE = 100 * 100 * 4;
+  private static final int SMALL_BITMAP_SIZE = 10 * 10 * 4;
+  private static final int MAX_SIZE = 4 * BITMAP_SIZE;
+
+  private SizeClassBitmapPool pool;
+
+  @Before
+  public void setUp() {
+    pool = new SizeClassBitmapPool(MAX_SIZE);
+  }
+
+  @Test
+  public void getDirty_withPutBitmapOfSameSize_returnsPutBitmap() {
+    Bitmap bitmap = createMutableBitmap(100, 100, Bitmap.Config.ARGB_8888);
+    pool.put(bitmap);
+
+    assertThat(pool.getDirty(100, 100, Bitmap.Config.ARGB_8888)).isSameAs(bitmap);
+    assertThat(pool.getCurrentSize()).isEqualTo(0);
+    assertThat(pool.getHitCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void getDirty_withLargerBitmapInPool_reconfiguresAndReturnsIt() {
+    Bitmap bitmap = createMutableBitmap(100, 100, Bitmap.Config.ARGB_8888);
+    pool.put(bitmap);
+
+    Bitmap result = pool.getDirty(50, 50, Bitmap.Config.ARGB_8888);
+
+    assertThat(result).isSameAs(bitmap);
+    assertThat(result.getWidth()).isEqualTo(50);
+    assertThat(result.getHeight()).isEqualTo(50);
+  }
+
+  @Test
+  public void getDirty_withOnlySmallerBitmapInPool_returnsNewBitmap() {
+    Bitmap bitmap = createMutableBitmap(60, 60, Bitmap.Config.ARGB_8888);
+    pool.put(bitmap);
+
+    // 64x64 is in the same size class as 60x60.
+    Bitmap result = pool.getDirty(64, 64, Bitmap.Config.ARGB_8888);
+
+    assertThat(result).isNotSameAs(bitmap);
+    assertThat(pool.getMissCount()).isEqualTo(1);
+    // The smaller Bitmap is still available for smaller requests.
+    assertThat(pool.getDirty(60, 60, Bitmap.Config.ARGB_8888)).isSameAs(bitmap);
+  }
+
+  @Test
+  public void getDirty_withBitmapMoreThanEightTimesTooLarge_returnsNewBitmap() {
+    Bitmap bitmap = createMutableBitmap(100, 100, Bitmap.Config.ARGB_8888);
+    pool.put(bitmap);
+
+    assertThat(pool.getDirty(30, 30, Bitmap.Config.ARGB_8888)).isNotSameAs(bitmap);
+  }
+
+  @Test
+  public void getDirty_withBitmapOfDifferentBytesPerPixel_returnsNewBitmap() {
+    Bitmap bitmap = createMutableBitmap(100, 100, Bitmap.Config.RGB_565);
+    pool.put(bitmap);
+
+    assertThat(pool.getDirty(100, 100, Bitmap.Config.ARGB_8888)).isNotSameAs(bitmap);
+    assertThat(pool.getDirty(100, 100, Bitmap.Config.RGB_565)).isSameAs(bitmap);
+  }
+
+  @Test
+  public void put_withImmutableBitmap_recyclesBitmap() {
+    Bitmap bitmap = createMutableBitmap(100, 100, Bitmap.Config.ARGB_8888);
+    Shadows.shadowOf(bitmap).setMutable(false);
+    pool.put(bitmap);
+
+    assertThat(bitmap.isRecycled()).isTrue();
+    assertThat(pool.getCurrentSize()).isEqualTo(0);
+  }
+
+  @Test
+  public void put_withDisallowedConfig_recyclesBitmap() {
+    pool = new SizeClassBitmapPool(MAX_SIZE, Collections.singleton(Bitmap.Config.ARGB_8888));
+    Bitmap bitmap = createMutableBitmap(100, 100, Bitmap.Config.RGB_565);
+    pool.put(bitmap);
+
+    assertThat(bitmap.isRecycled()).isTrue();
+  }
+
+  @Test
+  public void put_overMaxSize_evictsFromLeastRecentlyUsedSizeClass() {
+    Bitmap small = createMutableBitmap(10, 10, Bitmap.Config.ARGB_8888);
+    pool.put(small);
+    for (int i = 0; i < 4; i++) {
+      pool.put(createMutableBitmap(100, 100, Bitmap.Config.ARGB_8888));
+    }
+
+    assertThat(small.isRecycled()).isTrue();
+    assertThat(pool.getEvictionCount()).isEqualTo(1);
+    assertThat(pool.getCurrentSize()).isEqualTo(MAX_SIZE);
+  }
+
+  @Test
+  public void evict_afterGetFromOlderSizeClass_evictsFromOtherSizeClass() {
+    Bitmap small = createMutableBitmap(10, 10, Bitmap.Config.ARGB_8888);
+    pool.put(small);
+    pool.put(createMutableBitmap(10, 10, Bitmap.Config.ARGB_8888));
+    for (int i = 0; i < 3; i++) {
+      pool.put(createMutableBitmap(100, 100, Bitmap.Config.ARGB_8888));
+    }
+    // Makes the small size class more recently used than the large one.
+    pool.getDirty(10, 10, Bitmap.Config.ARGB_8888);
+
+    pool.setSizeMultiplier(0.5f);
+
+    assertThat(small.isRecycled()).isFalse();
+    assertThat(pool.getEvictionCount()).isEqualTo(2);
+    assertThat(pool.getCurrentSize()).isEqualTo(BITMAP_SIZE + SMALL_BITMAP_SIZE);
+  }
+
+  @Test
+  public void trimMemory_uiHidden_evictsHalfOfPool() {
+    for (int i = 0; i < 4; i++) {
+      pool.put(createMutableBitmap(100, 100, Bitmap.Config.ARGB_8888));
+    }
+
+    pool.trimMemory(TRIM_MEMORY_UI_HIDDEN);
+
+    assertThat(pool.getCurrentSize()).isEqualTo(MAX_SIZE / 2);
+  }
+
+  @Test
+  public void trimMemory_background_evictsEverything() {
+    for (int i = 0; i < 4; i++) {
+      pool.put(createMutableBitmap(100, 100, Bitmap.Config.ARGB_8888));
+    }
+
+    pool.trimMemory(TRIM_MEMORY_BACKGROUND);
+
+    assertThat(pool.getCurrentSize()).isEqualTo(0);
+    assertThat(pool.getEvictionCount()).isEqualTo(4);
+  }
+
+  @Test
+  public void setSizeMultiplier_evictsToNewMaxSize() {
+    for (int i = 0; i < 4; i++) {
+      pool.put(createMutableBitmap(100, 100, Bitmap.Config.ARGB_8888));
+    }
+
+    pool.setSizeMultiplier(0.5f);
+
+    assertThat(pool.getMaxSize()).isEqualTo(MAX_SIZE / 2);
+    assertThat(pool.getCurrentSize()).isEqualTo(MAX_SIZE / 2);
+  }
+
+  private static Bitmap createMutableBitmap(int width, int height, Bitmap.Config config) {
+    Bitmap bitmap = Bitmap.createBitmap(width, height, config);
+    Shadows.shadowOf(bitmap).setMutable(true);
+    return bitmap;
+  }
+
+  /**
+   * Keeps a Bitmap's allocation size fixed when it's reconfigured, which Robolectric doesn't
+   * support.
+   */
+  @Implements(Bitmap.class)
+  public static class ReconfigurableShadowBitmap extends ShadowBitmap {
+    private int allocationByteCount;
+
+    @Implementation
+    public int getAllocationByteCount() {
+      if (allocationByteCount == 0) {
+        allocationByteCount = getRowBytes() * getHeight();
+      }
+      return allocationByteCount;
+    }
+
+    @Implementation
+    public void reconfigure(int width, int height, Bitmap.Config config) {
+      int allocation = getAllocationByteCount();
+      if (width * height * getBytesPerPixel(config) > allocation) {
+        throw new IllegalArgumentException("Bitmap not large enough to support new configuration");
+      }
+      setWidth(width);
+      setHeight(height);
+      setConfig(config);
+    }
+  }
+}
@@ -0,0 +1,168 @@
+package com.bumptech.glide.load.engine.cache;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.support.annotation.NonNull;
+import com.bumptech.glide.disklrucache.DiskLruCache;
+import com.bumptech.glide.tests.Util;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class DiskCacheWriteBehindQueueTest {
+  private final byte[] data = new byte[] { 1, 2, 3, 4, 5, 6 };
+  private final DiskLruCacheWrapper.Stats stats = new DiskLruCacheWrapper.Stats();
+  private final QueuedExecutor executor = new QueuedExecutor();
+  private File dir;
+  private DiskLruCache diskCache;
+
+  @Before
+  public void setUp() throws IOException {
+    dir = new File(RuntimeEnvironment.application.getCacheDir(), "write_behind");
+    diskCache = DiskLruCache.open(dir, 1 /*appVersion*/, 1 /*valueCount*/, 1024 * 1024);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    diskCache.delete();
+  }
+
+  @Test
+  public void enqueue_doesNotCommitUntilExecutorRuns() throws IOException {
+    DiskCacheWriteBehindQueue queue = newQueue(1024);
+    write(queue, "key1");
+    write(queue, "key2");
+
+    assertThat(queue.isPending("key1")).isTrue();
+    assertThat(diskCache.get("key1")).isNull();
+    assertThat(queue.getPendingBytes()).isEqualTo(2 * data.length);
+    assertThat(executor.runnables).hasSize(1);
+
+    executor.runAll();
+
+    assertThat(queue.isPending("key1")).isFalse();
+    assertThat(queue.getPendingBytes()).isEqualTo(0);
+    assertThat(diskCache.get("key1")).isNotNull();
+    assertThat(diskCache.get("key2")).isNotNull();
+    assertThat(stats.getWriteBehindBatchCount()).isEqualTo(1);
+    assertThat(stats.getWriteBehindCommitCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void commitIfPending_withPendingKey_commitsEveryPendingWrite() throws IOException {
+    DiskCacheWriteBehindQueue queue = newQueue(1024);
+    write(queue, "key1");
+    write(queue, "key2");
+
+    queue.commitIfPending("key2");
+
+    assertThat(diskCache.get("key1")).isNotNull();
+    assertThat(diskCache.get("key2")).isNotNull();
+    assertThat(stats.getWriteBehindBatchCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void commitIfPending_withOtherKey_doesNotCommit() throws IOException {
+    DiskCacheWriteBehindQueue queue = newQueue(1024);
+    write(queue, "key1");
+
+    queue.commitIfPending("key2");
+
+    assertThat(diskCache.get("key1")).isNull();
+    assertThat(stats.getWriteBehindBatchCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void enqueue_exceedingBudget_commitsOnCallingThread() throws IOException {
+    DiskCacheWriteBehindQueue queue = newQueue(data.length + 1);
+    write(queue, "key1");
+    assertThat(diskCache.get("key1")).isNull();
+
+    write(queue, "key2");
+
+    assertThat(diskCache.get("key1")).isNotNull();
+    assertThat(diskCache.get("key2")).isNotNull();
+    assertThat(queue.getPendingBytes()).isEqualTo(0);
+  }
+
+  @Test
+  public void commitPending_withWritesToTwoCaches_commitsEachToItsOwnCache() throws IOException {
+    DiskLruCache otherCache = DiskLruCache.open(
+        new File(dir.getParentFile(), "write_behind_other"), 1 /*appVersion*/, 1 /*valueCount*/,
+        1024 * 1024);
+    try {
+      DiskCacheWriteBehindQueue queue = newQueue(1024);
+      write(queue, "key1");
+      write(queue, otherCache, "key2");
+
+      executor.runAll();
+
+      assertThat(diskCache.get("key1")).isNotNull();
+      assertThat(otherCache.get("key2")).isNotNull();
+      assertThat(diskCache.get("key2")).isNull();
+      assertThat(stats.getWriteBehindBatchCount()).isEqualTo(2);
+      assertThat(stats.getWriteBehindCommitCount()).isEqualTo(2);
+    } finally {
+      otherCache.delete();
+    }
+  }
+
+  @Test
+  public void discardPending_abortsPendingWrites() throws IOException {
+    DiskCacheWriteBehindQueue queue = newQueue(1024);
+    write(queue, "key1");
+
+    queue.discardPending();
+    executor.runAll();
+
+    assertThat(queue.isPending("key1")).isFalse();
+    assertThat(diskCache.get("key1")).isNull();
+    assertThat(stats.getWriteBehindCommitCount()).isEqualTo(0);
+    // The entry can be written again.
+    assertThat(diskCache.edit("key1")).isNotNull();
+  }
+
+  private DiskCacheWriteBehindQueue newQueue(long maxPendingBytes) {
+    return new DiskCacheWriteBehindQueue(executor, maxPendingBytes, stats);
+  }
+
+  private void write(DiskCacheWriteBehindQueue queue, String key) throws IOException {
+    write(queue, diskCache, key);
+  }
+
+  private void write(DiskCacheWriteBehindQueue queue, DiskLruCache diskCache, String key)
+      throws IOException {
+    DiskLruCache.Editor editor = diskCache.edit(key);
+    File file = editor.getFile(0);
+    Util.writeFile(file, data);
+    queue.enqueue(diskCache, key, editor, file.length());
+  }
+
+  private static final class QueuedExecutor implements Executor {
+    final List<Runnable> runnables = new ArrayList<>();
+
+    @Override
+    public void execute(@NonNull Runnable command) {
+      runnables.add(command);
+    }
+
+    void runAll() {
+      List<Runnable> toRun = new ArrayList<>(runnables);
+      runnables.clear();
+      for (Runnable runnable : toRun) {
+        runnable.run();
+      }
+    }
+  }
+}
@@ -1,7 +1,10 @@
 package com.bumptech.glide.load.engine.cache;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.junit.Assume.assumeTrue;
 import static org.mockito.Mockito.mock;
@@ -12,6 +15,7 @@ import com.bumptech.glide.signature.ObjectKey;
 import com.bumptech.glide.tests.Util;
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -160,4 +164,231 @@ public class DiskLruCacheWrapperTest {
 
     cache.get(mock(Key.class));
   }
+
+  @Test
+  public void get_withAsynchronousOpen_returnsEntryWrittenBeforeOpen() throws IOException {
+    cache.put(key, newWriter());
+    cache.clear();
+    cache.put(key, newWriter());
+
+    DiskCache reopened =
+        new DiskLruCacheWrapper.Builder().setOpenAsynchronously(true).build(dir, 1024 * 1024);
+    // Depending on timing this either probes for the file or reads it from the opened cache.
+    File file = reopened.get(key);
+
+    assertNotNull(file);
+    assertArrayEquals(data, Util.readFile(file, data.length));
+    // Waits for the open to finish so that the directory can be deleted.
+    reopened.clear();
+  }
+
+  @Test
+  public void get_withAsynchronousOpen_missingEntry_returnsNull() {
+    DiskCache cache =
+        new DiskLruCacheWrapper.Builder().setOpenAsynchronously(true).build(dir, 1024 * 1024);
+    assertNull(cache.get(key));
+    cache.clear();
+  }
+
+  @Test
+  public void put_withAsynchronousOpen_waitsForOpen() throws IOException {
+    DiskCache cache =
+        new DiskLruCacheWrapper.Builder().setOpenAsynchronously(true).build(dir, 1024 * 1024);
+    cache.put(key, newWriter());
+
+    assertArrayEquals(data, Util.readFile(cache.get(key), data.length));
+    cache.clear();
+    assertNull(cache.get(key));
+  }
+
+  @Test
+  public void builder_withConcurrencyLevelAndBinaryJournal_canInsertAndGet() throws IOException {
+    DiskCache cache = new DiskLruCacheWrapper.Builder()
+        .setConcurrencyLevel(4)
+        .setBinaryJournal(true)
+        .build(dir, 1024 * 1024);
+    cache.put(key, newWriter());
+
+    assertArrayEquals(data, Util.readFile(cache.get(key), data.length));
+  }
+
+  @Test
+  public void put_withAdmissionFilter_whenFull_rejectsKeysLookedUpLessThanEldest()
+      throws IOException {
+    DiskLruCacheWrapper cache = (DiskLruCacheWrapper)
+        new DiskLruCacheWrapper.Builder().setAdmissionFilter(true).build(dir, 100);
+    final byte[] data = new byte[30];
+    DiskCache.Writer writer = new DiskCache.Writer() {
+      @Override
+      public boolean write(@NonNull File file) {
+        try {
+          Util.writeFile(file, data);
+        } catch (IOException e) {
+          fail(e.toString());
+        }
+        return true;
+      }
+    };
+    cache.put(new ObjectKey("a"), writer);
+    cache.put(new ObjectKey("b"), writer);
+    cache.put(new ObjectKey("c"), writer);
+
+    ObjectKey candidate = new ObjectKey("d");
+    cache.put(candidate, writer);
+    assertEquals(1, cache.getStats().getRejectedCount());
+
+    // The miss counts as a lookup, so d now outranks a, which hasn't been looked up.
+    assertNull(cache.get(candidate));
+    cache.put(candidate, writer);
+    assertNotNull(cache.get(candidate));
+
+    assertEquals(4, cache.getStats().getAdmittedCount());
+    assertEquals(1, cache.getStats().getRejectedCount());
+    assertEquals(1, cache.getStats().getHitCount());
+    assertEquals(1, cache.getStats().getMissCount());
+    cache.clear();
+  }
+
+  @Test
+  public void put_withAdmissionFilter_whenFull_alwaysWritesReadBackWriters() throws IOException {
+    DiskLruCacheWrapper cache = (DiskLruCacheWrapper)
+        new DiskLruCacheWrapper.Builder().setAdmissionFilter(true).build(dir, 100);
+    final byte[] data = new byte[30];
+    DiskCache.Writer writer = new DiskCache.ReadBackWriter() {
+      @Override
+      public boolean write(@NonNull File file) {
+        try {
+          Util.writeFile(file, data);
+        } catch (IOException e) {
+          fail(e.toString());
+        }
+        return true;
+      }
+    };
+    cache.put(new ObjectKey("a"), writer);
+    cache.put(new ObjectKey("b"), writer);
+    cache.put(new ObjectKey("c"), writer);
+
+    ObjectKey candidate = new ObjectKey("d");
+    cache.put(candidate, writer);
+
+    assertNotNull(cache.get(candidate));
+    assertEquals(0, cache.getStats().getAdmittedCount());
+    assertEquals(0, cache.getStats().getRejectedCount());
+    cache.clear();
+  }
+
+  @Test
+  public void put_withoutAdmissionFilter_doesNotCountAdmissions() {
+    DiskLruCacheWrapper cache = (DiskLruCacheWrapper) this.cache;
+    cache.put(key, newWriter());
+
+    assertEquals(0, cache.getStats().getAdmittedCount());
+    assertEquals(0, cache.getStats().getRejectedCount());
+  }
+
+  @Test
+  public void put_withWriteBehind_isVisibleToGet() throws IOException {
+    DiskLruCacheWrapper cache = (DiskLruCacheWrapper)
+        new DiskLruCacheWrapper.Builder().setWriteBehindByteBudget(1024).build(dir, 1024 * 1024);
+    cache.put(key, newWriter());
+
+    assertArrayEquals(data, Util.readFile(cache.get(key), data.length));
+    assertEquals(1, cache.getStats().getWriteBehindCommitCount());
+    cache.clear();
+  }
+
+  @Test
+  public void put_withWriteBehind_overBudget_commitsBeforeReturning() throws IOException {
+    DiskLruCacheWrapper cache = (DiskLruCacheWrapper)
+        new DiskLruCacheWrapper.Builder().setWriteBehindByteBudget(1).build(dir, 1024 * 1024);
+    cache.put(key, newWriter());
+
+    assertEquals(1, cache.getStats().getWriteBehindBatchCount());
+    assertArrayEquals(data, Util.readFile(cache.get(key), data.length));
+    cache.clear();
+  }
+
+  @Test
+  public void delete_withWriteBehind_removesPendingEntry() {
+    DiskLruCacheWrapper cache = (DiskLruCacheWrapper)
+        new DiskLruCacheWrapper.Builder().setWriteBehindByteBudget(1024).build(dir, 1024 * 1024);
+    cache.put(key, newWriter());
+    cache.delete(key);
+
+    assertNull(cache.get(key));
+    cache.clear();
+  }
+
+  @Test
+  public void clear_withWriteBehind_waitsForPutInProgress()
+      throws InterruptedException, IOException {
+    final DiskLruCacheWrapper cache = (DiskLruCacheWrapper)
+        new DiskLruCacheWrapper.Builder().setWriteBehindByteBudget(1024).build(dir, 1024 * 1024);
+    final CountDownLatch writeStarted = new CountDownLatch(1);
+    final CountDownLatch finishWrite = new CountDownLatch(1);
+    Thread put = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        cache.put(key, new DiskCache.Writer() {
+          @Override
+          public boolean write(@NonNull File file) {
+            writeStarted.countDown();
+            try {
+              finishWrite.await();
+              Util.writeFile(file, data);
+            } catch (InterruptedException | IOException e) {
+              throw new RuntimeException(e);
+            }
+            return true;
+          }
+        });
+      }
+    });
+    Thread clear = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        cache.clear();
+      }
+    });
+    put.start();
+    writeStarted.await();
+    clear.start();
+    clear.join(100);
+
+    assertTrue(clear.isAlive());
+
+    finishWrite.countDown();
+    put.join();
+    clear.join();
+
+    assertNull(cache.get(key));
+    cache.put(key, newWriter());
+    assertArrayEquals(data, Util.readFile(cache.get(key), data.length));
+    cache.clear();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void builder_withNegativeWriteBehindByteBudget_throws() {
+    new DiskLruCacheWrapper.Builder().setWriteBehindByteBudget(-1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void builder_withZeroConcurrencyLevel_throws() {
+    new DiskLruCacheWrapper.Builder().setConcurrencyLevel(0);
+  }
+
+  private DiskCache.Writer newWriter() {
+    return new DiskCache.Writer() {
+      @Override
+      public boolean write(@NonNull File file) {
+        try {
+          Util.writeFile(file, data);
+        } catch (IOException e) {
+          fail(e.toString());
+        }
+        return true;
+      }
+    };
+  }
 }
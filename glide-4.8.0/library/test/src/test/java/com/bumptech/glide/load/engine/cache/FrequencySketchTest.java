@@ -0,0 +1,73 @@
+package com.bumptech.glide.load.engine.cache;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class FrequencySketchTest {
+  private static final int CAPACITY = 256;
+  private FrequencySketch sketch;
+
+  @Before
+  public void setUp() {
+    sketch = new FrequencySketch(CAPACITY);
+  }
+
+  @Test
+  public void frequency_withUnseenKey_isZero() {
+    assertThat(sketch.frequency("key")).isEqualTo(0);
+  }
+
+  @Test
+  public void increment_increasesFrequency() {
+    sketch.increment("key");
+    sketch.increment("key");
+
+    assertThat(sketch.frequency("key")).isEqualTo(2);
+  }
+
+  @Test
+  public void increment_isCappedAtMaxFrequency() {
+    for (int i = 0; i < FrequencySketch.MAX_FREQUENCY * 2; i++) {
+      sketch.increment("key");
+    }
+
+    assertThat(sketch.frequency("key")).isEqualTo(FrequencySketch.MAX_FREQUENCY);
+  }
+
+  @Test
+  public void frequency_withManyKeys_neverUnderestimates() {
+    for (int i = 0; i < CAPACITY; i++) {
+      for (int j = 0; j <= i % 4; j++) {
+        sketch.increment(key(i));
+      }
+    }
+
+    for (int i = 0; i < CAPACITY; i++) {
+      assertThat(sketch.frequency(key(i))).isAtLeast(i % 4 + 1);
+    }
+  }
+
+  @Test
+  public void increment_afterSampleSize_halvesFrequencies() {
+    for (int i = 0; i < 8; i++) {
+      sketch.increment("hot");
+    }
+    // The sample size is ten times the capacity, so this triggers exactly one reset.
+    for (int i = 0; i < CAPACITY * 10 - 8; i++) {
+      sketch.increment(key(i));
+    }
+
+    // Other keys may share some of hot's counters, so it may have been more than 8 before halving.
+    assertThat(sketch.frequency("hot")).isAtLeast(4);
+    assertThat(sketch.frequency("hot")).isLessThan(8);
+  }
+
+  private static String key(int index) {
+    return String.format("%064x", index);
+  }
+}
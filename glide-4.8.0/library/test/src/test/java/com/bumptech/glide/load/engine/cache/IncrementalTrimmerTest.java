@@ -0,0 +1,133 @@
+package com.bumptech.glide.load.engine.cache;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import android.content.ComponentCallbacks2;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruArrayPool;
+import com.bumptech.glide.load.engine.cache.IncrementalTrimmer.Report;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class IncrementalTrimmerTest {
+  private static final int ARRAY_SIZE = 100;
+  private static final int ARRAY_COUNT = 5;
+
+  private MemoryCache memoryCache;
+  private BitmapPool bitmapPool;
+  private LruArrayPool arrayPool;
+  private IncrementalTrimmer.Listener listener;
+  private IncrementalTrimmer trimmer;
+
+  @Before
+  public void setUp() {
+    ShadowLooper.pauseMainLooper();
+    memoryCache = mock(MemoryCache.class);
+    bitmapPool = mock(BitmapPool.class);
+    arrayPool = new LruArrayPool(/*maxSize=*/ 1000);
+    for (int i = 0; i < ARRAY_COUNT; i++) {
+      arrayPool.put(new byte[ARRAY_SIZE]);
+    }
+    listener = mock(IncrementalTrimmer.Listener.class);
+
+    trimmer = new IncrementalTrimmer.Builder()
+        .setSliceBudgetMillis(0)
+        .setChunkSizeBytes(ARRAY_SIZE)
+        .setListener(listener)
+        .build(memoryCache, bitmapPool, arrayPool);
+  }
+
+  @After
+  public void tearDown() {
+    ShadowLooper.unPauseMainLooper();
+  }
+
+  @Test
+  public void clearMemory_evictsOneChunkPerSlice() {
+    trimmer.clearMemory();
+
+    assertThat(trimmer.isTrimming()).isTrue();
+    assertThat(arrayPool.getCurrentSize()).isEqualTo((ARRAY_COUNT - 1) * ARRAY_SIZE);
+    verify(listener, never()).onTrimFinished(any(Report.class));
+
+    ShadowLooper.runUiThreadTasks();
+
+    assertThat(trimmer.isTrimming()).isFalse();
+    assertThat(arrayPool.getCurrentSize()).isEqualTo(0);
+    Report report = getReport();
+    assertThat(report.getLevel()).isEqualTo(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+    assertThat(report.getBytesFreed()).isEqualTo(ARRAY_COUNT * ARRAY_SIZE);
+    assertThat(report.getSliceCount()).isAtLeast(ARRAY_COUNT);
+  }
+
+  @Test
+  public void clearMemory_clearsComponentsThatAreNotIncrementallyTrimmable() {
+    trimmer.clearMemory();
+
+    verify(memoryCache).clearMemory();
+    verify(bitmapPool).clearMemory();
+  }
+
+  @Test
+  public void trimMemory_withUiHidden_trimsToHalfOfMaxSize() {
+    trimmer.trimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+    ShadowLooper.runUiThreadTasks();
+
+    assertThat(arrayPool.getCurrentSize()).isEqualTo(ARRAY_COUNT * ARRAY_SIZE);
+    verify(memoryCache).trimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+    verify(bitmapPool).trimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+    assertThat(getReport().getBytesFreed()).isEqualTo(0);
+  }
+
+  @Test
+  public void trimMemory_withBackground_evictsEverything() {
+    trimmer.trimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+    ShadowLooper.runUiThreadTasks();
+
+    assertThat(arrayPool.getCurrentSize()).isEqualTo(0);
+    assertThat(getReport().getLevel()).isEqualTo(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+  }
+
+  @Test
+  public void trimMemory_withRunningLow_trimsSynchronously() {
+    trimmer.trimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+
+    assertThat(trimmer.isTrimming()).isFalse();
+    verify(memoryCache).trimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+    verify(bitmapPool).trimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+    verify(listener, never()).onTrimFinished(any(Report.class));
+  }
+
+  @Test
+  public void trimMemory_whileTrimming_continuesTowardsSmallerSizeInSameTrim() {
+    for (int i = 0; i < ARRAY_COUNT; i++) {
+      arrayPool.put(new byte[ARRAY_SIZE]);
+    }
+    trimmer.trimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+    trimmer.trimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+    ShadowLooper.runUiThreadTasks();
+
+    assertThat(arrayPool.getCurrentSize()).isEqualTo(0);
+    Report report = getReport();
+    assertThat(report.getLevel()).isEqualTo(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+    assertThat(report.getBytesFreed()).isEqualTo(2 * ARRAY_COUNT * ARRAY_SIZE);
+  }
+
+  private Report getReport() {
+    ArgumentCaptor<Report> captor = ArgumentCaptor.forClass(Report.class);
+    verify(listener).onTrimFinished(captor.capture());
+    return captor.getValue();
+  }
+}
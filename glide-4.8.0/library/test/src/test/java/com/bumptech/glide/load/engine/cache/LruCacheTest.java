@@ -3,6 +3,7 @@ package com.bumptech.glide.load.engine.cache;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.AdditionalMatchers.not;
 import static org.mockito.Matchers.any;
@@ -17,6 +18,12 @@ import static org.mockito.Mockito.when;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import com.bumptech.glide.util.LruCache;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -354,6 +361,88 @@ public class LruCacheTest {
     assertEquals(SIZE / 2, cache.getCurrentSize());
   }
 
+  @Test
+  public void get_onAnotherThread_isAppliedBeforeNextPut() throws InterruptedException {
+    final String first = getKey();
+    cache.put(first, new Object());
+    String second = getKey();
+    cache.put(second, new Object());
+
+    Thread thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        cache.get(first);
+      }
+    });
+    thread.start();
+    thread.join();
+    cache.put(getKey(), new Object());
+
+    assertTrue(cache.contains(first));
+    assertFalse(cache.contains(second));
+  }
+
+  @Test
+  public void put_withEqualKey_retainsOriginalKey() {
+    final List<String> evictedKeys = new ArrayList<>();
+    LruCache<String, Object> cache = new LruCache<String, Object>(SIZE) {
+      @Override
+      protected void onItemEvicted(@NonNull String key, @Nullable Object item) {
+        evictedKeys.add(key);
+      }
+    };
+    String original = new String("key");
+    String replacement = new String("key");
+    cache.put(original, new Object());
+    cache.put(replacement, new Object());
+    cache.clearMemory();
+
+    assertEquals(2, evictedKeys.size());
+    assertSame(replacement, evictedKeys.get(0));
+    assertSame(original, evictedKeys.get(1));
+  }
+
+  @Test
+  public void getAndPut_onManyThreads_keepsSizeConsistent() throws Exception {
+    final LruCache<Integer, Object> cache = new LruCache<>(50);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int thread = 0; thread < 4; thread++) {
+        final int offset = thread;
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() {
+            for (int i = 0; i < 10000; i++) {
+              Integer key = (i * 7 + offset) % 100;
+              if (cache.get(key) == null) {
+                cache.put(key, new Object());
+              }
+              if (i % 10 == 0) {
+                cache.remove((i + offset) % 100);
+              }
+            }
+            return null;
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    int count = 0;
+    for (int i = 0; i < 100; i++) {
+      if (cache.contains(i)) {
+        count++;
+      }
+    }
+    assertTrue(count <= 50);
+    assertEquals(count, cache.getCurrentSize());
+  }
+
   private String getKey() {
     currentKey += "1";
     return currentKey;
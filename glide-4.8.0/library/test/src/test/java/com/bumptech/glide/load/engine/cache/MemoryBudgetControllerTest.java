@@ -0,0 +1,128 @@
+package com.bumptech.glide.load.engine.cache;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import com.bumptech.glide.MemoryCategory;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruArrayPool;
+import com.bumptech.glide.load.engine.cache.MemoryBudgetController.Component;
+import com.bumptech.glide.load.engine.cache.MemoryBudgetController.Decision;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class MemoryBudgetControllerTest {
+  private static final int MEMORY_CACHE_SIZE = 1000;
+  private static final int BITMAP_POOL_SIZE = 1000;
+  private static final int ARRAY_POOL_SIZE = 200;
+
+  private MemoryCache memoryCache;
+  private CacheCounters memoryCacheCounters;
+  private BitmapPool bitmapPool;
+  private CacheCounters bitmapPoolCounters;
+  private LruArrayPool arrayPool;
+  private MemoryBudgetController.Listener listener;
+  private MemoryBudgetController controller;
+
+  @Before
+  public void setUp() {
+    memoryCache = mock(MemoryCache.class, withSettings().extraInterfaces(CacheCounters.class));
+    memoryCacheCounters = (CacheCounters) memoryCache;
+    when(memoryCache.getMaxSize()).thenReturn((long) MEMORY_CACHE_SIZE);
+    bitmapPool = mock(BitmapPool.class, withSettings().extraInterfaces(CacheCounters.class));
+    bitmapPoolCounters = (CacheCounters) bitmapPool;
+    when(bitmapPool.getMaxSize()).thenReturn((long) BITMAP_POOL_SIZE);
+    arrayPool = new LruArrayPool(ARRAY_POOL_SIZE);
+    listener = mock(MemoryBudgetController.Listener.class);
+
+    controller = new MemoryBudgetController.Builder()
+        .setStepFraction(0.1f)
+        .setListener(listener)
+        .build(memoryCache, bitmapPool, arrayPool);
+  }
+
+  @Test
+  public void build_withAllComponents_usesSumOfInitialSizesAsBudget() {
+    assertThat(controller.getTotalBudget())
+        .isEqualTo(MEMORY_CACHE_SIZE + BITMAP_POOL_SIZE + ARRAY_POOL_SIZE);
+  }
+
+  @Test
+  public void rebalance_withoutRequests_makesNoChange() {
+    Decision decision = controller.rebalance();
+
+    assertThat(decision.getDonor()).isNull();
+    assertThat(decision.getRecipient()).isNull();
+    assertThat(decision.getBytesMoved()).isEqualTo(0);
+    assertThat(controller.getSizeMultiplier(Component.MEMORY_CACHE)).isEqualTo(1f);
+    verify(listener).onEvaluated(decision);
+  }
+
+  @Test
+  public void rebalance_withEvictingMemoryCache_movesBudgetFromIdleComponent() {
+    setCounts(memoryCacheCounters, /*hits=*/ 50, /*misses=*/ 50, /*evictions=*/ 10);
+    setCounts(bitmapPoolCounters, /*hits=*/ 100, /*misses=*/ 0, /*evictions=*/ 0);
+
+    Decision decision = controller.rebalance();
+
+    assertThat(decision.getRecipient()).isEqualTo(Component.MEMORY_CACHE);
+    assertThat(decision.getDonor()).isEqualTo(Component.BITMAP_POOL);
+    assertThat(decision.getDemand(Component.MEMORY_CACHE)).isWithin(0.01f).of(0.5f);
+    assertThat(decision.getBytesMoved()).isEqualTo(220);
+    verify(memoryCache).setSizeMultiplier(1.22f);
+    verify(bitmapPool).setSizeMultiplier(0.78f);
+  }
+
+  @Test
+  public void rebalance_withMissesButNoEvictions_makesNoChange() {
+    setCounts(memoryCacheCounters, /*hits=*/ 0, /*misses=*/ 100, /*evictions=*/ 0);
+
+    assertThat(controller.rebalance().getRecipient()).isNull();
+  }
+
+  @Test
+  public void rebalance_usesCountsSinceLastRebalance() {
+    setCounts(memoryCacheCounters, /*hits=*/ 50, /*misses=*/ 50, /*evictions=*/ 10);
+    controller.rebalance();
+
+    // Nothing has happened since the last sample.
+    assertThat(controller.rebalance().getRecipient()).isNull();
+  }
+
+  @Test
+  public void rebalance_doesNotShrinkComponentsPastMinMultiplier() {
+    for (int i = 1; i <= 5; i++) {
+      setCounts(memoryCacheCounters, /*hits=*/ 50 * i, /*misses=*/ 50 * i, /*evictions=*/ 10 * i);
+      controller.rebalance();
+    }
+
+    // Another step would take the bitmap pool below half its size and the array pool is too small
+    // to give up a whole step.
+    assertThat(controller.getSizeMultiplier(Component.BITMAP_POOL)).isWithin(0.001f).of(0.56f);
+    assertThat(controller.getSizeMultiplier(Component.MEMORY_CACHE)).isWithin(0.001f).of(1.44f);
+    assertThat(arrayPool.getMaxSize()).isEqualTo(ARRAY_POOL_SIZE);
+  }
+
+  @Test
+  public void setMemoryCategory_scalesEveryComponent() {
+    controller.setMemoryCategory(MemoryCategory.LOW);
+
+    verify(memoryCache).setSizeMultiplier(0.5f);
+    verify(bitmapPool).setSizeMultiplier(0.5f);
+    assertThat(arrayPool.getMaxSize()).isEqualTo(ARRAY_POOL_SIZE / 2);
+  }
+
+  private static void setCounts(CacheCounters counters, long hits, long misses, long evictions) {
+    when(counters.getHitCount()).thenReturn(hits);
+    when(counters.getMissCount()).thenReturn(misses);
+    when(counters.getEvictionCount()).thenReturn(evictions);
+  }
+}
@@ -0,0 +1,76 @@
+package com.bumptech.glide.load.engine.cache;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.hash.Hashing;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class Murmur3MessageDigestTest {
+  private final Random random = new Random(0);
+  private final Murmur3MessageDigest digest = new Murmur3MessageDigest();
+
+  @Test
+  public void digest_withSingleUpdate_matchesReferenceImplementation() {
+    for (int length = 0; length <= 64; length++) {
+      byte[] input = randomBytes(length);
+      digest.update(input);
+
+      assertThat(digest.digest()).isEqualTo(reference(input));
+    }
+  }
+
+  @Test
+  public void digest_withSplitUpdates_matchesSingleUpdate() {
+    for (int length = 0; length <= 64; length++) {
+      byte[] input = randomBytes(length);
+      int offset = 0;
+      while (offset < length) {
+        int count = Math.min(length - offset, random.nextInt(20));
+        digest.update(input, offset, count);
+        offset += count;
+      }
+
+      assertThat(digest.digest()).isEqualTo(reference(input));
+    }
+  }
+
+  @Test
+  public void digest_withByteUpdates_matchesSingleUpdate() {
+    byte[] input = randomBytes(37);
+    for (byte b : input) {
+      digest.update(b);
+    }
+
+    assertThat(digest.digest()).isEqualTo(reference(input));
+  }
+
+  @Test
+  public void digest_resetsDigest() {
+    byte[] first = randomBytes(21);
+    digest.update(first);
+    digest.digest();
+    byte[] second = randomBytes(13);
+    digest.update(second);
+
+    assertThat(digest.digest()).isEqualTo(reference(second));
+  }
+
+  @Test
+  public void getDigestLength_is16() {
+    assertThat(digest.getDigestLength()).isEqualTo(16);
+  }
+
+  private byte[] randomBytes(int length) {
+    byte[] result = new byte[length];
+    random.nextBytes(result);
+    return result;
+  }
+
+  private static byte[] reference(byte[] input) {
+    return Hashing.murmur3_128().hashBytes(input).asBytes();
+  }
+}
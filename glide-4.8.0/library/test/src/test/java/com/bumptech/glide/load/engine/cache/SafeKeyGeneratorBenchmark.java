@@ -0,0 +1,116 @@
+package com.bumptech.glide.load.engine.cache;
+
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.signature.ObjectKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Measures how many keys per second {@link SafeKeyGenerator} converts for each {@link
+ * SafeKeyGenerator.HashStrategy}, both for keys that miss the key cache and must be hashed and
+ * for a small set of keys that are always in the key cache.
+ *
+ * <p>Not run as part of the test suite, run {@link #main(String[])} directly with the test
+ * classpath. {@link SafeKeyGenerator} pools its digests with
+ * {@link com.bumptech.glide.util.pool.FactoryPools}, which log with {@link android.util.Log}, so
+ * {@link #main(String[])} runs {@link #benchmark()} with Robolectric.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public final class SafeKeyGeneratorBenchmark {
+  private static final int[] THREAD_COUNTS = new int[] { 1, 4 };
+  private static final int KEYS_PER_THREAD = 100000;
+  private static final int HOT_KEY_COUNT = 100;
+  private static final int WARMUP_ITERATIONS = 2;
+  private static final int MEASURED_ITERATIONS = 5;
+
+  public static void main(String[] args) {
+    Result result = JUnitCore.runClasses(SafeKeyGeneratorBenchmark.class);
+    if (!result.wasSuccessful()) {
+      throw new IllegalStateException("Benchmark failed: " + result.getFailures());
+    }
+  }
+
+  @Test
+  public void benchmark() throws Exception {
+    System.out.println("strategy\tthreads\tmissKeys/s\thitKeys/s");
+    for (int threadCount : THREAD_COUNTS) {
+      run("SHA-256", SafeKeyGenerator.SHA_256, threadCount);
+      run("MurmurHash3-128", SafeKeyGenerator.MURMUR3_128, threadCount);
+    }
+  }
+
+  private static void run(String name, SafeKeyGenerator.HashStrategy strategy, int threadCount)
+      throws Exception {
+    List<List<Key>> missKeys = new ArrayList<>(threadCount);
+    List<List<Key>> hitKeys = new ArrayList<>(threadCount);
+    for (int t = 0; t < threadCount; t++) {
+      List<Key> misses = new ArrayList<>(KEYS_PER_THREAD);
+      List<Key> hits = new ArrayList<>(KEYS_PER_THREAD);
+      for (int i = 0; i < KEYS_PER_THREAD; i++) {
+        misses.add(new ObjectKey("https://example.com/images/" + t + "/" + i + ".jpg"));
+        hits.add(new ObjectKey("https://example.com/images/hot/" + (i % HOT_KEY_COUNT) + ".jpg"));
+      }
+      missKeys.add(misses);
+      hitKeys.add(hits);
+    }
+
+    double missRate = measure(strategy, missKeys);
+    double hitRate = measure(strategy, hitKeys);
+    System.out.println(name + "\t" + threadCount + "\t" + (long) missRate + "\t" + (long) hitRate);
+  }
+
+  private static double measure(SafeKeyGenerator.HashStrategy strategy, List<List<Key>> keys)
+      throws Exception {
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      runOnce(new SafeKeyGenerator(strategy), keys);
+    }
+    long totalNanos = 0;
+    for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+      totalNanos += runOnce(new SafeKeyGenerator(strategy), keys);
+    }
+    long totalKeys = (long) keys.size() * KEYS_PER_THREAD * MEASURED_ITERATIONS;
+    return totalKeys / (totalNanos / (double) TimeUnit.SECONDS.toNanos(1));
+  }
+
+  private static long runOnce(final SafeKeyGenerator generator, List<List<Key>> keys)
+      throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(keys.size());
+    final CountDownLatch start = new CountDownLatch(1);
+    List<Future<Void>> results = new ArrayList<>(keys.size());
+    for (final List<Key> threadKeys : keys) {
+      results.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          start.await();
+          for (Key key : threadKeys) {
+            generator.getSafeKey(key);
+          }
+          return null;
+        }
+      }));
+    }
+    try {
+      long startTime = System.nanoTime();
+      start.countDown();
+      for (Future<Void> result : results) {
+        result.get();
+      }
+      return System.nanoTime() - startTime;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -1,10 +1,15 @@
 package com.bumptech.glide.load.engine.cache;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 
 import android.support.annotation.NonNull;
 import com.bumptech.glide.load.Key;
+import com.bumptech.glide.signature.ObjectKey;
+import com.bumptech.glide.util.Util;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.junit.Before;
@@ -35,6 +40,44 @@ public class SafeKeyGeneratorTest {
     }
   }
 
+  @Test
+  public void testMurmur3KeysAreValidForDiskCache() {
+    keyGenerator = new SafeKeyGenerator(SafeKeyGenerator.MURMUR3_128);
+    final Pattern diskCacheRegex = Pattern.compile("m3-[0-9a-f]{32}");
+    for (int i = 0; i < 1000; i++) {
+      String key = getRandomKeyFromGenerator();
+      Matcher matcher = diskCacheRegex.matcher(key);
+      assertTrue(key, matcher.matches());
+    }
+  }
+
+  @Test
+  public void testReturnsSameKeyForEqualKeys() {
+    String first = keyGenerator.getSafeKey(new ObjectKey("model"));
+    // Many distinct keys push the first key out of its cache stripe.
+    for (int i = 0; i < 2000; i++) {
+      getRandomKeyFromGenerator();
+    }
+    assertEquals(first, keyGenerator.getSafeKey(new ObjectKey("model")));
+    assertEquals(first, keyGenerator.getSafeKey(new ObjectKey("model")));
+  }
+
+  @Test
+  public void testReturnsDifferentKeysForDifferentStrategies() {
+    Key key = new ObjectKey("model");
+    String sha256 = keyGenerator.getSafeKey(key);
+    String murmur3 = new SafeKeyGenerator(SafeKeyGenerator.MURMUR3_128).getSafeKey(key);
+    assertNotEquals(sha256, murmur3);
+  }
+
+  @Test
+  public void testSha256KeyMatchesDigestOfKey() throws NoSuchAlgorithmException {
+    Key key = new ObjectKey("model");
+    MessageDigest digest = MessageDigest.getInstance("SHA-256");
+    key.updateDiskCacheKey(digest);
+    assertEquals(Util.sha256BytesToHex(digest.digest()), keyGenerator.getSafeKey(key));
+  }
+
   private String getRandomKeyFromGenerator() {
     return keyGenerator.getSafeKey(new MockKey(getNextId()));
   }
@@ -0,0 +1,154 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.support.annotation.NonNull;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.signature.ObjectKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Replays synthetic traces of loads against {@link LruResourceCache} and
+ * {@link TinyLfuResourceCache} and prints the hit ratio of each.
+ *
+ * <p>Each load removes the resource from the cache, as
+ * {@link com.bumptech.glide.load.engine.Engine} does, and then puts it back, as if the request was
+ * cleared.
+ *
+ * <ul>
+ *   <li>feed: rows with a popular avatar and a large image that is only seen a few times, with
+ *       occasional flings through many rows at once.
+ *   <li>zipf: resources of varying size requested with a skewed popularity.
+ *   <li>recency: a sliding window over the resources, which favors LRU.
+ * </ul>
+ *
+ * <p>Not run as part of the test suite, run {@link #main(String[])} directly with the test
+ * classpath.
+ */
+public final class TinyLfuResourceCacheBenchmark {
+  private static final long CACHE_SIZE_BYTES = 8 * 1024 * 1024;
+  private static final int AVATAR_SIZE_BYTES = 40 * 1024;
+  private static final int IMAGE_SIZE_BYTES = 500 * 1024;
+  private static final int TRACE_LENGTH = 200_000;
+
+  private TinyLfuResourceCacheBenchmark() { }
+
+  public static void main(String[] args) {
+    System.out.println("trace\tlru\ttinylfu");
+    run("feed", newFeedTrace());
+    run("zipf", newZipfTrace());
+    run("recency", newRecencyTrace());
+  }
+
+  private static void run(String name, List<Load> trace) {
+    double lru = replay(new LruResourceCache(CACHE_SIZE_BYTES), trace);
+    double tinyLfu = replay(new TinyLfuResourceCache(CACHE_SIZE_BYTES), trace);
+    System.out.println(String.format("%s\t%.3f\t%.3f", name, lru, tinyLfu));
+  }
+
+  private static double replay(MemoryCache cache, List<Load> trace) {
+    int hits = 0;
+    for (Load load : trace) {
+      Resource<?> resource = cache.remove(load.key);
+      if (resource != null) {
+        hits++;
+      } else {
+        resource = new FakeResource(load.size);
+      }
+      cache.put(load.key, resource);
+    }
+    return hits / (double) trace.size();
+  }
+
+  private static List<Load> newFeedTrace() {
+    Random random = new Random(0);
+    List<Load> result = new ArrayList<>(TRACE_LENGTH);
+    int row = 0;
+    while (result.size() < TRACE_LENGTH) {
+      if (random.nextInt(20) == 0) {
+        // A fling, most rows are skipped but their images are still loaded.
+        row += 30 + random.nextInt(50);
+      } else if (random.nextInt(4) == 0 && row > 0) {
+        // Scroll back up a row.
+        row--;
+      } else {
+        row++;
+      }
+      int avatar = Math.min(zipf(random, 100), 99);
+      result.add(new Load("avatar" + avatar, AVATAR_SIZE_BYTES));
+      result.add(new Load("image" + row, IMAGE_SIZE_BYTES));
+    }
+    return result;
+  }
+
+  private static List<Load> newZipfTrace() {
+    Random random = new Random(1);
+    List<Load> result = new ArrayList<>(TRACE_LENGTH);
+    for (int i = 0; i < TRACE_LENGTH; i++) {
+      int id = zipf(random, 5000);
+      // Sizes from 8KB to 1MB, fixed per resource.
+      int size = 8 * 1024 * (1 + (id * 31) % 128);
+      result.add(new Load("zipf" + id, size));
+    }
+    return result;
+  }
+
+  private static List<Load> newRecencyTrace() {
+    Random random = new Random(2);
+    List<Load> result = new ArrayList<>(TRACE_LENGTH);
+    for (int i = 0; i < TRACE_LENGTH; i++) {
+      // Mostly requests resources loaded recently, which will be evicted by the time the window
+      // has moved on.
+      int id = i / 10 - random.nextInt(20);
+      result.add(new Load("recent" + id, AVATAR_SIZE_BYTES * 4));
+    }
+    return result;
+  }
+
+  /** Returns a value between 0 and roughly max, with 0 the most likely. */
+  private static int zipf(Random random, int max) {
+    // Inverse transform of a continuous approximation of a Zipf distribution with s = 1.
+    return (int) Math.pow(max + 1, random.nextDouble()) - 1;
+  }
+
+  private static final class Load {
+    final Key key;
+    final int size;
+
+    Load(String id, int size) {
+      this.key = new ObjectKey(id);
+      this.size = size;
+    }
+  }
+
+  private static final class FakeResource implements Resource<Object> {
+    private final int size;
+
+    FakeResource(int size) {
+      this.size = size;
+    }
+
+    @NonNull
+    @Override
+    public Class<Object> getResourceClass() {
+      return Object.class;
+    }
+
+    @NonNull
+    @Override
+    public Object get() {
+      return this;
+    }
+
+    @Override
+    public int getSize() {
+      return size;
+    }
+
+    @Override
+    public void recycle() {
+      // Do nothing.
+    }
+  }
+}
@@ -0,0 +1,236 @@
+package com.bumptech.glide.load.engine.cache;
+
+import static com.bumptech.glide.load.engine.cache.MemoryCache.ResourceRemovedListener;
+import static com.bumptech.glide.tests.Util.anyResource;
+import static com.bumptech.glide.tests.Util.mockResource;
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.ComponentCallbacks2;
+import android.support.annotation.NonNull;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.engine.Resource;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class TinyLfuResourceCacheTest {
+  private TinyLfuResourceCache cache;
+  private ResourceRemovedListener listener;
+
+  @Before
+  public void setUp() {
+    cache = new TinyLfuResourceCache(100);
+    listener = mock(ResourceRemovedListener.class);
+    cache.setResourceRemovedListener(listener);
+  }
+
+  @Test
+  public void remove_afterPut_returnsResourceAndUpdatesSize() {
+    Key key = new MockKey();
+    Resource<?> resource = getResource(30);
+    cache.put(key, resource);
+    assertThat(cache.getCurrentSize()).isEqualTo(30);
+
+    assertThat(cache.remove(key)).isEqualTo(resource);
+    assertThat(cache.getCurrentSize()).isEqualTo(0);
+    assertThat(cache.remove(key)).isNull();
+    verify(listener, never()).onResourceRemoved(anyResource());
+  }
+
+  @Test
+  public void put_withExistingItem_evictsExistingItemAndUpdatesSize() {
+    Key key = new MockKey();
+    Resource<?> first = getResource(50);
+    Resource<?> second = getResource(40);
+    cache.put(key, first);
+
+    assertThat(cache.put(key, second)).isEqualTo(first);
+    verify(listener).onResourceRemoved(first);
+    assertThat(cache.getCurrentSize()).isEqualTo(40);
+    assertThat(cache.remove(key)).isEqualTo(second);
+  }
+
+  @Test
+  public void put_withResourceLargerThanCache_evictsResourceImmediately() {
+    Resource<?> resource = getResource(200);
+    Key key = new MockKey();
+
+    assertThat(cache.put(key, resource)).isNull();
+    verify(listener).onResourceRemoved(resource);
+    assertThat(cache.remove(key)).isNull();
+    assertThat(cache.getCurrentSize()).isEqualTo(0);
+  }
+
+  @Test
+  public void put_overMaxSize_evictsUntilUnderMaxSize() {
+    for (int i = 0; i < 10; i++) {
+      cache.put(new MockKey(), getResource(30));
+    }
+    assertThat(cache.getCurrentSize()).isAtMost(100L);
+  }
+
+  @Test
+  public void put_withScanOfNewResources_keepsFrequentlyUsedResources() {
+    List<Key> hot = new ArrayList<>();
+    List<Resource<?>> hotResources = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      hot.add(new MockKey());
+      hotResources.add(getResource(10));
+    }
+    // Use each resource a few times, releasing it back into the cache each time.
+    for (int round = 0; round < 3; round++) {
+      for (int i = 0; i < hot.size(); i++) {
+        cache.remove(hot.get(i));
+        cache.put(hot.get(i), hotResources.get(i));
+      }
+    }
+
+    for (int i = 0; i < 50; i++) {
+      Key key = new MockKey();
+      cache.remove(key);
+      cache.put(key, getResource(10));
+    }
+
+    for (int i = 0; i < hot.size(); i++) {
+      assertThat(cache.remove(hot.get(i))).isEqualTo(hotResources.get(i));
+    }
+  }
+
+  @Test
+  public void put_withLargeRarelyUsedResource_doesNotEvictFrequentlyUsedResources() {
+    Key hot = new MockKey();
+    Resource<?> hotResource = getResource(40);
+    for (int i = 0; i < 3; i++) {
+      cache.remove(hot);
+      cache.put(hot, hotResource);
+    }
+
+    Resource<?> large = getResource(90);
+    cache.put(new MockKey(), large);
+
+    verify(listener).onResourceRemoved(large);
+    assertThat(cache.remove(hot)).isEqualTo(hotResource);
+  }
+
+  @Test
+  public void setSizeMultiplier_withSmallerSize_evicts() {
+    cache.put(new MockKey(), getResource(30));
+    cache.put(new MockKey(), getResource(30));
+
+    cache.setSizeMultiplier(0.5f);
+
+    assertThat(cache.getMaxSize()).isEqualTo(50);
+    assertThat(cache.getCurrentSize()).isAtMost(50L);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void setSizeMultiplier_withNegativeMultiplier_throws() {
+    cache.setSizeMultiplier(-1);
+  }
+
+  @Test
+  public void clearMemory_evictsAllResources() {
+    Resource<?> first = getResource(30);
+    Resource<?> second = getResource(30);
+    cache.put(new MockKey(), first);
+    cache.put(new MockKey(), second);
+
+    cache.clearMemory();
+
+    verify(listener).onResourceRemoved(first);
+    verify(listener).onResourceRemoved(second);
+    assertThat(cache.getCurrentSize()).isEqualTo(0);
+  }
+
+  @Test
+  public void trimMemory_background_evictsAllResources() {
+    cache.put(new MockKey(), getResource(50));
+    cache.put(new MockKey(), getResource(40));
+
+    cache.trimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+
+    assertThat(cache.getCurrentSize()).isEqualTo(0);
+  }
+
+  @Test
+  public void trimMemory_uiHidden_trimsToHalf() {
+    Resource<?> first = getResource(30);
+    Resource<?> second = getResource(30);
+    cache.put(new MockKey(), first);
+    cache.put(new MockKey(), second);
+
+    cache.trimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+
+    verify(listener).onResourceRemoved(first);
+    verify(listener, never()).onResourceRemoved(second);
+    assertThat(cache.getCurrentSize()).isEqualTo(30);
+  }
+
+  @Test
+  public void removeAndPut_fromManyThreads_keepsSizeConsistent() throws Exception {
+    final TinyLfuResourceCache cache = new TinyLfuResourceCache(1000);
+    final Key[] keys = new Key[50];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = new MockKey();
+    }
+    final Resource<?> resource = getResource(30);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int thread = 0; thread < 4; thread++) {
+        final int offset = thread;
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() {
+            for (int i = 0; i < 2000; i++) {
+              Key key = keys[(i * 7 + offset) % keys.length];
+              cache.remove(key);
+              cache.put(key, resource);
+            }
+            return null;
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    long remaining = 0;
+    for (Key key : keys) {
+      if (cache.remove(key) != null) {
+        remaining += 30;
+      }
+    }
+    assertThat(remaining).isAtMost(1000L);
+    assertThat(cache.getCurrentSize()).isEqualTo(0);
+  }
+
+  private static Resource<?> getResource(int size) {
+    Resource<?> resource = mockResource();
+    when(resource.getSize()).thenReturn(size);
+    return resource;
+  }
+
+  private static class MockKey implements Key {
+    @Override
+    public void updateDiskCacheKey(@NonNull MessageDigest messageDigest) {
+      messageDigest.update(toString().getBytes(CHARSET));
+    }
+  }
+}
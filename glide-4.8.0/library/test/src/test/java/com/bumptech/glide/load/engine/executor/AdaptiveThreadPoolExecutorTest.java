@@ -0,0 +1,113 @@
+package com.bumptech.glide.load.engine.executor;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import com.bumptech.glide.load.engine.executor.AdaptiveThreadPoolExecutor.Decision;
+import java.util.concurrent.Executors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class AdaptiveThreadPoolExecutorTest {
+  private static final int MIN = 1;
+  private static final int MAX = 8;
+  private static final int CORES = 4;
+  private static final long TARGET = 100;
+
+  private AdaptiveThreadPoolExecutor.Listener listener;
+  private AdaptiveThreadPoolExecutor executor;
+
+  @Before
+  public void setUp() {
+    listener = mock(AdaptiveThreadPoolExecutor.Listener.class);
+    executor = new AdaptiveThreadPoolExecutor(
+        new AdaptiveThreadPoolExecutor.Builder()
+            .setThreadBounds(MIN, MAX)
+            .setInitialThreads(3)
+            .setTargetQueueMillis(TARGET)
+            .setListener(listener),
+        CORES,
+        Executors.defaultThreadFactory());
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void decide_withLongWaitAndBlockedJobs_addsThread() {
+    assertThat(decide(4, TARGET + 1, /*blockedFraction=*/ 0.9f, /*isQueueEmpty=*/ false))
+        .isEqualTo(5);
+  }
+
+  @Test
+  public void decide_withLongWaitAndCpuBoundJobs_doesNotAddThread() {
+    assertThat(decide(CORES, TARGET + 1, /*blockedFraction=*/ 0.3f, /*isQueueEmpty=*/ false))
+        .isEqualTo(CORES);
+  }
+
+  @Test
+  public void decide_withCpuBoundJobsAndMoreThreadsThanCores_removesThread() {
+    assertThat(decide(CORES + 2, TARGET + 1, /*blockedFraction=*/ 0.1f, /*isQueueEmpty=*/ false))
+        .isEqualTo(CORES + 1);
+  }
+
+  @Test
+  public void decide_withIdleQueue_removesThread() {
+    assertThat(decide(2, /*meanQueueMillis=*/ 0, /*blockedFraction=*/ 0.9f, /*isQueueEmpty=*/ true))
+        .isEqualTo(1);
+  }
+
+  @Test
+  public void decide_staysWithinBounds() {
+    assertThat(decide(MAX, TARGET + 1, /*blockedFraction=*/ 1f, /*isQueueEmpty=*/ false))
+        .isEqualTo(MAX);
+    assertThat(decide(MIN, /*meanQueueMillis=*/ 0, /*blockedFraction=*/ 0f, /*isQueueEmpty=*/ true))
+        .isEqualTo(MIN);
+  }
+
+  @Test
+  public void constructor_clampsInitialThreadsToBounds() {
+    AdaptiveThreadPoolExecutor clamped = new AdaptiveThreadPoolExecutor(
+        new AdaptiveThreadPoolExecutor.Builder().setThreadBounds(2, 4).setInitialThreads(10),
+        CORES,
+        Executors.defaultThreadFactory());
+    try {
+      assertThat(clamped.getCorePoolSize()).isEqualTo(4);
+      assertThat(clamped.getMaximumPoolSize()).isEqualTo(4);
+    } finally {
+      clamped.shutdownNow();
+    }
+  }
+
+  @Test
+  public void evaluate_withIdleQueue_removesThreadAndNotifiesListener() {
+    Decision decision = executor.evaluate();
+
+    assertThat(decision.getOldThreadCount()).isEqualTo(3);
+    assertThat(decision.getNewThreadCount()).isEqualTo(2);
+    assertThat(decision.getStartedCount()).isEqualTo(0);
+    assertThat(executor.getCorePoolSize()).isEqualTo(2);
+    assertThat(executor.getMaximumPoolSize()).isEqualTo(2);
+    verify(listener).onEvaluated(decision);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void setThreadBounds_withMaxLessThanMin_throws() {
+    new AdaptiveThreadPoolExecutor.Builder().setThreadBounds(4, 2);
+  }
+
+  private static int decide(
+      int threads, long meanQueueMillis, float blockedFraction, boolean isQueueEmpty) {
+    return AdaptiveThreadPoolExecutor.decide(threads, MIN, MAX, CORES, meanQueueMillis, TARGET,
+        blockedFraction, isQueueEmpty);
+  }
+}
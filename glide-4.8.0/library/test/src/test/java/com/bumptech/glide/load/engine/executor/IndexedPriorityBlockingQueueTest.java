@@ -0,0 +1,167 @@
+package com.bumptech.glide.load.engine.executor;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.support.annotation.NonNull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class IndexedPriorityBlockingQueueTest {
+  private IndexedPriorityBlockingQueue<Item> queue;
+
+  @Before
+  public void setUp() {
+    queue = new IndexedPriorityBlockingQueue<>();
+  }
+
+  @Test
+  public void poll_returnsItemsInOrder() {
+    Random random = new Random(0);
+    for (int i = 0; i < 100; i++) {
+      queue.offer(new Item(random.nextInt(50)));
+    }
+
+    assertThat(drainValues()).isOrdered();
+  }
+
+  @Test
+  public void reorder_withPromotedItem_movesItemToHead() {
+    Item first = new Item(1);
+    Item second = new Item(2);
+    final Item third = new Item(3);
+    queue.offer(first);
+    queue.offer(second);
+    queue.offer(third);
+
+    boolean result = queue.reorder(third, new Runnable() {
+      @Override
+      public void run() {
+        third.value = 0;
+      }
+    });
+
+    assertThat(result).isTrue();
+    assertThat(queue.poll()).isSameAs(third);
+    assertThat(queue.poll()).isSameAs(first);
+    assertThat(queue.poll()).isSameAs(second);
+  }
+
+  @Test
+  public void reorder_withDemotedItem_movesItemToTail() {
+    final Item first = new Item(1);
+    Item second = new Item(2);
+    Item third = new Item(3);
+    queue.offer(first);
+    queue.offer(second);
+    queue.offer(third);
+
+    queue.reorder(first, new Runnable() {
+      @Override
+      public void run() {
+        first.value = 4;
+      }
+    });
+
+    assertThat(queue.poll()).isSameAs(second);
+    assertThat(queue.poll()).isSameAs(third);
+    assertThat(queue.poll()).isSameAs(first);
+  }
+
+  @Test
+  public void reorder_withManyItems_keepsOrder() {
+    Random random = new Random(0);
+    final List<Item> items = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      Item item = new Item(random.nextInt(50));
+      items.add(item);
+      queue.offer(item);
+    }
+    for (int i = 0; i < 100; i++) {
+      final Item item = items.get(random.nextInt(items.size()));
+      final int value = random.nextInt(50);
+      queue.reorder(item, new Runnable() {
+        @Override
+        public void run() {
+          item.value = value;
+        }
+      });
+    }
+
+    assertThat(drainValues()).isOrdered();
+  }
+
+  @Test
+  public void reorder_withItemNotInQueue_runsChangeAndReturnsFalse() {
+    final Item item = new Item(1);
+
+    boolean result = queue.reorder(item, new Runnable() {
+      @Override
+      public void run() {
+        item.value = 2;
+      }
+    });
+
+    assertThat(result).isFalse();
+    assertThat(item.value).isEqualTo(2);
+  }
+
+  @Test
+  public void remove_removesItemAndKeepsOrder() {
+    Item first = new Item(1);
+    Item second = new Item(2);
+    Item third = new Item(3);
+    queue.offer(third);
+    queue.offer(first);
+    queue.offer(second);
+
+    assertThat(queue.remove(first)).isTrue();
+    assertThat(queue.remove(first)).isFalse();
+    assertThat(queue.contains(second)).isTrue();
+    assertThat(queue.poll()).isSameAs(second);
+    assertThat(queue.poll()).isSameAs(third);
+    assertThat(queue.poll()).isNull();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void offer_withItemAlreadyInQueue_throws() {
+    Item item = new Item(1);
+    queue.offer(item);
+    queue.offer(item);
+  }
+
+  @Test
+  public void poll_withTimeoutAndEmptyQueue_returnsNull() throws InterruptedException {
+    assertThat(queue.poll(1, TimeUnit.MILLISECONDS)).isNull();
+  }
+
+  private List<Integer> drainValues() {
+    List<Integer> result = new ArrayList<>();
+    Item item;
+    while ((item = queue.poll()) != null) {
+      result.add(item.value);
+    }
+    return result;
+  }
+
+  private static final class Item implements Comparable<Item> {
+    int value;
+
+    Item(int value) {
+      this.value = value;
+    }
+
+    @Override
+    public int compareTo(@NonNull Item other) {
+      return value - other.value;
+    }
+  }
+}
@@ -0,0 +1,143 @@
+package com.bumptech.glide.load.engine.prefill;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.graphics.Bitmap;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class BitmapDemandHistogramTest {
+  private BitmapDemandHistogram histogram;
+
+  @Before
+  public void setUp() {
+    histogram = new BitmapDemandHistogram();
+  }
+
+  @Test
+  public void getMostRequested_returnsTypesInDescendingOrderOfCount() {
+    record(histogram, 100, 100, Bitmap.Config.ARGB_8888, 1);
+    record(histogram, 200, 200, Bitmap.Config.ARGB_8888, 3);
+    record(histogram, 200, 200, Bitmap.Config.RGB_565, 2);
+
+    List<PreFillType.Builder> result = histogram.getMostRequested(/*maxTypes=*/ 2);
+
+    assertThat(result).hasSize(2);
+    assertType(result.get(0), 200, 200, Bitmap.Config.ARGB_8888, 3);
+    assertType(result.get(1), 200, 200, Bitmap.Config.RGB_565, 2);
+  }
+
+  @Test
+  public void record_withInvalidSize_isIgnored() {
+    histogram.record(0, 100, Bitmap.Config.ARGB_8888);
+    histogram.record(100, -1, Bitmap.Config.ARGB_8888);
+
+    assertThat(histogram.getMostRequested(/*maxTypes=*/ 1)).isEmpty();
+  }
+
+  @Test
+  public void record_withMaxTypes_ignoresNewTypesButCountsExistingTypes() {
+    for (int i = 1; i <= BitmapDemandHistogram.MAX_TRACKED_TYPES; i++) {
+      histogram.record(i, i, Bitmap.Config.ARGB_8888);
+    }
+    record(histogram, 1000, 1000, Bitmap.Config.ARGB_8888, 5);
+    record(histogram, 1, 1, Bitmap.Config.ARGB_8888, 2);
+
+    List<PreFillType.Builder> result =
+        histogram.getMostRequested(BitmapDemandHistogram.MAX_TRACKED_TYPES + 1);
+
+    assertThat(result).hasSize(BitmapDemandHistogram.MAX_TRACKED_TYPES);
+    assertType(result.get(0), 1, 1, Bitmap.Config.ARGB_8888, 3);
+  }
+
+  @Test
+  public void readFrom_withWrittenHistogram_addsHalfOfEachCount() throws IOException {
+    record(histogram, 100, 100, Bitmap.Config.ARGB_8888, 10);
+    record(histogram, 50, 50, null, 4);
+    record(histogram, 10, 10, Bitmap.Config.ARGB_8888, 1);
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    histogram.writeTo(os, /*maxTypes=*/ 8);
+
+    BitmapDemandHistogram next = new BitmapDemandHistogram();
+    next.record(50, 50, null);
+    next.readFrom(new ByteArrayInputStream(os.toByteArray()));
+
+    List<PreFillType.Builder> result = next.getMostRequested(/*maxTypes=*/ 8);
+    assertThat(result).hasSize(2);
+    assertType(result.get(0), 100, 100, Bitmap.Config.ARGB_8888, 5);
+    assertType(result.get(1), 50, 50, null, 3);
+  }
+
+  @Test
+  public void writeTo_withMaxTypes_writesOnlyMostRequestedTypes() throws IOException {
+    record(histogram, 100, 100, Bitmap.Config.ARGB_8888, 4);
+    record(histogram, 200, 200, Bitmap.Config.ARGB_8888, 2);
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    histogram.writeTo(os, /*maxTypes=*/ 1);
+
+    BitmapDemandHistogram next = new BitmapDemandHistogram();
+    next.readFrom(new ByteArrayInputStream(os.toByteArray()));
+
+    List<PreFillType.Builder> result = next.getMostRequested(/*maxTypes=*/ 8);
+    assertThat(result).hasSize(1);
+    assertType(result.get(0), 100, 100, Bitmap.Config.ARGB_8888, 2);
+  }
+
+  @Test
+  public void readFrom_withUnknownConfig_ignoresType() throws IOException {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(os);
+    out.writeInt(1);
+    out.writeInt(2);
+    writeType(out, 100, 100, "NOT_A_CONFIG", 10);
+    writeType(out, 200, 200, Bitmap.Config.RGB_565.name(), 10);
+
+    histogram.readFrom(new ByteArrayInputStream(os.toByteArray()));
+
+    List<PreFillType.Builder> result = histogram.getMostRequested(/*maxTypes=*/ 8);
+    assertThat(result).hasSize(1);
+    assertType(result.get(0), 200, 200, Bitmap.Config.RGB_565, 5);
+  }
+
+  @Test(expected = IOException.class)
+  public void readFrom_withUnknownVersion_throws() throws IOException {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    new DataOutputStream(os).writeInt(Integer.MAX_VALUE);
+
+    histogram.readFrom(new ByteArrayInputStream(os.toByteArray()));
+  }
+
+  private static void writeType(
+      DataOutputStream out, int width, int height, String config, int count) throws IOException {
+    out.writeInt(width);
+    out.writeInt(height);
+    out.writeUTF(config);
+    out.writeInt(count);
+  }
+
+  private static void record(
+      BitmapDemandHistogram histogram, int width, int height, Bitmap.Config config, int times) {
+    for (int i = 0; i < times; i++) {
+      histogram.record(width, height, config);
+    }
+  }
+
+  private static void assertType(
+      PreFillType.Builder builder, int width, int height, Bitmap.Config config, int weight) {
+    assertThat(builder.getConfig()).isEqualTo(config);
+    PreFillType type = builder.setConfig(Bitmap.Config.ALPHA_8).build();
+    assertThat(type.getWidth()).isEqualTo(width);
+    assertThat(type.getHeight()).isEqualTo(height);
+    assertThat(type.getWeight()).isEqualTo(weight);
+  }
+}
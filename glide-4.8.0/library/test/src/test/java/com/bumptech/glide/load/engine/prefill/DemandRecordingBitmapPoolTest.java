@@ -0,0 +1,58 @@
+package com.bumptech.glide.load.engine.prefill;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import android.graphics.Bitmap;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class DemandRecordingBitmapPoolTest {
+  private BitmapPool wrapped;
+  private BitmapDemandHistogram histogram;
+  private DemandRecordingBitmapPool pool;
+
+  @Before
+  public void setUp() {
+    wrapped = mock(BitmapPool.class);
+    histogram = new BitmapDemandHistogram();
+    pool = new DemandRecordingBitmapPool(wrapped, histogram);
+  }
+
+  @Test
+  public void get_recordsRequestAndReturnsBitmapFromWrappedPool() {
+    Bitmap bitmap = Bitmap.createBitmap(100, 200, Bitmap.Config.ARGB_8888);
+    when(wrapped.get(100, 200, Bitmap.Config.ARGB_8888)).thenReturn(bitmap);
+
+    assertThat(pool.get(100, 200, Bitmap.Config.ARGB_8888)).isSameAs(bitmap);
+    assertRecorded(100, 200, Bitmap.Config.ARGB_8888, 1);
+  }
+
+  @Test
+  public void getDirty_recordsRequestAndReturnsBitmapFromWrappedPool() {
+    Bitmap bitmap = Bitmap.createBitmap(100, 200, Bitmap.Config.RGB_565);
+    when(wrapped.getDirty(100, 200, Bitmap.Config.RGB_565)).thenReturn(bitmap);
+
+    assertThat(pool.getDirty(100, 200, Bitmap.Config.RGB_565)).isSameAs(bitmap);
+    pool.getDirty(100, 200, Bitmap.Config.RGB_565);
+    assertRecorded(100, 200, Bitmap.Config.RGB_565, 2);
+  }
+
+  private void assertRecorded(int width, int height, Bitmap.Config config, int count) {
+    List<PreFillType.Builder> recorded = histogram.getMostRequested(/*maxTypes=*/ 2);
+    assertThat(recorded).hasSize(1);
+    PreFillType type = recorded.get(0).build();
+    assertThat(type.getWidth()).isEqualTo(width);
+    assertThat(type.getHeight()).isEqualTo(height);
+    assertThat(type.getConfig()).isEqualTo(config);
+    assertThat(type.getWeight()).isEqualTo(count);
+  }
+}
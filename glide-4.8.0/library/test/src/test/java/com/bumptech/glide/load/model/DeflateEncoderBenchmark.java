@@ -0,0 +1,161 @@
+package com.bumptech.glide.load.model;
+
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruArrayPool;
+import com.bumptech.glide.util.ByteBufferUtil;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+/**
+ * Compares data written by {@link DeflateEncoder} at a few compression levels with uncompressed
+ * data, for a payload that compresses well, like a BMP, and one that doesn't, like a JPEG.
+ *
+ * <p>Prints the effective capacity of the disk cache relative to uncompressed data, the time taken
+ * to write each entry and the time taken to read each entry back into a {@link ByteBuffer}.
+ *
+ * <p>Not run as part of the test suite, run {@link #main(String[])} directly with the test
+ * classpath. {@link DeflateEncoder} and {@link LruArrayPool} log with {@link android.util.Log},
+ * so {@link #main(String[])} runs {@link #benchmark()} with Robolectric.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public final class DeflateEncoderBenchmark {
+  private static final int WIDTH = 512;
+  private static final int HEIGHT = 512;
+  private static final int BYTES_PER_PIXEL = 4;
+  private static final int[] LEVELS =
+      new int[] { Deflater.BEST_SPEED, Deflater.DEFAULT_COMPRESSION, Deflater.BEST_COMPRESSION };
+  private static final int WARMUP_ITERATIONS = 5;
+  private static final int MEASURED_ITERATIONS = 20;
+
+  private final LruArrayPool arrayPool = new LruArrayPool();
+
+  public static void main(String[] args) {
+    Result result = JUnitCore.runClasses(DeflateEncoderBenchmark.class);
+    if (!result.wasSuccessful()) {
+      throw new IllegalStateException("Benchmark failed: " + result.getFailures());
+    }
+  }
+
+  @Test
+  public void benchmark() throws IOException {
+    File file = new File(RuntimeEnvironment.application.getCacheDir(), "benchmark");
+    try {
+      System.out.println("payload\tlevel\tbytes\tcapacity\twriteMs\treadMs");
+      run("bmp", newBitmapLikePayload(), file);
+      run("jpeg", newIncompressiblePayload(), file);
+    } finally {
+      if (!file.delete() && file.exists()) {
+        throw new IllegalStateException("Failed to delete: " + file);
+      }
+    }
+  }
+
+  private void run(String name, byte[] payload, File file) throws IOException {
+    double rawWriteMs = measureWrite(payload, file, new Options());
+    long rawLength = file.length();
+    double rawReadMs = measureRead(file, /*deflated=*/ false);
+    print(name, "none", rawLength, 1, rawWriteMs, rawReadMs);
+
+    for (int level : LEVELS) {
+      Options options = new Options()
+          .set(DeflateEncoder.COMPRESS, true)
+          .set(DeflateEncoder.COMPRESSION_LEVEL, level);
+      double writeMs = measureWrite(payload, file, options);
+      long length = file.length();
+      double readMs = measureRead(file, /*deflated=*/ true);
+      String levelName =
+          level == Deflater.DEFAULT_COMPRESSION ? "default" : String.valueOf(level);
+      print(name, levelName, length, rawLength / (double) length, writeMs, readMs);
+    }
+  }
+
+  private double measureWrite(byte[] payload, File file, Options options) {
+    DeflateEncoder<ByteBuffer> encoder = DeflateEncoder.forByteBuffers(arrayPool);
+    ByteBuffer buffer = ByteBuffer.wrap(payload);
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      write(encoder, buffer, file, options);
+    }
+    long elapsed = 0;
+    for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+      elapsed += write(encoder, buffer, file, options);
+    }
+    return toMillisPerIteration(elapsed);
+  }
+
+  private static long write(
+      DeflateEncoder<ByteBuffer> encoder, ByteBuffer buffer, File file, Options options) {
+    // Disk cache entries are always written to new files, ByteBufferEncoder doesn't truncate.
+    if (!file.delete() && file.exists()) {
+      throw new IllegalStateException("Failed to delete: " + file);
+    }
+    long start = System.nanoTime();
+    if (!encoder.encode(buffer, file, options)) {
+      throw new IllegalStateException("Failed to encode: " + file);
+    }
+    return System.nanoTime() - start;
+  }
+
+  private static double measureRead(File file, boolean deflated) throws IOException {
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      read(file, deflated);
+    }
+    long start = System.nanoTime();
+    for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+      read(file, deflated);
+    }
+    return toMillisPerIteration(System.nanoTime() - start);
+  }
+
+  private static ByteBuffer read(File file, boolean deflated) throws IOException {
+    if (deflated) {
+      return DeflatedFileLoader.inflate(new DeflatedFile(file));
+    }
+    // Matches ByteBufferFileLoader, which maps the file rather than reading it.
+    return ByteBufferUtil.fromFile(file);
+  }
+
+  private static double toMillisPerIteration(long elapsedNanos) {
+    return elapsedNanos / (double) TimeUnit.MILLISECONDS.toNanos(1) / MEASURED_ITERATIONS;
+  }
+
+  private static void print(
+      String name, String level, long length, double capacity, double writeMs, double readMs) {
+    System.out.println(String.format(
+        "%s\t%s\t%d\t%.2fx\t%.2f\t%.2f", name, level, length, capacity, writeMs, readMs));
+  }
+
+  /** Uncompressed ARGB pixels of a smooth gradient with some noise, like a photo saved as BMP. */
+  private static byte[] newBitmapLikePayload() {
+    Random random = new Random(0);
+    byte[] result = new byte[WIDTH * HEIGHT * BYTES_PER_PIXEL];
+    int index = 0;
+    for (int y = 0; y < HEIGHT; y++) {
+      for (int x = 0; x < WIDTH; x++) {
+        result[index++] = (byte) 0xFF;
+        result[index++] = (byte) (x / 2 + random.nextInt(4));
+        result[index++] = (byte) (y / 2 + random.nextInt(4));
+        result[index++] = (byte) ((x + y) / 4);
+      }
+    }
+    return result;
+  }
+
+  /** Random bytes, which compress about as well as already compressed data like JPEGs. */
+  private static byte[] newIncompressiblePayload() {
+    byte[] result = new byte[WIDTH * HEIGHT];
+    new Random(0).nextBytes(result);
+    return result;
+  }
+}
@@ -0,0 +1,142 @@
+package com.bumptech.glide.load.model;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.mock;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruArrayPool;
+import com.bumptech.glide.util.ByteBufferUtil;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class DeflateEncoderTest {
+  private final LruArrayPool arrayPool = new LruArrayPool();
+  private File file;
+  private byte[] data;
+  private Options compress;
+
+  @Before
+  public void setUp() {
+    file = new File(RuntimeEnvironment.application.getCacheDir(), "test");
+    // Compressible, but longer than the buffers used to copy and inflate data.
+    data = new byte[100 * 1024];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) (i % 251);
+    }
+    compress = new Options().set(DeflateEncoder.COMPRESS, true);
+  }
+
+  @After
+  public void tearDown() {
+    // GC before delete() to release files on Windows (https://stackoverflow.com/a/4213208/253468)
+    System.gc();
+    if (!file.delete()) {
+      throw new IllegalStateException("Failed to delete: " + file);
+    }
+  }
+
+  @Test
+  public void encode_stream_withoutCompress_writesDataAsIs() throws IOException {
+    assertThat(DeflateEncoder.forStreams(arrayPool)
+        .encode(new ByteArrayInputStream(data), file, new Options())).isTrue();
+
+    assertThat(DeflatedFile.isDeflated(file)).isFalse();
+    assertThat(ByteBufferUtil.toBytes(ByteBufferUtil.fromFile(file))).isEqualTo(data);
+  }
+
+  @Test
+  public void encode_stream_withCompress_writesDeflatedFile() throws IOException {
+    assertThat(DeflateEncoder.forStreams(arrayPool)
+        .encode(new ByteArrayInputStream(data), file, compress)).isTrue();
+
+    assertThat(DeflatedFile.isDeflated(file)).isTrue();
+    assertThat(file.length()).isLessThan((long) data.length);
+    assertThat(ByteBufferUtil.toBytes(DeflatedFileLoader.inflate(new DeflatedFile(file))))
+        .isEqualTo(data);
+  }
+
+  @Test
+  public void encode_heapByteBuffer_withCompress_canBeReadAsStream() throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(data);
+    buffer.position(10);
+    assertThat(DeflateEncoder.forByteBuffers(arrayPool).encode(buffer, file, compress)).isTrue();
+
+    assertThat(buffer.position()).isEqualTo(10);
+    assertThat(readStream(new DeflatedFile(file))).isEqualTo(data);
+  }
+
+  @Test
+  public void encode_directByteBuffer_withCompress_canBeInflated() throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+    buffer.put(data);
+    assertThat(DeflateEncoder.forByteBuffers(arrayPool).encode(buffer, file, compress)).isTrue();
+
+    assertThat(ByteBufferUtil.toBytes(DeflatedFileLoader.inflate(new DeflatedFile(file))))
+        .isEqualTo(data);
+  }
+
+  @Test
+  public void isDeflated_withShortFile_returnsFalse() throws IOException {
+    assertThat(DeflateEncoder.forStreams(arrayPool)
+        .encode(new ByteArrayInputStream(new byte[] { 1, 2 }), file, new Options())).isTrue();
+
+    assertThat(DeflatedFile.isDeflated(file)).isFalse();
+  }
+
+  @Test
+  public void encode_withCompress_andEmptyData_canBeInflated() throws IOException {
+    assertThat(DeflateEncoder.forStreams(arrayPool)
+        .encode(new ByteArrayInputStream(new byte[0]), file, compress)).isTrue();
+
+    assertThat(DeflatedFile.isDeflated(file)).isTrue();
+    assertThat(DeflatedFileLoader.inflate(new DeflatedFile(file)).remaining()).isEqualTo(0);
+  }
+
+  private static byte[] readStream(DeflatedFile file) throws IOException {
+    DataFetcher<InputStream> fetcher = new DeflatedFileLoader.StreamFactory()
+        .build(mock(MultiModelLoaderFactory.class))
+        .buildLoadData(file, 100, 100, new Options())
+        .fetcher;
+    final InputStream[] result = new InputStream[1];
+    fetcher.loadData(Priority.NORMAL, new DataFetcher.DataCallback<InputStream>() {
+      @Override
+      public void onDataReady(@Nullable InputStream data) {
+        result[0] = data;
+      }
+
+      @Override
+      public void onLoadFailed(@NonNull Exception e) {
+        throw new AssertionError(e);
+      }
+    });
+    try {
+      ByteArrayOutputStream os = new ByteArrayOutputStream();
+      byte[] buffer = new byte[1024];
+      int read;
+      while ((read = result[0].read(buffer)) != -1) {
+        os.write(buffer, 0, read);
+      }
+      return os.toByteArray();
+    } finally {
+      fetcher.cleanup();
+    }
+  }
+}
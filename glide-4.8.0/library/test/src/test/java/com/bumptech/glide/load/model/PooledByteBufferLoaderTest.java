@@ -0,0 +1,142 @@
+package com.bumptech.glide.load.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.bumptech.glide.load.engine.bitmap_recycle.DirectByteBufferPool;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class PooledByteBufferLoaderTest {
+  private static final int BUFFER_SIZE = 16384;
+
+  private DirectByteBufferPool pool;
+
+  @Before
+  public void setUp() {
+    pool = new DirectByteBufferPool();
+  }
+
+  @Test
+  public void testFromStream_small() throws IOException {
+    testFromStream(4);
+  }
+
+  @Test
+  public void testFromStream_empty() throws IOException {
+    testFromStream(0);
+  }
+
+  @Test
+  public void testFromStream_massive() throws IOException {
+    testFromStream(12 * BUFFER_SIZE + 12345);
+  }
+
+  @Test
+  public void testFromStream_withUnknownLength_growsBuffer() throws IOException {
+    byte[] bytes = createByteData(12 * BUFFER_SIZE + 12345);
+    InputStream byteStream = new FilterInputStream(new ByteArrayInputStream(bytes)) {
+      @Override
+      public int available() {
+        return 0;
+      }
+    };
+    ByteBuffer byteBuffer = PooledByteBufferLoader.fromStream(byteStream, pool);
+    assertByteBufferContents(byteBuffer, bytes);
+  }
+
+  @Test
+  public void testFromStream_withIOException_returnsBufferToPool() {
+    int sizeWithAllBuffersReturned = warmPool();
+    try {
+      PooledByteBufferLoader.fromStream(new FailingInputStream(new IOException("test")), pool);
+      fail();
+    } catch (IOException expected) {
+      // Expected.
+    }
+    assertEquals(sizeWithAllBuffersReturned, pool.getCurrentSize());
+  }
+
+  @Test
+  public void testFromStream_withRuntimeException_returnsBufferToPool() throws IOException {
+    int sizeWithAllBuffersReturned = warmPool();
+    try {
+      PooledByteBufferLoader.fromStream(
+          new FailingInputStream(new IllegalStateException("test")), pool);
+      fail();
+    } catch (IllegalStateException expected) {
+      // Expected.
+    }
+    assertEquals(sizeWithAllBuffersReturned, pool.getCurrentSize());
+  }
+
+  /**
+   * Allocates and returns the buffer a failing read uses and returns the pool's size with every
+   * buffer returned.
+   */
+  private int warmPool() {
+    pool.put(pool.get(2 * BUFFER_SIZE));
+    return pool.getCurrentSize();
+  }
+
+  private void testFromStream(int dataLength) throws IOException {
+    byte[] bytes = createByteData(dataLength);
+    InputStream byteStream = new ByteArrayInputStream(bytes);
+    ByteBuffer byteBuffer = PooledByteBufferLoader.fromStream(byteStream, pool);
+    assertTrue(byteBuffer.isDirect());
+    assertEquals(0, byteBuffer.position());
+    assertByteBufferContents(byteBuffer, bytes);
+    byteStream.close();
+  }
+
+  private byte[] createByteData(int size) {
+    byte[] bytes = new byte[size];
+
+    // Put some arbitrary bytes in there.
+    for (int i = 0; i < size; i++) {
+      bytes[i] = (byte) (i % 4);
+    }
+
+    return bytes;
+  }
+
+  private void assertByteBufferContents(ByteBuffer buffer, byte[] expectedBytes) {
+    assertEquals(expectedBytes.length, buffer.limit());
+    for (int i = 0; i < expectedBytes.length; i++) {
+      assertEquals(expectedBytes[i], buffer.get(i));
+    }
+  }
+
+  /** Reads more than one chunk into a pooled buffer and then throws. */
+  private final class FailingInputStream extends FilterInputStream {
+    private final Exception failure;
+
+    FailingInputStream(Exception failure) {
+      super(new ByteArrayInputStream(createByteData(BUFFER_SIZE + 1)));
+      this.failure = failure;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      int read = super.read(buffer, offset, length);
+      if (read >= 0) {
+        return read;
+      }
+      if (failure instanceof IOException) {
+        throw (IOException) failure;
+      }
+      throw (RuntimeException) failure;
+    }
+  }
+}
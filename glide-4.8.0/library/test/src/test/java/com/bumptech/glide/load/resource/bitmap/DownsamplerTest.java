@@ -0,0 +1,155 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import com.bumptech.glide.load.ImageHeaderParser;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPoolAdapter;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruArrayPool;
+import com.bumptech.glide.request.target.Target;
+import com.bumptech.glide.util.ByteBufferUtil;
+import com.bumptech.glide.util.ByteCopyCounter;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import javax.imageio.ImageIO;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class DownsamplerTest {
+  private static final int WIDTH = 20;
+  private static final int HEIGHT = 10;
+  // EXIF orientation 6 rotates the image by 90 degrees.
+  private static final int ROTATE_90 = 6;
+
+  private ArrayPool arrayPool;
+  private Downsampler downsampler;
+
+  @Before
+  public void setUp() {
+    arrayPool = new LruArrayPool();
+    downsampler = new Downsampler(
+        Collections.<ImageHeaderParser>singletonList(new DefaultImageHeaderParser()),
+        RuntimeEnvironment.application.getResources().getDisplayMetrics(),
+        new BitmapPoolAdapter(),
+        arrayPool);
+    ByteCopyCounter.reset();
+  }
+
+  @After
+  public void tearDown() {
+    ByteCopyCounter.setEnabled(false);
+    ByteCopyCounter.reset();
+  }
+
+  @Test
+  public void decode_withByteBuffer_decodesImage() throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(newJpeg(/*orientation=*/ null));
+
+    Resource<Bitmap> result =
+        downsampler.decode(buffer, Target.SIZE_ORIGINAL, Target.SIZE_ORIGINAL, new Options());
+
+    assertThat(result.get().getWidth()).isEqualTo(WIDTH);
+    assertThat(result.get().getHeight()).isEqualTo(HEIGHT);
+  }
+
+  @Test
+  public void decode_withByteBufferAndExifOrientation_rotatesImage() throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(newJpeg(ROTATE_90));
+
+    Resource<Bitmap> result =
+        downsampler.decode(buffer, Target.SIZE_ORIGINAL, Target.SIZE_ORIGINAL, new Options());
+
+    assertThat(result.get().getWidth()).isEqualTo(HEIGHT);
+    assertThat(result.get().getHeight()).isEqualTo(WIDTH);
+  }
+
+  @Test
+  public void decode_withByteBuffer_matchesStream() throws IOException {
+    byte[] data = newJpeg(ROTATE_90);
+
+    Resource<Bitmap> fromBuffer = downsampler.decode(
+        ByteBuffer.wrap(data), Target.SIZE_ORIGINAL, Target.SIZE_ORIGINAL, new Options());
+    Resource<Bitmap> fromStream = downsampler.decode(
+        new RecyclableBufferedInputStream(new ByteArrayInputStream(data), arrayPool),
+        Target.SIZE_ORIGINAL, Target.SIZE_ORIGINAL, new Options());
+
+    assertThat(fromBuffer.get().getWidth()).isEqualTo(fromStream.get().getWidth());
+    assertThat(fromBuffer.get().getHeight()).isEqualTo(fromStream.get().getHeight());
+  }
+
+  @Test
+  public void byteBufferBitmapDecoder_decodesWithOrientation() throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(newJpeg(ROTATE_90));
+
+    Resource<Bitmap> result = new ByteBufferBitmapDecoder(downsampler)
+        .decode(buffer, Target.SIZE_ORIGINAL, Target.SIZE_ORIGINAL, new Options());
+
+    assertThat(result.get().getWidth()).isEqualTo(HEIGHT);
+    assertThat(result.get().getHeight()).isEqualTo(WIDTH);
+  }
+
+  @Test
+  public void decode_withByteBuffer_onlyCopiesBytesReadByPlatformDecoder() throws IOException {
+    byte[] data = newJpeg(ROTATE_90);
+    ByteCopyCounter.setEnabled(true);
+    // Downsampler reads the image's bounds and then decodes it.
+    BitmapFactory.Options boundsOptions = new BitmapFactory.Options();
+    boundsOptions.inJustDecodeBounds = true;
+    BitmapFactory.decodeStream(
+        ByteBufferUtil.toStream(ByteBuffer.wrap(data)), /*outPadding=*/ null, boundsOptions);
+    BitmapFactory.decodeStream(ByteBufferUtil.toStream(ByteBuffer.wrap(data)));
+    long platformBytesCopied = ByteCopyCounter.getTotalBytesCopied();
+    ByteCopyCounter.reset();
+
+    downsampler.decode(
+        ByteBuffer.wrap(data), Target.SIZE_ORIGINAL, Target.SIZE_ORIGINAL, new Options());
+
+    // The type and orientation are parsed from the buffer itself without copying it.
+    assertThat(ByteCopyCounter.getTotalBytesCopied()).isEqualTo(platformBytesCopied);
+  }
+
+  /**
+   * Returns a JPEG of {@link #WIDTH}x{@link #HEIGHT} with an EXIF segment containing the given
+   * orientation, or without one if the orientation is null.
+   */
+  private static byte[] newJpeg(Integer orientation) throws IOException {
+    ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+    ImageIO.write(new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB), "jpg", jpeg);
+    byte[] bytes = jpeg.toByteArray();
+    if (orientation == null) {
+      return bytes;
+    }
+
+    ByteArrayOutputStream result = new ByteArrayOutputStream();
+    // Start of image.
+    result.write(bytes, 0, 2);
+    result.write(new byte[] {
+        (byte) 0xFF, (byte) 0xE1, 0, 34,
+        'E', 'x', 'i', 'f', 0, 0,
+        // Big endian TIFF header with the first IFD at offset 8.
+        'M', 'M', 0, 0x2A, 0, 0, 0, 8,
+        // One entry, the orientation as a single SHORT.
+        0, 1,
+        0x01, 0x12, 0, 3, 0, 0, 0, 1, 0, (byte) orientation.intValue(), 0, 0,
+        // No further IFDs.
+        0, 0, 0, 0,
+    });
+    result.write(bytes, 2, bytes.length - 2);
+    return result.toByteArray();
+  }
+}
@@ -103,6 +103,22 @@ public class RequestOptionsTest {
     assertThat(options.isScaleOnlyOrNoTransform()).isTrue();
   }
 
+  @Test
+  public void timeToLive_isNotAddedToOptions() {
+    options.timeToLive(100);
+    assertThat(options.getTimeToLiveMs()).isEqualTo(100);
+    assertThat(options.getOptions()).isEqualTo(new RequestOptions().getOptions());
+  }
+
+  @Test
+  public void apply_withTimeToLive_setsTimeToLive() {
+    options.apply(new RequestOptions().timeToLive(100));
+    assertThat(options.getTimeToLiveMs()).isEqualTo(100);
+
+    options.apply(new RequestOptions().priority(Priority.HIGH));
+    assertThat(options.getTimeToLiveMs()).isEqualTo(100);
+  }
+
   @Test
   public void isScaleOnlyOrNoTransform_withNonScaleAndThenDontTransform_isTrue() {
     options.circleCrop().dontTransform();
@@ -677,6 +693,11 @@ public class RequestOptionsTest {
             new RequestOptions().priority(Priority.HIGH))
         .addEqualityGroup(
             new RequestOptions().priority(Priority.LOW))
+        .addEqualityGroup(
+            new RequestOptions().timeToLive(100),
+            new RequestOptions().timeToLive(100))
+        .addEqualityGroup(
+            new RequestOptions().timeToLive(200))
         .addEqualityGroup(
             new RequestOptions().set(Option.memory("test"), true),
             new RequestOptions().set(Option.memory("test"), true))
@@ -8,6 +8,7 @@ import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isA;
 import static org.mockito.Mockito.doAnswer;
@@ -238,6 +239,7 @@ public class SingleRequestTest {
             eq(Object.class),
             eq(List.class),
             any(Priority.class),
+            anyLong(),
             any(DiskCacheStrategy.class),
             eq(builder.transformations),
             anyBoolean(),
@@ -272,6 +274,7 @@ public class SingleRequestTest {
             eq(Object.class),
             eq(List.class),
             any(Priority.class),
+            anyLong(),
             any(DiskCacheStrategy.class),
             eq(builder.transformations),
             anyBoolean(),
@@ -555,6 +558,7 @@ public class SingleRequestTest {
             eq(Object.class),
             eq(List.class),
             any(Priority.class),
+            anyLong(),
             any(DiskCacheStrategy.class),
             eq(builder.transformations),
             anyBoolean(),
@@ -690,6 +694,7 @@ public class SingleRequestTest {
             eq(Object.class),
             eq(List.class),
             any(Priority.class),
+            anyLong(),
             any(DiskCacheStrategy.class),
             eq(builder.transformations),
             anyBoolean(),
@@ -728,6 +733,7 @@ public class SingleRequestTest {
             eq(Object.class),
             eq(List.class),
             any(Priority.class),
+            anyLong(),
             any(DiskCacheStrategy.class),
             eq(builder.transformations),
             anyBoolean(),
@@ -772,6 +778,7 @@ public class SingleRequestTest {
             eq(Object.class),
             eq(List.class),
             any(Priority.class),
+            anyLong(),
             any(DiskCacheStrategy.class),
             eq(builder.transformations),
             anyBoolean(),
@@ -805,6 +812,7 @@ public class SingleRequestTest {
             eq(Object.class),
             eq(List.class),
             any(Priority.class),
+            anyLong(),
             any(DiskCacheStrategy.class),
             eq(builder.transformations),
             anyBoolean(),
@@ -837,6 +845,7 @@ public class SingleRequestTest {
             eq(Object.class),
             eq(List.class),
             any(Priority.class),
+            anyLong(),
             any(DiskCacheStrategy.class),
             eq(builder.transformations),
             anyBoolean(),
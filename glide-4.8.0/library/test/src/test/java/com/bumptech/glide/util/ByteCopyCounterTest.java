@@ -0,0 +1,104 @@
+package com.bumptech.glide.util;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import com.bumptech.glide.load.resource.bitmap.RecyclableBufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+@RunWith(JUnit4.class)
+public class ByteCopyCounterTest {
+  private static final int DATA_SIZE = 100;
+
+  @Before
+  public void setUp() {
+    ByteCopyCounter.reset();
+    ByteCopyCounter.setEnabled(true);
+  }
+
+  @After
+  public void tearDown() {
+    ByteCopyCounter.setEnabled(false);
+    ByteCopyCounter.reset();
+  }
+
+  @Test
+  public void record_whenDisabled_doesNotCount() {
+    ByteCopyCounter.setEnabled(false);
+    long threadStart = ByteCopyCounter.getThreadBytesCopied();
+    ByteCopyCounter.record(10);
+
+    assertThat(ByteCopyCounter.getTotalBytesCopied()).isEqualTo(0);
+    assertThat(ByteCopyCounter.getThreadBytesCopied()).isEqualTo(threadStart);
+  }
+
+  @Test
+  public void byteBufferStream_bulkRead_countsBytesCopied() throws IOException {
+    InputStream is = ByteBufferUtil.toStream(ByteBuffer.allocateDirect(DATA_SIZE));
+    readFully(is);
+
+    assertThat(ByteCopyCounter.getTotalBytesCopied()).isEqualTo(DATA_SIZE);
+  }
+
+  @Test
+  public void recyclableBufferedInputStream_countsBytesBuffered() throws IOException {
+    ArrayPool arrayPool = mock(ArrayPool.class);
+    when(arrayPool.get(anyInt(), eq(byte[].class))).thenAnswer(new Answer<byte[]>() {
+      @Override
+      public byte[] answer(InvocationOnMock invocation) {
+        return new byte[(Integer) invocation.getArguments()[0]];
+      }
+    });
+    InputStream is = new RecyclableBufferedInputStream(
+        new ByteArrayInputStream(new byte[DATA_SIZE]), arrayPool);
+    try {
+      readFully(is);
+    } finally {
+      is.close();
+    }
+
+    assertThat(ByteCopyCounter.getTotalBytesCopied()).isEqualTo(DATA_SIZE);
+  }
+
+  @Test
+  public void getThreadBytesCopied_onlyIncludesCurrentThread() throws InterruptedException {
+    long threadStart = ByteCopyCounter.getThreadBytesCopied();
+    final AtomicLong otherThreadCopied = new AtomicLong();
+    Thread other = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        ByteCopyCounter.record(5);
+        otherThreadCopied.set(ByteCopyCounter.getThreadBytesCopied());
+      }
+    });
+    other.start();
+    other.join();
+    ByteCopyCounter.record(3);
+
+    assertThat(otherThreadCopied.get()).isEqualTo(5);
+    assertThat(ByteCopyCounter.getThreadBytesCopied() - threadStart).isEqualTo(3);
+    assertThat(ByteCopyCounter.getTotalBytesCopied()).isEqualTo(8);
+  }
+
+  private static void readFully(InputStream is) throws IOException {
+    byte[] buffer = new byte[16];
+    while (is.read(buffer, 0, buffer.length) != -1) {
+      // Keep reading.
+    }
+  }
+}
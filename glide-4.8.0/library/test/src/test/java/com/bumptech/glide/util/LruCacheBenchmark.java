@@ -0,0 +1,93 @@
+package com.bumptech.glide.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how many operations per second a single {@link LruCache} handles from one or more
+ * threads, for a read heavy workload like {@link com.bumptech.glide.load.model.ModelCache}'s,
+ * where most gets hit, and a mixed workload where one in four operations is a put.
+ *
+ * <p>Not run as part of the test suite, run {@link #main(String[])} directly with the test
+ * classpath.
+ */
+public final class LruCacheBenchmark {
+  private static final int[] THREAD_COUNTS = new int[] { 1, 4, 8 };
+  private static final int CACHE_SIZE = 250;
+  private static final int KEY_COUNT = 300;
+  private static final int OPERATIONS_PER_THREAD = 500000;
+  private static final int WARMUP_ITERATIONS = 3;
+  private static final int MEASURED_ITERATIONS = 5;
+
+  private LruCacheBenchmark() { }
+
+  public static void main(String[] args) throws Exception {
+    System.out.println("threads\treadOps/s\tmixedOps/s");
+    for (int threadCount : THREAD_COUNTS) {
+      double read = measure(threadCount, /*putEvery=*/ 0);
+      double mixed = measure(threadCount, /*putEvery=*/ 4);
+      System.out.println(threadCount + "\t" + (long) read + "\t" + (long) mixed);
+    }
+  }
+
+  private static double measure(int threadCount, int putEvery) throws Exception {
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      runOnce(threadCount, putEvery);
+    }
+    long totalNanos = 0;
+    for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+      totalNanos += runOnce(threadCount, putEvery);
+    }
+    long totalOperations = (long) threadCount * OPERATIONS_PER_THREAD * MEASURED_ITERATIONS;
+    return totalOperations / (totalNanos / (double) TimeUnit.SECONDS.toNanos(1));
+  }
+
+  private static long runOnce(int threadCount, final int putEvery) throws Exception {
+    final LruCache<Integer, Object> cache = new LruCache<>(CACHE_SIZE);
+    final Object value = new Object();
+    for (int i = 0; i < CACHE_SIZE; i++) {
+      cache.put(i, value);
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    final CountDownLatch start = new CountDownLatch(1);
+    List<Future<Void>> results = new ArrayList<>(threadCount);
+    for (int t = 0; t < threadCount; t++) {
+      final int[] keys = new int[OPERATIONS_PER_THREAD];
+      Random random = new Random(t);
+      for (int i = 0; i < keys.length; i++) {
+        keys[i] = random.nextInt(KEY_COUNT);
+      }
+      results.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          start.await();
+          for (int i = 0; i < keys.length; i++) {
+            if (putEvery != 0 && i % putEvery == 0) {
+              cache.put(keys[i], value);
+            } else {
+              cache.get(keys[i]);
+            }
+          }
+          return null;
+        }
+      }));
+    }
+    try {
+      long startTime = System.nanoTime();
+      start.countDown();
+      for (Future<Void> result : results) {
+        result.get();
+      }
+      return System.nanoTime() - startTime;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
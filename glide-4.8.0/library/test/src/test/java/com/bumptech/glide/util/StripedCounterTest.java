@@ -0,0 +1,61 @@
+package com.bumptech.glide.util;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class StripedCounterTest {
+
+  @Test
+  public void sum_withNoUpdates_returnsZero() {
+    assertThat(new StripedCounter().sum()).isEqualTo(0);
+  }
+
+  @Test
+  public void sum_includesIncrementsAndNegativeAdds() {
+    StripedCounter counter = new StripedCounter();
+    counter.increment();
+    counter.add(10);
+    counter.add(-3);
+
+    assertThat(counter.sum()).isEqualTo(8);
+  }
+
+  @Test
+  public void sum_afterUpdatesFromManyThreads_includesEveryUpdate() throws Exception {
+    final StripedCounter counter = new StripedCounter();
+    final int threadCount = 16;
+    final int incrementsPerThread = 10_000;
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    try {
+      List<Future<Void>> results = new ArrayList<>(threadCount);
+      for (int t = 0; t < threadCount; t++) {
+        results.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() {
+            for (int i = 0; i < incrementsPerThread; i++) {
+              counter.increment();
+            }
+            return null;
+          }
+        }));
+      }
+      for (Future<Void> result : results) {
+        result.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    assertThat(counter.sum()).isEqualTo((long) threadCount * incrementsPerThread);
+  }
+}
@@ -0,0 +1,155 @@
+package com.bumptech.glide.disklrucache;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+
+/**
+ * Reads records written by {@link JournalWriter} in the binary format.
+ *
+ * <p>Like {@link StrictLineReader}, this class buffers its input and signals
+ * the end of the journal by throwing an {@link EOFException}. A record cut
+ * short by the end of the input is not returned and can be detected with
+ * {@link #hasTruncatedRecord()}. Records that fail their checksum are treated
+ * as corruption.
+ */
+class BinaryJournalReader implements Closeable {
+  private static final int HEADER_LENGTH = 5 * 4;
+
+  private final InputStream in;
+  private final int valueCount;
+  private final CRC32 crc = new CRC32();
+  private final byte[] buf;
+  private int pos;
+  private int end;
+  private boolean truncated;
+
+  /** The op of the most recently read record. */
+  byte op;
+  /** The key of the most recently read record. */
+  String key;
+  /** The lengths of the most recently read record, only valid for CLEAN records. */
+  final long[] lengths;
+
+  BinaryJournalReader(InputStream in, int valueCount) {
+    this.in = in;
+    this.valueCount = valueCount;
+    this.lengths = new long[valueCount];
+    // Large enough to hold at least one maximally sized record.
+    this.buf = new byte[Math.max(8192, 2 + JournalWriter.MAX_KEY_LENGTH + valueCount * 8 + 4)];
+  }
+
+  /**
+   * Reads and validates the header.
+   *
+   * @throws IOException if the header doesn't match {@code appVersion} and
+   *     this reader's value count.
+   */
+  void readHeader(int appVersion) throws IOException {
+    if (!fill(HEADER_LENGTH)) {
+      throw new IOException("unexpected journal header: truncated");
+    }
+    int magic = getInt(pos);
+    int version = getInt(pos + 4);
+    int readAppVersion = getInt(pos + 8);
+    int readValueCount = getInt(pos + 12);
+    crc.reset();
+    crc.update(buf, pos, 16);
+    int checksum = getInt(pos + 16);
+    pos += HEADER_LENGTH;
+    if (magic != JournalWriter.BINARY_MAGIC
+        || version != JournalWriter.BINARY_VERSION
+        || readAppVersion != appVersion
+        || readValueCount != valueCount
+        || checksum != (int) crc.getValue()) {
+      throw new IOException("unexpected journal header: [" + Integer.toHexString(magic) + ", "
+          + version + ", " + readAppVersion + ", " + readValueCount + "]");
+    }
+  }
+
+  /**
+   * Reads the next record into {@link #op}, {@link #key} and, for CLEAN
+   * records, {@link #lengths}.
+   *
+   * @throws EOFException at the end of the journal, including when the last
+   *     record is truncated.
+   * @throws IOException if the record is malformed or fails its checksum.
+   */
+  void readRecord() throws IOException {
+    if (!fill(2)) {
+      throw new EOFException();
+    }
+    byte readOp = buf[pos];
+    int keyLength = buf[pos + 1] & 0xff;
+    if (readOp < JournalWriter.CLEAN || readOp > JournalWriter.READ || keyLength == 0
+        || keyLength > JournalWriter.MAX_KEY_LENGTH) {
+      throw new IOException("unexpected journal record: [" + readOp + ", " + keyLength + "]");
+    }
+    int valuesLength = readOp == JournalWriter.CLEAN ? valueCount * 8 : 0;
+    int bodyLength = 2 + keyLength + valuesLength;
+    if (!fill(bodyLength + 4)) {
+      throw new EOFException();
+    }
+
+    crc.reset();
+    crc.update(buf, pos, bodyLength);
+    if (getInt(pos + bodyLength) != (int) crc.getValue()) {
+      throw new IOException("journal record failed checksum");
+    }
+
+    op = readOp;
+    // Deprecated but, unlike the Charset variants, copies the ASCII bytes without decoding.
+    @SuppressWarnings("deprecation")
+    String readKey = new String(buf, 0 /*hibyte*/, pos + 2, keyLength);
+    key = readKey;
+    if (readOp == JournalWriter.CLEAN) {
+      int offset = pos + 2 + keyLength;
+      for (int i = 0; i < valueCount; i++) {
+        lengths[i] = ((long) getInt(offset) << 32) | (getInt(offset + 4) & 0xffffffffL);
+        offset += 8;
+      }
+    }
+    pos += bodyLength + 4;
+  }
+
+  /** Returns true if the journal ended part way through a record. */
+  boolean hasTruncatedRecord() {
+    return truncated;
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+
+  /**
+   * Ensures at least {@code count} bytes are buffered, returning false if the
+   * input ends first.
+   */
+  private boolean fill(int count) throws IOException {
+    if (end - pos >= count) {
+      return true;
+    }
+    System.arraycopy(buf, pos, buf, 0, end - pos);
+    end -= pos;
+    pos = 0;
+    while (end < count) {
+      int read = in.read(buf, end, buf.length - end);
+      if (read == -1) {
+        truncated = end > 0;
+        return false;
+      }
+      end += read;
+    }
+    return true;
+  }
+
+  private int getInt(int offset) {
+    return ((buf[offset] & 0xff) << 24)
+        | ((buf[offset + 1] & 0xff) << 16)
+        | ((buf[offset + 2] & 0xff) << 8)
+        | (buf[offset + 3] & 0xff);
+  }
+}
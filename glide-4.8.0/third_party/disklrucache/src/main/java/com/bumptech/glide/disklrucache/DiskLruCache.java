@@ -16,7 +16,6 @@
 
 package com.bumptech.glide.disklrucache;
 
-import java.io.BufferedWriter;
 import java.io.Closeable;
 import java.io.EOFException;
 import java.io.File;
@@ -28,16 +27,22 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.PushbackInputStream;
 import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * A cache that uses a bounded amount of space on a filesystem. Each cache
@@ -82,6 +87,18 @@ import java.util.concurrent.TimeUnit;
  * an error occurs while writing a cache value, the edit will fail silently.
  * Callers should handle other problems by catching {@code IOException} and
  * responding appropriately.
+ *
+ * <p>By default all entries share a single lock. Caches opened with a
+ * {@code concurrencyLevel} greater than one split their entries into
+ * independently locked segments so that operations on unrelated keys can
+ * proceed in parallel. Eviction across segments is approximately LRU and the
+ * journal format is unchanged, so a cache may be re-opened with any
+ * concurrency level.
+ *
+ * <p>The journal is written as text by default. Caches opened with
+ * {@code binaryJournal} set write a compact, checksummed binary journal that
+ * is faster to replay when the cache is opened. Either format is read
+ * regardless of the option and converted to the requested format on open.
  */
 public final class DiskLruCache implements Closeable {
   static final String JOURNAL_FILE = "journal";
@@ -90,10 +107,11 @@ public final class DiskLruCache implements Closeable {
   static final String MAGIC = "libcore.io.DiskLruCache";
   static final String VERSION_1 = "1";
   static final long ANY_SEQUENCE_NUMBER = -1;
-  private static final String CLEAN = "CLEAN";
-  private static final String DIRTY = "DIRTY";
-  private static final String REMOVE = "REMOVE";
-  private static final String READ = "READ";
+  static final int MAX_CONCURRENCY_LEVEL = 64;
+  static final String CLEAN = "CLEAN";
+  static final String DIRTY = "DIRTY";
+  static final String REMOVE = "REMOVE";
+  static final String READ = "READ";
 
     /*
      * This cache uses a journal file named "journal". A typical journal file
@@ -133,6 +151,10 @@ public final class DiskLruCache implements Closeable {
      * occasionally be compacted by dropping redundant lines. A temporary file named
      * "journal.tmp" will be used during compaction; that file should be deleted if
      * it exists when the cache is opened.
+     *
+     * The binary journal uses the same file names and records the same states,
+     * see JournalWriter for its layout. The two formats are told apart by the
+     * first four bytes of the file.
      */
 
   private final File directory;
@@ -140,20 +162,45 @@ public final class DiskLruCache implements Closeable {
   private final File journalFileTmp;
   private final File journalFileBackup;
   private final int appVersion;
-  private long maxSize;
+  private volatile long maxSize;
   private final int valueCount;
-  private long size = 0;
-  private Writer journalWriter;
-  private final LinkedHashMap<String, Entry> lruEntries =
-      new LinkedHashMap<String, Entry>(0, 0.75f, true);
+  private final boolean binaryJournal;
+  private final AtomicLong size = new AtomicLong();
+  private final AtomicInteger entryCount = new AtomicInteger();
+  /** Incremented while holding {@link #trimLock}. */
+  private final AtomicLong evictionCount = new AtomicLong();
+
+  /**
+   * Entries are partitioned by key into segments, each with its own lock and
+   * access ordered map. Operations on a key hold only that key's segment lock
+   * and acquire {@link #journalLock} while appending to the journal. Operations
+   * that need a consistent view of every entry lock all segments in index
+   * order before acquiring the journal lock.
+   */
+  private final Segment[] segments;
+  private final Object journalLock = new Object();
+  /**
+   * Serializes evictions so that concurrent trims don't each evict an entry
+   * for the same excess. Acquired before any segment lock.
+   */
+  private final ReentrantLock trimLock = new ReentrantLock();
+  /** Guarded by {@link #journalLock}, volatile so closed checks don't need the lock. */
+  private volatile JournalWriter journalWriter;
+  /** Guarded by {@link #journalLock}. */
   private int redundantOpCount;
 
+  /**
+   * Orders accesses across segments so that the least recently used entry can
+   * be found without a global access ordered map.
+   */
+  private final AtomicLong accessClock = new AtomicLong();
+
   /**
    * To differentiate between old and current snapshots, each entry is given
    * a sequence number each time an edit is committed. A snapshot is stale if
    * its sequence number is not equal to its entry's sequence number.
    */
-  private long nextSequenceNumber = 0;
+  private final AtomicLong nextSequenceNumber = new AtomicLong();
 
   /** This cache uses a single background thread to evict entries. */
   final ThreadPoolExecutor executorService =
@@ -161,21 +208,23 @@ public final class DiskLruCache implements Closeable {
             new DiskLruCacheThreadFactory());
   private final Callable<Void> cleanupCallable = new Callable<Void>() {
     public Void call() throws Exception {
-      synchronized (DiskLruCache.this) {
-        if (journalWriter == null) {
-          return null; // Closed.
-        }
-        trimToSize();
-        if (journalRebuildRequired()) {
-          rebuildJournal();
-          redundantOpCount = 0;
-        }
+      if (journalWriter == null) {
+        return null; // Closed.
+      }
+      trimToSize();
+      boolean rebuildRequired;
+      synchronized (journalLock) {
+        rebuildRequired = journalWriter != null && journalRebuildRequired();
+      }
+      if (rebuildRequired) {
+        rebuildJournal();
       }
       return null;
     }
   };
 
-  private DiskLruCache(File directory, int appVersion, int valueCount, long maxSize) {
+  private DiskLruCache(File directory, int appVersion, int valueCount, long maxSize,
+      int concurrencyLevel, boolean binaryJournal) {
     this.directory = directory;
     this.appVersion = appVersion;
     this.journalFile = new File(directory, JOURNAL_FILE);
@@ -183,6 +232,16 @@ public final class DiskLruCache implements Closeable {
     this.journalFileBackup = new File(directory, JOURNAL_FILE_BACKUP);
     this.valueCount = valueCount;
     this.maxSize = maxSize;
+    this.binaryJournal = binaryJournal;
+
+    int segmentCount = 1;
+    while (segmentCount < concurrencyLevel && segmentCount < MAX_CONCURRENCY_LEVEL) {
+      segmentCount <<= 1;
+    }
+    segments = new Segment[segmentCount];
+    for (int i = 0; i < segmentCount; i++) {
+      segments[i] = new Segment();
+    }
   }
 
   /**
@@ -196,12 +255,54 @@ public final class DiskLruCache implements Closeable {
    */
   public static DiskLruCache open(File directory, int appVersion, int valueCount, long maxSize)
       throws IOException {
+    return open(directory, appVersion, valueCount, maxSize, 1 /*concurrencyLevel*/);
+  }
+
+  /**
+   * Opens the cache in {@code directory}, creating a cache if none exists
+   * there, with entries split across segments that can be read and edited
+   * concurrently.
+   *
+   * @param directory a writable directory
+   * @param valueCount the number of values per cache entry. Must be positive.
+   * @param maxSize the maximum number of bytes this cache should use to store
+   * @param concurrencyLevel the estimated number of threads concurrently
+   *     accessing the cache. Rounded up to a power of two and capped at
+   *     {@value #MAX_CONCURRENCY_LEVEL}. Must be positive.
+   * @throws IOException if reading or writing the cache directory fails
+   */
+  public static DiskLruCache open(File directory, int appVersion, int valueCount, long maxSize,
+      int concurrencyLevel) throws IOException {
+    return open(
+        directory, appVersion, valueCount, maxSize, concurrencyLevel, false /*binaryJournal*/);
+  }
+
+  /**
+   * Opens the cache in {@code directory}, creating a cache if none exists
+   * there.
+   *
+   * @param directory a writable directory
+   * @param valueCount the number of values per cache entry. Must be positive.
+   * @param maxSize the maximum number of bytes this cache should use to store
+   * @param concurrencyLevel the estimated number of threads concurrently
+   *     accessing the cache. Rounded up to a power of two and capped at
+   *     {@value #MAX_CONCURRENCY_LEVEL}. Must be positive.
+   * @param binaryJournal true to write the journal in the binary format, false
+   *     to write it as text. An existing journal in the other format is
+   *     converted when the cache is opened.
+   * @throws IOException if reading or writing the cache directory fails
+   */
+  public static DiskLruCache open(File directory, int appVersion, int valueCount, long maxSize,
+      int concurrencyLevel, boolean binaryJournal) throws IOException {
     if (maxSize <= 0) {
       throw new IllegalArgumentException("maxSize <= 0");
     }
     if (valueCount <= 0) {
       throw new IllegalArgumentException("valueCount <= 0");
     }
+    if (concurrencyLevel <= 0) {
+      throw new IllegalArgumentException("concurrencyLevel <= 0");
+    }
 
     // If a bkp file exists, use it instead.
     File backupFile = new File(directory, JOURNAL_FILE_BACKUP);
@@ -216,7 +317,8 @@ public final class DiskLruCache implements Closeable {
     }
 
     // Prefer to pick up where we left off.
-    DiskLruCache cache = new DiskLruCache(directory, appVersion, valueCount, maxSize);
+    DiskLruCache cache = new DiskLruCache(
+        directory, appVersion, valueCount, maxSize, concurrencyLevel, binaryJournal);
     if (cache.journalFile.exists()) {
       try {
         cache.readJournal();
@@ -235,13 +337,64 @@ public final class DiskLruCache implements Closeable {
 
     // Create a new empty cache.
     directory.mkdirs();
-    cache = new DiskLruCache(directory, appVersion, valueCount, maxSize);
+    cache = new DiskLruCache(
+        directory, appVersion, valueCount, maxSize, concurrencyLevel, binaryJournal);
     cache.rebuildJournal();
     return cache;
   }
 
+  /**
+   * Returns the file that holds the committed value at {@code index} for
+   * {@code key} in a cache stored in {@code directory}.
+   *
+   * <p>The file is located without reading the journal, so it may exist for an
+   * entry that an open cache would discard, or be deleted by a cache that is
+   * being opened concurrently. Callers must tolerate the file being missing
+   * when they read it.
+   */
+  public static File getCleanFile(File directory, String key, int index) {
+    return new File(directory, key + "." + index);
+  }
+
   private void readJournal() throws IOException {
-    StrictLineReader reader = new StrictLineReader(new FileInputStream(journalFile), Util.US_ASCII);
+    PushbackInputStream in = new PushbackInputStream(new FileInputStream(journalFile), 4);
+    boolean journalIsBinary;
+    boolean truncated;
+    try {
+      journalIsBinary = startsWithBinaryMagic(in);
+      truncated = journalIsBinary ? readBinaryJournal(in) : readTextJournal(in);
+    } finally {
+      Util.closeQuietly(in);
+    }
+
+    // If we ended on a truncated record or the journal needs to be converted to the other format,
+    // rebuild the journal before appending to it.
+    if (truncated || journalIsBinary != binaryJournal) {
+      rebuildJournal();
+    } else {
+      journalWriter = JournalWriter.open(journalFile, binaryJournal, true /*append*/);
+    }
+  }
+
+  private static boolean startsWithBinaryMagic(PushbackInputStream in) throws IOException {
+    byte[] magic = new byte[4];
+    int read = 0;
+    while (read < magic.length) {
+      int count = in.read(magic, read, magic.length - read);
+      if (count == -1) {
+        break;
+      }
+      read += count;
+    }
+    in.unread(magic, 0, read);
+    return read == magic.length
+        && ((magic[0] & 0xff) << 24 | (magic[1] & 0xff) << 16 | (magic[2] & 0xff) << 8
+            | (magic[3] & 0xff)) == JournalWriter.BINARY_MAGIC;
+  }
+
+  /** Returns true if the journal ended with a truncated line. */
+  private boolean readTextJournal(InputStream in) throws IOException {
+    StrictLineReader reader = new StrictLineReader(in, Util.US_ASCII);
     try {
       String magic = reader.readLine();
       String version = reader.readLine();
@@ -266,20 +419,59 @@ public final class DiskLruCache implements Closeable {
           break;
         }
       }
-      redundantOpCount = lineCount - lruEntries.size();
+      redundantOpCount = lineCount - entryCount.get();
+      return reader.hasUnterminatedLine();
+    } finally {
+      Util.closeQuietly(reader);
+    }
+  }
 
-      // If we ended on a truncated line, rebuild the journal before appending to it.
-      if (reader.hasUnterminatedLine()) {
-        rebuildJournal();
-      } else {
-        journalWriter = new BufferedWriter(new OutputStreamWriter(
-            new FileOutputStream(journalFile, true), Util.US_ASCII));
+  /** Returns true if the journal ended with a truncated record. */
+  private boolean readBinaryJournal(InputStream in) throws IOException {
+    BinaryJournalReader reader = new BinaryJournalReader(in, valueCount);
+    try {
+      reader.readHeader(appVersion);
+
+      int recordCount = 0;
+      while (true) {
+        try {
+          reader.readRecord();
+        } catch (EOFException endOfJournal) {
+          break;
+        }
+        readJournalRecord(reader.op, reader.key, reader.lengths);
+        recordCount++;
       }
+      redundantOpCount = recordCount - entryCount.get();
+      return reader.hasTruncatedRecord();
     } finally {
       Util.closeQuietly(reader);
     }
   }
 
+  private void readJournalRecord(byte op, String key, long[] lengths) {
+    Segment segment = segmentFor(key);
+    if (op == JournalWriter.REMOVE) {
+      segment.remove(key);
+      return;
+    }
+
+    Entry entry = segment.get(key);
+    if (entry == null) {
+      entry = new Entry(key);
+      segment.put(entry);
+    }
+
+    if (op == JournalWriter.CLEAN) {
+      entry.readable = true;
+      entry.currentEditor = null;
+      System.arraycopy(lengths, 0, entry.lengths, 0, valueCount);
+    } else if (op == JournalWriter.DIRTY) {
+      entry.currentEditor = new Editor(entry);
+    }
+    // READ records were already handled by calling segment.get().
+  }
+
   private void readJournalLine(String line) throws IOException {
     int firstSpace = line.indexOf(' ');
     if (firstSpace == -1) {
@@ -292,17 +484,18 @@ public final class DiskLruCache implements Closeable {
     if (secondSpace == -1) {
       key = line.substring(keyBegin);
       if (firstSpace == REMOVE.length() && line.startsWith(REMOVE)) {
-        lruEntries.remove(key);
+        segmentFor(key).remove(key);
         return;
       }
     } else {
       key = line.substring(keyBegin, secondSpace);
     }
 
-    Entry entry = lruEntries.get(key);
+    Segment segment = segmentFor(key);
+    Entry entry = segment.get(key);
     if (entry == null) {
       entry = new Entry(key);
-      lruEntries.put(key, entry);
+      segment.put(entry);
     }
 
     if (secondSpace != -1 && firstSpace == CLEAN.length() && line.startsWith(CLEAN)) {
@@ -313,7 +506,7 @@ public final class DiskLruCache implements Closeable {
     } else if (secondSpace == -1 && firstSpace == DIRTY.length() && line.startsWith(DIRTY)) {
       entry.currentEditor = new Editor(entry);
     } else if (secondSpace == -1 && firstSpace == READ.length() && line.startsWith(READ)) {
-      // This work was already done by calling lruEntries.get().
+      // This work was already done by calling segment.get().
     } else {
       throw new IOException("unexpected journal line: " + line);
     }
@@ -325,19 +518,22 @@ public final class DiskLruCache implements Closeable {
    */
   private void processJournal() throws IOException {
     deleteIfExists(journalFileTmp);
-    for (Iterator<Entry> i = lruEntries.values().iterator(); i.hasNext(); ) {
-      Entry entry = i.next();
-      if (entry.currentEditor == null) {
-        for (int t = 0; t < valueCount; t++) {
-          size += entry.lengths[t];
-        }
-      } else {
-        entry.currentEditor = null;
-        for (int t = 0; t < valueCount; t++) {
-          deleteIfExists(entry.getCleanFile(t));
-          deleteIfExists(entry.getDirtyFile(t));
+    for (Segment segment : segments) {
+      for (Iterator<Entry> i = segment.entries.values().iterator(); i.hasNext(); ) {
+        Entry entry = i.next();
+        if (entry.currentEditor == null) {
+          for (int t = 0; t < valueCount; t++) {
+            size.addAndGet(entry.lengths[t]);
+          }
+        } else {
+          entry.currentEditor = null;
+          for (int t = 0; t < valueCount; t++) {
+            deleteIfExists(entry.getCleanFile(t));
+            deleteIfExists(entry.getDirtyFile(t));
+          }
+          i.remove();
+          entryCount.decrementAndGet();
         }
-        i.remove();
       }
     }
   }
@@ -346,29 +542,31 @@ public final class DiskLruCache implements Closeable {
    * Creates a new journal that omits redundant information. This replaces the
    * current journal if it exists.
    */
-  private synchronized void rebuildJournal() throws IOException {
+  private void rebuildJournal() throws IOException {
+    lockAllSegments();
+    try {
+      synchronized (journalLock) {
+        rebuildJournalLocked();
+      }
+    } finally {
+      unlockAllSegments();
+    }
+  }
+
+  private void rebuildJournalLocked() throws IOException {
     if (journalWriter != null) {
       journalWriter.close();
     }
 
-    Writer writer = new BufferedWriter(
-        new OutputStreamWriter(new FileOutputStream(journalFileTmp), Util.US_ASCII));
+    JournalWriter writer = JournalWriter.open(journalFileTmp, binaryJournal, false /*append*/);
     try {
-      writer.write(MAGIC);
-      writer.write("\n");
-      writer.write(VERSION_1);
-      writer.write("\n");
-      writer.write(Integer.toString(appVersion));
-      writer.write("\n");
-      writer.write(Integer.toString(valueCount));
-      writer.write("\n");
-      writer.write("\n");
-
-      for (Entry entry : lruEntries.values()) {
+      writer.writeHeader(appVersion, valueCount);
+
+      for (Entry entry : entriesInAccessOrder()) {
         if (entry.currentEditor != null) {
-          writer.write(DIRTY + ' ' + entry.key + '\n');
+          writer.writeRecord(JournalWriter.DIRTY, entry.key, null);
         } else {
-          writer.write(CLEAN + ' ' + entry.key + entry.getLengths() + '\n');
+          writer.writeRecord(JournalWriter.CLEAN, entry.key, entry.lengths);
         }
       }
     } finally {
@@ -381,8 +579,44 @@ public final class DiskLruCache implements Closeable {
     renameTo(journalFileTmp, journalFile, false);
     journalFileBackup.delete();
 
-    journalWriter = new BufferedWriter(
-        new OutputStreamWriter(new FileOutputStream(journalFile, true), Util.US_ASCII));
+    journalWriter = JournalWriter.open(journalFile, binaryJournal, true /*append*/);
+    redundantOpCount = 0;
+  }
+
+  /**
+   * Returns every entry from least to most recently used. Must be called while
+   * holding all segment locks.
+   */
+  private List<Entry> entriesInAccessOrder() {
+    List<Entry> result = new ArrayList<Entry>(entryCount.get());
+    for (Segment segment : segments) {
+      result.addAll(segment.entries.values());
+    }
+    // Each segment is already in access order, only merging them requires sorting.
+    if (segments.length > 1) {
+      Collections.sort(result, ACCESS_ORDER);
+    }
+    return result;
+  }
+
+  private void lockAllSegments() {
+    for (Segment segment : segments) {
+      segment.lock();
+    }
+  }
+
+  private void unlockAllSegments() {
+    for (int i = segments.length - 1; i >= 0; i--) {
+      segments[i].unlock();
+    }
+  }
+
+  private Segment segmentFor(String key) {
+    int hash = key.hashCode();
+    // Spread the higher bits so that keys that differ only in their prefix use different segments.
+    hash ^= (hash >>> 20) ^ (hash >>> 12);
+    hash ^= (hash >>> 7) ^ (hash >>> 4);
+    return segments[hash & (segments.length - 1)];
   }
 
   private static void deleteIfExists(File file) throws IOException {
@@ -405,34 +639,45 @@ public final class DiskLruCache implements Closeable {
    * exist is not currently readable. If a value is returned, it is moved to
    * the head of the LRU queue.
    */
-  public synchronized Value get(String key) throws IOException {
+  public Value get(String key) throws IOException {
     checkNotClosed();
-    Entry entry = lruEntries.get(key);
-    if (entry == null) {
-      return null;
-    }
+    Segment segment = segmentFor(key);
+    Value value;
+    boolean rebuildRequired;
+    segment.lock();
+    try {
+      Entry entry = segment.get(key);
+      if (entry == null) {
+        return null;
+      }
 
-    if (!entry.readable) {
-      return null;
-    }
+      if (!entry.readable) {
+        return null;
+      }
 
-    for (File file : entry.cleanFiles) {
-        // A file must have been deleted manually!
-        if (!file.exists()) {
-            return null;
-        }
+      for (File file : entry.cleanFiles) {
+          // A file must have been deleted manually!
+          if (!file.exists()) {
+              return null;
+          }
+      }
+
+      synchronized (journalLock) {
+        checkNotClosed();
+        redundantOpCount++;
+        journalWriter.writeRecord(JournalWriter.READ, key, null);
+        rebuildRequired = journalRebuildRequired();
+      }
+
+      value = new Value(key, entry.sequenceNumber, entry.cleanFiles, entry.lengths);
+    } finally {
+      segment.unlock();
     }
 
-    redundantOpCount++;
-    journalWriter.append(READ);
-    journalWriter.append(' ');
-    journalWriter.append(key);
-    journalWriter.append('\n');
-    if (journalRebuildRequired()) {
+    if (rebuildRequired) {
       executorService.submit(cleanupCallable);
     }
-
-    return new Value(key, entry.sequenceNumber, entry.cleanFiles, entry.lengths);
+    return value;
   }
 
   /**
@@ -443,30 +688,36 @@ public final class DiskLruCache implements Closeable {
     return edit(key, ANY_SEQUENCE_NUMBER);
   }
 
-  private synchronized Editor edit(String key, long expectedSequenceNumber) throws IOException {
+  private Editor edit(String key, long expectedSequenceNumber) throws IOException {
     checkNotClosed();
-    Entry entry = lruEntries.get(key);
-    if (expectedSequenceNumber != ANY_SEQUENCE_NUMBER && (entry == null
-        || entry.sequenceNumber != expectedSequenceNumber)) {
-      return null; // Value is stale.
-    }
-    if (entry == null) {
-      entry = new Entry(key);
-      lruEntries.put(key, entry);
-    } else if (entry.currentEditor != null) {
-      return null; // Another edit is in progress.
-    }
+    Segment segment = segmentFor(key);
+    segment.lock();
+    try {
+      Entry entry = segment.get(key);
+      if (expectedSequenceNumber != ANY_SEQUENCE_NUMBER && (entry == null
+          || entry.sequenceNumber != expectedSequenceNumber)) {
+        return null; // Value is stale.
+      }
+      if (entry == null) {
+        entry = new Entry(key);
+        segment.put(entry);
+      } else if (entry.currentEditor != null) {
+        return null; // Another edit is in progress.
+      }
 
-    Editor editor = new Editor(entry);
-    entry.currentEditor = editor;
+      Editor editor = new Editor(entry);
+      entry.currentEditor = editor;
 
-    // Flush the journal before creating files to prevent file leaks.
-    journalWriter.append(DIRTY);
-    journalWriter.append(' ');
-    journalWriter.append(key);
-    journalWriter.append('\n');
-    journalWriter.flush();
-    return editor;
+      // Flush the journal before creating files to prevent file leaks.
+      synchronized (journalLock) {
+        checkNotClosed();
+        journalWriter.writeRecord(JournalWriter.DIRTY, key, null);
+        journalWriter.flush();
+      }
+      return editor;
+    } finally {
+      segment.unlock();
+    }
   }
 
   /** Returns the directory where this cache stores its data. */
@@ -478,7 +729,7 @@ public final class DiskLruCache implements Closeable {
    * Returns the maximum number of bytes that this cache should use to store
    * its data.
    */
-  public synchronized long getMaxSize() {
+  public long getMaxSize() {
     return maxSize;
   }
 
@@ -486,7 +737,7 @@ public final class DiskLruCache implements Closeable {
    * Changes the maximum number of bytes the cache can store and queues a job
    * to trim the existing store, if necessary.
    */
-  public synchronized void setMaxSize(long maxSize) {
+  public void setMaxSize(long maxSize) {
     this.maxSize = maxSize;
     executorService.submit(cleanupCallable);
   }
@@ -496,81 +747,157 @@ public final class DiskLruCache implements Closeable {
    * this cache. This may be greater than the max size if a background
    * deletion is pending.
    */
-  public synchronized long size() {
-    return size;
+  public long size() {
+    return size.get();
   }
 
-  private synchronized void completeEdit(Editor editor, boolean success) throws IOException {
-    Entry entry = editor.entry;
-    if (entry.currentEditor != editor) {
-      throw new IllegalStateException();
-    }
+  /**
+   * Returns the number of entries removed to keep this cache within its
+   * maximum size since it was opened.
+   */
+  public long getEvictionCount() {
+    return evictionCount.get();
+  }
 
-    // If this edit is creating the entry for the first time, every index must have a value.
-    if (success && !entry.readable) {
-      for (int i = 0; i < valueCount; i++) {
-        if (!editor.written[i]) {
-          editor.abort();
-          throw new IllegalStateException("Newly created entry didn't create value for index " + i);
+  /**
+   * Returns the key of the entry that would be evicted next if the cache grew
+   * beyond its maximum size, or {@code null} if there are no entries that can
+   * be evicted. Entries that are being edited are skipped.
+   */
+  public String getEldestKey() {
+    return findEldestKey();
+  }
+
+  /**
+   * Commits each of the given edits, like {@link Editor#commit()}, but flushes the journal once
+   * after all of the edits rather than once per edit.
+   *
+   * <p>Every edit is attempted even if an earlier edit fails, the first failure is rethrown after
+   * the journal is flushed.
+   *
+   * @throws IllegalStateException If the cache is already closed.
+   */
+  public void commitAll(List<Editor> editors) throws IOException {
+    synchronized (journalLock) {
+      checkNotClosed();
+    }
+    IOException failure = null;
+    try {
+      for (Editor editor : editors) {
+        try {
+          editor.commit(/*flushJournal=*/ false);
+        } catch (IOException e) {
+          if (failure == null) {
+            failure = e;
+          }
         }
-        if (!entry.getDirtyFile(i).exists()) {
-          editor.abort();
-          return;
+      }
+    } finally {
+      synchronized (journalLock) {
+        // close() flushes the journal itself, so there's nothing left to flush if the cache was
+        // closed while the edits were committed.
+        if (journalWriter != null) {
+          try {
+            journalWriter.flush();
+          } catch (IOException e) {
+            if (failure == null) {
+              failure = e;
+            }
+          }
         }
       }
     }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  private void completeEdit(Editor editor, boolean success) throws IOException {
+    completeEdit(editor, success, /*flushJournal=*/ true);
+  }
 
-    for (int i = 0; i < valueCount; i++) {
-      File dirty = entry.getDirtyFile(i);
-      if (success) {
-        if (dirty.exists()) {
-          File clean = entry.getCleanFile(i);
-          dirty.renameTo(clean);
-          long oldLength = entry.lengths[i];
-          long newLength = clean.length();
-          entry.lengths[i] = newLength;
-          size = size - oldLength + newLength;
+  private void completeEdit(Editor editor, boolean success, boolean flushJournal)
+      throws IOException {
+    Entry entry = editor.entry;
+    boolean rebuildRequired;
+    entry.segment.lock();
+    try {
+      if (entry.currentEditor != editor) {
+        throw new IllegalStateException();
+      }
+
+      // If this edit is creating the entry for the first time, every index must have a value.
+      if (success && !entry.readable) {
+        for (int i = 0; i < valueCount; i++) {
+          if (!editor.written[i]) {
+            editor.abort();
+            throw new IllegalStateException(
+                "Newly created entry didn't create value for index " + i);
+          }
+          if (!entry.getDirtyFile(i).exists()) {
+            editor.abort();
+            return;
+          }
         }
-      } else {
-        deleteIfExists(dirty);
       }
-    }
 
-    redundantOpCount++;
-    entry.currentEditor = null;
-    if (entry.readable | success) {
-      entry.readable = true;
-      journalWriter.append(CLEAN);
-      journalWriter.append(' ');
-      journalWriter.append(entry.key);
-      journalWriter.append(entry.getLengths());
-      journalWriter.append('\n');
+      for (int i = 0; i < valueCount; i++) {
+        File dirty = entry.getDirtyFile(i);
+        if (success) {
+          if (dirty.exists()) {
+            File clean = entry.getCleanFile(i);
+            dirty.renameTo(clean);
+            long oldLength = entry.lengths[i];
+            long newLength = clean.length();
+            entry.lengths[i] = newLength;
+            size.addAndGet(newLength - oldLength);
+          }
+        } else {
+          deleteIfExists(dirty);
+        }
+      }
+
+      entry.currentEditor = null;
+      boolean readable = entry.readable | success;
+      if (readable) {
+        entry.readable = true;
+        if (success) {
+          entry.sequenceNumber = nextSequenceNumber.getAndIncrement();
+        }
+      } else {
+        entry.segment.remove(entry.key);
+      }
 
-      if (success) {
-        entry.sequenceNumber = nextSequenceNumber++;
+      synchronized (journalLock) {
+        checkNotClosed();
+        redundantOpCount++;
+        if (readable) {
+          journalWriter.writeRecord(JournalWriter.CLEAN, entry.key, entry.lengths);
+        } else {
+          journalWriter.writeRecord(JournalWriter.REMOVE, entry.key, null);
+        }
+        if (flushJournal) {
+          journalWriter.flush();
+        }
+        rebuildRequired = journalRebuildRequired();
       }
-    } else {
-      lruEntries.remove(entry.key);
-      journalWriter.append(REMOVE);
-      journalWriter.append(' ');
-      journalWriter.append(entry.key);
-      journalWriter.append('\n');
+    } finally {
+      entry.segment.unlock();
     }
-    journalWriter.flush();
 
-    if (size > maxSize || journalRebuildRequired()) {
+    if (size.get() > maxSize || rebuildRequired) {
       executorService.submit(cleanupCallable);
     }
   }
 
   /**
    * We only rebuild the journal when it will halve the size of the journal
-   * and eliminate at least 2000 ops.
+   * and eliminate at least 2000 ops. Must be called while holding the journal lock.
    */
   private boolean journalRebuildRequired() {
     final int redundantOpCompactThreshold = 2000;
     return redundantOpCount >= redundantOpCompactThreshold //
-        && redundantOpCount >= lruEntries.size();
+        && redundantOpCount >= entryCount.get();
   }
 
   /**
@@ -579,31 +906,39 @@ public final class DiskLruCache implements Closeable {
    *
    * @return true if an entry was removed.
    */
-  public synchronized boolean remove(String key) throws IOException {
+  public boolean remove(String key) throws IOException {
     checkNotClosed();
-    Entry entry = lruEntries.get(key);
-    if (entry == null || entry.currentEditor != null) {
-      return false;
-    }
+    Segment segment = segmentFor(key);
+    boolean rebuildRequired;
+    segment.lock();
+    try {
+      Entry entry = segment.entries.get(key);
+      if (entry == null || entry.currentEditor != null) {
+        return false;
+      }
 
-    for (int i = 0; i < valueCount; i++) {
-      File file = entry.getCleanFile(i);
-      if (file.exists() && !file.delete()) {
-        throw new IOException("failed to delete " + file);
+      for (int i = 0; i < valueCount; i++) {
+        File file = entry.getCleanFile(i);
+        if (file.exists() && !file.delete()) {
+          throw new IOException("failed to delete " + file);
+        }
+        size.addAndGet(-entry.lengths[i]);
+        entry.lengths[i] = 0;
       }
-      size -= entry.lengths[i];
-      entry.lengths[i] = 0;
-    }
 
-    redundantOpCount++;
-    journalWriter.append(REMOVE);
-    journalWriter.append(' ');
-    journalWriter.append(key);
-    journalWriter.append('\n');
+      synchronized (journalLock) {
+        checkNotClosed();
+        redundantOpCount++;
+        journalWriter.writeRecord(JournalWriter.REMOVE, key, null);
+        rebuildRequired = journalRebuildRequired();
+      }
 
-    lruEntries.remove(key);
+      segment.remove(key);
+    } finally {
+      segment.unlock();
+    }
 
-    if (journalRebuildRequired()) {
+    if (rebuildRequired) {
       executorService.submit(cleanupCallable);
     }
 
@@ -611,7 +946,7 @@ public final class DiskLruCache implements Closeable {
   }
 
   /** Returns true if this cache has been closed. */
-  public synchronized boolean isClosed() {
+  public boolean isClosed() {
     return journalWriter == null;
   }
 
@@ -622,32 +957,82 @@ public final class DiskLruCache implements Closeable {
   }
 
   /** Force buffered operations to the filesystem. */
-  public synchronized void flush() throws IOException {
+  public void flush() throws IOException {
     checkNotClosed();
     trimToSize();
-    journalWriter.flush();
+    synchronized (journalLock) {
+      checkNotClosed();
+      journalWriter.flush();
+    }
   }
 
   /** Closes this cache. Stored values will remain on the filesystem. */
-  public synchronized void close() throws IOException {
-    if (journalWriter == null) {
-      return; // Already closed.
-    }
-    for (Entry entry : new ArrayList<Entry>(lruEntries.values())) {
-      if (entry.currentEditor != null) {
-        entry.currentEditor.abort();
+  public void close() throws IOException {
+    trimLock.lock();
+    lockAllSegments();
+    try {
+      if (journalWriter == null) {
+        return; // Already closed.
+      }
+      for (Segment segment : segments) {
+        for (Entry entry : new ArrayList<Entry>(segment.entries.values())) {
+          if (entry.currentEditor != null) {
+            entry.currentEditor.abort();
+          }
+        }
       }
+      trimToSize();
+      synchronized (journalLock) {
+        journalWriter.close();
+        journalWriter = null;
+      }
+    } finally {
+      unlockAllSegments();
+      trimLock.unlock();
     }
-    trimToSize();
-    journalWriter.close();
-    journalWriter = null;
   }
 
   private void trimToSize() throws IOException {
-    while (size > maxSize) {
-      Map.Entry<String, Entry> toEvict = lruEntries.entrySet().iterator().next();
-      remove(toEvict.getKey());
+    trimLock.lock();
+    try {
+      while (size.get() > maxSize) {
+        String toEvict = findEldestKey();
+        if (toEvict == null) {
+          return; // Everything that remains is being edited.
+        }
+        if (remove(toEvict)) {
+          evictionCount.incrementAndGet();
+        }
+      }
+    } finally {
+      trimLock.unlock();
+    }
+  }
+
+  /**
+   * Returns the key of the least recently used entry that isn't being edited,
+   * or {@code null} if there is no such entry.
+   */
+  private String findEldestKey() {
+    String eldestKey = null;
+    long eldestAccess = Long.MAX_VALUE;
+    for (Segment segment : segments) {
+      segment.lock();
+      try {
+        for (Entry entry : segment.entries.values()) {
+          if (entry.currentEditor == null) {
+            if (entry.lastAccess < eldestAccess) {
+              eldestAccess = entry.lastAccess;
+              eldestKey = entry.key;
+            }
+            break;
+          }
+        }
+      } finally {
+        segment.unlock();
+      }
     }
+    return eldestKey;
   }
 
   /**
@@ -719,7 +1104,8 @@ public final class DiskLruCache implements Closeable {
      * or null if no value has been committed.
      */
     private InputStream newInputStream(int index) throws IOException {
-      synchronized (DiskLruCache.this) {
+      entry.segment.lock();
+      try {
         if (entry.currentEditor != this) {
           throw new IllegalStateException();
         }
@@ -731,6 +1117,8 @@ public final class DiskLruCache implements Closeable {
         } catch (FileNotFoundException e) {
           return null;
         }
+      } finally {
+        entry.segment.unlock();
       }
     }
 
@@ -744,7 +1132,8 @@ public final class DiskLruCache implements Closeable {
     }
 
     public File getFile(int index) throws IOException {
-      synchronized (DiskLruCache.this) {
+      entry.segment.lock();
+      try {
         if (entry.currentEditor != this) {
             throw new IllegalStateException();
         }
@@ -756,6 +1145,8 @@ public final class DiskLruCache implements Closeable {
             directory.mkdirs();
         }
         return dirtyFile;
+      } finally {
+        entry.segment.unlock();
       }
     }
 
@@ -780,7 +1171,11 @@ public final class DiskLruCache implements Closeable {
       // during the write. If there is an error and they call commit
       // anyway, we will assume whatever they managed to write was valid.
       // Normally they should call abort.
-      completeEdit(this, true);
+      commit(/*flushJournal=*/ true);
+    }
+
+    private void commit(boolean flushJournal) throws IOException {
+      completeEdit(this, true, flushJournal);
       committed = true;
     }
 
@@ -804,6 +1199,7 @@ public final class DiskLruCache implements Closeable {
 
   private final class Entry {
     private final String key;
+    private final Segment segment;
 
     /** Lengths of this entry's files. */
     private final long[] lengths;
@@ -821,8 +1217,12 @@ public final class DiskLruCache implements Closeable {
     /** The sequence number of the most recently committed edit to this entry. */
     private long sequenceNumber;
 
+    /** The value of {@link #accessClock} the last time this entry was used. */
+    private long lastAccess;
+
     private Entry(String key) {
       this.key = key;
+      this.segment = segmentFor(key);
       this.lengths = new long[valueCount];
       cleanFiles = new File[valueCount];
       dirtyFiles = new File[valueCount];
@@ -839,14 +1239,6 @@ public final class DiskLruCache implements Closeable {
       }
     }
 
-    public String getLengths() throws IOException {
-      StringBuilder result = new StringBuilder();
-      for (long size : lengths) {
-        result.append(' ').append(size);
-      }
-      return result.toString();
-    }
-
     /** Set lengths using decimal numbers like "10123". */
     private void setLengths(String[] strings) throws IOException {
       if (strings.length != valueCount) {
@@ -875,6 +1267,46 @@ public final class DiskLruCache implements Closeable {
     }
   }
 
+  /**
+   * A lock and access ordered map for the subset of entries whose keys hash to
+   * this segment.
+   */
+  // Never serialized.
+  @SuppressWarnings("serial")
+  private final class Segment extends ReentrantLock {
+    private final LinkedHashMap<String, Entry> entries =
+        new LinkedHashMap<String, Entry>(0, 0.75f, true);
+
+    /** Returns the entry for {@code key}, marking it as the most recently used. */
+    private Entry get(String key) {
+      Entry entry = entries.get(key);
+      if (entry != null) {
+        entry.lastAccess = accessClock.incrementAndGet();
+      }
+      return entry;
+    }
+
+    private void put(Entry entry) {
+      entry.lastAccess = accessClock.incrementAndGet();
+      if (entries.put(entry.key, entry) == null) {
+        entryCount.incrementAndGet();
+      }
+    }
+
+    private void remove(String key) {
+      if (entries.remove(key) != null) {
+        entryCount.decrementAndGet();
+      }
+    }
+  }
+
+  private static final Comparator<Entry> ACCESS_ORDER = new Comparator<Entry>() {
+    @Override
+    public int compare(Entry lhs, Entry rhs) {
+      return lhs.lastAccess < rhs.lastAccess ? -1 : (lhs.lastAccess == rhs.lastAccess ? 0 : 1);
+    }
+  };
+
   /**
    * A {@link java.util.concurrent.ThreadFactory} that builds a thread with a specific thread name
    * and with minimum priority.
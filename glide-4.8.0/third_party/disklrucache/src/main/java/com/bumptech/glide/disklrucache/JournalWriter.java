@@ -0,0 +1,197 @@
+package com.bumptech.glide.disklrucache;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.zip.CRC32;
+
+/**
+ * Appends records to a {@link DiskLruCache} journal in either the line based
+ * text format or the compact binary format.
+ *
+ * <p>The binary journal has a header of four big endian ints, {@link
+ * #BINARY_MAGIC}, {@link #BINARY_VERSION}, the application's version and the
+ * value count, followed by the CRC32 of those ints. Each record that follows
+ * is laid out as:
+ * <pre>
+ *     byte   op           one of CLEAN, DIRTY, REMOVE or READ
+ *     byte   keyLength    the number of ASCII bytes in the key (at most 120)
+ *     byte[] key
+ *     long[] lengths      valueCount big endian lengths, CLEAN records only
+ *     int    crc32        of all of the preceding bytes in the record
+ * </pre>
+ * Records are self delimiting so the journal can be replayed without any
+ * string splitting or number parsing, see {@link BinaryJournalReader}.
+ */
+abstract class JournalWriter implements Closeable, Flushable {
+  static final byte CLEAN = 1;
+  static final byte DIRTY = 2;
+  static final byte REMOVE = 3;
+  static final byte READ = 4;
+
+  static final int BINARY_MAGIC = 0x474c4a31; // "GLJ1"
+  static final int BINARY_VERSION = 1;
+  static final int MAX_KEY_LENGTH = 120;
+
+  /**
+   * Opens a writer for {@code file}.
+   *
+   * @param binary true to write the binary format, false to write the text format.
+   * @param append true to append records to an existing journal, false to
+   *     replace any existing contents. New journals must start with {@link #writeHeader}.
+   */
+  static JournalWriter open(File file, boolean binary, boolean append) throws IOException {
+    FileOutputStream os = new FileOutputStream(file, append);
+    return binary ? new BinaryJournalWriter(os) : new TextJournalWriter(os);
+  }
+
+  abstract void writeHeader(int appVersion, int valueCount) throws IOException;
+
+  /**
+   * Appends a single record.
+   *
+   * @param lengths the lengths of each of the entry's values, only used for
+   *     {@link #CLEAN} records.
+   */
+  abstract void writeRecord(byte op, String key, long[] lengths) throws IOException;
+
+  private static final class TextJournalWriter extends JournalWriter {
+    private final Writer writer;
+
+    TextJournalWriter(OutputStream os) {
+      writer = new BufferedWriter(new OutputStreamWriter(os, Util.US_ASCII));
+    }
+
+    @Override
+    void writeHeader(int appVersion, int valueCount) throws IOException {
+      writer.write(DiskLruCache.MAGIC);
+      writer.write("\n");
+      writer.write(DiskLruCache.VERSION_1);
+      writer.write("\n");
+      writer.write(Integer.toString(appVersion));
+      writer.write("\n");
+      writer.write(Integer.toString(valueCount));
+      writer.write("\n");
+      writer.write("\n");
+    }
+
+    @Override
+    void writeRecord(byte op, String key, long[] lengths) throws IOException {
+      switch (op) {
+        case CLEAN:
+          writer.append(DiskLruCache.CLEAN);
+          break;
+        case DIRTY:
+          writer.append(DiskLruCache.DIRTY);
+          break;
+        case REMOVE:
+          writer.append(DiskLruCache.REMOVE);
+          break;
+        case READ:
+          writer.append(DiskLruCache.READ);
+          break;
+        default:
+          throw new IllegalArgumentException("Unrecognized op: " + op);
+      }
+      writer.append(' ');
+      writer.append(key);
+      if (op == CLEAN) {
+        for (long length : lengths) {
+          writer.append(' ');
+          writer.append(Long.toString(length));
+        }
+      }
+      writer.append('\n');
+    }
+
+    @Override
+    public void flush() throws IOException {
+      writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      writer.close();
+    }
+  }
+
+  private static final class BinaryJournalWriter extends JournalWriter {
+    private final OutputStream os;
+    private final CRC32 crc = new CRC32();
+    /** Reused for each record so that appends don't allocate. */
+    private byte[] record = new byte[2 + MAX_KEY_LENGTH + 4];
+
+    BinaryJournalWriter(OutputStream os) {
+      this.os = new BufferedOutputStream(os);
+    }
+
+    @Override
+    void writeHeader(int appVersion, int valueCount) throws IOException {
+      byte[] header = new byte[5 * 4];
+      putInt(header, 0, BINARY_MAGIC);
+      putInt(header, 4, BINARY_VERSION);
+      putInt(header, 8, appVersion);
+      putInt(header, 12, valueCount);
+      crc.reset();
+      crc.update(header, 0, 16);
+      putInt(header, 16, (int) crc.getValue());
+      os.write(header);
+    }
+
+    @Override
+    void writeRecord(byte op, String key, long[] lengths) throws IOException {
+      int keyLength = key.length();
+      if (keyLength > MAX_KEY_LENGTH) {
+        throw new IllegalArgumentException("key is too long: " + key);
+      }
+      int valuesLength = op == CLEAN ? lengths.length * 8 : 0;
+      int recordLength = 2 + keyLength + valuesLength + 4;
+      if (record.length < recordLength) {
+        record = new byte[recordLength];
+      }
+
+      int pos = 0;
+      record[pos++] = op;
+      record[pos++] = (byte) keyLength;
+      for (int i = 0; i < keyLength; i++) {
+        // Keys are restricted to [a-z0-9_-] so every char fits in a single byte.
+        record[pos++] = (byte) key.charAt(i);
+      }
+      if (op == CLEAN) {
+        for (long length : lengths) {
+          putInt(record, pos, (int) (length >>> 32));
+          putInt(record, pos + 4, (int) length);
+          pos += 8;
+        }
+      }
+      crc.reset();
+      crc.update(record, 0, pos);
+      putInt(record, pos, (int) crc.getValue());
+      os.write(record, 0, recordLength);
+    }
+
+    @Override
+    public void flush() throws IOException {
+      os.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      os.close();
+    }
+
+    private static void putInt(byte[] buffer, int offset, int value) {
+      buffer[offset] = (byte) (value >>> 24);
+      buffer[offset + 1] = (byte) (value >>> 16);
+      buffer[offset + 2] = (byte) (value >>> 8);
+      buffer[offset + 3] = (byte) value;
+    }
+  }
+}
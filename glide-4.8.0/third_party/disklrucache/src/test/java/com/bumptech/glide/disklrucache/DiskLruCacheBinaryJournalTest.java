@@ -0,0 +1,212 @@
+package com.bumptech.glide.disklrucache;
+
+import static com.bumptech.glide.disklrucache.DiskLruCache.JOURNAL_FILE;
+import static com.bumptech.glide.disklrucache.DiskLruCache.MAGIC;
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.RandomAccessFile;
+
+@RunWith(JUnit4.class)
+public final class DiskLruCacheBinaryJournalTest {
+  private static final int APP_VERSION = 100;
+
+  @Rule public TemporaryFolder tempDir = new TemporaryFolder();
+
+  private File cacheDir;
+  private File journalFile;
+  private DiskLruCache cache;
+
+  @Before public void setUp() throws Exception {
+    cacheDir = tempDir.newFolder("DiskLruCacheBinaryJournalTest");
+    journalFile = new File(cacheDir, JOURNAL_FILE);
+    cache = openBinary();
+  }
+
+  @After public void tearDown() throws Exception {
+    cache.close();
+  }
+
+  @Test public void newCache_writesBinaryHeader() throws Exception {
+    cache.close();
+    assertThat(readMagic()).isEqualTo(JournalWriter.BINARY_MAGIC);
+  }
+
+  @Test public void reopen_restoresEntries() throws Exception {
+    set("a", "a", "aa");
+    set("b", "bbb", "b");
+    cache.close();
+
+    cache = openBinary();
+    assertValue("a", "a", "aa");
+    assertValue("b", "bbb", "b");
+    assertThat(cache.size()).isEqualTo(7);
+  }
+
+  @Test public void reopen_dropsRemovedAndAbortedEntries() throws Exception {
+    set("a", "a", "a");
+    set("b", "b", "b");
+    cache.remove("a");
+    DiskLruCache.Editor editor = cache.edit("c");
+    editor.set(0, "c");
+    editor.set(1, "c");
+    editor.abort();
+    cache.close();
+
+    cache = openBinary();
+    assertThat(cache.get("a")).isNull();
+    assertThat(cache.get("c")).isNull();
+    assertValue("b", "b", "b");
+  }
+
+  @Test public void reopen_deletesFilesOfUncommittedEdits() throws Exception {
+    DiskLruCache.Editor editor = cache.edit("k1");
+    editor.set(0, "a");
+    editor.set(1, "b");
+    File dirtyFile = new File(cacheDir, "k1.0.tmp");
+    assertThat(dirtyFile).exists();
+
+    // Simulate a process crash by opening the cache again without closing it.
+    DiskLruCache reopened = openBinary();
+    try {
+      assertThat(dirtyFile).doesNotExist();
+      assertThat(reopened.get("k1")).isNull();
+    } finally {
+      reopened.close();
+    }
+  }
+
+  @Test public void reopen_preservesLruOrder() throws Exception {
+    set("a", "a", "a");
+    set("b", "b", "b");
+    set("c", "c", "c");
+    assertThat(cache.get("a")).isNotNull();
+    cache.close();
+
+    cache = DiskLruCache.open(cacheDir, APP_VERSION, 2, 4, 1, true);
+    cache.flush();
+    assertThat(cache.get("b")).isNull();
+    assertValue("c", "c", "c");
+    assertValue("a", "a", "a");
+  }
+
+  @Test public void openWithBinary_upgradesTextJournal() throws Exception {
+    cache.close();
+    FileUtils.deleteDirectory(cacheDir);
+    cache = openText();
+    set("a", "a", "aa");
+    cache.close();
+    assertThat(FileUtils.readFileToString(journalFile)).startsWith(MAGIC);
+
+    cache = openBinary();
+    assertValue("a", "a", "aa");
+    cache.close();
+    assertThat(readMagic()).isEqualTo(JournalWriter.BINARY_MAGIC);
+  }
+
+  @Test public void openWithText_convertsBinaryJournal() throws Exception {
+    set("a", "a", "aa");
+    cache.close();
+
+    cache = openText();
+    assertValue("a", "a", "aa");
+    cache.close();
+    assertThat(FileUtils.readFileToString(journalFile)).startsWith(MAGIC);
+  }
+
+  @Test public void truncatedRecord_isIgnoredAndJournalRebuilt() throws Exception {
+    set("a", "a", "a");
+    set("b", "b", "b");
+    cache.close();
+    truncateJournal(3);
+
+    cache = openBinary();
+    assertValue("a", "a", "a");
+    // The CLEAN record for b was cut short, so b's edit is treated as incomplete.
+    assertThat(cache.get("b")).isNull();
+    set("c", "c", "c");
+    cache.close();
+
+    cache = openBinary();
+    assertValue("a", "a", "a");
+    assertValue("c", "c", "c");
+  }
+
+  @Test public void corruptRecord_clearsCache() throws Exception {
+    set("a", "a", "a");
+    cache.close();
+    RandomAccessFile file = new RandomAccessFile(journalFile, "rw");
+    try {
+      // Flip a byte in the last record's checksum.
+      file.seek(file.length() - 1);
+      int last = file.read();
+      file.seek(file.length() - 1);
+      file.write(last ^ 0xff);
+    } finally {
+      file.close();
+    }
+
+    cache = openBinary();
+    assertThat(cache.get("a")).isNull();
+    assertThat(new File(cacheDir, "a.0")).doesNotExist();
+  }
+
+  @Test public void mismatchedAppVersion_clearsCache() throws Exception {
+    set("a", "a", "a");
+    cache.close();
+
+    cache = DiskLruCache.open(cacheDir, APP_VERSION + 1, 2, Integer.MAX_VALUE, 1, true);
+    assertThat(cache.get("a")).isNull();
+  }
+
+  private DiskLruCache openBinary() throws Exception {
+    return DiskLruCache.open(cacheDir, APP_VERSION, 2, Integer.MAX_VALUE, 1, true);
+  }
+
+  private DiskLruCache openText() throws Exception {
+    return DiskLruCache.open(cacheDir, APP_VERSION, 2, Integer.MAX_VALUE, 1, false);
+  }
+
+  private int readMagic() throws Exception {
+    DataInputStream in = new DataInputStream(new FileInputStream(journalFile));
+    try {
+      return in.readInt();
+    } finally {
+      in.close();
+    }
+  }
+
+  private void truncateJournal(int bytes) throws Exception {
+    RandomAccessFile file = new RandomAccessFile(journalFile, "rw");
+    try {
+      file.setLength(file.length() - bytes);
+    } finally {
+      file.close();
+    }
+  }
+
+  private void set(String key, String value0, String value1) throws Exception {
+    DiskLruCache.Editor editor = cache.edit(key);
+    editor.set(0, value0);
+    editor.set(1, value1);
+    editor.commit();
+  }
+
+  private void assertValue(String key, String value0, String value1) throws Exception {
+    DiskLruCache.Value value = cache.get(key);
+    assertThat(value).isNotNull();
+    assertThat(value.getString(0)).isEqualTo(value0);
+    assertThat(value.getString(1)).isEqualTo(value1);
+  }
+}
@@ -0,0 +1,143 @@
+package com.bumptech.glide.disklrucache;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+@RunWith(JUnit4.class)
+public final class DiskLruCacheConcurrencyTest {
+  private static final int APP_VERSION = 100;
+  private static final int CONCURRENCY_LEVEL = 8;
+
+  @Rule public TemporaryFolder tempDir = new TemporaryFolder();
+
+  private File cacheDir;
+  private DiskLruCache cache;
+
+  @Before public void setUp() throws Exception {
+    cacheDir = tempDir.newFolder("DiskLruCacheConcurrencyTest");
+    cache = DiskLruCache.open(cacheDir, APP_VERSION, 1, Integer.MAX_VALUE, CONCURRENCY_LEVEL);
+  }
+
+  @After public void tearDown() throws Exception {
+    cache.close();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void open_withZeroConcurrencyLevel_throws() throws Exception {
+    DiskLruCache.open(cacheDir, APP_VERSION, 1, Integer.MAX_VALUE, 0);
+  }
+
+  @Test public void concurrentEditsOfDistinctKeys_areAllReadable() throws Exception {
+    final int threadCount = 8;
+    final int keysPerThread = 50;
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    final CountDownLatch start = new CountDownLatch(1);
+    List<Future<Void>> results = new ArrayList<Future<Void>>();
+    for (int t = 0; t < threadCount; t++) {
+      final int thread = t;
+      results.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          start.await();
+          for (int i = 0; i < keysPerThread; i++) {
+            String key = "k" + thread + "_" + i;
+            set(key, key);
+            assertThat(cache.get(key).getString(0)).isEqualTo(key);
+          }
+          return null;
+        }
+      }));
+    }
+    start.countDown();
+    for (Future<Void> result : results) {
+      result.get();
+    }
+    executor.shutdown();
+
+    for (int t = 0; t < threadCount; t++) {
+      for (int i = 0; i < keysPerThread; i++) {
+        String key = "k" + t + "_" + i;
+        assertThat(cache.get(key).getString(0)).isEqualTo(key);
+      }
+    }
+  }
+
+  @Test public void concurrentEditsOfSameKey_allowOnlyOneEditor() throws Exception {
+    DiskLruCache.Editor first = cache.edit("k1");
+    assertThat(cache.edit("k1")).isNull();
+    first.set(0, "a");
+    first.commit();
+    assertThat(cache.edit("k1")).isNotNull();
+  }
+
+  @Test public void eviction_acrossSegments_removesLeastRecentlyUsed() throws Exception {
+    cache.close();
+    cache = DiskLruCache.open(cacheDir, APP_VERSION, 1, 10, CONCURRENCY_LEVEL);
+    set("a", "aa");
+    set("b", "bb");
+    set("c", "cc");
+    set("d", "dd");
+    set("e", "ee");
+    // Touch a so that b becomes the eldest entry.
+    assertThat(cache.get("a")).isNotNull();
+
+    set("f", "ff");
+    cache.flush();
+
+    assertThat(cache.get("b")).isNull();
+    assertThat(cache.get("a")).isNotNull();
+    assertThat(cache.get("f")).isNotNull();
+    assertThat(cache.size()).isEqualTo(10);
+  }
+
+  @Test public void journal_writtenWithStripes_isReadableWithoutStripes() throws Exception {
+    set("a", "a");
+    set("b", "bb");
+    cache.remove("a");
+    set("c", "ccc");
+    cache.close();
+
+    cache = DiskLruCache.open(cacheDir, APP_VERSION, 1, Integer.MAX_VALUE);
+    assertThat(cache.get("a")).isNull();
+    assertThat(cache.get("b").getString(0)).isEqualTo("bb");
+    assertThat(cache.get("c").getString(0)).isEqualTo("ccc");
+    assertThat(cache.size()).isEqualTo(5);
+  }
+
+  @Test public void reopenWithoutStripes_preservesLruOrderAcrossSegments() throws Exception {
+    set("a", "aa");
+    set("b", "bb");
+    set("c", "cc");
+    assertThat(cache.get("a")).isNotNull();
+    cache.close();
+
+    // Re-opening with a single segment replays the journal in its original order.
+    cache = DiskLruCache.open(cacheDir, APP_VERSION, 1, 4);
+    cache.flush();
+    assertThat(cache.get("b")).isNull();
+    assertThat(cache.get("c")).isNotNull();
+    assertThat(cache.get("a")).isNotNull();
+  }
+
+  private void set(String key, String value) throws Exception {
+    DiskLruCache.Editor editor = cache.edit(key);
+    editor.set(0, value);
+    editor.commit();
+  }
+}
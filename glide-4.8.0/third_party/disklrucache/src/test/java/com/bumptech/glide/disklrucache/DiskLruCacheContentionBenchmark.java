@@ -0,0 +1,116 @@
+package com.bumptech.glide.disklrucache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares throughput of a mixed read/write workload against a single locked cache and a striped
+ * cache at 1, 4 and 16 threads.
+ *
+ * <p>Not run as part of the test suite, run {@link #main(String[])} directly with the test
+ * classpath. Each configuration is warmed up before it is measured.
+ */
+public final class DiskLruCacheContentionBenchmark {
+  private static final int[] THREAD_COUNTS = new int[] { 1, 4, 16 };
+  private static final int[] CONCURRENCY_LEVELS = new int[] { 1, 16 };
+  private static final int KEY_COUNT = 1000;
+  private static final int OPS_PER_THREAD = 20000;
+  /** One write for every {@code WRITE_RATIO} operations, the rest are reads. */
+  private static final int WRITE_RATIO = 10;
+  private static final int WARMUP_ITERATIONS = 2;
+  private static final int MEASURED_ITERATIONS = 5;
+
+  private DiskLruCacheContentionBenchmark() { }
+
+  public static void main(String[] args) throws Exception {
+    File root = new File(System.getProperty("java.io.tmpdir"), "disk_lru_cache_benchmark");
+    System.out.println("threads\tconcurrencyLevel\tops/s");
+    for (int threadCount : THREAD_COUNTS) {
+      for (int concurrencyLevel : CONCURRENCY_LEVELS) {
+        File directory = new File(root, threadCount + "_" + concurrencyLevel);
+        Util.deleteContents(directory.exists() ? directory : mkdirs(directory));
+        DiskLruCache cache =
+            DiskLruCache.open(directory, 1, 1, Long.MAX_VALUE, concurrencyLevel);
+        try {
+          populate(cache);
+          for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            run(cache, threadCount);
+          }
+          long totalNanos = 0;
+          for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            totalNanos += run(cache, threadCount);
+          }
+          double seconds = totalNanos / (double) TimeUnit.SECONDS.toNanos(1);
+          long ops = (long) threadCount * OPS_PER_THREAD * MEASURED_ITERATIONS;
+          System.out.println(
+              threadCount + "\t" + concurrencyLevel + "\t" + (long) (ops / seconds));
+        } finally {
+          cache.delete();
+        }
+      }
+    }
+  }
+
+  private static File mkdirs(File directory) {
+    directory.mkdirs();
+    return directory;
+  }
+
+  private static void populate(DiskLruCache cache) throws IOException {
+    for (int i = 0; i < KEY_COUNT; i++) {
+      DiskLruCache.Editor editor = cache.edit(key(i));
+      editor.set(0, "value" + i);
+      editor.commit();
+    }
+  }
+
+  private static long run(final DiskLruCache cache, int threadCount) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    final CountDownLatch start = new CountDownLatch(1);
+    List<Future<Void>> results = new ArrayList<Future<Void>>(threadCount);
+    for (int t = 0; t < threadCount; t++) {
+      final Random random = new Random(t);
+      results.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          start.await();
+          for (int i = 0; i < OPS_PER_THREAD; i++) {
+            String key = key(random.nextInt(KEY_COUNT));
+            if (i % WRITE_RATIO == 0) {
+              DiskLruCache.Editor editor = cache.edit(key);
+              // Another thread is already writing this key.
+              if (editor != null) {
+                editor.set(0, key);
+                editor.commit();
+              }
+            } else {
+              cache.get(key);
+            }
+          }
+          return null;
+        }
+      }));
+    }
+    long startTime = System.nanoTime();
+    start.countDown();
+    for (Future<Void> result : results) {
+      result.get();
+    }
+    long elapsed = System.nanoTime() - startTime;
+    executor.shutdown();
+    return elapsed;
+  }
+
+  private static String key(int index) {
+    return "key" + index;
+  }
+}
@@ -0,0 +1,91 @@
+package com.bumptech.glide.disklrucache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long it takes to open a cache with text and binary journals as
+ * the number of entries grows.
+ *
+ * <p>Not run as part of the test suite, run {@link #main(String[])} directly
+ * with the test classpath.
+ */
+public final class DiskLruCacheOpenBenchmark {
+  private static final int[] ENTRY_COUNTS = new int[] { 1000, 10000, 50000 };
+  /** Reads recorded per entry, roughly matching a cache that has been used for a while. */
+  private static final int READS_PER_ENTRY = 2;
+  private static final int WARMUP_ITERATIONS = 3;
+  private static final int MEASURED_ITERATIONS = 10;
+
+  private DiskLruCacheOpenBenchmark() { }
+
+  public static void main(String[] args) throws Exception {
+    File root = new File(System.getProperty("java.io.tmpdir"), "disk_lru_cache_open_benchmark");
+    System.out.println("entries\ttextJournalBytes\ttextMs\tbinaryJournalBytes\tbinaryMs");
+    for (int entryCount : ENTRY_COUNTS) {
+      File directory = new File(root, Integer.toString(entryCount));
+      if (directory.exists()) {
+        Util.deleteContents(directory);
+      }
+      populate(directory, entryCount);
+      File journal = new File(directory, DiskLruCache.JOURNAL_FILE);
+
+      long textBytes = journal.length();
+      double textMillis = measureOpen(directory, false /*binaryJournal*/);
+      // The first binary open converts the journal, so it's excluded by the warm up.
+      double binaryMillis = measureOpen(directory, true /*binaryJournal*/);
+      long binaryBytes = journal.length();
+
+      System.out.println(entryCount + "\t" + textBytes + "\t" + format(textMillis) + "\t"
+          + binaryBytes + "\t" + format(binaryMillis));
+      Util.deleteContents(directory);
+    }
+  }
+
+  private static void populate(File directory, int entryCount) throws IOException {
+    DiskLruCache cache = DiskLruCache.open(directory, 1, 1, Long.MAX_VALUE);
+    try {
+      for (int i = 0; i < entryCount; i++) {
+        DiskLruCache.Editor editor = cache.edit(key(i));
+        editor.set(0, "v");
+        editor.commit();
+      }
+      for (int read = 0; read < READS_PER_ENTRY; read++) {
+        for (int i = 0; i < entryCount; i++) {
+          cache.get(key(i));
+        }
+      }
+    } finally {
+      cache.close();
+    }
+  }
+
+  private static double measureOpen(File directory, boolean binaryJournal) throws IOException {
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      open(directory, binaryJournal).close();
+    }
+    long totalNanos = 0;
+    for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+      long start = System.nanoTime();
+      DiskLruCache cache = open(directory, binaryJournal);
+      totalNanos += System.nanoTime() - start;
+      cache.close();
+    }
+    return totalNanos / (double) TimeUnit.MILLISECONDS.toNanos(1) / MEASURED_ITERATIONS;
+  }
+
+  private static DiskLruCache open(File directory, boolean binaryJournal) throws IOException {
+    return DiskLruCache.open(
+        directory, 1, 1, Long.MAX_VALUE, 1 /*concurrencyLevel*/, binaryJournal);
+  }
+
+  private static String format(double millis) {
+    return String.format("%.2f", millis);
+  }
+
+  private static String key(int index) {
+    // Glide's keys are 64 character SHA-256 hashes.
+    return String.format("%064x", index);
+  }
+}
@@ -138,6 +138,33 @@ public final class DiskLruCacheTest {
     assertJournalEquals("DIRTY k1", "CLEAN k1 2 1");
   }
 
+  @Test public void commitAllPublishesEveryEdit() throws Exception {
+    DiskLruCache.Editor k1 = cache.edit("k1");
+    k1.set(0, "AB");
+    k1.set(1, "C");
+    DiskLruCache.Editor k2 = cache.edit("k2");
+    k2.set(0, "DEF");
+    k2.set(1, "G");
+    cache.commitAll(Arrays.asList(k1, k2));
+    assertThat(cache.get("k1").getString(0)).isEqualTo("AB");
+    assertThat(cache.get("k2").getString(0)).isEqualTo("DEF");
+    cache.close();
+    assertJournalEquals("DIRTY k1", "DIRTY k2", "CLEAN k1 2 1", "CLEAN k2 3 1", "READ k1",
+        "READ k2");
+  }
+
+  @Test public void commitAllAfterCloseThrowsIllegalStateException() throws Exception {
+    DiskLruCache.Editor k1 = cache.edit("k1");
+    k1.set(0, "AB");
+    k1.set(1, "C");
+    cache.close();
+    try {
+      cache.commitAll(Arrays.asList(k1));
+      Assert.fail();
+    } catch (IllegalStateException expected) {
+    }
+  }
+
   @Test public void revertedNewFileIsRemoveInJournal() throws Exception {
     DiskLruCache.Editor creator = cache.edit("k1");
     assertJournalEquals("DIRTY k1"); // DIRTY must always be flushed.
@@ -415,6 +442,23 @@ public final class DiskLruCacheTest {
     assertValue("e", "eeee", "eeee");
   }
 
+  @Test public void evictionCountIncludesOnlyEntriesEvictedForSpace() throws Exception {
+    cache.close();
+    cache = DiskLruCache.open(cacheDir, appVersion, 2, 10);
+
+    set("a", "a", "aaa"); // size 4
+    set("b", "bb", "bbbb"); // size 6
+    cache.remove("b");
+    cache.flush();
+    assertThat(cache.getEvictionCount()).isEqualTo(0);
+
+    // Causing the size to grow to 16 should evict 'A' and 'C'.
+    set("c", "c", "c"); // size 2
+    set("d", "ddddd", "ddddd"); // size 10
+    cache.flush();
+    assertThat(cache.getEvictionCount()).isEqualTo(2);
+  }
+
   @Test public void evictOnUpdate() throws Exception {
     cache.close();
     cache = DiskLruCache.open(cacheDir, appVersion, 2, 10);